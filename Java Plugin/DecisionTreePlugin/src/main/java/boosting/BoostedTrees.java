@@ -0,0 +1,138 @@
+/**
+ * This class is a trained gradient boosting model for multi-class classification: one
+ * regression tree per class and round. The score of a class is its base score (the log of
+ * its prior) plus the values of its trees; the probabilities are the softmax of the
+ * scores, and the predicted class is the one with the largest score.
+ */
+
+package boosting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import definition.ColumnarDataSet;
+
+public class BoostedTrees {
+
+	private double[] baseScores;
+	// Trees of every round, one per class
+	private List<RegressionTree[]> rounds;
+	private ArrayList<String> classLabels;
+
+
+	/**
+	 * Constructor
+	 * @param baseScores score of every class before the first round
+	 * @param rounds trees of every round, one per class
+	 * @param classLabels
+	 */
+	public BoostedTrees(double[] baseScores, List<RegressionTree[]> rounds, ArrayList<String> classLabels) {
+		this.baseScores = baseScores;
+		this.rounds = rounds;
+		this.classLabels = classLabels;
+	}
+
+	/**
+	 * Scores of every class of a row of a columnar data set encoded with the attributes
+	 * of the training data
+	 * @param data
+	 * @param row
+	 * @param scores array with one entry per class, overwritten
+	 */
+	public void scores(ColumnarDataSet data, int row, double[] scores) {
+		System.arraycopy(baseScores, 0, scores, 0, baseScores.length);
+		for (RegressionTree[] trees : rounds) {
+			for (int c = 0; c < trees.length; c++) {
+				scores[c] += trees[c].predict(data, row);
+			}
+		}
+	}
+
+	/**
+	 * @param data
+	 * @param row
+	 * @return double[] probability of every class
+	 */
+	public double[] probabilities(ColumnarDataSet data, int row) {
+		double[] scores = new double[baseScores.length];
+		scores(data, row, scores);
+		softmax(scores);
+		return scores;
+	}
+
+	/**
+	 * Replace scores by their softmax
+	 * @param scores
+	 */
+	public static void softmax(double[] scores) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (double score : scores) {
+			max = Math.max(max, score);
+		}
+		double sum = 0;
+		for (int c = 0; c < scores.length; c++) {
+			scores[c] = Math.exp(scores[c] - max);
+			sum += scores[c];
+		}
+		for (int c = 0; c < scores.length; c++) {
+			scores[c] /= sum;
+		}
+	}
+
+	/**
+	 * @param data
+	 * @param row
+	 * @return int class id with the largest score; ties go to the first class
+	 */
+	public int predict(ColumnarDataSet data, int row) {
+		double[] scores = new double[baseScores.length];
+		scores(data, row, scores);
+		return argmax(scores);
+	}
+
+	/**
+	 * Predict every row of a columnar data set
+	 * @param data
+	 * @return int[] class id of every row
+	 */
+	public int[] predictAll(ColumnarDataSet data) {
+		double[] scores = new double[baseScores.length];
+		int[] predictions = new int[data.size()];
+		for (int row = 0; row < predictions.length; row++) {
+			scores(data, row, scores);
+			predictions[row] = argmax(scores);
+		}
+		return predictions;
+	}
+
+	private static int argmax(double[] scores) {
+		int best = 0;
+		for (int c = 1; c < scores.length; c++) {
+			if (scores[c] > scores[best]) best = c;
+		}
+		return best;
+	}
+
+	public String getClassLabel(int classId) {
+		return classLabels.get(classId);
+	}
+
+	/**
+	 * @return int number of boosting rounds kept
+	 */
+	public int getRoundCount() {
+		return rounds.size();
+	}
+
+	public List<RegressionTree[]> getRounds() {
+		return rounds;
+	}
+
+	public double[] getBaseScores() {
+		return baseScores;
+	}
+
+	public ArrayList<String> getClassLabels() {
+		return classLabels;
+	}
+}
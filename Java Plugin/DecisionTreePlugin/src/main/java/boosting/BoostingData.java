@@ -0,0 +1,101 @@
+/**
+ * This class is the working set of gradient boosting: every attribute of the training data
+ * as one small integer per row. Continuous attributes are quantized into histogram bins
+ * (one byte per row, see BinnedDataSet); discrete attributes keep their value codes, and
+ * every value is a bin of its own. Together with the gradients and hessians this is all a
+ * boosting round reads, whatever the number of rows. Only the bins, the discrete columns
+ * and the labels are kept, not the data set: its double columns are not referenced.
+ */
+
+package boosting;
+
+import definition.BinnedDataSet;
+import definition.ColumnarDataSet;
+
+public class BoostingData {
+
+	private BinnedDataSet binned;
+	private int[][] discreteColumns;
+	private int[] labels;
+	private int[] binCounts;
+
+
+	/**
+	 * Constructor: quantize the continuous attributes of the data set
+	 * @param data
+	 * @param maxBins between 2 and 256
+	 */
+	public BoostingData(ColumnarDataSet data, int maxBins) {
+		this.binned = new BinnedDataSet(data, maxBins);
+		this.labels = data.getLabels();
+		int attributeCount = data.getAttributes().size();
+		discreteColumns = new int[attributeCount][];
+		binCounts = new int[attributeCount];
+		for (int a = 0; a < attributeCount; a++) {
+			if (data.isContinuous(a)) {
+				binCounts[a] = binned.getBinCount(a);
+			} else {
+				discreteColumns[a] = data.getDiscreteColumn(a);
+				binCounts[a] = data.getAttributes().get(a).getValues().size();
+			}
+		}
+	}
+
+	/**
+	 * @param attribute
+	 * @param row
+	 * @return int bin of the row: the bin code of a continuous attribute, the value code
+	 * of a discrete one
+	 */
+	public int getBin(int attribute, int row) {
+		if (discreteColumns[attribute] == null) {
+			return binned.getCodes(attribute)[row] & 0xFF;
+		}
+		return discreteColumns[attribute][row];
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return byte[] bin code of every row, read with code & 0xFF
+	 */
+	public byte[] getCodes(int attribute) {
+		return binned.getCodes(attribute);
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @param bin
+	 * @return double threshold between the bin and the next one
+	 */
+	public double getThreshold(int attribute, int bin) {
+		return binned.getThresholds(attribute)[bin];
+	}
+
+	public int getBinCount(int attribute) {
+		return binCounts[attribute];
+	}
+
+	/**
+	 * @param attribute index of a discrete attribute
+	 * @return int[] value code of every row
+	 */
+	public int[] getDiscreteColumn(int attribute) {
+		return discreteColumns[attribute];
+	}
+
+	public boolean isContinuous(int attribute) {
+		return discreteColumns[attribute] == null;
+	}
+
+	public int getAttributeCount() {
+		return binCounts.length;
+	}
+
+	public int[] getLabels() {
+		return labels;
+	}
+
+	public int size() {
+		return labels.length;
+	}
+}
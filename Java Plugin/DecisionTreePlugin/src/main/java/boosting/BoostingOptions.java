@@ -0,0 +1,204 @@
+/**
+ * This class holds the options of gradient boosting: the tree options used by the
+ * boosted trees (maxBins, parallelism, sequentialCutoff, seed) and the options of the
+ * boosting rounds. maxBins 0 stands for the largest number of bins, since boosted trees
+ * are always grown from histograms.
+ * The user functions pass them as an optional map, e.g. {numRounds: 300, learningRate: 0.05}.
+ */
+
+package boosting;
+
+import java.util.Map;
+
+import core.TreeOptions;
+
+public class BoostingOptions extends TreeOptions {
+
+	// Largest number of boosting rounds, one tree per class and round
+	private int numRounds = 100;
+
+	// Factor of the leaf values of every tree
+	private double learningRate = 0.1;
+
+	// Fraction of the training rows drawn (without replacement) for every round
+	private double subsample = 1.0;
+
+	// Fraction of the training rows held out to decide when to stop, 0 to use all rows
+	private double validationFraction = 0.1;
+
+	// Stop after this many rounds without a better validation loss, 0 to run all rounds
+	private int earlyStoppingRounds = 10;
+
+	// L2 regularization of the leaf values
+	private double lambda = 1.0;
+
+	// Smallest sum of hessians of a child
+	private double minChildWeight = 1.0;
+
+
+	public BoostingOptions() {}
+
+	/**
+	 * Constructor: copy the tree options, with the default boosting options
+	 * @param options
+	 */
+	public BoostingOptions(TreeOptions options) {
+		super(options);
+		if (options instanceof BoostingOptions) {
+			BoostingOptions boosting = (BoostingOptions) options;
+			this.numRounds = boosting.numRounds;
+			this.learningRate = boosting.learningRate;
+			this.subsample = boosting.subsample;
+			this.validationFraction = boosting.validationFraction;
+			this.earlyStoppingRounds = boosting.earlyStoppingRounds;
+			this.lambda = boosting.lambda;
+			this.minChildWeight = boosting.minChildWeight;
+		}
+	}
+
+	/**
+	 * Read the options from a map of option name to value. Unknown names are rejected.
+	 * @param options
+	 * @return BoostingOptions
+	 */
+	public static BoostingOptions fromMap(Map<String, Object> options) {
+		BoostingOptions boostingOptions = new BoostingOptions();
+		boostingOptions.setAll(options);
+		return boostingOptions;
+	}
+
+	@Override
+	protected void setOption(String name, Object value) {
+		if (name.equals("numRounds")) {
+			setNumRounds(toInt(name, value));
+		} else if (name.equals("learningRate")) {
+			setLearningRate(toDouble(name, value));
+		} else if (name.equals("subsample")) {
+			setSubsample(toDouble(name, value));
+		} else if (name.equals("validationFraction")) {
+			setValidationFraction(toDouble(name, value));
+		} else if (name.equals("earlyStoppingRounds")) {
+			setEarlyStoppingRounds(toInt(name, value));
+		} else if (name.equals("lambda")) {
+			setLambda(toDouble(name, value));
+		} else if (name.equals("minChildWeight")) {
+			setMinChildWeight(toDouble(name, value));
+		} else {
+			super.setOption(name, value);
+		}
+	}
+
+
+	/**
+	 * @return int number of histogram bins of continuous attributes
+	 */
+	public int getBoostingBins() {
+		return getMaxBins() > 0 ? getMaxBins() : MAX_BINS;
+	}
+
+	public int getNumRounds() {
+		return numRounds;
+	}
+
+	/**
+	 * @param numRounds largest number of boosting rounds, at least 1
+	 */
+	public void setNumRounds(int numRounds) {
+		if (numRounds < 1)
+			throw new IllegalArgumentException("numRounds must be at least 1: " + numRounds);
+		this.numRounds = numRounds;
+	}
+
+	public double getLearningRate() {
+		return learningRate;
+	}
+
+	/**
+	 * @param learningRate factor of the leaf values, above 0
+	 */
+	public void setLearningRate(double learningRate) {
+		if (!(learningRate > 0))
+			throw new IllegalArgumentException("learningRate must be above 0: " + learningRate);
+		this.learningRate = learningRate;
+	}
+
+	public double getSubsample() {
+		return subsample;
+	}
+
+	/**
+	 * @param subsample fraction of the training rows used by every round, above 0 and at most 1
+	 */
+	public void setSubsample(double subsample) {
+		if (!(subsample > 0 && subsample <= 1))
+			throw new IllegalArgumentException("subsample must be above 0 and at most 1: " + subsample);
+		this.subsample = subsample;
+	}
+
+	public double getValidationFraction() {
+		return validationFraction;
+	}
+
+	/**
+	 * @param validationFraction fraction of the training rows held out for early stopping,
+	 * at least 0 and below 1
+	 */
+	public void setValidationFraction(double validationFraction) {
+		if (!(validationFraction >= 0 && validationFraction < 1))
+			throw new IllegalArgumentException("validationFraction must be at least 0 and below 1: " + validationFraction);
+		this.validationFraction = validationFraction;
+	}
+
+	public int getEarlyStoppingRounds() {
+		return earlyStoppingRounds;
+	}
+
+	/**
+	 * @param earlyStoppingRounds rounds without improvement before stopping, 0 to run all rounds
+	 */
+	public void setEarlyStoppingRounds(int earlyStoppingRounds) {
+		if (earlyStoppingRounds < 0)
+			throw new IllegalArgumentException("earlyStoppingRounds must be at least 0: " + earlyStoppingRounds);
+		this.earlyStoppingRounds = earlyStoppingRounds;
+	}
+
+	public double getLambda() {
+		return lambda;
+	}
+
+	/**
+	 * @param lambda L2 regularization of the leaf values, at least 0
+	 */
+	public void setLambda(double lambda) {
+		if (!(lambda >= 0))
+			throw new IllegalArgumentException("lambda must be at least 0: " + lambda);
+		this.lambda = lambda;
+	}
+
+	public double getMinChildWeight() {
+		return minChildWeight;
+	}
+
+	/**
+	 * @param minChildWeight smallest sum of hessians of a child, at least 0
+	 */
+	public void setMinChildWeight(double minChildWeight) {
+		if (!(minChildWeight >= 0))
+			throw new IllegalArgumentException("minChildWeight must be at least 0: " + minChildWeight);
+		this.minChildWeight = minChildWeight;
+	}
+
+	/**
+	 * @return boolean true if training rows are held out for early stopping
+	 */
+	public boolean isEarlyStopping() {
+		return validationFraction > 0 && earlyStoppingRounds > 0;
+	}
+
+	public String toString() {
+		return super.toString() + "; numRounds: " + numRounds + "; learningRate: " + learningRate
+				+ "; subsample: " + subsample + "; validationFraction: " + validationFraction
+				+ "; earlyStoppingRounds: " + earlyStoppingRounds + "; lambda: " + lambda
+				+ "; minChildWeight: " + minChildWeight;
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * This class is used for evaluating gradient boosted trees on the test set, with the same
+ * confusion matrix output as the single trees.
+ */
+
+package boosting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import definition.Instance;
+import evaluate.EvaluateTree;
+
+public class EvaluateBoosting extends EvaluateTree {
+	private int max_depth;
+	private BoostedTrees model;
+
+	/**
+	 * Constructor to process the csv path
+	 *
+	 * @param trainData
+	 * @param testData
+	 * @param targetAttr
+	 * @param max_depth depth of the boosted trees
+	 * @throws IOException
+	 */
+	public EvaluateBoosting(String trainData, String testData, String targetAttr, int max_depth) throws IOException {
+		super(trainData, testData, targetAttr, "True", max_depth);
+		this.max_depth = max_depth;
+	}
+
+	/**
+	 * Overloaded constructor to process the nodes from Neo4j
+	 *
+	 * @param trainDataList
+	 * @param testDataList
+	 * @param targetAttr
+	 * @param max_depth depth of the boosted trees
+	 * @throws IOException
+	 */
+	public EvaluateBoosting(ArrayList<String> trainDataList, ArrayList<String> testDataList, String targetAttr, int max_depth) throws IOException {
+		super(trainDataList, testDataList, targetAttr, "True", max_depth);
+		this.max_depth = max_depth;
+	}
+
+	/**
+	 * Train the boosted trees and evaluate them on the test set
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public String calculateAccuracy() throws IOException {
+		//time taken to generate the model
+		String confusionMatrix = "";
+
+		long tstTime = System.currentTimeMillis();
+		BoostingOptions options = getOptions() instanceof BoostingOptions ? (BoostingOptions) getOptions()
+				: new BoostingOptions(getOptions());
+		model = new HistogramBooster(getTrainData(), max_depth, options).train();
+
+		long teTime = System.currentTimeMillis();
+		double generationTime = (teTime-tstTime)/1000f;
+		System.out.println("Time taken to generate boosted trees:"+ generationTime +"s, rounds: " + model.getRoundCount());
+
+		//time taken to run predictions
+		long startTime = System.currentTimeMillis();
+
+		int correct = 0;
+
+		ArrayList<Instance> res = getResult();
+
+		createClassificationResults(res);
+
+		ArrayList<String> actual = new ArrayList<>();
+		ArrayList<String> predictions = new ArrayList<>();
+
+		for (Instance item : res) {
+			String testLabel = item.getAttributeValuePairs().get("Test" + getTarget().getName());
+			predictions.add(testLabel);
+
+			String label = item.getAttributeValuePairs().get(getTarget().getName());
+			actual.add(label);
+			if(testLabel == null) {
+				continue;
+			}
+
+			if (testLabel.equals(label)) {
+				correct++;
+			}
+		}
+
+		confusionMatrix = calculateConfusionMatrix(actual, predictions);
+
+		super.setScore(correct * 1.0 / res.size());
+
+		long endTime = System.currentTimeMillis();
+		double predTime = (endTime - startTime)/1000f;
+		System.out.println("Time taken to generate prediction: " + predTime + " s\n");
+
+		return "Time taken to generate boosted trees: " + generationTime + " s\n" + "Rounds: " + model.getRoundCount() + "\n"
+				+ "Time taken to generate prediction: " + predTime + " s\n" + confusionMatrix + "%";
+	}
+
+	/**
+	 * Predict every test instance with the boosted trees
+	 */
+	@Override
+	protected void traverseTree() {
+		int[] predictions = model.predictAll(getTestData());
+		for (int i = 0; i < predictions.length; i++) {
+			HashMap<String, String> pairs = result.get(i).getAttributeValuePairs();
+			pairs.put("Test" + getTarget().getName(), model.getClassLabel(predictions[i]));
+		}
+	}
+
+	public BoostedTrees getModel() {
+		return model;
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ * This class grows one regression tree of gradient boosting on the gradients and hessians
+ * of one class. Every node keeps, for every attribute, the sums of gradients, hessians and
+ * rows per bin; the best split of an attribute is a scan over its bins, and a split is
+ * scored by the regularized gain (G_L^2 / (H_L + lambda) + G_R^2 / (H_R + lambda) -
+ * G^2 / (H + lambda)). As in HistogramIndex, the rows of a node are a range of one row
+ * array which a split partitions in place, the histograms of the smaller child are counted
+ * from its rows and those of the larger child are the parent's minus the smaller child's.
+ * Attributes are counted and scanned as parallel fork-join tasks in nodes with at least
+ * sequentialCutoff rows.
+ */
+
+package boosting;
+
+import java.io.IOException;
+
+import core.ParallelTasks;
+
+public class GradientTreeBuilder {
+
+	// Values per bin in a histogram: sum of gradients, sum of hessians, number of rows
+	private static final int STRIDE = 3;
+
+	private BoostingData data;
+	private float[] gradients;
+	private float[] hessians;
+	private int[] rows;
+	private int[] buffer;
+	private int maxDepth;
+	private BoostingOptions options;
+	private RegressionTree tree;
+
+
+	/**
+	 * Constructor
+	 * @param data binned training data
+	 * @param gradients gradient of every row of the data
+	 * @param hessians hessian of every row of the data
+	 * @param rows rows to grow the tree on, reordered in place
+	 * @param maxDepth depth of the leaves, at least 1
+	 * @param options
+	 */
+	public GradientTreeBuilder(BoostingData data, float[] gradients, float[] hessians, int[] rows,
+			int maxDepth, BoostingOptions options) {
+		this.data = data;
+		this.gradients = gradients;
+		this.hessians = hessians;
+		this.rows = rows;
+		this.buffer = new int[rows.length];
+		this.maxDepth = maxDepth;
+		this.options = options;
+	}
+
+	/**
+	 * Grow the tree
+	 * @return RegressionTree
+	 * @throws IOException
+	 */
+	public RegressionTree build() throws IOException {
+		tree = new RegressionTree();
+		double sumGradients = 0;
+		double sumHessians = 0;
+		for (int row : rows) {
+			sumGradients += gradients[row];
+			sumHessians += hessians[row];
+		}
+		grow(0, rows.length, histograms(0, rows.length), sumGradients, sumHessians, 0);
+		return tree;
+	}
+
+	private int grow(int from, int to, double[][] histograms, double sumGradients, double sumHessians,
+			int depth) throws IOException {
+		Split split = depth < maxDepth ? findSplit(histograms, from, to, sumGradients, sumHessians) : null;
+		if (split == null) {
+			double leafValue = -sumGradients / (sumHessians + options.getLambda());
+			return tree.addLeaf(leafValue * options.getLearningRate());
+		}
+
+		boolean isContinuous = data.isContinuous(split.attribute);
+		double cut = isContinuous ? data.getThreshold(split.attribute, split.bin) : 0;
+		int node = tree.addSplit(split.attribute, split.bin, cut, isContinuous);
+
+		int mid = partition(from, to, split.attribute, split.bin, isContinuous);
+		double[][] leftHistograms;
+		double[][] rightHistograms;
+		if (mid - from <= to - mid) {
+			leftHistograms = histograms(from, mid);
+			rightHistograms = subtract(histograms, leftHistograms);
+		} else {
+			rightHistograms = histograms(mid, to);
+			leftHistograms = subtract(histograms, rightHistograms);
+		}
+		int leftChild = grow(from, mid, leftHistograms, split.leftGradients, split.leftHessians, depth + 1);
+		int rightChild = grow(mid, to, rightHistograms, sumGradients - split.leftGradients,
+				sumHessians - split.leftHessians, depth + 1);
+		tree.setChildren(node, leftChild, rightChild);
+		return node;
+	}
+
+	/**
+	 * Count the histograms of all attributes over the rows from to to - 1
+	 */
+	private double[][] histograms(final int from, final int to) throws IOException {
+		final double[][] histograms = new double[data.getAttributeCount()][];
+		ParallelTasks.forEach(histograms.length, parallelism(from, to), new ParallelTasks.Task() {
+			public void run(int a) {
+				double[] histogram = new double[data.getBinCount(a) * STRIDE];
+				if (data.isContinuous(a)) {
+					byte[] codes = data.getCodes(a);
+					for (int i = from; i < to; i++) {
+						int row = rows[i];
+						int k = (codes[row] & 0xFF) * STRIDE;
+						histogram[k] += gradients[row];
+						histogram[k + 1] += hessians[row];
+						histogram[k + 2]++;
+					}
+				} else {
+					int[] codes = data.getDiscreteColumn(a);
+					for (int i = from; i < to; i++) {
+						int row = rows[i];
+						int k = codes[row] * STRIDE;
+						histogram[k] += gradients[row];
+						histogram[k + 1] += hessians[row];
+						histogram[k + 2]++;
+					}
+				}
+				histograms[a] = histogram;
+			}
+		});
+		return histograms;
+	}
+
+	/**
+	 * Histograms of the sibling of a child: the parent's minus the child's, in place
+	 */
+	private static double[][] subtract(double[][] parent, double[][] child) {
+		for (int a = 0; a < parent.length; a++) {
+			for (int k = 0; k < parent[a].length; k++) {
+				parent[a][k] -= child[a][k];
+			}
+		}
+		return parent;
+	}
+
+	/**
+	 * Best split over all attributes; ties go to the first attribute and the first bin
+	 * @return Split, or null if no split has a positive gain
+	 */
+	private Split findSplit(final double[][] histograms, int from, int to, final double sumGradients,
+			final double sumHessians) throws IOException {
+		final Split[] best = new Split[histograms.length];
+		ParallelTasks.forEach(histograms.length, parallelism(from, to), new ParallelTasks.Task() {
+			public void run(int a) {
+				best[a] = scan(a, histograms[a], sumGradients, sumHessians);
+			}
+		});
+		Split split = null;
+		for (Split candidate : best) {
+			if (candidate != null && (split == null || candidate.gain > split.gain)) {
+				split = candidate;
+			}
+		}
+		return split;
+	}
+
+	private Split scan(int attribute, double[] histogram, double sumGradients, double sumHessians) {
+		double lambda = options.getLambda();
+		double minChildWeight = options.getMinChildWeight();
+		double parentScore = sumGradients * sumGradients / (sumHessians + lambda);
+		boolean isContinuous = data.isContinuous(attribute);
+		int bins = data.getBinCount(attribute);
+		double totalN = 0;
+		for (int bin = 0; bin < bins; bin++) {
+			totalN += histogram[bin * STRIDE + 2];
+		}
+
+		Split best = null;
+		double leftGradients = 0;
+		double leftHessians = 0;
+		double leftN = 0;
+		// Continuous: bins up to bin go left; discrete: the value of bin goes left
+		int candidates = isContinuous ? bins - 1 : bins;
+		for (int bin = 0; bin < candidates; bin++) {
+			int k = bin * STRIDE;
+			if (isContinuous) {
+				leftGradients += histogram[k];
+				leftHessians += histogram[k + 1];
+				leftN += histogram[k + 2];
+			} else {
+				leftGradients = histogram[k];
+				leftHessians = histogram[k + 1];
+				leftN = histogram[k + 2];
+			}
+			double rightHessians = sumHessians - leftHessians;
+			if (leftN == 0 || leftN == totalN) continue;
+			if (leftHessians < minChildWeight || rightHessians < minChildWeight) continue;
+			double rightGradients = sumGradients - leftGradients;
+			double gain = leftGradients * leftGradients / (leftHessians + lambda)
+					+ rightGradients * rightGradients / (rightHessians + lambda) - parentScore;
+			if (gain > 0 && (best == null || gain > best.gain)) {
+				if (best == null) best = new Split();
+				best.attribute = attribute;
+				best.bin = bin;
+				best.gain = gain;
+				best.leftGradients = leftGradients;
+				best.leftHessians = leftHessians;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Stable partition of the rows from to to - 1: left rows first
+	 * @return int position of the first right row
+	 */
+	private int partition(int from, int to, int attribute, int bin, boolean isContinuous) {
+		int leftEnd = from;
+		int rightEnd = from;
+		for (int i = from; i < to; i++) {
+			int row = rows[i];
+			int rowBin = data.getBin(attribute, row);
+			if (isContinuous ? rowBin <= bin : rowBin == bin) {
+				rows[leftEnd++] = row;
+			} else {
+				buffer[rightEnd++] = row;
+			}
+		}
+		System.arraycopy(buffer, from, rows, leftEnd, rightEnd - from);
+		return leftEnd;
+	}
+
+	private int parallelism(int from, int to) {
+		return to - from >= options.getSequentialCutoff() ? options.getParallelism() : 1;
+	}
+
+
+	/**
+	 * Best split of a node
+	 */
+	private static class Split {
+		int attribute;
+		int bin;
+		double gain;
+		double leftGradients;
+		double leftHessians;
+	}
+}
@@ -0,0 +1,217 @@
+/**
+ * This class trains a gradient boosting model with the multi-class softmax loss. Every
+ * round computes the gradient (p - y) and hessian (p (1 - p)) of every class for every
+ * training row, draws a subsample of the rows, and grows one histogram regression tree
+ * per class on it (see GradientTreeBuilder); the trees of the classes are grown as
+ * parallel fork-join tasks. A fraction of the training rows can be held out: their loss
+ * is measured after every round, and training stops when it has not improved for
+ * earlyStoppingRounds rounds, keeping the rounds up to the best one.
+ * The working set is the binned data (one byte per continuous value) and the scores,
+ * gradients and hessians as floats: 12 bytes per class and row besides the bins. The
+ * data is binned when the booster is created, and the booster does not reference the
+ * training data set afterwards.
+ */
+
+package boosting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import core.ParallelTasks;
+import definition.ColumnarDataSet;
+
+public class HistogramBooster {
+
+	// Rows per task when the gradients and scores are updated in parallel
+	private static final int ROWS_PER_TASK = 65536;
+
+	private ArrayList<String> classLabels;
+	private int maxDepth;
+	private BoostingOptions options;
+	private int numClasses;
+	private BoostingData binned;
+	private double[] validationLosses;
+
+
+	/**
+	 * Constructor: bin the training data
+	 * @param data training data
+	 * @param maxDepth depth of the leaves of every tree, at least 1
+	 * @param options
+	 */
+	public HistogramBooster(ColumnarDataSet data, int maxDepth, BoostingOptions options) {
+		if (maxDepth < 1)
+			throw new IllegalArgumentException("maxDepth must be at least 1: " + maxDepth);
+		this.classLabels = data.getTarget().getValues();
+		this.maxDepth = maxDepth;
+		this.options = options;
+		this.numClasses = data.getNumClasses();
+		this.binned = new BoostingData(data, options.getBoostingBins());
+	}
+
+	/**
+	 * Train the model
+	 * @return BoostedTrees
+	 * @throws IOException
+	 */
+	public BoostedTrees train() throws IOException {
+		Random random = new Random(options.getSeed());
+		final int n = binned.size();
+		int[] labels = binned.getLabels();
+
+		// Hold out the validation rows
+		int[] order = new int[n];
+		for (int row = 0; row < n; row++) {
+			order[row] = row;
+		}
+		order = shuffle(order, random);
+		int validationSize = options.isEarlyStopping() ? (int) Math.round(n * options.getValidationFraction()) : 0;
+		validationSize = Math.min(validationSize, n - 1);
+		final int[] validationRows = Arrays.copyOfRange(order, 0, Math.max(0, validationSize));
+		final int[] trainRows = Arrays.copyOfRange(order, validationRows.length, n);
+		Arrays.sort(validationRows);
+		Arrays.sort(trainRows);
+
+		// Start from the log of the class priors of the training rows
+		double[] baseScores = new double[numClasses];
+		int[] classCounts = new int[numClasses];
+		for (int row : trainRows) {
+			classCounts[labels[row]]++;
+		}
+		for (int c = 0; c < numClasses; c++) {
+			baseScores[c] = Math.log((classCounts[c] + 1.0) / (trainRows.length + numClasses));
+		}
+		final float[][] scores = new float[numClasses][n];
+		for (int c = 0; c < numClasses; c++) {
+			Arrays.fill(scores[c], (float) baseScores[c]);
+		}
+		final float[][] gradients = new float[numClasses][n];
+		final float[][] hessians = new float[numClasses][n];
+
+		ArrayList<RegressionTree[]> rounds = new ArrayList<RegressionTree[]>();
+		ArrayList<Double> losses = new ArrayList<Double>();
+		double bestLoss = Double.POSITIVE_INFINITY;
+		int bestRounds = 0;
+		int parallelism = options.getParallelism();
+		for (int round = 0; round < options.getNumRounds(); round++) {
+			computeGradients(trainRows, labels, scores, gradients, hessians);
+			final int[] sample = subsample(trainRows, random);
+
+			final RegressionTree[] trees = new RegressionTree[numClasses];
+			ParallelTasks.forEach(numClasses, parallelism, new ParallelTasks.Task() {
+				public void run(int c) throws IOException {
+					trees[c] = new GradientTreeBuilder(binned, gradients[c], hessians[c], sample.clone(),
+							maxDepth, options).build();
+				}
+			});
+			rounds.add(trees);
+
+			// Add the new trees to the scores of all rows
+			ParallelTasks.forEach(taskCount(n), parallelism, new ParallelTasks.Task() {
+				public void run(int t) {
+					int end = Math.min(n, (t + 1) * ROWS_PER_TASK);
+					for (int row = t * ROWS_PER_TASK; row < end; row++) {
+						for (int c = 0; c < numClasses; c++) {
+							scores[c][row] += (float) trees[c].predict(binned, row);
+						}
+					}
+				}
+			});
+
+			if (validationRows.length > 0) {
+				double loss = logLoss(validationRows, labels, scores);
+				losses.add(loss);
+				if (loss < bestLoss) {
+					bestLoss = loss;
+					bestRounds = rounds.size();
+				} else if (rounds.size() - bestRounds >= options.getEarlyStoppingRounds()) {
+					break;
+				}
+			}
+		}
+
+		validationLosses = new double[losses.size()];
+		for (int i = 0; i < validationLosses.length; i++) {
+			validationLosses[i] = losses.get(i);
+		}
+		if (validationRows.length > 0) {
+			rounds = new ArrayList<RegressionTree[]>(rounds.subList(0, bestRounds));
+		}
+		return new BoostedTrees(baseScores, rounds, classLabels);
+	}
+
+	/**
+	 * Gradients and hessians of the softmax loss of every class for the training rows
+	 */
+	private void computeGradients(final int[] trainRows, final int[] labels, final float[][] scores,
+			final float[][] gradients, final float[][] hessians) throws IOException {
+		ParallelTasks.forEach(taskCount(trainRows.length), options.getParallelism(), new ParallelTasks.Task() {
+			public void run(int t) {
+				double[] probabilities = new double[numClasses];
+				int end = Math.min(trainRows.length, (t + 1) * ROWS_PER_TASK);
+				for (int i = t * ROWS_PER_TASK; i < end; i++) {
+					int row = trainRows[i];
+					for (int c = 0; c < numClasses; c++) {
+						probabilities[c] = scores[c][row];
+					}
+					BoostedTrees.softmax(probabilities);
+					for (int c = 0; c < numClasses; c++) {
+						double p = probabilities[c];
+						gradients[c][row] = (float) (labels[row] == c ? p - 1 : p);
+						hessians[c][row] = (float) Math.max(p * (1 - p), 1e-6);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Mean negative log likelihood of the true classes of the given rows
+	 */
+	private double logLoss(int[] rows, int[] labels, float[][] scores) {
+		double[] probabilities = new double[numClasses];
+		double loss = 0;
+		for (int row : rows) {
+			for (int c = 0; c < numClasses; c++) {
+				probabilities[c] = scores[c][row];
+			}
+			BoostedTrees.softmax(probabilities);
+			loss -= Math.log(Math.max(probabilities[labels[row]], 1e-15));
+		}
+		return loss / rows.length;
+	}
+
+	/**
+	 * Draw round(subsample * rows) of the rows without replacement, in row order
+	 */
+	private int[] subsample(int[] rows, Random random) {
+		if (options.getSubsample() >= 1) return rows;
+		int size = Math.max(1, (int) Math.round(rows.length * options.getSubsample()));
+		int[] sample = Arrays.copyOf(shuffle(rows.clone(), random), size);
+		Arrays.sort(sample);
+		return sample;
+	}
+
+	private static int[] shuffle(int[] rows, Random random) {
+		for (int i = rows.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = rows[i];
+			rows[i] = rows[j];
+			rows[j] = swap;
+		}
+		return rows;
+	}
+
+	private static int taskCount(int rows) {
+		return (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+	}
+
+	/**
+	 * @return double[] loss of the validation rows after every round, empty without early stopping
+	 */
+	public double[] getValidationLosses() {
+		return validationLosses;
+	}
+}
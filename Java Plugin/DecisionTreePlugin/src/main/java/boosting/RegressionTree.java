@@ -0,0 +1,161 @@
+/**
+ * This class is one boosted regression tree in flat arrays, one entry per node. A split
+ * on a continuous attribute sends rows below the threshold (bins up to the split bin) to
+ * the left child; a split on a discrete attribute sends the rows of one value to the left
+ * child and all others, unknown values included, to the right. Leaves hold the value
+ * added to the score of their class, the learning rate included.
+ */
+
+package boosting;
+
+import java.util.Arrays;
+
+import definition.ColumnarDataSet;
+
+public class RegressionTree {
+
+	// Attribute index of every node, -1 for leaves
+	private int[] feature;
+	// Last bin of the left child of continuous splits, value code of the left child of
+	// discrete splits
+	private int[] splitBin;
+	// Threshold of continuous splits
+	private double[] threshold;
+	private boolean[] continuous;
+	private int[] left;
+	private int[] right;
+	// Value of leaves
+	private double[] value;
+	private int nodeCount;
+
+
+	public RegressionTree() {
+		int capacity = 16;
+		feature = new int[capacity];
+		splitBin = new int[capacity];
+		threshold = new double[capacity];
+		continuous = new boolean[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		value = new double[capacity];
+	}
+
+	private int addNode() {
+		if (nodeCount == feature.length) {
+			int capacity = 2 * feature.length;
+			feature = Arrays.copyOf(feature, capacity);
+			splitBin = Arrays.copyOf(splitBin, capacity);
+			threshold = Arrays.copyOf(threshold, capacity);
+			continuous = Arrays.copyOf(continuous, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			value = Arrays.copyOf(value, capacity);
+		}
+		return nodeCount++;
+	}
+
+	/**
+	 * Add a leaf
+	 * @param leafValue
+	 * @return int position of the leaf
+	 */
+	public int addLeaf(double leafValue) {
+		int n = addNode();
+		feature[n] = -1;
+		value[n] = leafValue;
+		return n;
+	}
+
+	/**
+	 * Add a split; its children are set with setChildren once they are added
+	 * @param attribute
+	 * @param bin last bin of the left child, or the value code of the left child
+	 * @param cut threshold of a continuous split
+	 * @param isContinuous
+	 * @return int position of the split
+	 */
+	public int addSplit(int attribute, int bin, double cut, boolean isContinuous) {
+		int n = addNode();
+		feature[n] = attribute;
+		splitBin[n] = bin;
+		threshold[n] = cut;
+		continuous[n] = isContinuous;
+		return n;
+	}
+
+	public void setChildren(int node, int leftChild, int rightChild) {
+		left[node] = leftChild;
+		right[node] = rightChild;
+	}
+
+
+	/**
+	 * Value of a row of the binned training data. The root is the first node added.
+	 * @param data
+	 * @param row
+	 * @return double
+	 */
+	public double predict(BoostingData data, int row) {
+		int n = 0;
+		while (feature[n] >= 0) {
+			int bin = data.getBin(feature[n], row);
+			boolean goLeft = continuous[n] ? bin <= splitBin[n] : bin == splitBin[n];
+			n = goLeft ? left[n] : right[n];
+		}
+		return value[n];
+	}
+
+	/**
+	 * Value of a row of a columnar data set encoded with the attributes of the training data
+	 * @param data
+	 * @param row
+	 * @return double
+	 */
+	public double predict(ColumnarDataSet data, int row) {
+		int n = 0;
+		while (feature[n] >= 0) {
+			int f = feature[n];
+			boolean goLeft;
+			if (continuous[n]) {
+				// Unparseable values are NaN and go right, as in the last bin
+				goLeft = data.getContinuousColumn(f)[row] < threshold[n];
+			} else {
+				goLeft = data.getDiscreteColumn(f)[row] == splitBin[n];
+			}
+			n = goLeft ? left[n] : right[n];
+		}
+		return value[n];
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int[] getFeature() {
+		return feature;
+	}
+
+	public int[] getSplitBin() {
+		return splitBin;
+	}
+
+	public double[] getThreshold() {
+		return threshold;
+	}
+
+	public boolean[] getContinuous() {
+		return continuous;
+	}
+
+	public int[] getLeft() {
+		return left;
+	}
+
+	public int[] getRight() {
+		return right;
+	}
+
+	public double[] getValue() {
+		return value;
+	}
+}
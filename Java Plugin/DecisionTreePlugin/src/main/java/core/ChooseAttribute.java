@@ -7,15 +7,18 @@ package core;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 
 public class ChooseAttribute {
 	
 	public Attribute chosen;
 	public HashMap<String, ArrayList<Instance>> subset;
+	protected Partition partition;
 	protected double infoGain;
 	protected double threshold;
 	
@@ -66,6 +69,85 @@ public class ChooseAttribute {
 		}
 	}
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * Continuous attributes are evaluated on the presorted rows or histograms of the node;
+	 * only the chosen one makes its partition.
+	 * The split of the chosen attribute is returned as a partition of the rows.
+	 * @param data
+	 * @param attributes
+	 * @param index rows of the current node
+	 * @throws IOException
+	 */
+	public ChooseAttribute(ColumnarDataSet data, List<Attribute> attributes, 
+			SplitIndex index) throws IOException {
+		this(data, attributes, index, 1);
+	}
+	
+	/**
+	 * Constructor: as above, evaluating the attributes as parallel fork-join tasks.
+	 * The attribute is chosen in list order afterwards, so ties are broken as in a
+	 * sequential evaluation: the first attribute with the largest information gain wins.
+	 * @param data
+	 * @param attributes
+	 * @param index rows of the current node
+	 * @param parallelism number of attributes evaluated at the same time
+	 * @throws IOException
+	 */
+	public ChooseAttribute(final ColumnarDataSet data, final List<Attribute> attributes, 
+			final SplitIndex index, int parallelism) throws IOException {
+		
+		// Evaluate every attribute
+		final Object[] evaluations = new Object[attributes.size()];
+		ParallelTasks.forEach(attributes.size(), parallelism, new ParallelTasks.Task() {
+			public void run(int i) throws IOException {
+				Attribute currAttribute = attributes.get(i);
+				if (currAttribute.getType().equals("continuous")) {
+					evaluations[i] = new InfoGainContinuous(currAttribute, data, index);
+				} else {
+					evaluations[i] = new InfoGainDiscrete(data, currAttribute, index.getRows(), index.getFrom(), index.getTo());
+				}
+			}
+		});
+		
+		// Initialize variables
+		chosen = null;
+		infoGain = -1;
+		partition = null;
+		InfoGainContinuous chosenContinuous = null;
+		
+		// Iterate to find the attribute with the largest information gain
+		for (int i = 0; i < attributes.size(); i++) {
+			Attribute currAttribute = attributes.get(i);
+			double currInfoGain = 0;
+			double currThreshold = 0;
+			Partition currSubset = null;
+			InfoGainContinuous continuous = null;
+			
+			if (currAttribute.getType().equals("continuous")) {
+				continuous = (InfoGainContinuous) evaluations[i];
+				currInfoGain = continuous.getInfoGain();
+				currThreshold = continuous.getThreshold();
+			} else {
+				InfoGainDiscrete discrete = (InfoGainDiscrete) evaluations[i];
+				currInfoGain = discrete.getInfoGain();
+				currSubset = discrete.getPartition();
+			}
+			if (currInfoGain > infoGain) {
+				infoGain = currInfoGain;
+				chosen = currAttribute;
+				partition = currSubset;
+				chosenContinuous = continuous;
+				threshold = currThreshold;
+			}
+		}
+		
+		// Make the partition of a continuous attribute only for the chosen one
+		if (chosenContinuous != null) {
+			partition = chosenContinuous.getPartition();
+		}
+	}
+	
 
 	
 	
@@ -81,6 +163,10 @@ public class ChooseAttribute {
 		return subset;
 	}
 	
+	public Partition getPartition() {
+		return partition;
+	}
+	
 	public double getThreshold() {
 		return threshold;
 	}
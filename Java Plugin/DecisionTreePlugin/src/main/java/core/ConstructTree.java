@@ -4,22 +4,34 @@
 package core;
 
 import definition.Attribute;
+import definition.BinnedDataSet;
+import definition.ColumnarDataSet;
 import definition.Instance;
 import input.ProcessInputData;
 import node.TreeNode;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
 
 public class ConstructTree {
 	protected ArrayList<Attribute> attributes;
 	protected ArrayList<Instance> instances;
 	protected Attribute target;
-	int count = 0; 
+	protected ColumnarDataSet data;
 	private int max_depth = 3;
 	private String isPruned = "True";
 	private String featureTable = "";
+	private TreeOptions options = new TreeOptions();
+	// Number of times every row is used, null for every row once
+	private int[] rowWeights;
+	// All rows sorted by every continuous attribute, shared by the trees of one data set
+	private int[][] presortedRows;
+	// Continuous attributes quantized once, shared by the trees of one data set
+	private BinnedDataSet binnedData;
 	
 	
 	public ConstructTree(String fileName, String targetAttr, String isPruned, int max_depth) throws IOException {
@@ -38,38 +50,210 @@ public class ConstructTree {
 		this.setMax_depth(max_depth);
 	}
 	
+	/**
+	 * Constructor: train on an already encoded columnar data set
+	 * @param data
+	 * @param attributes
+	 * @param isPruned
+	 * @param max_depth
+	 */
+	public ConstructTree(ColumnarDataSet data, ArrayList<Attribute> attributes, String isPruned, int max_depth) {
+		this.data = data;
+		this.attributes = attributes;
+		this.target = data.getTarget();
+		this.setIsPruned(isPruned);
+		this.setMax_depth(max_depth);
+	}
+	
 	/**
 	 * Construct tree
 	 * @return TreeNode
 	 * @throws IOException
 	 */
 	public TreeNode construct() throws IOException {
-		return constructTree(target, attributes, instances);
+		if (data == null) {
+			data = new ColumnarDataSet(instances, attributes, target);
+		}
+		if (options.isHistogram() && !options.isExtraTrees()) {
+			// Train on the bins only, the tree does not hold the continuous values
+			binnedData = binnedData();
+			data = binnedData.getData();
+		}
+		if (options.isLevelWise() && rowWeights == null && options.getFeatureSubset() == 0
+				&& !options.isExtraTrees() && options.getMinLeafSize() == 1) {
+			LevelWiseBuilder builder = new LevelWiseBuilder(this, data);
+			TreeNode root = builder.build(attributes);
+			featureTable = featureTable + builder.getFeatureTable();
+			return root;
+		}
+		StringBuilder features = new StringBuilder();
+		TreeNode root = constructTree(Collections.unmodifiableList(new ArrayList<Attribute>(attributes)), 
+				createIndex(), 0, features);
+		featureTable = featureTable + features;
+		return root;
+	}
+	
+	/**
+	 * Index of all rows of the training data: random thresholds in extraTrees mode, class
+	 * histograms of binned continuous attributes in histogram mode, presorted attribute
+	 * lists otherwise. Given presorted rows are filtered instead of sorting again, and given
+	 * binned data is used instead of binning again.
+	 * @return SplitIndex
+	 */
+	protected SplitIndex createIndex() {
+		int[] rows = rowWeights == null ? data.allRows() : weightedRows(rowWeights);
+		if (options.isExtraTrees()) {
+			return new RandomCutIndex(data, rows, options.getRandomCuts(), options.getSeed());
+		}
+		if (options.isHistogram()) {
+			return new HistogramIndex(binnedData(), rows);
+		}
+		if (presortedRows != null) {
+			return new PresortedIndex(data, rows, presortedRows, rowWeights);
+		}
+		return new PresortedIndex(data, rows);
+	}
+	
+	/**
+	 * @return BinnedDataSet the shared binned data if it bins the training data with the
+	 * maxBins of the options, otherwise the training data binned for this tree
+	 */
+	BinnedDataSet binnedData() {
+		if (binnedData != null && binnedData.isBinningOf(data) && binnedData.getMaxBins() == options.getMaxBins()) {
+			return binnedData;
+		}
+		return new BinnedDataSet(data, options.getMaxBins());
+	}
+	
+	/**
+	 * Row array of a weighted sample: row r appears rowWeights[r] times, so every count of
+	 * the split criteria is a weighted count
+	 * @param rowWeights
+	 * @return int[]
+	 */
+	private static int[] weightedRows(int[] rowWeights) {
+		int size = 0;
+		for (int weight : rowWeights) {
+			size += weight;
+		}
+		int[] rows = new int[size];
+		int i = 0;
+		for (int row = 0; row < rowWeights.length; row++) {
+			for (int w = 0; w < rowWeights[row]; w++) {
+				rows[i++] = row;
+			}
+		}
+		return rows;
+	}
+	
+	/**
+	 * Candidate attributes of a split: all remaining attributes, or featureSubset of them
+	 * drawn at random (in list order). The random generator of a node is seeded from the
+	 * seed of the tree and the position of the node, so the tree does not depend on the
+	 * order in which parallel subtrees are built.
+	 * @param attributes attributes still available
+	 * @param index rows of the node
+	 * @param depth depth of the node
+	 * @return List<Attribute>
+	 */
+	protected List<Attribute> candidateAttributes(List<Attribute> attributes, SplitIndex index, int depth) {
+		int k = options.getFeatureSubset();
+		if (k == 0 || k >= attributes.size()) {
+			return attributes;
+		}
+		// Nodes of one depth hold disjoint, non-empty ranges of the row array
+		Random random = new Random(options.getSeed() * 1000003L + ((long) depth << 32) + index.getFrom());
+		int[] positions = new int[attributes.size()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = i;
+		}
+		for (int i = 0; i < k; i++) {
+			int j = i + random.nextInt(positions.length - i);
+			int swap = positions[i];
+			positions[i] = positions[j];
+			positions[j] = swap;
+		}
+		boolean[] drawn = new boolean[positions.length];
+		for (int i = 0; i < k; i++) {
+			drawn[positions[i]] = true;
+		}
+		ArrayList<Attribute> candidates = new ArrayList<Attribute>(k);
+		for (int i = 0; i < drawn.length; i++) {
+			if (drawn[i]) candidates.add(attributes.get(i));
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Choose the attribute to split the rows of a node on
+	 * @param attributes
+	 * @param index rows of the node
+	 * @return ChooseAttribute
+	 * @throws IOException
+	 */
+	protected ChooseAttribute chooseAttribute(List<Attribute> attributes, SplitIndex index) throws IOException {
+		return new ChooseAttribute(data, attributes, index, getOptions().getParallelism());
+	}
+	
+	/**
+	 * Impurity of a node, a leaf is made when it is zero
+	 * @param classCounts
+	 * @param totalN
+	 * @return double
+	 */
+	protected double impurity(int[] classCounts, int totalN) {
+		return Entropy.calculate(classCounts, totalN);
+	}
+	
+	/**
+	 * @return SplitCriterion criterion used to score the cuts of the level-wise builder
+	 */
+	protected SplitCriterion getCriterion() {
+		return SplitCriterion.INFO_GAIN;
+	}
+	
+	/**
+	 * @return String name of the split criterion in the feature table
+	 */
+	protected String getCriterionName() {
+		return "InfoGainValue";
 	}
 	
 	/**
 	 * Construct tree recursively. First make the root node, then construct its subtrees 
 	 * recursively, and finally connect root with subtrees.
-	 * @param target
-	 * @param attributes
-	 * @param instances
+	 * The subtrees of a node are independent: each one gets its own rows, an unmodifiable
+	 * view of the remaining attributes and its own part of the feature table, so they are
+	 * built as parallel fork-join tasks. Nodes with fewer rows than the sequential cutoff
+	 * build their subtrees in the calling thread. The feature table parts are joined in
+	 * branch order, so the result does not depend on the parallelism.
+	 * @param attributes attributes still available, never modified
+	 * @param index rows of the node
+	 * @param depth depth of the node, 0 for the root
+	 * @param features feature table of the subtree
 	 * @return TreeNode
 	 * @throws IOException
 	 */
-	private TreeNode constructTree(Attribute target, ArrayList<Attribute> attributes, 
-			ArrayList<Instance> instances) throws IOException {
+	private TreeNode constructTree(List<Attribute> attributes, SplitIndex index, final int depth, 
+			StringBuilder features) throws IOException {
 		
 		/*
-		 *  Stop when (1) entropy is zero
+		 *  Stop when (1) impurity is zero
 		 *  (2) no attribute left
+		 *  (3) the maximum depth is reached in a pruned tree
+		 *  (4) no split can give two branches of minLeafSize rows
 		 */
-		
-		if (Entropy.calculate(target, instances) == 0 || attributes.size() == 0) {
+		int[] rows = index.getRows();
+		int[] classCounts = data.classCounts(rows, index.getFrom(), index.getTo());
+		boolean pure = impurity(classCounts, index.size()) == 0;
+		boolean maxDepthReached = getIsPruned().equals("True") && depth >= getMax_depth();
+		boolean tooSmall = index.size() < 2 * options.getMinLeafSize();
+		if (pure || attributes.size() == 0 || maxDepthReached || tooSmall) {
 			String leafLabel = "";
-			if (Entropy.calculate(target, instances) == 0) {
-				leafLabel = instances.get(0).getAttributeValuePairs().get(target.getName());
+			if (pure) {
+				leafLabel = data.getClassLabel(data.getLabels()[rows[index.getFrom()]]);
 			} else {
-				leafLabel = getMajorityLabel(target, instances);
+				leafLabel = getMajorityLabel(classCounts);
 			}
 			TreeNode leaf = new TreeNode(leafLabel);
 
@@ -78,67 +262,106 @@ public class ConstructTree {
 		
 		
 		// Choose the root attribute
-		ChooseAttribute choose = new ChooseAttribute(target, attributes, instances);
+		ChooseAttribute choose = chooseAttribute(candidateAttributes(attributes, index, depth), index);
 		Attribute rootAttr = choose.getChosen();
+		Partition partition = choose.getPartition();
+		if (partition != null && !hasMinLeafSize(partition)) {
+			return new TreeNode(getMajorityLabel(classCounts));
+		}
 		if(rootAttr!=null)
 		{
-			String feature = rootAttr.toString() + "; InfoGainValue: " + choose.getInfoGain();
-			featureTable = featureTable + "|" + feature;	
+			String feature = rootAttr.toString() + "; " + getCriterionName() + ": " + choose.getInfoGain();
+			features.append("|").append(feature);
 		}
-		// Remove the chosen attribute from attribute set
-		attributes.remove(rootAttr);
 		
 		
 		// Make a new root
 		TreeNode root = new TreeNode(rootAttr);
 	    
 	    
-		// Get value subsets of the root attribute to construct branches
-		HashMap<String, ArrayList<Instance>> valueSubsets = choose.getSubset();
-		
-		if (valueSubsets == null || valueSubsets.size() == 0) {
-			String leafLabel = getMajorityLabel(target, instances);
+		// The partition of the rows by the root attribute gives the branches
+		if (partition == null || partition.getBranchCount() == 0) {
+			String leafLabel = getMajorityLabel(classCounts);
 			TreeNode leaf = new TreeNode(leafLabel);
 			
 			return leaf;
 			
-		}else {
-			for (String valueName : valueSubsets.keySet()) {
-				ArrayList<Instance> subset = valueSubsets.get(valueName);
-				if(getIsPruned().equals("True"))
-				{
-					if (count < this.getMax_depth()) {
-						count += 1;
-						TreeNode child = constructTree(target, attributes, subset);
-						root.addChild(valueName, child);
-					}
-					else {
-						String leafLabel = getMajorityLabel(target, instances);
-						TreeNode leaf = new TreeNode(leafLabel);
-						root.addChild(valueName, leaf);
-					}
-				}
-				else
-				{
-					if (subset.size() == 0) 
-					{
-						String leafLabel = getMajorityLabel(target, instances);
-						TreeNode leaf = new TreeNode(leafLabel);
-						root.addChild(valueName, leaf);
-					} else {
-						TreeNode child = constructTree(target, attributes, subset);
-						root.addChild(valueName, child);
-					}
-				}		
-			}	
 		}
 		
+		// The subtrees choose from the attributes without the chosen one
+		ArrayList<Attribute> remaining = new ArrayList<Attribute>(attributes);
+		remaining.remove(rootAttr);
+		final List<Attribute> childAttributes = Collections.unmodifiableList(remaining);
+		
+		// Move the rows of every branch together, in place
+		final SplitIndex[] subsets = index.split(partition, childAttributes);
+		final String[] valueNames = partition.getNames();
+		final String parentLabel = getMajorityLabel(classCounts);
+		final TreeNode[] children = new TreeNode[valueNames.length];
+		final StringBuilder[] childFeatures = new StringBuilder[valueNames.length];
 		
-		attributes.add(rootAttr);
+		int parallelism = index.size() >= options.getSequentialCutoff() ? options.getParallelism() : 1;
+		ParallelTasks.forEach(valueNames.length, parallelism, new ParallelTasks.Task() {
+			public void run(int i) throws IOException {
+				childFeatures[i] = new StringBuilder();
+				if (subsets[i].size() == 0) {
+					children[i] = new TreeNode(parentLabel);
+				} else {
+					children[i] = constructTree(childAttributes, subsets[i], depth + 1, childFeatures[i]);
+				}
+			}
+		});
+		
+		// Connect root with subtrees
+		for (int i = 0; i < valueNames.length; i++) {
+			root.addChild(valueNames[i], children[i]);
+			features.append(childFeatures[i]);
+		}
 		return root;
 	}
 
-	
+	/**
+	 * @param partition
+	 * @return boolean true if every non-empty branch has at least minLeafSize rows
+	 */
+	private boolean hasMinLeafSize(Partition partition) {
+		for (int size : partition.getSizes()) {
+			if (size > 0 && size < options.getMinLeafSize()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get the majority target class label from the class counts of a node
+	 * @param classCounts
+	 * @return String
+	 */
+	public String getMajorityLabel(int[] classCounts) {
+		return getMajorityLabel(classCounts, data.getTarget().getValues());
+	}
+
+	/**
+	 * Get the majority class label from the number of rows per class id
+	 * @param classCounts
+	 * @param classLabels label of every class id
+	 * @return String
+	 */
+	public static String getMajorityLabel(int[] classCounts, List<String> classLabels) {
+		HashMap<String, Integer> countValueOfTarget = new HashMap<String, Integer>();
+		for (int i = 0; i < classCounts.length; i++) {
+			countValueOfTarget.put(classLabels.get(i), classCounts[i]);
+		}
+		String maxLabel = "";
+		int maxCount = 0;
+		for (String s : countValueOfTarget.keySet()) {
+			int currCount = countValueOfTarget.get(s);
+			if (currCount > maxCount) {
+				maxCount = currCount;
+				maxLabel = s;
+			}
+		}
+		return maxLabel;
+	}
 
 	
 	/**
@@ -190,6 +413,68 @@ public class ConstructTree {
 	}
 
 
+	/**
+	 * @return ColumnarDataSet the training data, encoded once for the whole tree
+	 */
+	public ColumnarDataSet getData() {
+		return data;
+	}
+
+	public TreeOptions getOptions() {
+		return options;
+	}
+
+
+	public void setOptions(TreeOptions options) {
+		this.options = options;
+	}
+
+
+	public int[] getRowWeights() {
+		return rowWeights;
+	}
+
+
+	/**
+	 * Train on a weighted sample of the training rows, e.g. a bootstrap sample
+	 * @param rowWeights number of times every row is used (0 leaves it out), or null
+	 * to use every row once
+	 */
+	public void setRowWeights(int[] rowWeights) {
+		this.rowWeights = rowWeights;
+	}
+
+
+	public int[][] getPresortedRows() {
+		return presortedRows;
+	}
+
+
+	/**
+	 * Share the sorted attribute lists of several trees trained on the same data set
+	 * @param presortedRows from PresortedIndex.presort(data), or a PresortedIndex.subset
+	 * of it holding every weighted row, or null to sort the rows of this tree
+	 */
+	public void setPresortedRows(int[][] presortedRows) {
+		this.presortedRows = presortedRows;
+	}
+
+
+	public BinnedDataSet getBinnedData() {
+		return binnedData;
+	}
+
+
+	/**
+	 * Share the bins of several trees trained on the same data set in histogram mode
+	 * @param binnedData the training data binned with the maxBins of the options, or null
+	 * to bin the data for this tree
+	 */
+	public void setBinnedData(BinnedDataSet binnedData) {
+		this.binnedData = binnedData;
+	}
+
+
 	public String getIsPruned() {
 		return isPruned;
 	}
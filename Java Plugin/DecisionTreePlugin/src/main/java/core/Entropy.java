@@ -116,6 +116,44 @@ public class Entropy {
 	}
 	
 	
+	/**
+	 * Calculate entropy from the number of instances per class of the target attribute.
+	 * The probability of each class is its count divided by totalN.
+	 * @param classCounts number of instances per class id
+	 * @param totalN
+	 * @return double
+	 */
+	public static double calculate(int[] classCounts, int totalN) {
+		double entropy = 0;
+		for (int countSingleValue : classCounts) {
+			if (countSingleValue == 0) continue;
+			if (countSingleValue == totalN) return 0;
+			double pValue = ((double) countSingleValue) / ((double) totalN);
+			double itemRes = -pValue * (Math.log(pValue) / Math.log(2));
+			entropy += itemRes;
+		}
+		return entropy;
+	}
+
+	/**
+	 * Calculate entropy from the (possibly fractional) weight of instances per class, e.g.
+	 * the estimated counts of an incremental tree.
+	 * @param classWeights weight of instances per class id
+	 * @param totalWeight
+	 * @return double
+	 */
+	public static double calculate(double[] classWeights, double totalWeight) {
+		double entropy = 0;
+		for (double weight : classWeights) {
+			if (weight <= 0) continue;
+			if (weight >= totalWeight) return 0;
+			double pValue = weight / totalWeight;
+			entropy += -pValue * (Math.log(pValue) / Math.log(2));
+		}
+		return entropy;
+	}
+	
+	
 	public static double calculateContiEntropy(Attribute target, ArrayList<Instance> instances, int start, int end)
 			throws IOException {
 		ArrayList<String> valuesOfTarget = target.getValues();
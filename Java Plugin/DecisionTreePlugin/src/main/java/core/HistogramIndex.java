@@ -0,0 +1,187 @@
+/**
+ * This class keeps, for one tree node, the rows of the node and for every binned continuous
+ * attribute the class histogram of the node (number of rows per bin and class). The best
+ * cut of an attribute is found from its histogram alone, so the cost per attribute does not
+ * depend on the number of rows. When a node is split, the histograms of all children but
+ * the largest are counted from their rows; the largest child gets the histogram of the
+ * parent minus the histograms of its siblings.
+ * The row array is shared by all nodes of one training run: a node is a range of it, and
+ * a split partitions that range in place.
+ */
+
+package core;
+
+import java.util.List;
+
+import definition.Attribute;
+import definition.BinnedDataSet;
+import definition.ColumnarDataSet;
+
+public class HistogramIndex implements SplitIndex {
+
+	private BinnedDataSet binned;
+	private ColumnarDataSet data;
+	private int[] rows;
+	private int from;
+	private int to;
+	private int[] classCounts;
+	private int[][] histograms;
+	// Branch of every row of the data set and scratch array for partitioning, shared by
+	// all nodes of one training run
+	private int[] branchOf;
+	private int[] buffer;
+
+
+	/**
+	 * Constructor: count the histograms of all rows of the data set
+	 * @param binned
+	 */
+	public HistogramIndex(BinnedDataSet binned) {
+		this(binned, binned.getData().allRows());
+	}
+
+	/**
+	 * Constructor: count the histograms of the given rows of the data set
+	 * @param binned
+	 * @param rows
+	 */
+	public HistogramIndex(BinnedDataSet binned, int[] rows) {
+		this.binned = binned;
+		this.data = binned.getData();
+		this.rows = rows.clone();
+		this.from = 0;
+		this.to = rows.length;
+		this.branchOf = new int[data.size()];
+		this.buffer = new int[rows.length];
+		this.classCounts = data.classCounts(rows);
+		int attributeCount = data.getAttributes().size();
+		this.histograms = new int[attributeCount][];
+		for (int a = 0; a < attributeCount; a++) {
+			if (data.isContinuous(a)) {
+				histograms[a] = count(a, from, to);
+			}
+		}
+	}
+
+	private HistogramIndex(HistogramIndex parent, int from, int to, int[] classCounts, int[][] histograms) {
+		this.binned = parent.binned;
+		this.data = parent.data;
+		this.rows = parent.rows;
+		this.branchOf = parent.branchOf;
+		this.buffer = parent.buffer;
+		this.from = from;
+		this.to = to;
+		this.classCounts = classCounts;
+		this.histograms = histograms;
+	}
+
+	private int[] count(int attribute, int from, int to) {
+		int numClasses = data.getNumClasses();
+		byte[] codes = binned.getCodes(attribute);
+		int[] labels = data.getLabels();
+		int[] histogram = new int[binned.getBinCount(attribute) * numClasses];
+		for (int i = from; i < to; i++) {
+			int row = rows[i];
+			histogram[(codes[row] & 0xFF) * numClasses + labels[row]]++;
+		}
+		return histogram;
+	}
+
+
+	/**
+	 * Find the best binary cut of a continuous attribute from its histogram
+	 * @param attribute index of a continuous attribute
+	 * @param criterion
+	 * @return SplitScanner
+	 */
+	public SplitScanner scan(int attribute, SplitCriterion criterion) {
+		return new SplitScanner(rows, from, to, binned.getCodes(attribute), histograms[attribute],
+				binned.getThresholds(attribute), classCounts, criterion);
+	}
+
+	/**
+	 * Split the index into one child index per branch, partitioning the range of the node
+	 * in place. Only the histograms of the given attributes are kept, since the others are
+	 * not used below this node. The histograms of the largest branch are derived by
+	 * subtraction.
+	 * @param partition branch of every row of the node
+	 * @param attributes attributes still available to the children
+	 * @return SplitIndex[] child index of every branch, in branch order
+	 */
+	public SplitIndex[] split(Partition partition, List<Attribute> attributes) {
+		partition.mark(branchOf);
+		int[] boundaries = partition.getBoundaries();
+		Partition.move(rows, from, to, branchOf, boundaries, buffer);
+
+		int branchCount = partition.getBranchCount();
+		int largest = 0;
+		for (int b = 1; b < branchCount; b++) {
+			if (boundaries[b + 1] - boundaries[b] > boundaries[largest + 1] - boundaries[largest]) {
+				largest = b;
+			}
+		}
+
+		SplitIndex[] children = new SplitIndex[branchCount];
+		int[] largestClassCounts = classCounts.clone();
+		int[][] largestHistograms = new int[histograms.length][];
+		for (Attribute attribute : attributes) {
+			int a = data.indexOf(attribute);
+			if (a >= 0 && histograms[a] != null) {
+				largestHistograms[a] = histograms[a].clone();
+			}
+		}
+
+		for (int b = 0; b < branchCount; b++) {
+			if (b == largest) continue;
+			int childFrom = from + boundaries[b];
+			int childTo = from + boundaries[b + 1];
+			int[] childClassCounts = data.classCounts(rows, childFrom, childTo);
+			int[][] childHistograms = new int[histograms.length][];
+			for (Attribute attribute : attributes) {
+				int a = data.indexOf(attribute);
+				if (a < 0 || histograms[a] == null) continue;
+				childHistograms[a] = count(a, childFrom, childTo);
+				subtract(largestHistograms[a], childHistograms[a]);
+			}
+			subtract(largestClassCounts, childClassCounts);
+			children[b] = new HistogramIndex(this, childFrom, childTo, childClassCounts, childHistograms);
+		}
+		children[largest] = new HistogramIndex(this, from + boundaries[largest], from + boundaries[largest + 1],
+				largestClassCounts, largestHistograms);
+		return children;
+	}
+
+	private static void subtract(int[] from, int[] counts) {
+		for (int i = 0; i < from.length; i++) {
+			from[i] -= counts[i];
+		}
+	}
+
+
+	public int[] getRows() {
+		return rows;
+	}
+
+	public int getFrom() {
+		return from;
+	}
+
+	public int getTo() {
+		return to;
+	}
+
+	/**
+	 * @return int[] class counts of the node
+	 */
+	public int[] getClassCounts() {
+		return classCounts;
+	}
+
+	public BinnedDataSet getBinned() {
+		return binned;
+	}
+
+	public int size() {
+		return to - from;
+	}
+}
@@ -12,6 +12,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 
 
@@ -21,6 +22,7 @@ public class InfoGainContinuous {
 	protected double threshold;
 	protected double infoGain = -1;
 	protected HashMap<String, ArrayList<Instance>> subset;
+	protected SplitScanner scanner;
 	
 	/**
 	 * Constructor: initialize fields. This class is for calculating the information gain
@@ -131,6 +133,23 @@ public class InfoGainContinuous {
 		subset.put(rightName, right);
 	}
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * The best cut is found in one pass by SplitScanner, on the presorted rows or on the
+	 * class histogram of the node; the row subsets are only made if asked for.
+	 * @param attribute
+	 * @param data
+	 * @param index rows of the current node (see PresortedIndex and HistogramIndex)
+	 * @throws IOException
+	 */
+	public InfoGainContinuous(Attribute attribute, ColumnarDataSet data, SplitIndex index) throws IOException {
+		
+		this.attribute = attribute;
+		scanner = index.scan(data.indexOf(attribute), SplitCriterion.INFO_GAIN);
+		infoGain = scanner.getScore();
+		threshold = scanner.isSplittable() ? scanner.getThreshold() : 0.0;
+	}
+	
 	public static double calculateConti(Attribute attribute, Attribute target, 
 			ArrayList<Instance> instances, int index) throws IOException {
 		
@@ -162,6 +181,10 @@ public class InfoGainContinuous {
 		return subset;
 	}
 	
+	public Partition getPartition() {
+		return scanner == null ? null : scanner.getPartition();
+	}
+	
 	public String toString() {
 		return "Attribute: " + attribute.getName() + "\n" + "Threshold: " + threshold + "\n" 
 				+ "InfoGain: " + infoGain + "\n" + "Subset: " + subset;
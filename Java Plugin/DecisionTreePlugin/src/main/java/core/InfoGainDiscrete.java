@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 
 
@@ -18,6 +19,7 @@ public class InfoGainDiscrete {
 	protected Attribute attribute;
 	protected double infoGain;
 	protected HashMap<String, ArrayList<Instance>> subset;
+	protected ValuePartition partition;
 	
 	/**
 	 * Constructor: initialize fields. This class is for calculating the information gain for
@@ -69,6 +71,35 @@ public class InfoGainDiscrete {
 	
 	}
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * The rows are not copied; the partition gives the branch and class counts of every value.
+	 * @param data
+	 * @param attribute
+	 * @param rows row array holding the rows of the current node at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @throws IOException
+	 */
+	public InfoGainDiscrete(ColumnarDataSet data, Attribute attribute, int[] rows, int from, int to)
+			throws IOException {
+		
+		this.attribute = attribute;
+		
+		partition = new ValuePartition(data, attribute, rows, from, to);
+		
+		int totalN = to - from;
+		infoGain = Entropy.calculate(data.classCounts(rows, from, to), totalN);
+		
+		int[] sizes = partition.getSizes();
+		int[][] classCounts = partition.getClassCounts();
+		for (int b = 0; b < sizes.length; b++) {
+			int subN = sizes[b];
+			double subRes = ((double) subN) / ((double) totalN) * Entropy.calculate(classCounts[b], subN);
+			infoGain -= subRes;
+		}
+	}
+	
 	public Attribute getAttribute() {
 		return attribute;
 	}
@@ -81,6 +112,10 @@ public class InfoGainDiscrete {
 		return subset;
 	}
 	
+	public ValuePartition getPartition() {
+		return partition;
+	}
+	
 	public String toString() {
 		return "Attribute: " + attribute + "\n"  
 				+ "InfoGain: " + infoGain + "\n" + "Subset: " + subset;
@@ -0,0 +1,479 @@
+/**
+ * This class builds a decision tree breadth first: all open nodes of one depth are split
+ * together. For every attribute, one pass over its column gathers the class statistics of
+ * all open nodes at once (per value counts for discrete attributes, a sweep over the
+ * presorted rows or bin histograms for continuous ones), then every node chooses its
+ * attribute and a second pass moves the rows to the children. The work per depth is a
+ * few sequential scans over the columns, whatever the number of nodes.
+ * The tree is the same as the one built depth first by ConstructTree: the cuts are scored
+ * with the same criterion in the same order, and the feature table is written in the
+ * same (depth first) order.
+ */
+
+package core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import definition.Attribute;
+import definition.BinnedDataSet;
+import definition.ColumnarDataSet;
+import node.TreeNode;
+
+public class LevelWiseBuilder {
+
+	private ConstructTree tree;
+	private ColumnarDataSet data;
+	private SplitCriterion criterion;
+	private int parallelism;
+	private int numClasses;
+	private int[] labels;
+
+	// Binned continuous attributes in histogram mode, null for exact split finding
+	private BinnedDataSet binned;
+	// Rows sorted by every continuous attribute, for exact split finding
+	private int[][] sortedRows;
+	// Values of every discrete attribute in the branch order of the depth first builder
+	private int[][] valueOrder;
+
+	// Position of the open node of every row in the current depth, -1 if its node is done
+	private int[] nodeOf;
+	private String featureTable = "";
+
+
+	/**
+	 * One node of the tree while it is built
+	 */
+	private static class Node {
+		List<Attribute> attributes;
+		boolean[] usable;
+		int depth;
+		int[] classCounts;
+		int size;
+		String emptyLabel;
+
+		TreeNode treeNode;
+		String feature;
+		String[] branchNames;
+		Node[] children;
+
+		// Chosen split: attribute index, and for continuous attributes the number of rows
+		// of the left part (exact) or the first bin of the right part (histogram)
+		int attribute = -1;
+		int cut;
+		int lessChild;
+
+		Node(List<Attribute> attributes, int depth, int numClasses) {
+			this.attributes = attributes;
+			this.depth = depth;
+			this.classCounts = new int[numClasses];
+		}
+	}
+
+
+	/**
+	 * Constructor
+	 * @param tree the tree to build, giving the criterion, maximum depth and options
+	 * @param data training data
+	 */
+	public LevelWiseBuilder(ConstructTree tree, ColumnarDataSet data) {
+		this.tree = tree;
+		this.data = data;
+		this.criterion = tree.getCriterion();
+		this.parallelism = tree.getOptions().getParallelism();
+		this.numClasses = data.getNumClasses();
+		this.labels = data.getLabels();
+
+		int attributeCount = data.getAttributes().size();
+		if (tree.getOptions().isHistogram()) {
+			binned = tree.binnedData();
+		} else {
+			sortedRows = new int[attributeCount][];
+		}
+		valueOrder = new int[attributeCount][];
+		for (int a = 0; a < attributeCount; a++) {
+			if (data.isContinuous(a)) {
+				if (binned == null) {
+					sortedRows[a] = data.allRows();
+					data.sortRows(sortedRows[a], a);
+				}
+			} else {
+				valueOrder[a] = Partition.branchOrder(data.getAttributes().get(a).getValues());
+			}
+		}
+	}
+
+	/**
+	 * Build the tree, one depth at a time
+	 * @param attributes attributes to choose from
+	 * @return TreeNode
+	 * @throws IOException
+	 */
+	public TreeNode build(List<Attribute> attributes) throws IOException {
+		Node root = new Node(Collections.unmodifiableList(new ArrayList<Attribute>(attributes)), 0, numClasses);
+		root.classCounts = data.classCounts(data.allRows());
+		root.size = data.size();
+		nodeOf = new int[data.size()];
+
+		ArrayList<Node> level = new ArrayList<Node>();
+		level.add(root);
+		while (!level.isEmpty()) {
+			boolean[] open = new boolean[level.size()];
+			boolean anyOpen = false;
+			for (int k = 0; k < level.size(); k++) {
+				open[k] = !makeLeaf(level.get(k));
+				anyOpen |= open[k];
+			}
+			if (!anyOpen) break;
+
+			Evaluation evaluation = evaluate(level, open);
+			for (int k = 0; k < level.size(); k++) {
+				if (open[k]) choose(level.get(k), k, evaluation);
+			}
+			level = split(level, open);
+		}
+
+		StringBuilder features = new StringBuilder();
+		connect(root, features);
+		featureTable = features.toString();
+		return root.treeNode;
+	}
+
+	/**
+	 * Make a node a leaf when (1) it has no rows (2) impurity is zero (3) no attribute is
+	 * left (4) the maximum depth is reached in a pruned tree
+	 * @param node
+	 * @return boolean true if the node is a leaf
+	 */
+	private boolean makeLeaf(Node node) {
+		if (node.size == 0) {
+			node.treeNode = new TreeNode(node.emptyLabel);
+			return true;
+		}
+		boolean pure = tree.impurity(node.classCounts, node.size) == 0;
+		boolean maxDepthReached = tree.getIsPruned().equals("True") && node.depth >= tree.getMax_depth();
+		if (pure || node.attributes.size() == 0 || maxDepthReached) {
+			if (pure) {
+				for (int c = 0; c < numClasses; c++) {
+					if (node.classCounts[c] > 0) node.treeNode = new TreeNode(data.getClassLabel(c));
+				}
+			} else {
+				node.treeNode = new TreeNode(tree.getMajorityLabel(node.classCounts));
+			}
+			return true;
+		}
+		node.usable = new boolean[data.getAttributes().size()];
+		for (Attribute attribute : node.attributes) {
+			node.usable[data.indexOf(attribute)] = true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Scores of every attribute for every open node of one depth
+	 */
+	private static class Evaluation {
+		double[][] scores;
+		double[][] thresholds;
+		int[][] cuts;
+	}
+
+	private Evaluation evaluate(final ArrayList<Node> level, final boolean[] open) throws IOException {
+		final int attributeCount = data.getAttributes().size();
+		final Evaluation evaluation = new Evaluation();
+		evaluation.scores = new double[attributeCount][];
+		evaluation.thresholds = new double[attributeCount][];
+		evaluation.cuts = new int[attributeCount][];
+		final double[] impurities = new double[level.size()];
+		for (int k = 0; k < level.size(); k++) {
+			if (open[k]) impurities[k] = criterion.impurity(level.get(k).classCounts, level.get(k).size);
+		}
+
+		ParallelTasks.forEach(attributeCount, parallelism, new ParallelTasks.Task() {
+			public void run(int a) throws IOException {
+				boolean used = false;
+				for (int k = 0; k < level.size(); k++) {
+					used |= open[k] && level.get(k).usable[a];
+				}
+				if (!used) return;
+				evaluation.scores[a] = new double[level.size()];
+				evaluation.thresholds[a] = new double[level.size()];
+				evaluation.cuts[a] = new int[level.size()];
+				if (!data.isContinuous(a)) {
+					scanDiscrete(a, level, open, impurities, evaluation);
+				} else if (binned == null) {
+					scanSorted(a, level, open, impurities, evaluation);
+				} else {
+					scanHistogram(a, level, open, impurities, evaluation);
+				}
+			}
+		});
+		return evaluation;
+	}
+
+	private boolean uses(ArrayList<Node> level, boolean[] open, int k, int a) {
+		return k >= 0 && open[k] && level.get(k).usable[a];
+	}
+
+	/**
+	 * Count the rows of every node per value and class, then score the nodes
+	 */
+	private void scanDiscrete(int a, ArrayList<Node> level, boolean[] open, double[] impurities,
+			Evaluation evaluation) throws IOException {
+		int[] codes = data.getDiscreteColumn(a);
+		int valueCount = valueOrder[a].length;
+		int[][][] counts = new int[level.size()][][];
+		int[][] sizes = new int[level.size()][];
+		for (int k = 0; k < level.size(); k++) {
+			if (!uses(level, open, k, a)) continue;
+			counts[k] = new int[valueCount][numClasses];
+			sizes[k] = new int[valueCount];
+		}
+		for (int row = 0; row < codes.length; row++) {
+			int k = nodeOf[row];
+			if (!uses(level, open, k, a)) continue;
+			if (codes[row] == ColumnarDataSet.UNKNOWN)
+				throw new IOException("Invalid input data");
+			counts[k][codes[row]][labels[row]]++;
+			sizes[k][codes[row]]++;
+		}
+		int[][] partCounts = new int[valueCount][];
+		int[] partN = new int[valueCount];
+		for (int k = 0; k < level.size(); k++) {
+			if (counts[k] == null) continue;
+			for (int p = 0; p < valueCount; p++) {
+				partCounts[p] = counts[k][valueOrder[a][p]];
+				partN[p] = sizes[k][valueOrder[a][p]];
+			}
+			evaluation.scores[a][k] = criterion.score(partCounts, partN, level.get(k).size, impurities[k]);
+		}
+	}
+
+	/**
+	 * Sweep the rows sorted by the attribute once, keeping running class counts per node.
+	 * The rows of one node come in the same order as in its own sorted list, so the cuts
+	 * are the ones SplitScanner finds.
+	 */
+	private void scanSorted(int a, ArrayList<Node> level, boolean[] open, double[] impurities,
+			Evaluation evaluation) {
+		double[] values = data.getContinuousColumn(a);
+		int[][] leftCounts = new int[level.size()][];
+		int[] leftN = new int[level.size()];
+		double[] last = new double[level.size()];
+		int[] rightCounts = new int[numClasses];
+		double[] scores = evaluation.scores[a];
+		for (int k = 0; k < level.size(); k++) {
+			if (!uses(level, open, k, a)) continue;
+			leftCounts[k] = new int[numClasses];
+			scores[k] = criterion.worst();
+		}
+		for (int row : sortedRows[a]) {
+			int k = nodeOf[row];
+			if (k < 0 || leftCounts[k] == null) continue;
+			// No cut before a value which is not a number, so NaN goes to the right part
+			if (leftN[k] > 0 && values[row] != last[k] && !Double.isNaN(values[row])) {
+				Node node = level.get(k);
+				double score = criterion.score(leftCounts[k], leftN[k], node.classCounts, node.size,
+						impurities[k], rightCounts);
+				if (criterion.isBetter(score, scores[k])) {
+					scores[k] = score;
+					evaluation.cuts[a][k] = leftN[k];
+					evaluation.thresholds[a][k] = SplitScanner.midpoint(last[k], values[row]);
+				}
+			}
+			leftCounts[k][labels[row]]++;
+			leftN[k]++;
+			last[k] = values[row];
+		}
+	}
+
+	/**
+	 * Count the class histogram of every node in one pass, then sweep the bins of each
+	 */
+	private void scanHistogram(int a, ArrayList<Node> level, boolean[] open, double[] impurities,
+			Evaluation evaluation) {
+		byte[] codes = binned.getCodes(a);
+		double[] thresholds = binned.getThresholds(a);
+		int[][] histograms = new int[level.size()][];
+		for (int k = 0; k < level.size(); k++) {
+			if (uses(level, open, k, a)) histograms[k] = new int[binned.getBinCount(a) * numClasses];
+		}
+		for (int row = 0; row < codes.length; row++) {
+			int k = nodeOf[row];
+			if (k < 0 || histograms[k] == null) continue;
+			histograms[k][(codes[row] & 0xFF) * numClasses + labels[row]]++;
+		}
+
+		int[] leftCounts = new int[numClasses];
+		int[] rightCounts = new int[numClasses];
+		for (int k = 0; k < level.size(); k++) {
+			if (histograms[k] == null) continue;
+			Node node = level.get(k);
+			Arrays.fill(leftCounts, 0);
+			double score = criterion.worst();
+			int leftN = 0;
+			for (int bin = 0; bin < thresholds.length; bin++) {
+				int binN = 0;
+				for (int c = 0; c < numClasses; c++) {
+					int count = histograms[k][bin * numClasses + c];
+					leftCounts[c] += count;
+					binN += count;
+				}
+				leftN += binN;
+				if (binN == 0 || leftN == node.size) continue;
+				double currScore = criterion.score(leftCounts, leftN, node.classCounts, node.size,
+						impurities[k], rightCounts);
+				if (criterion.isBetter(currScore, score)) {
+					score = currScore;
+					evaluation.cuts[a][k] = bin + 1;
+					evaluation.thresholds[a][k] = thresholds[bin];
+				}
+			}
+			evaluation.scores[a][k] = score;
+		}
+	}
+
+
+	/**
+	 * Choose the attribute of a node in list order, as the choosers do, and make its
+	 * branches in the order of the depth first builder
+	 */
+	private void choose(Node node, int k, Evaluation evaluation) {
+		Attribute chosen = null;
+		double best = criterion.noSplit();
+		for (Attribute attribute : node.attributes) {
+			int a = data.indexOf(attribute);
+			double score = evaluation.scores[a][k];
+			if (criterion.isBetter(score, best)) {
+				best = score;
+				chosen = attribute;
+			}
+		}
+		if (chosen == null) {
+			node.treeNode = new TreeNode(tree.getMajorityLabel(node.classCounts));
+			return;
+		}
+
+		int a = data.indexOf(chosen);
+		node.treeNode = new TreeNode(chosen);
+		node.feature = chosen.toString() + "; " + tree.getCriterionName() + ": " + best;
+		node.attribute = a;
+		ArrayList<String> names = new ArrayList<String>();
+		if (data.isContinuous(a)) {
+			node.cut = evaluation.cuts[a][k];
+			double threshold = evaluation.thresholds[a][k];
+			names.add("less" + threshold);
+			names.add("more" + threshold);
+			int[] order = Partition.branchOrder(names);
+			node.lessChild = order[0] == 0 ? 0 : 1;
+			node.branchNames = new String[] {names.get(order[0]), names.get(order[1])};
+		} else {
+			int[] order = valueOrder[a];
+			node.branchNames = new String[order.length];
+			for (int p = 0; p < order.length; p++) {
+				node.branchNames[p] = chosen.getValues().get(order[p]);
+			}
+		}
+
+		ArrayList<Attribute> remaining = new ArrayList<Attribute>(node.attributes);
+		remaining.remove(chosen);
+		List<Attribute> childAttributes = Collections.unmodifiableList(remaining);
+		String emptyLabel = tree.getMajorityLabel(node.classCounts);
+		node.children = new Node[node.branchNames.length];
+		for (int i = 0; i < node.children.length; i++) {
+			node.children[i] = new Node(childAttributes, node.depth + 1, numClasses);
+			node.children[i].emptyLabel = emptyLabel;
+		}
+	}
+
+	/**
+	 * Move the rows of every split node to its children, one pass per chosen attribute
+	 * @return ArrayList<Node> the nodes of the next depth
+	 */
+	private ArrayList<Node> split(final ArrayList<Node> level, boolean[] open) throws IOException {
+		final ArrayList<Node> next = new ArrayList<Node>();
+		final int[] firstChild = new int[level.size()];
+		final boolean[] chosen = new boolean[data.getAttributes().size()];
+		for (int k = 0; k < level.size(); k++) {
+			Node node = level.get(k);
+			if (!open[k] || node.children == null) continue;
+			firstChild[k] = next.size();
+			next.addAll(Arrays.asList(node.children));
+			chosen[node.attribute] = true;
+		}
+
+		final int[] nextNodeOf = new int[nodeOf.length];
+		Arrays.fill(nextNodeOf, -1);
+		ParallelTasks.forEach(chosen.length, parallelism, new ParallelTasks.Task() {
+			public void run(int a) {
+				if (!chosen[a]) return;
+				if (!data.isContinuous(a)) {
+					int[] codes = data.getDiscreteColumn(a);
+					int[] branchOf = new int[valueOrder[a].length];
+					for (int p = 0; p < branchOf.length; p++) {
+						branchOf[valueOrder[a][p]] = p;
+					}
+					for (int row = 0; row < codes.length; row++) {
+						Node node = splitNode(level, nodeOf[row], a);
+						if (node == null) continue;
+						assign(next, nextNodeOf, row, firstChild[nodeOf[row]] + branchOf[codes[row]]);
+					}
+				} else if (binned == null) {
+					int[] seen = new int[level.size()];
+					for (int row : sortedRows[a]) {
+						Node node = splitNode(level, nodeOf[row], a);
+						if (node == null) continue;
+						int k = nodeOf[row];
+						int branch = seen[k]++ < node.cut ? node.lessChild : 1 - node.lessChild;
+						assign(next, nextNodeOf, row, firstChild[k] + branch);
+					}
+				} else {
+					byte[] codes = binned.getCodes(a);
+					for (int row = 0; row < codes.length; row++) {
+						Node node = splitNode(level, nodeOf[row], a);
+						if (node == null) continue;
+						int branch = (codes[row] & 0xFF) < node.cut ? node.lessChild : 1 - node.lessChild;
+						assign(next, nextNodeOf, row, firstChild[nodeOf[row]] + branch);
+					}
+				}
+			}
+		});
+		nodeOf = nextNodeOf;
+		return next;
+	}
+
+	private Node splitNode(ArrayList<Node> level, int k, int a) {
+		if (k < 0) return null;
+		Node node = level.get(k);
+		return node.children != null && node.attribute == a ? node : null;
+	}
+
+	private void assign(ArrayList<Node> next, int[] nextNodeOf, int row, int child) {
+		nextNodeOf[row] = child;
+		Node node = next.get(child);
+		node.classCounts[labels[row]]++;
+		node.size++;
+	}
+
+	/**
+	 * Connect every node with its subtrees and write the feature table depth first
+	 */
+	private void connect(Node node, StringBuilder features) {
+		if (node.feature != null) {
+			features.append("|").append(node.feature);
+		}
+		if (node.children == null) return;
+		for (int i = 0; i < node.children.length; i++) {
+			connect(node.children[i], features);
+			node.treeNode.addChild(node.branchNames[i], node.children[i].treeNode);
+		}
+	}
+
+	public String getFeatureTable() {
+		return featureTable;
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * This class runs independent pieces of tree training as fork-join tasks. One pool is kept
+ * per parallelism level, so repeated training calls reuse their worker threads.
+ */
+
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelTasks {
+
+	private static final ConcurrentHashMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+
+	/**
+	 * One piece of work, identified by its position
+	 */
+	public interface Task {
+		void run(int i) throws IOException;
+	}
+
+
+	/**
+	 * @param parallelism
+	 * @return ForkJoinPool the shared pool with the given parallelism
+	 */
+	public static ForkJoinPool getPool(int parallelism) {
+		ForkJoinPool pool = pools.get(parallelism);
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+			ForkJoinPool existing = pools.putIfAbsent(parallelism, pool);
+			if (existing != null) {
+				pool.shutdown();
+				pool = existing;
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Run task.run(0) to task.run(count - 1). With parallelism 1 they run one after another
+	 * in the calling thread; otherwise they run as fork-join tasks and this method returns
+	 * when all of them are done. Called from a fork-join worker, the tasks join the pool of
+	 * that worker instead of blocking it.
+	 * @param count
+	 * @param parallelism
+	 * @param task
+	 * @throws IOException the first IOException thrown by a task
+	 */
+	public static void forEach(int count, int parallelism, Task task) throws IOException {
+		if (parallelism <= 1 || count <= 1) {
+			for (int i = 0; i < count; i++) {
+				task.run(i);
+			}
+			return;
+		}
+		RangeAction action = new RangeAction(task, 0, count);
+		try {
+			if (ForkJoinTask.inForkJoinPool()) {
+				action.invoke();
+			} else {
+				getPool(parallelism).invoke(action);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Task task;
+		private final int from;
+		private final int to;
+
+		RangeAction(Task task, int from, int to) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				try {
+					task.run(from);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeAction(task, from, mid), new RangeAction(task, mid, to));
+		}
+	}
+}
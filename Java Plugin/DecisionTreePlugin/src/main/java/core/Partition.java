@@ -0,0 +1,103 @@
+/**
+ * This class describes how the rows of a node are split: the names of the branches, the
+ * number of rows of every branch and the branch of every row. The rows are not copied
+ * into subsets; the split index moves them in place, so that every child is a range of
+ * the row array of its parent (see SplitIndex.split).
+ * Branches are listed in the order in which a HashMap of their names returns them, which
+ * is the order the tree builders have always visited the branches in.
+ */
+
+package core;
+
+import java.util.HashMap;
+import java.util.List;
+
+public abstract class Partition {
+
+	private String[] names;
+	private int[] sizes;
+
+
+	/**
+	 * Constructor
+	 * @param names branch names
+	 * @param sizes number of rows of every branch
+	 */
+	protected Partition(String[] names, int[] sizes) {
+		this.names = names;
+		this.sizes = sizes;
+	}
+
+	/**
+	 * Write the branch of every row of the node into branchOf, which is indexed by row.
+	 * Entries of rows outside the node are not touched.
+	 * @param branchOf
+	 */
+	public abstract void mark(int[] branchOf);
+
+	/**
+	 * Order in which a HashMap keyed by the given names, filled in list order, returns them
+	 * @param names
+	 * @return int[] positions of the names in the list
+	 */
+	public static int[] branchOrder(List<String> names) {
+		HashMap<String, Integer> positions = new HashMap<String, Integer>();
+		for (int i = 0; i < names.size(); i++) {
+			positions.put(names.get(i), i);
+		}
+		int[] order = new int[positions.size()];
+		int i = 0;
+		for (String name : positions.keySet()) {
+			order[i++] = positions.get(name);
+		}
+		return order;
+	}
+
+	/**
+	 * Stable partition of the range from to to - 1 of a row array by the branch of every
+	 * row: afterwards branch b holds positions from + boundaries[b] to from + boundaries[b + 1] - 1,
+	 * in the previous order. The rows pass through the same range of the buffer, so nodes
+	 * with disjoint ranges can be partitioned at the same time with one shared buffer.
+	 * @param rows
+	 * @param from
+	 * @param to
+	 * @param branchOf branch of every row
+	 * @param boundaries from getBoundaries()
+	 * @param buffer scratch array as long as rows
+	 */
+	public static void move(int[] rows, int from, int to, int[] branchOf, int[] boundaries, int[] buffer) {
+		int[] fill = new int[boundaries.length - 1];
+		for (int b = 0; b < fill.length; b++) {
+			fill[b] = from + boundaries[b];
+		}
+		for (int i = from; i < to; i++) {
+			buffer[fill[branchOf[rows[i]]]++] = rows[i];
+		}
+		System.arraycopy(buffer, from, rows, from, to - from);
+	}
+
+
+	public String[] getNames() {
+		return names;
+	}
+
+	public int[] getSizes() {
+		return sizes;
+	}
+
+	public int getBranchCount() {
+		return names.length;
+	}
+
+	/**
+	 * @return int[] offset of the first row of every branch in the partitioned node,
+	 * followed by the number of rows of the node
+	 */
+	public int[] getBoundaries() {
+		int[] boundaries = new int[sizes.length + 1];
+		for (int b = 0; b < sizes.length; b++) {
+			boundaries[b + 1] = boundaries[b] + sizes[b];
+		}
+		return boundaries;
+	}
+}
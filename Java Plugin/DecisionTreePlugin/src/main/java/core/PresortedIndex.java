@@ -0,0 +1,212 @@
+/**
+ * This class keeps, for one tree node, the rows of the node and for every continuous
+ * attribute the same rows sorted by that attribute (SLIQ/SPRINT style attribute lists).
+ * The rows are sorted once per training run; when a node is split the sorted lists are
+ * stably partitioned into the children, so they stay sorted without sorting again.
+ * The row array and the sorted lists are shared by all nodes of one training run: a node
+ * is the same range of each of them, and a split partitions that range in place.
+ */
+
+package core;
+
+import java.util.List;
+
+import definition.Attribute;
+import definition.ColumnarDataSet;
+
+public class PresortedIndex implements SplitIndex {
+
+	private ColumnarDataSet data;
+	private int[] rows;
+	private int[][] sortedRows;
+	private int from;
+	private int to;
+	// Branch of every row of the data set and scratch array for partitioning, shared by
+	// all nodes of one training run
+	private int[] branchOf;
+	private int[] buffer;
+
+
+	/**
+	 * Constructor: index all rows of the data set, sorting every continuous attribute once
+	 * @param data
+	 */
+	public PresortedIndex(ColumnarDataSet data) {
+		this(data, data.allRows());
+	}
+
+	/**
+	 * Constructor: index the given rows of the data set, sorting every continuous attribute once
+	 * @param data
+	 * @param rows
+	 */
+	public PresortedIndex(ColumnarDataSet data, int[] rows) {
+		this.data = data;
+		this.rows = rows.clone();
+		this.from = 0;
+		this.to = rows.length;
+		this.branchOf = new int[data.size()];
+		this.buffer = new int[rows.length];
+		int attributeCount = data.getAttributes().size();
+		this.sortedRows = new int[attributeCount][];
+		for (int a = 0; a < attributeCount; a++) {
+			if (data.isContinuous(a)) {
+				sortedRows[a] = rows.clone();
+				data.sortRows(sortedRows[a], a);
+			}
+		}
+	}
+
+	/**
+	 * Constructor: index the given rows of the data set, taking every continuous attribute
+	 * in the order of rows sorted beforehand. The sorted lists are filtered in one pass
+	 * each instead of sorted; as the sort is stable, they are the same as sorted lists.
+	 * @param data
+	 * @param rows rows of the data set in increasing order, every row repeated by its weight
+	 * @param presorted rows sorted by every continuous attribute, from presort or subset;
+	 * they include every row of rows
+	 * @param rowWeights number of times every row is in rows, null for once
+	 */
+	public PresortedIndex(ColumnarDataSet data, int[] rows, int[][] presorted, int[] rowWeights) {
+		this.data = data;
+		this.rows = rows.clone();
+		this.from = 0;
+		this.to = rows.length;
+		this.branchOf = new int[data.size()];
+		this.buffer = new int[rows.length];
+		int attributeCount = data.getAttributes().size();
+		this.sortedRows = new int[attributeCount][];
+		for (int a = 0; a < attributeCount; a++) {
+			if (!data.isContinuous(a)) continue;
+			if (rowWeights == null) {
+				sortedRows[a] = presorted[a].clone();
+				continue;
+			}
+			sortedRows[a] = new int[rows.length];
+			int i = 0;
+			for (int row : presorted[a]) {
+				for (int w = 0; w < rowWeights[row]; w++) {
+					sortedRows[a][i++] = row;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sort all rows of a data set by every continuous attribute, to be shared by the
+	 * indexes of several training runs
+	 * @param data
+	 * @return int[][] the sorted rows of every continuous attribute, null for discrete ones
+	 */
+	public static int[][] presort(ColumnarDataSet data) {
+		int attributeCount = data.getAttributes().size();
+		int[][] presorted = new int[attributeCount][];
+		for (int a = 0; a < attributeCount; a++) {
+			if (data.isContinuous(a)) {
+				presorted[a] = data.allRows();
+				data.sortRows(presorted[a], a);
+			}
+		}
+		return presorted;
+	}
+
+	/**
+	 * Keep the given rows of presorted lists, in the same order, so that the indexes of
+	 * several training runs on these rows filter the subset instead of all rows
+	 * @param presorted rows sorted by every continuous attribute, from presort
+	 * @param rows rows of the data set, each at most once
+	 * @param size number of rows of the data set
+	 * @return int[][] the sorted rows of every continuous attribute, null for discrete ones
+	 */
+	public static int[][] subset(int[][] presorted, int[] rows, int size) {
+		boolean[] kept = new boolean[size];
+		for (int row : rows) {
+			kept[row] = true;
+		}
+		int[][] subset = new int[presorted.length][];
+		for (int a = 0; a < presorted.length; a++) {
+			if (presorted[a] == null) continue;
+			subset[a] = new int[rows.length];
+			int i = 0;
+			for (int row : presorted[a]) {
+				if (kept[row]) subset[a][i++] = row;
+			}
+		}
+		return subset;
+	}
+
+	private PresortedIndex(PresortedIndex parent, int from, int to) {
+		this.data = parent.data;
+		this.rows = parent.rows;
+		this.sortedRows = parent.sortedRows;
+		this.branchOf = parent.branchOf;
+		this.buffer = parent.buffer;
+		this.from = from;
+		this.to = to;
+	}
+
+
+	/**
+	 * Split the index into one child index per branch. The range of the node is stably
+	 * partitioned in the row array and in the sorted lists of the given attributes; the
+	 * sorted lists of the other attributes are not used below this node.
+	 * @param partition branch of every row of the node
+	 * @param attributes attributes still available to the children
+	 * @return SplitIndex[] child index of every branch, in branch order
+	 */
+	public SplitIndex[] split(Partition partition, List<Attribute> attributes) {
+		partition.mark(branchOf);
+		int[] boundaries = partition.getBoundaries();
+		Partition.move(rows, from, to, branchOf, boundaries, buffer);
+		for (Attribute attribute : attributes) {
+			int a = data.indexOf(attribute);
+			if (a < 0 || sortedRows[a] == null) continue;
+			Partition.move(sortedRows[a], from, to, branchOf, boundaries, buffer);
+		}
+
+		SplitIndex[] children = new SplitIndex[partition.getBranchCount()];
+		for (int b = 0; b < children.length; b++) {
+			children[b] = new PresortedIndex(this, from + boundaries[b], from + boundaries[b + 1]);
+		}
+		return children;
+	}
+
+
+	public int[] getRows() {
+		return rows;
+	}
+
+	public int getFrom() {
+		return from;
+	}
+
+	public int getTo() {
+		return to;
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return int[] the row array sorted by the attribute within the range of every node
+	 */
+	public int[] getSortedRows(int attribute) {
+		return sortedRows[attribute];
+	}
+
+	/**
+	 * Find the best binary cut of a continuous attribute by sweeping its sorted rows
+	 * @param attribute index of a continuous attribute
+	 * @param criterion
+	 * @return SplitScanner
+	 */
+	public SplitScanner scan(int attribute, SplitCriterion criterion) {
+		return new SplitScanner(data, sortedRows[attribute], from, to, attribute, criterion);
+	}
+
+	public ColumnarDataSet getData() {
+		return data;
+	}
+
+	public int size() {
+		return to - from;
+	}
+}
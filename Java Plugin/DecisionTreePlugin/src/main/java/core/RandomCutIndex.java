@@ -0,0 +1,139 @@
+/**
+ * This class keeps, for one tree node, the rows of the node for extremely randomized trees
+ * (ExtraTrees): the cut of a continuous attribute is the best of a few thresholds drawn
+ * at random between the smallest and the largest value of the node. Nothing is sorted and
+ * no candidate cut between adjacent values is scanned, so evaluating an attribute costs
+ * two passes over the rows of the node.
+ * The thresholds of a node and attribute are drawn from a generator seeded with the seed
+ * of the tree, the range of the node and the attribute, so the tree does not depend on
+ * the order in which parallel subtrees are built.
+ * The row array is shared by all nodes of one training run: a node is a range of it, and
+ * a split partitions that range in place.
+ */
+
+package core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import definition.Attribute;
+import definition.ColumnarDataSet;
+
+public class RandomCutIndex implements SplitIndex {
+
+	private ColumnarDataSet data;
+	private int[] rows;
+	private int from;
+	private int to;
+	private int cutCount;
+	private long seed;
+	// Branch of every row of the data set and scratch array for partitioning, shared by
+	// all nodes of one training run
+	private int[] branchOf;
+	private int[] buffer;
+
+
+	/**
+	 * Constructor: index the given rows of the data set
+	 * @param data
+	 * @param rows
+	 * @param cutCount number of random thresholds drawn per attribute and node
+	 * @param seed
+	 */
+	public RandomCutIndex(ColumnarDataSet data, int[] rows, int cutCount, long seed) {
+		this.data = data;
+		this.rows = rows.clone();
+		this.from = 0;
+		this.to = rows.length;
+		this.cutCount = cutCount;
+		this.seed = seed;
+		this.branchOf = new int[data.size()];
+		this.buffer = new int[rows.length];
+	}
+
+	private RandomCutIndex(RandomCutIndex parent, int from, int to) {
+		this.data = parent.data;
+		this.rows = parent.rows;
+		this.cutCount = parent.cutCount;
+		this.seed = parent.seed;
+		this.branchOf = parent.branchOf;
+		this.buffer = parent.buffer;
+		this.from = from;
+		this.to = to;
+	}
+
+
+	/**
+	 * Find the best of cutCount random thresholds of a continuous attribute
+	 * @param attribute index of a continuous attribute
+	 * @param criterion
+	 * @return SplitScanner
+	 */
+	public SplitScanner scan(int attribute, SplitCriterion criterion) {
+		double[] values = data.getContinuousColumn(attribute);
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			double value = values[rows[i]];
+			// Comparisons with NaN are false, so values which are not numbers are skipped
+			if (value < min) min = value;
+			if (value > max) max = value;
+		}
+
+		double[] cuts = new double[0];
+		if (min < max) {
+			Random random = new Random(mix(mix(mix(seed, from), to), attribute));
+			cuts = new double[cutCount];
+			for (int k = 0; k < cutCount; k++) {
+				double cut = min + random.nextDouble() * (max - min);
+				// The smallest value must stay on the left
+				cuts[k] = cut > min ? cut : SplitScanner.midpoint(min, max);
+			}
+			Arrays.sort(cuts);
+		}
+		return new SplitScanner(data, rows, from, to, attribute, cuts, criterion);
+	}
+
+	private static long mix(long hash, long value) {
+		long z = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Split the index into one child index per branch, partitioning the range of the node
+	 * in place
+	 * @param partition branch of every row of the node
+	 * @param attributes attributes still available to the children
+	 * @return SplitIndex[] child index of every branch, in branch order
+	 */
+	public SplitIndex[] split(Partition partition, List<Attribute> attributes) {
+		partition.mark(branchOf);
+		int[] boundaries = partition.getBoundaries();
+		Partition.move(rows, from, to, branchOf, boundaries, buffer);
+
+		SplitIndex[] children = new SplitIndex[partition.getBranchCount()];
+		for (int b = 0; b < children.length; b++) {
+			children[b] = new RandomCutIndex(this, from + boundaries[b], from + boundaries[b + 1]);
+		}
+		return children;
+	}
+
+
+	public int[] getRows() {
+		return rows;
+	}
+
+	public int getFrom() {
+		return from;
+	}
+
+	public int getTo() {
+		return to;
+	}
+
+	public int size() {
+		return to - from;
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * This enum is used to score a cut of a node from class counts, for the three split
+ * criteria of the decision trees: information gain, gini index and gain ratio.
+ */
+
+package core;
+
+import gini.GiniIndex;
+
+public enum SplitCriterion {
+	INFO_GAIN,
+	GINI_INDEX,
+	GAIN_RATIO;
+
+
+	/**
+	 * Impurity of a node: gini index for GINI_INDEX, entropy otherwise
+	 * @param classCounts
+	 * @param totalN
+	 * @return double
+	 */
+	public double impurity(int[] classCounts, int totalN) {
+		if (this == GINI_INDEX) return GiniIndex.calculate(classCounts, totalN);
+		return Entropy.calculate(classCounts, totalN);
+	}
+
+	/**
+	 * Impurity of a node from fractional class weights: gini index for GINI_INDEX,
+	 * entropy otherwise
+	 * @param classWeights
+	 * @param totalWeight
+	 * @return double
+	 */
+	public double impurity(double[] classWeights, double totalWeight) {
+		if (this == GINI_INDEX) return GiniIndex.calculate(classWeights, totalWeight);
+		return Entropy.calculate(classWeights, totalWeight);
+	}
+
+	/**
+	 * Score of cutting a node into a left part and the remaining right part:
+	 * information gain, weighted gini index or gain ratio
+	 * @param leftCounts class counts of the left part
+	 * @param leftN
+	 * @param totalCounts class counts of the node
+	 * @param totalN
+	 * @param impurity impurity of the node
+	 * @param rightCounts buffer for the class counts of the right part
+	 * @return double
+	 */
+	public double score(int[] leftCounts, int leftN, int[] totalCounts, int totalN,
+			double impurity, int[] rightCounts) {
+		int rightN = totalN - leftN;
+		for (int c = 0; c < totalCounts.length; c++) {
+			rightCounts[c] = totalCounts[c] - leftCounts[c];
+		}
+		double leftWeight = ((double) leftN) / ((double) totalN);
+		double rightWeight = ((double) rightN) / ((double) totalN);
+		double weighted = leftWeight * impurity(leftCounts, leftN) + rightWeight * impurity(rightCounts, rightN);
+		if (this == GINI_INDEX) return weighted;
+
+		double gain = impurity - weighted;
+		if (this == INFO_GAIN) return gain;
+
+		double splitInfo = -leftWeight * (Math.log(leftWeight) / Math.log(2))
+				- rightWeight * (Math.log(rightWeight) / Math.log(2));
+		return gain / splitInfo;
+	}
+
+	/**
+	 * Score of cutting a node into one part per value of a discrete attribute, computed
+	 * like the discrete evaluators (InfoGainDiscrete, DiscreteProbability,
+	 * GainRatioDiscrete), summing the parts in the given order
+	 * @param partCounts class counts of every part
+	 * @param partN number of rows of every part
+	 * @param totalN
+	 * @param impurity impurity of the node
+	 * @return double
+	 */
+	public double score(int[][] partCounts, int[] partN, int totalN, double impurity) {
+		double gain = this == GINI_INDEX ? 0 : impurity;
+		double splitInfo = 0;
+		for (int p = 0; p < partCounts.length; p++) {
+			double weight = ((double) partN[p]) / ((double) totalN);
+			if (this == GINI_INDEX) {
+				gain += weight * impurity(partCounts[p], partN[p]);
+			} else {
+				gain -= weight * impurity(partCounts[p], partN[p]);
+			}
+			splitInfo -= weight * (Math.log(weight) / Math.log(2));
+		}
+		if (this == GAIN_RATIO) return gain / splitInfo;
+		return gain;
+	}
+
+	/**
+	 * @param score
+	 * @param best
+	 * @return boolean true if score is strictly better than best
+	 */
+	public boolean isBetter(double score, double best) {
+		if (this == GINI_INDEX) return score < best;
+		return score > best;
+	}
+
+	/**
+	 * @return double score an attribute has to beat to be chosen, as in the choosers
+	 */
+	public double noSplit() {
+		if (this == GINI_INDEX) return Double.POSITIVE_INFINITY;
+		if (this == INFO_GAIN) return -1;
+		return 0;
+	}
+
+	/**
+	 * @return double score of an attribute that cannot split the node
+	 */
+	public double worst() {
+		if (this == GINI_INDEX) return Double.POSITIVE_INFINITY;
+		return Double.NEGATIVE_INFINITY;
+	}
+}
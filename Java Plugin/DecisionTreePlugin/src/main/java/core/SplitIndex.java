@@ -0,0 +1,53 @@
+/**
+ * This interface is implemented by the per-node structures used to find the best cut of
+ * continuous attributes: presorted attribute lists (PresortedIndex), class histograms
+ * of binned attributes (HistogramIndex) and random thresholds (RandomCutIndex).
+ * The rows of a node are a range of a row array shared by all nodes of one training run.
+ * A split moves the rows of the node in place, so every child is a range inside the range
+ * of its parent and no row subsets are allocated.
+ */
+
+package core;
+
+import java.util.List;
+
+import definition.Attribute;
+
+public interface SplitIndex {
+
+	/**
+	 * @return int[] row array holding the rows of the node at positions getFrom() to getTo() - 1
+	 */
+	int[] getRows();
+
+	/**
+	 * @return int position of the first row of the node
+	 */
+	int getFrom();
+
+	/**
+	 * @return int position after the last row of the node
+	 */
+	int getTo();
+
+	/**
+	 * @return int number of rows of the node
+	 */
+	int size();
+
+	/**
+	 * Find the best binary cut of a continuous attribute
+	 * @param attribute index of a continuous attribute
+	 * @param criterion
+	 * @return SplitScanner
+	 */
+	SplitScanner scan(int attribute, SplitCriterion criterion);
+
+	/**
+	 * Split the index into one child index per branch, moving the rows in place
+	 * @param partition branch of every row of the node
+	 * @param attributes attributes still available to the children
+	 * @return SplitIndex[] child index of every branch, in branch order
+	 */
+	SplitIndex[] split(Partition partition, List<Attribute> attributes);
+}
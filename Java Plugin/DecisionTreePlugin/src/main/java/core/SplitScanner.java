@@ -0,0 +1,259 @@
+/**
+ * This class finds the best binary cut of a continuous attribute in one pass, either over
+ * the rows of a node sorted by that attribute or over the class histogram of its bins.
+ * It keeps running class counts of the left part, so every candidate cut is scored in
+ * O(number of classes) instead of recounting both halves.
+ * The same kernel is used by information gain, gini index and gain ratio, so the three
+ * criteria place thresholds the same way: candidates are between two distinct adjacent
+ * values (or non-empty bins), and the left part holds the values below the threshold.
+ * Values which are not numbers sort (or bin) last and are never cut from each other or
+ * from the numbers, so they always go to the right part, as value < threshold sends them
+ * at prediction.
+ * For extremely randomized trees it scores given random thresholds instead, in one pass
+ * over the unsorted rows.
+ */
+
+package core;
+
+import java.util.ArrayList;
+
+import definition.ColumnarDataSet;
+
+public class SplitScanner {
+
+	private double threshold;
+	private double score;
+	private boolean splittable;
+
+	// Rows of the node at positions from to to - 1, with the cut position in the sorted
+	// rows or the bin codes and the first bin of the right part
+	private int[] rows;
+	private int from;
+	private int to;
+	private int cutPosition;
+	private byte[] codes;
+	private int cutBin;
+	// Values of the attribute when the rows are split by the threshold itself
+	private double[] values;
+	private int leftN;
+
+
+	/**
+	 * Constructor: scan all candidate cuts of the sorted rows. The threshold is the
+	 * midpoint between the two values around the cut.
+	 * @param data
+	 * @param rows row array holding the rows of the current node, sorted by the attribute,
+	 * at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @param attribute index of a continuous attribute
+	 * @param criterion
+	 */
+	public SplitScanner(ColumnarDataSet data, int[] rows, int from, int to, int attribute,
+			SplitCriterion criterion) {
+		double[] values = data.getContinuousColumn(attribute);
+		int[] labels = data.getLabels();
+		int totalN = to - from;
+		int numClasses = data.getNumClasses();
+
+		int[] totalCounts = data.classCounts(rows, from, to);
+		int[] leftCounts = new int[numClasses];
+		int[] rightCounts = new int[numClasses];
+		double impurity = criterion.impurity(totalCounts, totalN);
+
+		this.rows = rows;
+		this.from = from;
+		this.to = to;
+		cutPosition = -1;
+		score = criterion.worst();
+		for (int i = from; i < to - 1; i++) {
+			leftCounts[labels[rows[i]]]++;
+			if (values[rows[i]] != values[rows[i + 1]] && !Double.isNaN(values[rows[i + 1]])) {
+				double currScore = criterion.score(leftCounts, i + 1 - from, totalCounts, totalN, impurity, rightCounts);
+				if (criterion.isBetter(currScore, score)) {
+					score = currScore;
+					cutPosition = i + 1;
+				}
+			}
+		}
+
+		splittable = cutPosition > 0;
+		if (splittable) {
+			leftN = cutPosition - from;
+			threshold = midpoint(values[rows[cutPosition - 1]], values[rows[cutPosition]]);
+		}
+	}
+
+	/**
+	 * Constructor: scan all candidate cuts between the bins of a class histogram. The
+	 * threshold is the bin threshold after the last non-empty bin of the left part.
+	 * @param rows row array holding the rows of the current node at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @param codes bin code of every row of the data set
+	 * @param histogram number of rows of the node per bin and class, at bin * numClasses + class
+	 * @param thresholds threshold between bin b and bin b + 1 at position b
+	 * @param totalCounts class counts of the node
+	 * @param criterion
+	 */
+	public SplitScanner(int[] rows, int from, int to, byte[] codes, int[] histogram, double[] thresholds,
+			int[] totalCounts, SplitCriterion criterion) {
+		int numClasses = totalCounts.length;
+		int totalN = to - from;
+		int[] leftCounts = new int[numClasses];
+		int[] rightCounts = new int[numClasses];
+		double impurity = criterion.impurity(totalCounts, totalN);
+
+		this.rows = rows;
+		this.from = from;
+		this.to = to;
+		this.codes = codes;
+		cutBin = -1;
+		score = criterion.worst();
+		int leftN = 0;
+		for (int bin = 0; bin < thresholds.length; bin++) {
+			int binN = 0;
+			for (int c = 0; c < numClasses; c++) {
+				int count = histogram[bin * numClasses + c];
+				leftCounts[c] += count;
+				binN += count;
+			}
+			leftN += binN;
+			if (binN == 0 || leftN == totalN) continue;
+			double currScore = criterion.score(leftCounts, leftN, totalCounts, totalN, impurity, rightCounts);
+			if (criterion.isBetter(currScore, score)) {
+				score = currScore;
+				cutBin = bin + 1;
+				threshold = thresholds[bin];
+				this.leftN = leftN;
+			}
+		}
+		splittable = cutBin > 0;
+	}
+
+	/**
+	 * Constructor: score the given candidate thresholds in one pass over the rows of the
+	 * node, which need not be sorted. Values which are not numbers go to the right part.
+	 * @param data
+	 * @param rows row array holding the rows of the current node at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @param attribute index of a continuous attribute
+	 * @param cuts candidate thresholds in ascending order
+	 * @param criterion
+	 */
+	public SplitScanner(ColumnarDataSet data, int[] rows, int from, int to, int attribute, double[] cuts,
+			SplitCriterion criterion) {
+		double[] values = data.getContinuousColumn(attribute);
+		int[] labels = data.getLabels();
+		int totalN = to - from;
+		int numClasses = data.getNumClasses();
+
+		// Class counts of the rows between two adjacent cuts, at interval * numClasses + class
+		int[] intervalCounts = new int[(cuts.length + 1) * numClasses];
+		int[] totalCounts = new int[numClasses];
+		for (int i = from; i < to; i++) {
+			int row = rows[i];
+			intervalCounts[intervalOf(cuts, values[row]) * numClasses + labels[row]]++;
+			totalCounts[labels[row]]++;
+		}
+		int[] leftCounts = new int[numClasses];
+		int[] rightCounts = new int[numClasses];
+		double impurity = criterion.impurity(totalCounts, totalN);
+
+		this.rows = rows;
+		this.from = from;
+		this.to = to;
+		this.values = values;
+		score = criterion.worst();
+		int leftN = 0;
+		for (int cut = 0; cut < cuts.length; cut++) {
+			for (int c = 0; c < numClasses; c++) {
+				int count = intervalCounts[cut * numClasses + c];
+				leftCounts[c] += count;
+				leftN += count;
+			}
+			if (leftN == 0 || leftN == totalN) continue;
+			double currScore = criterion.score(leftCounts, leftN, totalCounts, totalN, impurity, rightCounts);
+			if (!splittable || criterion.isBetter(currScore, score)) {
+				splittable = true;
+				score = currScore;
+				threshold = cuts[cut];
+				this.leftN = leftN;
+			}
+		}
+	}
+
+	/**
+	 * Interval of a value among ascending cuts: the number of cuts which are not larger
+	 * than the value, the number of cuts for NaN
+	 */
+	private static int intervalOf(double[] cuts, double value) {
+		if (Double.isNaN(value)) return cuts.length;
+		int low = 0;
+		int high = cuts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cuts[mid] <= value) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Threshold between two adjacent distinct values, such that lower < threshold <= upper
+	 * @param lower
+	 * @param upper
+	 * @return double
+	 */
+	public static double midpoint(double lower, double upper) {
+		double mid = (lower + upper) / 2;
+		return mid > lower ? mid : upper;
+	}
+
+
+	/**
+	 * Partition of the node by the best cut: branch "less" + threshold holds the rows
+	 * before the cut, branch "more" + threshold the others
+	 * @return Partition, null if the attribute cannot split the node
+	 */
+	public Partition getPartition() {
+		if (!splittable) return null;
+		ArrayList<String> names = new ArrayList<String>();
+		names.add("less" + threshold);
+		names.add("more" + threshold);
+		int[] order = Partition.branchOrder(names);
+		final int lessBranch = order[0] == 0 ? 0 : 1;
+		int[] sizes = new int[2];
+		sizes[lessBranch] = leftN;
+		sizes[1 - lessBranch] = to - from - leftN;
+		return new Partition(new String[] {names.get(order[0]), names.get(order[1])}, sizes) {
+			public void mark(int[] branchOf) {
+				for (int i = from; i < to; i++) {
+					boolean less;
+					if (values != null) {
+						less = values[rows[i]] < threshold;
+					} else {
+						less = codes == null ? i < cutPosition : (codes[rows[i]] & 0xFF) < cutBin;
+					}
+					branchOf[rows[i]] = less ? lessBranch : 1 - lessBranch;
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return boolean false if all rows have the same value (or bin)
+	 */
+	public boolean isSplittable() {
+		return splittable;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	public double getScore() {
+		return score;
+	}
+}
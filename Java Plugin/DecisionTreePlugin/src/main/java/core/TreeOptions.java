@@ -0,0 +1,297 @@
+/**
+ * This class holds the training options of a decision tree which are not part of the
+ * original createTree* parameters (target, isPruned, maxDepth). The user functions pass
+ * them as an optional map, e.g. {maxBins: 64, parallelism: 8}.
+ */
+
+package core;
+
+import java.util.Map;
+
+public class TreeOptions {
+
+	// Largest number of histogram bins, as bins are stored as byte codes
+	public static final int MAX_BINS = 256;
+
+	// Number of histogram bins of continuous attributes, 0 for exact (presorted) split finding
+	private int maxBins = 0;
+
+	// Number of threads used to train one tree
+	private int parallelism = 1;
+
+	// Nodes with fewer rows build their subtrees sequentially
+	private int sequentialCutoff = 1000;
+
+	// Build the tree one depth at a time instead of one subtree at a time
+	private boolean levelWise = false;
+
+	// Predict with a class generated from the trained tree instead of the compiled arrays
+	private boolean codegen = false;
+
+	// Number of attributes drawn at random as candidates of every split, 0 for all of them
+	private int featureSubset = 0;
+
+	// Seed of the random choices of a tree
+	private long seed = 0;
+
+	// Cut continuous attributes at random thresholds (extremely randomized trees)
+	private boolean extraTrees = false;
+
+	// Number of random thresholds drawn per attribute and node in extraTrees mode
+	private int randomCuts = 1;
+
+	// Smallest number of rows of a non-empty branch of a split
+	private int minLeafSize = 1;
+
+
+	public TreeOptions() {}
+
+	/**
+	 * Constructor: copy the options
+	 * @param options
+	 */
+	public TreeOptions(TreeOptions options) {
+		this.maxBins = options.maxBins;
+		this.parallelism = options.parallelism;
+		this.sequentialCutoff = options.sequentialCutoff;
+		this.levelWise = options.levelWise;
+		this.codegen = options.codegen;
+		this.featureSubset = options.featureSubset;
+		this.seed = options.seed;
+		this.extraTrees = options.extraTrees;
+		this.randomCuts = options.randomCuts;
+		this.minLeafSize = options.minLeafSize;
+	}
+
+	/**
+	 * Read the options from a map of option name to value. Unknown names are rejected.
+	 * @param options
+	 * @return TreeOptions
+	 */
+	public static TreeOptions fromMap(Map<String, Object> options) {
+		TreeOptions treeOptions = new TreeOptions();
+		treeOptions.setAll(options);
+		return treeOptions;
+	}
+
+	/**
+	 * Set every option of a map of option name to value
+	 * @param options may be null
+	 */
+	protected void setAll(Map<String, Object> options) {
+		if (options == null) return;
+		for (Map.Entry<String, Object> option : options.entrySet()) {
+			setOption(option.getKey(), option.getValue());
+		}
+	}
+
+	/**
+	 * Set one option by name; subclasses add their own names
+	 * @param name
+	 * @param value
+	 */
+	protected void setOption(String name, Object value) {
+		if (name.equals("maxBins")) {
+			setMaxBins(toInt(name, value));
+		} else if (name.equals("parallelism")) {
+			setParallelism(toInt(name, value));
+		} else if (name.equals("sequentialCutoff")) {
+			setSequentialCutoff(toInt(name, value));
+		} else if (name.equals("levelWise")) {
+			setLevelWise(toBoolean(name, value));
+		} else if (name.equals("codegen")) {
+			setCodegen(toBoolean(name, value));
+		} else if (name.equals("featureSubset")) {
+			setFeatureSubset(toInt(name, value));
+		} else if (name.equals("seed")) {
+			setSeed(toLong(name, value));
+		} else if (name.equals("extraTrees")) {
+			setExtraTrees(toBoolean(name, value));
+		} else if (name.equals("randomCuts")) {
+			setRandomCuts(toInt(name, value));
+		} else if (name.equals("minLeafSize")) {
+			setMinLeafSize(toInt(name, value));
+		} else {
+			throw new IllegalArgumentException("Unknown option: " + name);
+		}
+	}
+
+	protected static int toInt(String name, Object value) {
+		if (value instanceof Number) return ((Number) value).intValue();
+		try {
+			return Integer.parseInt(String.valueOf(value).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Option " + name + " must be an integer: " + value);
+		}
+	}
+
+	protected static long toLong(String name, Object value) {
+		if (value instanceof Number) return ((Number) value).longValue();
+		try {
+			return Long.parseLong(String.valueOf(value).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Option " + name + " must be an integer: " + value);
+		}
+	}
+
+	protected static double toDouble(String name, Object value) {
+		if (value instanceof Number) return ((Number) value).doubleValue();
+		try {
+			return Double.parseDouble(String.valueOf(value).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Option " + name + " must be a number: " + value);
+		}
+	}
+
+	protected static boolean toBoolean(String name, Object value) {
+		if (value instanceof Boolean) return (Boolean) value;
+		String text = String.valueOf(value).trim();
+		if (text.equalsIgnoreCase("true")) return true;
+		if (text.equalsIgnoreCase("false")) return false;
+		throw new IllegalArgumentException("Option " + name + " must be true or false: " + value);
+	}
+
+
+	public int getMaxBins() {
+		return maxBins;
+	}
+
+	/**
+	 * @param maxBins number of histogram bins (2 to 256), or 0 for exact split finding
+	 */
+	public void setMaxBins(int maxBins) {
+		if (maxBins != 0 && (maxBins < 2 || maxBins > MAX_BINS))
+			throw new IllegalArgumentException("maxBins must be 0 or between 2 and " + MAX_BINS + ": " + maxBins);
+		this.maxBins = maxBins;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism number of threads used to train one tree, at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	public int getSequentialCutoff() {
+		return sequentialCutoff;
+	}
+
+	/**
+	 * @param sequentialCutoff smallest number of rows of a node whose subtrees are built
+	 * as parallel tasks, at least 1
+	 */
+	public void setSequentialCutoff(int sequentialCutoff) {
+		if (sequentialCutoff < 1)
+			throw new IllegalArgumentException("sequentialCutoff must be at least 1: " + sequentialCutoff);
+		this.sequentialCutoff = sequentialCutoff;
+	}
+
+	public boolean isLevelWise() {
+		return levelWise;
+	}
+
+	/**
+	 * @param levelWise true to build the tree one depth at a time, with one pass over
+	 * the data per depth. The level-wise builder uses all rows, all attributes and exact
+	 * or histogram cuts, so it is not used for trees trained on a sample, on random
+	 * feature subsets or with random cuts.
+	 */
+	public void setLevelWise(boolean levelWise) {
+		this.levelWise = levelWise;
+	}
+
+	public boolean isCodegen() {
+		return codegen;
+	}
+
+	/**
+	 * @param codegen true to predict with a class generated from the trained tree
+	 * (see node.TreeClassGenerator)
+	 */
+	public void setCodegen(boolean codegen) {
+		this.codegen = codegen;
+	}
+
+	public int getFeatureSubset() {
+		return featureSubset;
+	}
+
+	/**
+	 * @param featureSubset number of attributes drawn at random as the candidates of
+	 * every split, or 0 to consider all remaining attributes
+	 */
+	public void setFeatureSubset(int featureSubset) {
+		if (featureSubset < 0)
+			throw new IllegalArgumentException("featureSubset must be at least 0: " + featureSubset);
+		this.featureSubset = featureSubset;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed seed of the random choices, so that a tree can be trained again
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public boolean isExtraTrees() {
+		return extraTrees;
+	}
+
+	/**
+	 * @param extraTrees true to cut continuous attributes at the best of randomCuts
+	 * thresholds drawn between the smallest and largest value of the node, instead of
+	 * searching all cuts; maxBins is then not used
+	 */
+	public void setExtraTrees(boolean extraTrees) {
+		this.extraTrees = extraTrees;
+	}
+
+	public int getRandomCuts() {
+		return randomCuts;
+	}
+
+	/**
+	 * @param randomCuts number of random thresholds per attribute and node, at least 1
+	 */
+	public void setRandomCuts(int randomCuts) {
+		if (randomCuts < 1)
+			throw new IllegalArgumentException("randomCuts must be at least 1: " + randomCuts);
+		this.randomCuts = randomCuts;
+	}
+
+	public int getMinLeafSize() {
+		return minLeafSize;
+	}
+
+	/**
+	 * @param minLeafSize smallest number of rows of every non-empty branch of a split, at
+	 * least 1; a node whose best split makes a smaller branch becomes a leaf. The
+	 * level-wise builder does not check it, so it is not used when minLeafSize is above 1.
+	 */
+	public void setMinLeafSize(int minLeafSize) {
+		if (minLeafSize < 1)
+			throw new IllegalArgumentException("minLeafSize must be at least 1: " + minLeafSize);
+		this.minLeafSize = minLeafSize;
+	}
+
+	public boolean isHistogram() {
+		return maxBins > 0;
+	}
+
+	public String toString() {
+		return "@TreeOptions maxBins: " + maxBins + "; parallelism: " + parallelism
+				+ "; sequentialCutoff: " + sequentialCutoff + "; levelWise: " + levelWise + "; codegen: " + codegen
+				+ "; featureSubset: " + featureSubset + "; seed: " + seed
+				+ "; extraTrees: " + extraTrees + "; randomCuts: " + randomCuts + "; minLeafSize: " + minLeafSize;
+	}
+}
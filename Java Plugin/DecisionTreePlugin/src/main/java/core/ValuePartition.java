@@ -0,0 +1,86 @@
+/**
+ * This class splits the rows of a node by the values of a discrete attribute, one branch
+ * per value of the attribute (empty branches included). The class counts of every branch
+ * are counted in the same pass, so the discrete evaluators score the split without
+ * building the subsets.
+ */
+
+package core;
+
+import java.io.IOException;
+import java.util.List;
+
+import definition.Attribute;
+import definition.ColumnarDataSet;
+
+public class ValuePartition extends Partition {
+
+	private int[] codes;
+	private int[] rows;
+	private int from;
+	private int to;
+	// Branch of every value code
+	private int[] branchOfCode;
+	private int[][] classCounts;
+
+
+	/**
+	 * Constructor: count the rows of the node per value and class
+	 * @param data
+	 * @param attribute a discrete attribute
+	 * @param rows row array holding the node at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @throws IOException if a row has a value which is not one of the attribute
+	 */
+	public ValuePartition(ColumnarDataSet data, Attribute attribute, int[] rows, int from, int to)
+			throws IOException {
+		this(data, attribute, rows, from, to, Partition.branchOrder(attribute.getValues()));
+	}
+
+	private ValuePartition(ColumnarDataSet data, Attribute attribute, int[] rows, int from, int to,
+			int[] order) throws IOException {
+		super(branchNames(attribute.getValues(), order), new int[order.length]);
+		this.codes = data.getDiscreteColumn(data.indexOf(attribute));
+		this.rows = rows;
+		this.from = from;
+		this.to = to;
+		this.branchOfCode = new int[order.length];
+		for (int b = 0; b < order.length; b++) {
+			branchOfCode[order[b]] = b;
+		}
+
+		int[] sizes = getSizes();
+		int[] labels = data.getLabels();
+		classCounts = new int[order.length][data.getNumClasses()];
+		for (int i = from; i < to; i++) {
+			int row = rows[i];
+			if (codes[row] == ColumnarDataSet.UNKNOWN)
+				throw new IOException("Invalid input data");
+			int branch = branchOfCode[codes[row]];
+			sizes[branch]++;
+			classCounts[branch][labels[row]]++;
+		}
+	}
+
+	private static String[] branchNames(List<String> values, int[] order) {
+		String[] names = new String[order.length];
+		for (int b = 0; b < order.length; b++) {
+			names[b] = values.get(order[b]);
+		}
+		return names;
+	}
+
+	public void mark(int[] branchOf) {
+		for (int i = from; i < to; i++) {
+			branchOf[rows[i]] = branchOfCode[codes[rows[i]]];
+		}
+	}
+
+	/**
+	 * @return int[][] class counts of every branch
+	 */
+	public int[][] getClassCounts() {
+		return classCounts;
+	}
+}
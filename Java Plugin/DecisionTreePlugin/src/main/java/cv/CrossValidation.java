@@ -6,11 +6,14 @@
 package cv;
 
 import core.ConstructTree;
+import core.ParallelTasks;
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 import gainratio.ConstructTreeGR;
 import gini.ConstructTreeGI;
 import input.ProcessInputData;
+import node.CompiledTree;
 import node.TreeNode;
 
 import java.io.IOException;
@@ -18,27 +21,31 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
 
 import evaluate.EvaluateTree;
 
 public class CrossValidation {
 	private ArrayList<Attribute> attributes;
-	private ArrayList<Instance> trainInstances;
 	private ArrayList<Instance> testInstances;
-	private ArrayList<ArrayList<Instance>> testBundles;
 	private Attribute target;
 	private TreeNode root;
 	private ArrayList<Instance> result;
 	private ArrayList<Instance> totalInstances;
 	private ArrayList<Double> scores;
 	private double scoresAverage;
-	Random rand;
+	// All instances, encoded once and shared by the folds
+	private ColumnarDataSet data;
+	private FoldSplitter splitter;
+	private long seed;
+	// Every fold holds about 1/k of each class
+	private boolean stratified = true;
 	String impurity; 
 	private ArrayList<Double> cvGenerationTime;
 	private double cvGenerationTimeAverage;
 	private ArrayList<Double> mccArray;
 	private double mccAverage;
+	// Number of folds trained at the same time
+	private int parallelism = Runtime.getRuntime().availableProcessors();
 	
 	String cfmDiabetes = "";
 	
@@ -56,14 +63,13 @@ public class CrossValidation {
 		this.attributes = input.getAttributeSet();
 
 		this.target = input.getTargetAttribute();
-		
-		this.testBundles = new ArrayList<ArrayList<Instance>>();
 
 		this.totalInstances = input.getInstanceSet();
 		
 		this.mccArray = new ArrayList<Double>();
 
-		rand = new Random(totalInstances.size());
+		this.data = new ColumnarDataSet(totalInstances, attributes, target);
+		this.seed = totalInstances.size();
 	}
 	
 	
@@ -79,82 +85,45 @@ public class CrossValidation {
 		this.attributes = input.getAttributeSet();
 
 		this.target = input.getTargetAttribute();
-		
-
-		this.testBundles = new ArrayList<ArrayList<Instance>>();
 
 		this.totalInstances = input.getInstanceSet();
 		
 		this.mccArray = new ArrayList<Double>();
 
-		rand = new Random(totalInstances.size());
-		
+		this.data = new ColumnarDataSet(totalInstances, attributes, target);
+		this.seed = totalInstances.size();
 	}
 	
 	/**
-	 * Shuffle data and put them into k bundles, preparing for cross validation on k folds.
+	 * Shuffle the rows and split them into k folds, preparing for cross validation on k
+	 * folds. The folds are ranges of one permutation of the row indices; no instance is
+	 * copied.
 	 * @param k
 	 */
 	public void shuffle(int k) {
-		int total_size = totalInstances.size();
-
-		int average = total_size / k;
-		
-		for(int i = 0; i < k - 1; i++) {
-			ArrayList<Instance> curBundle = new ArrayList<Instance>();
-			for(int j = 0; j < average; j++) {
-				int size = totalInstances.size();
-				int curIndex = rand.nextInt(size);
-				curBundle.add(totalInstances.get(curIndex));
-				totalInstances.remove(curIndex);
-			}
-			testBundles.add(curBundle);	
-		}
-		
-
-		ArrayList<Instance> lastBundle = new ArrayList<Instance>();
-		
-		for(int i = 0; i < totalInstances.size(); i++) {
-			lastBundle.add(totalInstances.get(i));
+		if (stratified) {
+			splitter = new FoldSplitter(data.getLabels(), target.getValues().size(), k, seed);
+		} else {
+			splitter = new FoldSplitter(data.size(), k, seed);
 		}
-		testBundles.add(lastBundle);
 	}
 	
 	/**
-	 * Mine input data (e.g. put target attribute label on input data).
+	 * Mine input data (e.g. put target attribute label on input data). The tree is
+	 * compiled into flat arrays and the test instances are encoded once, so every
+	 * instance is predicted without string handling.
+	 * @throws IOException
 	 */
-	private void mine() {
+	private void mine() throws IOException {
+		ColumnarDataSet testData = new ColumnarDataSet(testInstances, attributes, target, true);
+		CompiledTree compiled = CompiledTree.compile(root, attributes, target.getValues());
 		for (int i = 0; i < testInstances.size(); i++) {
-			TreeNode node = root;
-			Instance currInstance = testInstances.get(i);
 			Instance resInstance = result.get(i);
-
-			while (!node.getType().equals("leaf")) {
-				String attributeName = node.getAttribute().getName();
-				String attributeType = node.getAttribute().getType();
-
-				HashMap<String, String> attributeValuePairs = currInstance.getAttributeValuePairs();
-				String value = attributeValuePairs.get(attributeName);
-				if (attributeType.equals("continuous")) {
-					HashMap<String, TreeNode> children = node.getChildren();
-					String tmp = "";
-					for (String s : children.keySet()) {
-						String threshold = s.substring(4);
-						if (Double.parseDouble(value) < Double.parseDouble(threshold)) {
-							tmp = "less";
-						} else {
-							tmp = "more";
-						}
-						String curLabel = s.substring(0, 4);
-						if (tmp.equals(curLabel)) node = children.get(s);
-					}
-				} else {
-					HashMap<String, TreeNode> children = node.getChildren();
-					node = children.get(value);
-				}
+			int classId = compiled.predict(testData, i);
+			if (classId != CompiledTree.NO_PREDICTION) {
+				HashMap<String, String> pairs = resInstance.getAttributeValuePairs();
+				pairs.put("Test" + target.getName(), compiled.getClassLabel(classId));
 			}
-			HashMap<String, String> pairs = resInstance.getAttributeValuePairs();
-			pairs.put("Test" + target.getName(), node.getTargetLabel());
 		}
 	}
 	
@@ -164,13 +133,6 @@ public class CrossValidation {
 	 * @param pred
 	 */
 	public ArrayList<Integer> calculateConfusionMatrix(ArrayList<String> act, ArrayList<String> pred) {
-		 ArrayList<Integer> conMatrixArray = new ArrayList<Integer>();
-		 int truePositive = 0;
-		 int trueNegative = 0;
-		 int falsePositive = 0;
-		 int falseNegative = 0;
-		 String confusionMatrix = "";
-		
 		 List<String> categories = target.getValues();
 		 int matrixSize = categories.size();
 		 int [][] confMatrix = new int[matrixSize][matrixSize];
@@ -185,6 +147,23 @@ public class CrossValidation {
 	         confMatrix[actualLabelIndex][outLabelIndex] += 1;
 	     
 		 }
+		 return addConfusionMatrix(confMatrix);
+	}
+	
+	/**
+	 * This function adds the confusion matrix of a fold to the outputs: the matrix to the
+	 * matrices string, and the MCC of a matrix of more than two classes to the MCC array
+	 * @param confMatrix counts by actual and predicted class id
+	 * @return the TP, TN, FP and FN counts of a two class matrix, empty otherwise
+	 */
+	private ArrayList<Integer> addConfusionMatrix(int[][] confMatrix) {
+		 ArrayList<Integer> conMatrixArray = new ArrayList<Integer>();
+		 int truePositive = 0;
+		 int trueNegative = 0;
+		 int falsePositive = 0;
+		 int falseNegative = 0;
+		 int matrixSize = confMatrix.length;
+		 
 		 cfmDiabetes = cfmDiabetes + "|" + Arrays.deepToString(confMatrix);
 		 System.out.println(cfmDiabetes);
 		 
@@ -258,86 +237,153 @@ public class CrossValidation {
 	/**
 	 * Get result of mined data.
 	 * @return the result of mined data.
+	 * @throws IOException
 	 */
-	public ArrayList<Instance> getResult() {
+	public ArrayList<Instance> getResult() throws IOException {
 		mine();
 		return result;
 	}
 	
 	/**
-	 * Do cross validation on input data.
+	 * Do cross validation on input data. The folds are independent tasks over the shared
+	 * encoded rows, which they only read: each one weights its own training rows and
+	 * builds its own tree and confusion matrix. Up to parallelism folds run at the same time; the scores,
+	 * generation times, matrices and MCCs are then added in fold order, as if the folds
+	 * had run one after another.
 	 * @param crossValidationN
 	 * @return the result of cross validation
 	 * @throws IOException
 	 */
-	public ArrayList<Double> validate(int crossValidationN, String algorithmType) throws IOException {
+	public ArrayList<Double> validate(int crossValidationN, final String algorithmType) throws IOException {
 		shuffle(crossValidationN);
 		scores = new ArrayList<Double>();
-		for(int i = 0; i < testBundles.size(); i++) {
-			trainInstances = new ArrayList<Instance>();
-		
-			testInstances = new ArrayList<Instance>();
-			
-			result = new ArrayList<Instance>();
-			long startTime = System.currentTimeMillis();
-			
-			for(int j = 0; j < testBundles.size(); j++) {
-				if(i == j) {
-					result.addAll(testBundles.get(j));
-					testInstances.addAll(testBundles.get(j));
-				} else {
-					trainInstances.addAll(testBundles.get(j));
-				}
-			}
-			
-			
-			ConstructTree tree;
-			if(algorithmType == "InfoGain")
-			{
-				tree = new ConstructTree(trainInstances, attributes, target, "False", 0);
-			}
-			else if(algorithmType == "GainRatio")
-			{
-				tree = new ConstructTreeGR(trainInstances, attributes, target, "False", 0);
-			}
-			else
-			{
-				tree = new ConstructTreeGI(trainInstances, attributes, target, "False", 0);
-			}
-			
-			root = tree.construct();
-			
-			long endTime = System.currentTimeMillis();
-			double crossValidationGenTime = (endTime -startTime)/1000f;
-			cvGenerationTime.add(crossValidationGenTime);
-
-
-			int correct = 0;
-			ArrayList<Instance> res = getResult();
-			ArrayList<String> actual = new ArrayList<String>();
-			ArrayList<String> prec = new ArrayList<String>();
-			
-			for (Instance item : res) {				
-				String testLabel = item.getAttributeValuePairs().get("Test" + target.getName());
-				String label = item.getAttributeValuePairs().get(target.getName());
-				prec.add(testLabel);
-				actual.add(label);
-				if(testLabel.equals(label)) {
-					correct++;
-				}
+		final Fold[] folds = new Fold[splitter.getFoldCount()];
+		ParallelTasks.forEach(folds.length, parallelism, new ParallelTasks.Task() {
+			public void run(int i) throws IOException {
+				folds[i] = runFold(i, algorithmType);
 			}
-			ArrayList<Integer> conMatrixArray = calculateConfusionMatrix(actual, prec);
-//			if(conMatrixArray.size()!=0)
-//			{
-//				System.out.println(conMatrixArray.toString());
-//				double mcc = mccCalculation(conMatrixArray);
-//				mccArray.add(mcc);
-//			}
-			scores.add(correct * 1.0 / res.size());
+		});
+		
+		for (Fold fold : folds) {
+			cvGenerationTime.add(fold.generationTime);
+			addConfusionMatrix(fold.confMatrix);
+			scores.add(fold.score);
+		}
+		
+		// The last fold stays available through getRoot and getResult
+		root = folds[folds.length - 1].root;
+		int[] permutation = splitter.getPermutation();
+		int last = folds.length - 1;
+		testInstances = new ArrayList<Instance>();
+		for (int p = splitter.getFrom(last); p < splitter.getTo(last); p++) {
+			testInstances.add(totalInstances.get(permutation[p]));
 		}
+		result = new ArrayList<Instance>(testInstances);
 		return scores;
 	}
 	
+	/**
+	 * The outputs of one fold
+	 */
+	private static class Fold {
+		TreeNode root;
+		double generationTime;
+		int[][] confMatrix;
+		double score;
+	}
+	
+	/**
+	 * Train the tree of one fold on the rows of the other folds and score it on the rows of
+	 * the fold. The training rows are selected by weight over the shared data set.
+	 * @param i
+	 * @param algorithmType "InfoGain", "GainRatio" or "GiniIndex"
+	 * @return Fold
+	 * @throws IOException
+	 */
+	private Fold runFold(int i, String algorithmType) throws IOException {
+		Fold fold = new Fold();
+		long startTime = System.currentTimeMillis();
+		
+		int[] weights = new int[data.size()];
+		for (int row : splitter.trainRows(i)) {
+			weights[row] = 1;
+		}
+		
+		ConstructTree tree;
+		if(algorithmType.equals("InfoGain"))
+		{
+			tree = new ConstructTree(data, attributes, "False", 0);
+		}
+		else if(algorithmType.equals("GainRatio"))
+		{
+			tree = new ConstructTreeGR(data, attributes, "False", 0);
+		}
+		else
+		{
+			tree = new ConstructTreeGI(data, attributes, "False", 0);
+		}
+		tree.setRowWeights(weights);
+		
+		fold.root = tree.construct();
+		
+		long endTime = System.currentTimeMillis();
+		fold.generationTime = (endTime -startTime)/1000f;
+		
+		// Predict with the compiled tree instead of writing the labels to the shared instances
+		CompiledTree compiled = CompiledTree.compile(fold.root, attributes, target.getValues());
+		int[] permutation = splitter.getPermutation();
+		int[] labels = data.getLabels();
+		int matrixSize = target.getValues().size();
+		fold.confMatrix = new int[matrixSize][matrixSize];
+		int correct = 0;
+		int from = splitter.getFrom(i);
+		int to = splitter.getTo(i);
+		for (int p = from; p < to; p++) {
+			int row = permutation[p];
+			int classId = compiled.predict(data, row);
+			if (classId == CompiledTree.NO_PREDICTION) continue;
+			fold.confMatrix[labels[row]][classId]++;
+			if (classId == labels[row]) correct++;
+		}
+		fold.score = correct * 1.0 / (to - from);
+		return fold;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * @param seed seed of the permutation of the rows, the number of rows by default
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	public boolean isStratified() {
+		return stratified;
+	}
+	
+	/**
+	 * @param stratified true (the default) for folds with about 1/k of each class
+	 */
+	public void setStratified(boolean stratified) {
+		this.stratified = stratified;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism number of folds trained at the same time, at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		this.parallelism = parallelism;
+	}
+	
 	public Double getMccAverage()
 	{
 		double total = 0.0;
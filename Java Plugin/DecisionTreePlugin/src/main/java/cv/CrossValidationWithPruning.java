@@ -6,30 +6,39 @@
 package cv;
 
 import core.ConstructTree;
+import core.ParallelTasks;
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 import input.ProcessInputData;
+import node.CompiledTree;
 import node.TreeNode;
-import pruning.Pruning;
+import pruning.CostComplexityPruning;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Random;
 
 public class CrossValidationWithPruning {
 	private ArrayList<Attribute> attributes;
-	private ArrayList<Instance> trainInstances;
 	private ArrayList<Instance> testInstances;
-	private ArrayList<Instance> pruningInstances;
-	private ArrayList<ArrayList<Instance>> testBundles;
 	private Attribute target;
 	private TreeNode rootBefore;
 	private TreeNode root;
 	private ArrayList<Instance> result;
 	private ArrayList<Instance> totalInstances;
 	private ArrayList<Double> scores;
-	Random rand;
+	// Alpha the tree of the last fold was pruned with
+	private double alpha;
+	// Number of folds trained at the same time
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	// All instances, encoded once and shared by the folds
+	private ColumnarDataSet data;
+	private FoldSplitter splitter;
+	private long seed;
+	// Every fold holds about 1/k of each class
+	private boolean stratified = true;
 	
 	
 	public CrossValidationWithPruning(String trainData, String targetAttr) throws IOException {
@@ -38,88 +47,56 @@ public class CrossValidationWithPruning {
 		ProcessInputData input = new ProcessInputData(trainData, targetAttr);
 		this.attributes = input.getAttributeSet();
 		target = input.getTargetAttribute();
-		this.testBundles = new ArrayList<ArrayList<Instance>>();
 		this.totalInstances = input.getInstanceSet();
-		rand = new Random(totalInstances.size());
-		pruningInstances = new ArrayList<Instance>();
-		
+		this.data = new ColumnarDataSet(totalInstances, attributes, target);
+		this.seed = totalInstances.size();
 	}
 	
 	/**
-	 * Shuffle data and put them into k bundles, preparing for cross validation on k folds.
+	 * Shuffle the rows and split them into k folds, preparing for cross validation on k
+	 * folds. The folds are ranges of one permutation of the row indices; no instance is
+	 * copied.
 	 * @param k
 	 */
 	public void shuffle(int k) {
-		int total_size = totalInstances.size();
-		int average = total_size / k;
-		
-		for(int i = 0; i < k - 1; i++) {
-			ArrayList<Instance> curBundle = new ArrayList<Instance>();
-			for(int j = 0; j < average; j++) {
-				int size = totalInstances.size();
-				int curIndex = rand.nextInt(size);
-				curBundle.add(totalInstances.get(curIndex));
-				totalInstances.remove(curIndex);
-			}
-			testBundles.add(curBundle);
+		if (stratified) {
+			splitter = new FoldSplitter(data.getLabels(), target.getValues().size(), k, seed);
+		} else {
+			splitter = new FoldSplitter(data.size(), k, seed);
 		}
-		
-		ArrayList<Instance> lastBundle = new ArrayList<Instance>();
-		for(int i = 0; i < totalInstances.size(); i++) {
-			lastBundle.add(totalInstances.get(i));
-		}
-		
-		testBundles.add(lastBundle);
 	}
 	
 	/**
 	 * Mine input data (e.g. put target attribute label on input data), which uses tree
-	 * after pruning.
+	 * after pruning. The tree is compiled into flat arrays and the instances are encoded
+	 * once, so every instance is predicted without string handling.
 	 * @param testInstances
 	 * @param result
 	 * @return ArrayList<Instance>
+	 * @throws IOException
 	 */
-	public ArrayList<Instance> mine(ArrayList<Instance> testInstances, ArrayList<Instance> result) {
+	public ArrayList<Instance> mine(ArrayList<Instance> testInstances, ArrayList<Instance> result) throws IOException {
+		ColumnarDataSet testData = new ColumnarDataSet(testInstances, attributes, target, true);
+		CompiledTree compiled = CompiledTree.compile(root, attributes, target.getValues());
 		for (int i = 0; i < testInstances.size(); i++) {
-			TreeNode node = root;
-			Instance currInstance = testInstances.get(i);
 			Instance resInstance = result.get(i);
-			while (!node.getType().equals("leaf")) {
-				String attributeName = node.getAttribute().getName();
-				String attributeType = node.getAttribute().getType();
-				HashMap<String, String> attributeValuePairs = currInstance.getAttributeValuePairs();
-				String value = attributeValuePairs.get(attributeName);
-				if (attributeType.equals("continuous")) {
-					HashMap<String, TreeNode> children = node.getChildren();
-					String tmp = "";
-					for (String s : children.keySet()) {
-						String threshold = s.substring(4);
-						if (Double.parseDouble(value) < Double.parseDouble(threshold)) {
-							tmp = "less";
-						} else {
-							tmp = "more";
-						}
-						String curLabel = s.substring(0, 4);
-						if (tmp.equals(curLabel)) node = children.get(s);
-					}
-				} else {
-					HashMap<String, TreeNode> children = node.getChildren();
-					node = children.get(value);
-				}
+			int classId = compiled.predict(testData, i);
+			if (classId != CompiledTree.NO_PREDICTION) {
+				HashMap<String, String> pairs = resInstance.getAttributeValuePairs();
+				pairs.put("Test" + target.getName(), compiled.getClassLabel(classId));
 			}
-			HashMap<String, String> pairs = resInstance.getAttributeValuePairs();
-			pairs.put("Test" + target.getName(), node.getTargetLabel());
-			
 		}
 		return result;
 	}
 	
-	public ArrayList<Instance> getResult(ArrayList<Instance> testInstances, ArrayList<Instance> result) {
+	public ArrayList<Instance> getResult(ArrayList<Instance> testInstances, ArrayList<Instance> result) throws IOException {
 		return mine(testInstances, result);
 	}
 	
 	/**
-	 * Do cross validation on input data, which uses tree after pruning.
+	 * Do cross validation on input data, which uses tree after pruning. The folds are
+	 * independent tasks over the shared encoded rows, which they only read; up to
+	 * parallelism folds run at the same time and the scores are added in fold order.
 	 * @param crossValidationN
 	 * @return ArrayList<Double>
 	 * @throws IOException
@@ -127,52 +104,122 @@ public class CrossValidationWithPruning {
 	public ArrayList<Double> validate(int crossValidationN) throws IOException {
 		shuffle(crossValidationN);
 		scores = new ArrayList<Double>();
-		for(int i = 0; i < testBundles.size(); i++) {
-			trainInstances = new ArrayList<Instance>();
-			testInstances = new ArrayList<Instance>();
-			result = new ArrayList<Instance>();
-			for(int j = 0; j < testBundles.size(); j++) {
-				if(i == j) {
-					result.addAll(testBundles.get(j));
-					testInstances.addAll(testBundles.get(j));
-				} else {
-					trainInstances.addAll(testBundles.get(j));
-				}
-			}
-			ArrayList<Instance> allTrainInstances = trainInstances;
-			int preSum = allTrainInstances.size() * 2 / 3;
-			int index = 0;
-			trainInstances = new ArrayList<Instance>();
-			for(index = 0; index < preSum; index++) {
-				trainInstances.add(allTrainInstances.get(index));
-			}
-			for(; index < allTrainInstances.size(); index++) {
-				pruningInstances.add(allTrainInstances.get(index));
+		final Fold[] folds = new Fold[splitter.getFoldCount()];
+		ParallelTasks.forEach(folds.length, parallelism, new ParallelTasks.Task() {
+			public void run(int i) throws IOException {
+				folds[i] = runFold(i);
 			}
-			ConstructTree tree = new ConstructTree(trainInstances, attributes, target, "False", 0);
-			root = tree.construct();
-			rootBefore = root;
-			
-			ArrayList<Instance> originalInstances = pruningInstances;
-			ArrayList<Instance> originalPruning = getResult(pruningInstances, pruningInstances);
-			Pruning pruning = new Pruning(root, originalInstances, originalPruning);
-			TreeNode newRoot = pruning.run(root, originalInstances);
-			this.root = newRoot;
-			int correct = 0;
-			ArrayList<Instance> res = getResult(this.testInstances, this.result);
-			for (Instance item : res) {
-				String testLabel = item.getAttributeValuePairs().get("Test" + target.getName());
-				String label = item.getAttributeValuePairs().get(target.getName());
-				
-				if(testLabel.equals(label)) {
-					correct++;
-				}
-				
-			}
-			scores.add(correct * 1.0 / res.size());
+		});
+		for (Fold fold : folds) {
+			scores.add(fold.score);
+		}
+		
+		// The last fold stays available through getRoot, getRootBefore and getResult
+		Fold last = folds[folds.length - 1];
+		int[] permutation = splitter.getPermutation();
+		testInstances = new ArrayList<Instance>();
+		for (int p = splitter.getFrom(folds.length - 1); p < splitter.getTo(folds.length - 1); p++) {
+			testInstances.add(totalInstances.get(permutation[p]));
 		}
+		rootBefore = last.root;
+		root = last.root;
+		alpha = last.alpha;
+		result = getResult(testInstances, new ArrayList<Instance>(testInstances));
 		return scores;
 	}
+	
+	/**
+	 * The outputs of one fold
+	 */
+	private static class Fold {
+		TreeNode root;
+		double alpha;
+		double score;
+	}
+	
+	/**
+	 * Train the tree of one fold on two thirds of the rows of the other folds, prune it on
+	 * the last third and score it on the rows of the fold. The training rows are selected
+	 * by weight over the shared data set.
+	 * @param i
+	 * @return Fold
+	 * @throws IOException
+	 */
+	private Fold runFold(int i) throws IOException {
+		Fold fold = new Fold();
+		int[] allTrainRows = splitter.trainRows(i);
+		int preSum = allTrainRows.length * 2 / 3;
+		int[] trainRows = Arrays.copyOfRange(allTrainRows, 0, preSum);
+		int[] pruningRows = Arrays.copyOfRange(allTrainRows, preSum, allTrainRows.length);
+		int[] weights = new int[data.size()];
+		for (int row : trainRows) {
+			weights[row] = 1;
+		}
+		
+		ConstructTree tree = new ConstructTree(data, attributes, "False", 0);
+		tree.setRowWeights(weights);
+		fold.root = tree.construct();
+		
+		// Prune with the alpha of the cost-complexity path which makes the fewest errors on the pruning set
+		ArrayList<TreeNode> nodes = new ArrayList<TreeNode>();
+		CompiledTree compiled = CompiledTree.compile(fold.root, attributes, target.getValues(), nodes);
+		CostComplexityPruning pruning = new CostComplexityPruning(compiled, data, trainRows);
+		fold.alpha = pruning.bestAlpha(data, pruningRows);
+		pruning.prune(fold.alpha, nodes);
+		
+		// Predict with the pruned tree instead of writing the labels to the shared instances
+		CompiledTree pruned = CompiledTree.compile(fold.root, attributes, target.getValues());
+		int[] permutation = splitter.getPermutation();
+		int[] labels = data.getLabels();
+		int correct = 0;
+		int from = splitter.getFrom(i);
+		int to = splitter.getTo(i);
+		for (int p = from; p < to; p++) {
+			int row = permutation[p];
+			if (pruned.predict(data, row) == labels[row]) correct++;
+		}
+		fold.score = correct * 1.0 / (to - from);
+		return fold;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * @param seed seed of the permutation of the rows, the number of rows by default
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	public boolean isStratified() {
+		return stratified;
+	}
+	
+	/**
+	 * @param stratified true (the default) for folds with about 1/k of each class
+	 */
+	public void setStratified(boolean stratified) {
+		this.stratified = stratified;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism number of folds trained at the same time, at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		this.parallelism = parallelism;
+	}
+	
+	public double getAlpha() {
+		return alpha;
+	}
 	public TreeNode getRootBefore() {
 		return rootBefore;
 	}
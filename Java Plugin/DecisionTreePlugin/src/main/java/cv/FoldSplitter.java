@@ -0,0 +1,137 @@
+/**
+ * This class splits the rows of a data set into k folds for cross validation. It builds
+ * one permutation of the row indices, grouped by fold, so a fold is the range of
+ * positions getFrom(fold) to getTo(fold) - 1 of the permutation and the rows are never
+ * copied. The permutation is drawn from an explicit seed. Stratified folds deal the
+ * shuffled rows of every class to the folds in turn, so every fold holds about 1/k of
+ * each class and small classes do not vanish from a fold.
+ */
+
+package cv;
+
+import java.util.Random;
+
+public class FoldSplitter {
+
+	private int[] permutation;
+	// Position of the first row of every fold in the permutation, and the size at the end
+	private int[] foldStart;
+
+
+	/**
+	 * Constructor: folds of a random permutation of the rows
+	 * @param size number of rows
+	 * @param k number of folds, between 2 and size
+	 * @param seed
+	 */
+	public FoldSplitter(int size, int k, long seed) {
+		checkFolds(size, k);
+		permutation = new int[size];
+		for (int row = 0; row < size; row++) {
+			permutation[row] = row;
+		}
+		shuffle(permutation, 0, size, new Random(seed));
+		foldStart = new int[k + 1];
+		for (int fold = 0; fold <= k; fold++) {
+			foldStart[fold] = (int) ((long) fold * size / k);
+		}
+	}
+
+	/**
+	 * Constructor: stratified folds
+	 * @param labels class id of every row
+	 * @param numClasses
+	 * @param k number of folds, between 2 and the number of rows
+	 * @param seed
+	 */
+	public FoldSplitter(int[] labels, int numClasses, int k, long seed) {
+		int size = labels.length;
+		checkFolds(size, k);
+		Random random = new Random(seed);
+
+		// Rows sorted by class, shuffled within every class
+		int[] classStart = new int[numClasses + 1];
+		for (int label : labels) {
+			classStart[label + 1]++;
+		}
+		for (int c = 0; c < numClasses; c++) {
+			classStart[c + 1] += classStart[c];
+		}
+		int[] byClass = new int[size];
+		int[] next = classStart.clone();
+		for (int row = 0; row < size; row++) {
+			byClass[next[labels[row]]++] = row;
+		}
+		for (int c = 0; c < numClasses; c++) {
+			shuffle(byClass, classStart[c], classStart[c + 1], random);
+		}
+
+		// Deal the rows to the folds in turn: fold f gets positions f, f + k, f + 2k, ...
+		foldStart = new int[k + 1];
+		for (int fold = 0; fold < k; fold++) {
+			foldStart[fold + 1] = foldStart[fold] + size / k + (fold < size % k ? 1 : 0);
+		}
+		permutation = new int[size];
+		next = foldStart.clone();
+		for (int i = 0; i < size; i++) {
+			permutation[next[i % k]++] = byClass[i];
+		}
+	}
+
+	private static void checkFolds(int size, int k) {
+		if (k < 2 || k > size)
+			throw new IllegalArgumentException("Number of folds must be between 2 and " + size + ": " + k);
+	}
+
+	/**
+	 * Fisher-Yates shuffle of positions from (inclusive) to to (exclusive)
+	 */
+	private static void shuffle(int[] rows, int from, int to, Random random) {
+		for (int i = to - 1; i > from; i--) {
+			int j = from + random.nextInt(i - from + 1);
+			int swap = rows[i];
+			rows[i] = rows[j];
+			rows[j] = swap;
+		}
+	}
+
+	public int getFoldCount() {
+		return foldStart.length - 1;
+	}
+
+	/**
+	 * @return int[] the rows grouped by fold; not to be modified
+	 */
+	public int[] getPermutation() {
+		return permutation;
+	}
+
+	/**
+	 * @param fold
+	 * @return int position of the first row of the fold in the permutation
+	 */
+	public int getFrom(int fold) {
+		return foldStart[fold];
+	}
+
+	/**
+	 * @param fold
+	 * @return int position after the last row of the fold in the permutation
+	 */
+	public int getTo(int fold) {
+		return foldStart[fold + 1];
+	}
+
+	/**
+	 * @param fold
+	 * @return int[] the rows of the other folds, in permutation order
+	 */
+	public int[] trainRows(int fold) {
+		int from = getFrom(fold);
+		int to = getTo(fold);
+		int[] rows = new int[permutation.length - (to - from)];
+		System.arraycopy(permutation, 0, rows, 0, from);
+		System.arraycopy(permutation, to, rows, from, permutation.length - to);
+		return rows;
+	}
+}
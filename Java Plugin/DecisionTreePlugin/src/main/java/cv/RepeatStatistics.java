@@ -0,0 +1,85 @@
+/**
+ * This class summarizes a measure taken once per repeat of a repeated cross validation:
+ * its mean, sample standard deviation and a confidence interval of the mean from the
+ * Student t distribution with repeats - 1 degrees of freedom.
+ */
+
+package cv;
+
+import org.apache.commons.statistics.distribution.TDistribution;
+
+public class RepeatStatistics {
+
+	private double mean;
+	private double deviation;
+	private double lower;
+	private double upper;
+	private double confidence;
+	private int count;
+
+
+	/**
+	 * Constructor
+	 * @param values one value per repeat, at least two
+	 * @param confidence level of the interval, e.g. 0.95
+	 */
+	public RepeatStatistics(double[] values, double confidence) {
+		if (values.length < 2)
+			throw new IllegalArgumentException("At least two values are needed: " + values.length);
+		this.count = values.length;
+		this.confidence = confidence;
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		mean = sum / count;
+		double squares = 0;
+		for (double value : values) {
+			squares += (value - mean) * (value - mean);
+		}
+		deviation = Math.sqrt(squares / (count - 1));
+		double t = TDistribution.of(count - 1).inverseCumulativeProbability((1 + confidence) / 2);
+		double halfWidth = t * deviation / Math.sqrt(count);
+		lower = mean - halfWidth;
+		upper = mean + halfWidth;
+	}
+
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return double sample standard deviation
+	 */
+	public double getDeviation() {
+		return deviation;
+	}
+
+	/**
+	 * @return double lower end of the confidence interval of the mean
+	 */
+	public double getLower() {
+		return lower;
+	}
+
+	/**
+	 * @return double upper end of the confidence interval of the mean
+	 */
+	public double getUpper() {
+		return upper;
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public String toString() {
+		return "mean: " + mean + "; deviation: " + deviation + "; " + Math.round(confidence * 100)
+				+ "% confidence interval: [" + lower + ", " + upper + "]";
+	}
+}
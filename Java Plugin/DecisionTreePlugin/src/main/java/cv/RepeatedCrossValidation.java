@@ -0,0 +1,281 @@
+/**
+ * This class repeats k-fold cross validation with a different fold permutation per repeat,
+ * to measure how much the accuracy and the generation time of a tree vary with the split.
+ * The data is parsed and encoded once and the rows are sorted once by every continuous
+ * attribute; all repeats and folds train with row weights over that shared data, so a
+ * repeat costs only its training and scoring. Repeat r draws its folds from seed + r, so
+ * repeat 0 has the folds of CrossValidation with the same seed.
+ * The fold trainings of all repeats are independent tasks run on up to parallelism
+ * threads; the results are gathered in repeat and fold order, so they do not depend on
+ * the parallelism. Every tree is built by the thread of its fold, and its generation time
+ * is the CPU time of that thread, so folds running at the same time do not inflate it.
+ * Where the JVM cannot measure thread CPU time, it is the wall-clock time, which is only
+ * comparable between runs with parallelism 1.
+ */
+
+package cv;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+
+import core.ConstructTree;
+import core.ParallelTasks;
+import core.PresortedIndex;
+import definition.Attribute;
+import definition.ColumnarDataSet;
+import gainratio.ConstructTreeGR;
+import gini.ConstructTreeGI;
+import input.ProcessInputData;
+import node.CompiledTree;
+
+public class RepeatedCrossValidation {
+
+	private ArrayList<Attribute> attributes;
+	private Attribute target;
+	// All instances, encoded once and shared by the repeats
+	private ColumnarDataSet data;
+	// All rows sorted by every continuous attribute
+	private int[][] presortedRows;
+
+	private int repeats = 30;
+	private long seed;
+	// Every fold holds about 1/k of each class
+	private boolean stratified = true;
+	private double confidence = 0.95;
+	// Number of folds trained at the same time
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	// Accuracy and generation time of every fold of every repeat
+	private double[][] scores;
+	private double[][] generationTimes;
+
+
+	/**
+	 * Constructor which process the csv file
+	 * @param trainData
+	 * @param targetAttr
+	 * @throws IOException
+	 */
+	public RepeatedCrossValidation(String trainData, String targetAttr) throws IOException {
+		this(new ProcessInputData(trainData, targetAttr));
+	}
+
+	/**
+	 * Constructor which process data from nodes in Neo4j
+	 * @param trainDataList
+	 * @param targetAttr
+	 * @throws IOException
+	 */
+	public RepeatedCrossValidation(ArrayList<String> trainDataList, String targetAttr) throws IOException {
+		this(new ProcessInputData(trainDataList, targetAttr));
+	}
+
+	private RepeatedCrossValidation(ProcessInputData input) throws IOException {
+		this.attributes = input.getAttributeSet();
+		this.target = input.getTargetAttribute();
+		this.data = new ColumnarDataSet(input.getInstanceSet(), attributes, target);
+		this.presortedRows = PresortedIndex.presort(data);
+		this.seed = data.size();
+	}
+
+	/**
+	 * Run repeats times k-fold cross validation
+	 * @param k number of folds
+	 * @param algorithmType "InfoGain", "GainRatio" or "GiniIndex"
+	 * @throws IOException
+	 */
+	public void validate(final int k, final String algorithmType) throws IOException {
+		final FoldSplitter[] splitters = new FoldSplitter[repeats];
+		for (int r = 0; r < repeats; r++) {
+			if (stratified) {
+				splitters[r] = new FoldSplitter(data.getLabels(), target.getValues().size(), k, seed + r);
+			} else {
+				splitters[r] = new FoldSplitter(data.size(), k, seed + r);
+			}
+		}
+		scores = new double[repeats][k];
+		generationTimes = new double[repeats][k];
+		ParallelTasks.forEach(repeats * k, parallelism, new ParallelTasks.Task() {
+			public void run(int t) throws IOException {
+				runFold(splitters[t / k], t / k, t % k, algorithmType);
+			}
+		});
+	}
+
+	/**
+	 * Train the tree of one fold of a repeat on the rows of the other folds and score it on
+	 * the rows of the fold
+	 * @param splitter folds of the repeat
+	 * @param r repeat
+	 * @param i fold
+	 * @param algorithmType
+	 * @throws IOException
+	 */
+	private void runFold(FoldSplitter splitter, int r, int i, String algorithmType) throws IOException {
+		long startTime = cpuTime();
+
+		int[] weights = new int[data.size()];
+		for (int row : splitter.trainRows(i)) {
+			weights[row] = 1;
+		}
+
+		ConstructTree tree;
+		if (algorithmType.equals("InfoGain")) {
+			tree = new ConstructTree(data, attributes, "False", 0);
+		} else if (algorithmType.equals("GainRatio")) {
+			tree = new ConstructTreeGR(data, attributes, "False", 0);
+		} else {
+			tree = new ConstructTreeGI(data, attributes, "False", 0);
+		}
+		tree.setRowWeights(weights);
+		tree.setPresortedRows(presortedRows);
+		CompiledTree compiled = CompiledTree.compile(tree.construct(), attributes, target.getValues());
+
+		long endTime = cpuTime();
+		generationTimes[r][i] = (endTime - startTime) / 1e9;
+
+		int[] permutation = splitter.getPermutation();
+		int[] labels = data.getLabels();
+		int correct = 0;
+		int from = splitter.getFrom(i);
+		int to = splitter.getTo(i);
+		for (int p = from; p < to; p++) {
+			int row = permutation[p];
+			if (compiled.predict(data, row) == labels[row]) correct++;
+		}
+		scores[r][i] = correct * 1.0 / (to - from);
+	}
+
+	/**
+	 * @return long CPU time of the current thread in nanoseconds, or the wall-clock time
+	 * if the JVM does not measure thread CPU time
+	 */
+	private static long cpuTime() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()) {
+			return threads.getCurrentThreadCpuTime();
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * @return double[] average accuracy of the folds of every repeat
+	 */
+	public double[] getRepeatScores() {
+		return averages(scores);
+	}
+
+	/**
+	 * @return double[] average generation time (thread CPU time) of the folds of every
+	 * repeat, in seconds
+	 */
+	public double[] getRepeatGenerationTimes() {
+		return averages(generationTimes);
+	}
+
+	private static double[] averages(double[][] values) {
+		double[] averages = new double[values.length];
+		for (int r = 0; r < values.length; r++) {
+			double sum = 0;
+			for (double value : values[r]) {
+				sum += value;
+			}
+			averages[r] = sum / values[r].length;
+		}
+		return averages;
+	}
+
+	/**
+	 * @return RepeatStatistics mean, deviation and confidence interval of the accuracy of the repeats
+	 */
+	public RepeatStatistics getScoreStatistics() {
+		return new RepeatStatistics(getRepeatScores(), confidence);
+	}
+
+	/**
+	 * @return RepeatStatistics mean, deviation and confidence interval of the generation
+	 * time of the repeats
+	 */
+	public RepeatStatistics getGenerationTimeStatistics() {
+		return new RepeatStatistics(getRepeatGenerationTimes(), confidence);
+	}
+
+	/**
+	 * @return double[][] accuracy of every fold of every repeat
+	 */
+	public double[][] getScores() {
+		return scores;
+	}
+
+	/**
+	 * @return double[][] generation time (thread CPU time) of every fold of every repeat,
+	 * in seconds
+	 */
+	public double[][] getGenerationTimes() {
+		return generationTimes;
+	}
+
+	public int getRepeats() {
+		return repeats;
+	}
+
+	/**
+	 * @param repeats number of cross validations, at least 2
+	 */
+	public void setRepeats(int repeats) {
+		if (repeats < 2)
+			throw new IllegalArgumentException("repeats must be at least 2: " + repeats);
+		this.repeats = repeats;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed seed of the permutation of the first repeat, the number of rows by
+	 * default; repeat r uses seed + r
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public boolean isStratified() {
+		return stratified;
+	}
+
+	/**
+	 * @param stratified true (the default) for folds with about 1/k of each class
+	 */
+	public void setStratified(boolean stratified) {
+		this.stratified = stratified;
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * @param confidence level of the confidence intervals, above 0 and below 1
+	 */
+	public void setConfidence(double confidence) {
+		if (!(confidence > 0 && confidence < 1))
+			throw new IllegalArgumentException("confidence must be above 0 and below 1: " + confidence);
+		this.confidence = confidence;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism number of folds trained at the same time, at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		this.parallelism = parallelism;
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Continuous attributes of a columnar data set quantized into at most 256 bins, stored as
+ * one byte code per row. If an attribute has no more distinct values than bins, every
+ * distinct value gets its own bin; otherwise bins hold about the same number of rows.
+ * The threshold between bin b and bin b + 1 is the midpoint of the largest value of bin b
+ * and the smallest value of bin b + 1. Values which are not numbers go to the last bin.
+ * Binning sorts every continuous column once, so the trees of one data set (the trees of a
+ * forest, the folds of a tuning run) share one BinnedDataSet, see ConstructTree.setBinnedData.
+ * The codes replace the double columns for training: the binned set keeps the data set
+ * without its continuous values, so a tree trained on it holds one byte instead of one
+ * double per continuous value. Its thresholds are thresholds of the bins, so the compiled
+ * tree predicts from the values of any data set.
+ */
+
+package definition;
+
+import java.util.Arrays;
+
+public class BinnedDataSet {
+
+	private ColumnarDataSet data;
+	private int maxBins;
+	private byte[][] codes;
+	private double[][] thresholds;
+
+
+	/**
+	 * Constructor: quantize every continuous attribute of the data set
+	 * @param data
+	 * @param maxBins between 2 and 256
+	 */
+	public BinnedDataSet(ColumnarDataSet data, int maxBins) {
+		this.maxBins = maxBins;
+		int attributeCount = data.getAttributes().size();
+		codes = new byte[attributeCount][];
+		thresholds = new double[attributeCount][];
+		for (int a = 0; a < attributeCount; a++) {
+			if (data.isContinuous(a)) {
+				binColumn(a, data.getContinuousColumn(a));
+			}
+		}
+		this.data = data.withoutContinuousValues();
+	}
+
+	private void binColumn(int attribute, double[] values) {
+		thresholds[attribute] = computeThresholds(values.clone(), maxBins);
+
+		byte[] column = new byte[values.length];
+		for (int row = 0; row < values.length; row++) {
+			column[row] = (byte) binOf(attribute, values[row]);
+		}
+		codes[attribute] = column;
+	}
+
+	/**
+	 * Thresholds of the bins of a column, or of a sample of it
+	 * @param values the values, sorted in place
+	 * @param maxBins
+	 * @return double[] threshold between bin b and bin b + 1 at position b
+	 */
+	public static double[] computeThresholds(double[] values, int maxBins) {
+		double[] sorted = values;
+		Arrays.sort(sorted);
+		int numbers = sorted.length;
+		while (numbers > 0 && Double.isNaN(sorted[numbers - 1])) numbers--;
+
+		int distinct = 0;
+		for (int i = 0; i < numbers; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) distinct++;
+		}
+
+		// Cut between two distinct values, every value or about every numbers / maxBins rows
+		double[] cuts = new double[Math.max(0, Math.min(distinct, maxBins) - 1)];
+		int cutCount = 0;
+		double rowsPerBin = (double) numbers / Math.min(distinct, maxBins);
+		int binStart = 0;
+		for (int i = 1; i < numbers && cutCount < cuts.length; i++) {
+			if (sorted[i] == sorted[i - 1]) continue;
+			if (distinct <= maxBins || i - binStart >= rowsPerBin) {
+				cuts[cutCount++] = midpoint(sorted[i - 1], sorted[i]);
+				binStart = i;
+			}
+		}
+		return Arrays.copyOf(cuts, cutCount);
+	}
+
+	private static double midpoint(double lower, double upper) {
+		double mid = (lower + upper) / 2;
+		return mid > lower ? mid : upper;
+	}
+
+
+	/**
+	 * Bin of a value: the number of thresholds which are not larger than the value
+	 * @param attribute
+	 * @param value
+	 * @return int
+	 */
+	public int binOf(int attribute, double value) {
+		return binOf(thresholds[attribute], value);
+	}
+
+	/**
+	 * Bin of a value: the number of thresholds which are not larger than the value
+	 * @param cuts thresholds of the bins
+	 * @param value
+	 * @return int
+	 */
+	public static int binOf(double[] cuts, double value) {
+		if (Double.isNaN(value)) return cuts.length;
+		int low = 0;
+		int high = cuts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cuts[mid] <= value) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return int number of bins of the attribute
+	 */
+	public int getBinCount(int attribute) {
+		return thresholds[attribute].length + 1;
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return byte[] bin code of every row, read with code & 0xFF
+	 */
+	public byte[] getCodes(int attribute) {
+		return codes[attribute];
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return double[] threshold between bin b and bin b + 1 at position b
+	 */
+	public double[] getThresholds(int attribute) {
+		return thresholds[attribute];
+	}
+
+	/**
+	 * @return ColumnarDataSet the binned data set without its continuous values
+	 */
+	public ColumnarDataSet getData() {
+		return data;
+	}
+
+	/**
+	 * @param data
+	 * @return boolean true if these are the bins of the rows of the data set, with or without
+	 * its continuous values
+	 */
+	public boolean isBinningOf(ColumnarDataSet data) {
+		return data.getLabels() == this.data.getLabels();
+	}
+
+	public int getMaxBins() {
+		return maxBins;
+	}
+}
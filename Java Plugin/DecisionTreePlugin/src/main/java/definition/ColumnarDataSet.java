@@ -0,0 +1,276 @@
+/**
+ * Columnar, primitive representation of a set of instances.
+ * Continuous attributes are stored as one double[] per attribute, discrete attributes
+ * as dictionary-encoded int[] codes (the code is the index into Attribute.getValues())
+ * and the target attribute as an int[] of class ids (index into target.getValues()).
+ * Continuous values which are missing or not numbers are NaN. They sort after all numbers,
+ * no cut is placed next to them, and they go to the "more" branch, in training as with
+ * value < threshold at prediction.
+ */
+
+package definition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class ColumnarDataSet {
+
+	// Code used for a discrete value or class label that is not in the dictionary
+	public static final int UNKNOWN = -1;
+
+	private ArrayList<Attribute> attributes;
+	private Attribute target;
+	private HashMap<Attribute, Integer> attributeIndex;
+
+	private int size;
+	private double[][] continuousColumns;
+	private int[][] discreteColumns;
+	private int[] labels;
+
+
+	/**
+	 * Constructor: encode the instances used for training. Discrete values and class labels
+	 * which are not in the dictionary of their attribute are rejected.
+	 * @param instances
+	 * @param attributes
+	 * @param target
+	 * @throws IOException
+	 */
+	public ColumnarDataSet(ArrayList<Instance> instances, ArrayList<Attribute> attributes,
+			Attribute target) throws IOException {
+		this(instances, attributes, target, false);
+	}
+
+	/**
+	 * Constructor: encode instances against the dictionaries of the given attributes.
+	 * If allowUnknown is true, values which are not in a dictionary are encoded as UNKNOWN
+	 * (used for test data); otherwise they are rejected.
+	 * Continuous values which cannot be parsed are encoded as NaN.
+	 * @param instances
+	 * @param attributes
+	 * @param target
+	 * @param allowUnknown
+	 * @throws IOException
+	 */
+	public ColumnarDataSet(ArrayList<Instance> instances, ArrayList<Attribute> attributes,
+			Attribute target, boolean allowUnknown) throws IOException {
+		this.attributes = new ArrayList<Attribute>(attributes);
+		this.target = target;
+		this.size = instances.size();
+
+		int attributeCount = attributes.size();
+		attributeIndex = new HashMap<Attribute, Integer>();
+		continuousColumns = new double[attributeCount][];
+		discreteColumns = new int[attributeCount][];
+
+		ArrayList<HashMap<String, Integer>> dictionaries = new ArrayList<HashMap<String, Integer>>();
+		for (int a = 0; a < attributeCount; a++) {
+			Attribute attribute = attributes.get(a);
+			attributeIndex.put(attribute, a);
+			if (attribute.getType().equals("continuous")) {
+				continuousColumns[a] = new double[size];
+				dictionaries.add(null);
+			} else {
+				discreteColumns[a] = new int[size];
+				dictionaries.add(dictionary(attribute.getValues()));
+			}
+		}
+		HashMap<String, Integer> targetDictionary = dictionary(target.getValues());
+		labels = new int[size];
+
+		for (int row = 0; row < size; row++) {
+			HashMap<String, String> attributeValuePairs = instances.get(row).getAttributeValuePairs();
+			for (int a = 0; a < attributeCount; a++) {
+				String value = attributeValuePairs.get(attributes.get(a).getName());
+				if (continuousColumns[a] != null) {
+					continuousColumns[a][row] = parse(value);
+				} else {
+					discreteColumns[a][row] = encode(dictionaries.get(a), value, allowUnknown);
+				}
+			}
+			labels[row] = encode(targetDictionary, attributeValuePairs.get(target.getName()), allowUnknown);
+		}
+	}
+
+	private ColumnarDataSet(ColumnarDataSet data) {
+		this.attributes = data.attributes;
+		this.target = data.target;
+		this.attributeIndex = data.attributeIndex;
+		this.size = data.size;
+		this.continuousColumns = new double[data.continuousColumns.length][];
+		this.discreteColumns = data.discreteColumns;
+		this.labels = data.labels;
+	}
+
+	/**
+	 * The same rows without the values of the continuous attributes, for training on their
+	 * bins (see BinnedDataSet). The discrete columns and the labels are shared, the continuous
+	 * columns are null, so readRow and getContinuousColumn cannot be used.
+	 * @return ColumnarDataSet
+	 */
+	public ColumnarDataSet withoutContinuousValues() {
+		return new ColumnarDataSet(this);
+	}
+
+	private static HashMap<String, Integer> dictionary(ArrayList<String> values) {
+		HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+		for (int i = 0; i < values.size(); i++) {
+			dictionary.put(values.get(i), i);
+		}
+		return dictionary;
+	}
+
+	private static int encode(HashMap<String, Integer> dictionary, String value, boolean allowUnknown)
+			throws IOException {
+		Integer code = dictionary.get(value);
+		if (code == null) {
+			if (!allowUnknown) throw new IOException("Invalid input data");
+			return UNKNOWN;
+		}
+		return code;
+	}
+
+	private static double parse(String value) {
+		if (value == null) return Double.NaN;
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			// not a double
+			return Double.NaN;
+		}
+	}
+
+
+	/**
+	 * Count the class labels of the given rows
+	 * @param rows
+	 * @return int[] number of rows per class id
+	 */
+	public int[] classCounts(int[] rows) {
+		return classCounts(rows, 0, rows.length);
+	}
+
+	/**
+	 * Count the class labels of rows[from] (inclusive) to rows[to] (exclusive)
+	 * @param rows
+	 * @param from
+	 * @param to
+	 * @return int[] number of rows per class id
+	 */
+	public int[] classCounts(int[] rows, int from, int to) {
+		int[] counts = new int[getNumClasses()];
+		for (int i = from; i < to; i++) {
+			counts[labels[rows[i]]]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Stable sort of the rows according to the values of a continuous attribute, NaN last.
+	 * @param rows
+	 * @param attribute index of the attribute
+	 */
+	public void sortRows(int[] rows, int attribute) {
+		double[] values = continuousColumns[attribute];
+		int[] buffer = new int[rows.length];
+		mergeSort(rows, buffer, 0, rows.length, values);
+	}
+
+	private static void mergeSort(int[] rows, int[] buffer, int from, int to, double[] values) {
+		if (to - from < 2) return;
+		int mid = (from + to) >>> 1;
+		mergeSort(rows, buffer, from, mid, values);
+		mergeSort(rows, buffer, mid, to, values);
+		if (!less(values[rows[mid]], values[rows[mid - 1]])) return;
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to) {
+			if (less(values[buffer[j]], values[buffer[i]])) rows[k++] = buffer[j++];
+			else rows[k++] = buffer[i++];
+		}
+		while (i < mid) rows[k++] = buffer[i++];
+		while (j < to) rows[k++] = buffer[j++];
+	}
+
+	/**
+	 * Order of the sorted rows: numbers ascending, then NaN
+	 */
+	private static boolean less(double a, double b) {
+		return a < b || (Double.isNaN(b) && !Double.isNaN(a));
+	}
+
+	/**
+	 * @return int[] the indices of all rows, in order
+	 */
+	public int[] allRows() {
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
+	/**
+	 * Read one row as one value per attribute: the number for continuous attributes, the
+	 * value code for discrete ones
+	 * @param row
+	 * @param values array with one entry per attribute, overwritten
+	 */
+	public void readRow(int row, double[] values) {
+		for (int a = 0; a < values.length; a++) {
+			values[a] = discreteColumns[a] == null ? continuousColumns[a][row] : discreteColumns[a][row];
+		}
+	}
+
+
+	public int indexOf(Attribute attribute) {
+		Integer index = attributeIndex.get(attribute);
+		return index == null ? -1 : index;
+	}
+
+	public boolean isContinuous(int attribute) {
+		return discreteColumns[attribute] == null;
+	}
+
+	public double[] getContinuousColumn(int attribute) {
+		return continuousColumns[attribute];
+	}
+
+	public int[] getDiscreteColumn(int attribute) {
+		return discreteColumns[attribute];
+	}
+
+	public int[] getLabels() {
+		return labels;
+	}
+
+	public int getNumClasses() {
+		return target.getValues().size();
+	}
+
+	public String getClassLabel(int classId) {
+		return classId == UNKNOWN ? null : target.getValues().get(classId);
+	}
+
+	public String getDiscreteValue(int attribute, int code) {
+		return code == UNKNOWN ? null : attributes.get(attribute).getValues().get(code);
+	}
+
+	public ArrayList<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	public Attribute getTarget() {
+		return target;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String toString() {
+		return "@ColumnarDataSet Rows: " + size + "; @Attributes: " + attributes.size()
+				+ "; @Target: " + target.getName();
+	}
+}
@@ -13,10 +13,15 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.glassfish.jersey.internal.guava.Stopwatch;
 
 import core.ConstructTree;
+import core.TreeOptions;
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 import input.ProcessInputData;
+import node.CompiledTree;
+import node.TreeClassGenerator;
 import node.TreeNode;
+import node.TreePredictor;
 
 
 public class EvaluateTree {
@@ -24,13 +29,17 @@ public class EvaluateTree {
 	private ArrayList<Attribute> attributes;
 	private ArrayList<Instance> testInstances;
 	private ArrayList<Instance> trainInstances;
+	private ColumnarDataSet trainData;
+	private ColumnarDataSet testData;
 	private String isPruned;
 	private int max_depth;
 	private Attribute target;
 	private TreeNode root;
+	private CompiledTree compiledTree;
 	protected ArrayList<Instance> result;
 	private Double score = 0.0;
 	private String featureTable;
+	private TreeOptions options = new TreeOptions();
 	
 
 	/**
@@ -53,6 +62,7 @@ public class EvaluateTree {
 		this.isPruned = isPruned;
 		this.max_depth = max_depth;
 		
+		encodeData();
 		
 		result.addAll(testInstances);
 	}
@@ -76,71 +86,50 @@ public class EvaluateTree {
 		this.trainInstances = train.getInstanceSet();
 		this.testInstances = test.getInstanceSet();	
 		
+		this.isPruned = isPruned;
+		this.max_depth = max_depth;
+		
+		encodeData();
+		
 		result.addAll(testInstances);
 	}
 	
 	
+	/**
+	 * Encode train and test instances into columnar data sets. Test values which are not
+	 * in the dictionaries of the train attributes are encoded as unknown.
+	 * @throws IOException
+	 */
+	private void encodeData() throws IOException {
+		this.trainData = new ColumnarDataSet(trainInstances, attributes, target);
+		this.testData = new ColumnarDataSet(testInstances, attributes, target, true);
+	}
+	
+	
 
 	
 
 	/**
-	 * Loop through the entire tree 
+	 * Loop through the entire tree. The tree is compiled into flat arrays first, so every
+	 * test row is predicted without string handling.
 	 */
 	protected void traverseTree(){
+		CompiledTree compiled = CompiledTree.compile(root, testData.getAttributes(), target);
+		compiledTree = compiled;
+		TreePredictor generated = options.isCodegen() ? TreeClassGenerator.generate(compiled) : null;
+		double[] row = new double[testData.getAttributes().size()];
 		for (int i = 0; i < testInstances.size(); i++) {
-			TreeNode node = root;
-			Instance currInstance = testInstances.get(i);
 			Instance resInstance = result.get(i);
-			
-			if (node != null) {
-				try {
-					while (!node.getType().equals("leaf")) {
-						String attributeName = node.getAttribute().getName();
-						String attributeType = node.getAttribute().getType();
-						HashMap<String, String> attributeValuePairs = currInstance.getAttributeValuePairs();
-						String value = attributeValuePairs.get(attributeName);
-
-						if (attributeType.equals("continuous")) {
-							HashMap<String, TreeNode> children = node.getChildren();
-
-							String tmp = "";
-
-							for (String s : children.keySet()) {
-								String threshold = s.substring(4);
-								try {
-									Double.parseDouble(value);
-									Double.parseDouble(threshold);
-								} catch (NumberFormatException e) {
-									// not a double
-									
-									value = "0.0";
-									threshold = "0.0";
-
-								}
-
-								if (Double.parseDouble(value) < Double.parseDouble(threshold)) {
-									tmp = "less";
-								} else {
-									tmp = "more";
-								}
-
-								String curLabel = s.substring(0, 4);
-								if (tmp.equals(curLabel))
-									node = children.get(s);
-							}
-						} else {
-
-							HashMap<String, TreeNode> children = node.getChildren();
-							node = children.get(value);
-
-						}
-					}
-				}catch(Exception e) {
-					continue;
-				}
-				
+			int classId;
+			if (generated != null) {
+				testData.readRow(i, row);
+				classId = generated.predict(row);
+			} else {
+				classId = compiled.predict(testData, i);
+			}
+			if (classId != CompiledTree.NO_PREDICTION) {
 				HashMap<String, String> pairs = resInstance.getAttributeValuePairs();
-				pairs.put("Test" + target.getName(), node.getTargetLabel());
+				pairs.put("Test" + target.getName(), compiled.getClassLabel(classId));
 			}
 		}
 	}
@@ -159,12 +148,6 @@ public class EvaluateTree {
 	 * @param pred
 	 */
 	public String calculateConfusionMatrix(ArrayList<String> act, ArrayList<String> pred) {
-		 int truePositive = 0;
-		 int trueNegative = 0;
-		 int falsePositive = 0;
-		 int falseNegative = 0;
-		 String confusionMatrix = "";
-		
 		 List<String> categories = target.getValues();
 		 int matrixSize = categories.size();
 		 int [][] confMatrix = new int[matrixSize][matrixSize];
@@ -179,6 +162,23 @@ public class EvaluateTree {
 	         confMatrix[actualLabelIndex][outLabelIndex] += 1;
 		 }
 		 
+		 return formatConfusionMatrix(confMatrix);
+	}
+	
+	/**
+	 * Reduce a confusion matrix to TP, TN, FP and FN, the first class being the positive
+	 * one, print them with the accuracy and return them as text
+	 * @param confMatrix counts by actual and predicted class id
+	 * @return String
+	 */
+	public static String formatConfusionMatrix(int[][] confMatrix) {
+		 int truePositive = 0;
+		 int trueNegative = 0;
+		 int falsePositive = 0;
+		 int falseNegative = 0;
+		 String confusionMatrix = "";
+		 int matrixSize = confMatrix.length;
+		 
 		 if(matrixSize==2) {
 			 truePositive = confMatrix[0][0]; 
 			 trueNegative = confMatrix[1][1];
@@ -239,7 +239,8 @@ public class EvaluateTree {
 		long tstTime = System.currentTimeMillis();
 		
 		
-		ConstructTree tree = new ConstructTree(this.trainInstances, this.attributes, this.target, this.isPruned, this.max_depth);
+		ConstructTree tree = new ConstructTree(this.trainData, this.attributes, this.isPruned, this.max_depth);
+		configureTree(tree);
 		root = tree.construct();
 		featureTable = tree.getFeatureTable();
 
@@ -343,6 +344,15 @@ public class EvaluateTree {
 	
 	
 	
+	/**
+	 * Pass the training options to a tree before it is constructed
+	 * @param tree
+	 */
+	protected void configureTree(ConstructTree tree) {
+		tree.setOptions(options);
+	}
+	
+	
 	/**
 	 * Setter for members
 	 * @param root
@@ -355,6 +365,10 @@ public class EvaluateTree {
 	public void setScore(Double score) {
 		this.score = score;
 	}
+	
+	public void setOptions(TreeOptions options) {
+		this.options = options;
+	}
 
 	
 	/**
@@ -374,6 +388,14 @@ public class EvaluateTree {
 		return trainInstances;
 	}
 	
+	public ColumnarDataSet getTrainData() {
+		return trainData;
+	}
+	
+	public ColumnarDataSet getTestData() {
+		return testData;
+	}
+	
 	public Attribute getTarget() {
 		return target;
 	}
@@ -383,6 +405,17 @@ public class EvaluateTree {
 		return root;
 	}
 	
+	/**
+	 * @return CompiledTree the tree compiled for the last prediction, null before
+	 */
+	public CompiledTree getCompiledTree() {
+		return compiledTree;
+	}
+	
+	public TreeOptions getOptions() {
+		return options;
+	}
+	
 	public Double getScore() {
 		return score;
 	}
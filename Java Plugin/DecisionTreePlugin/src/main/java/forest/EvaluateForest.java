@@ -0,0 +1,131 @@
+/**
+ * This class is used for evaluating a random forest on the test set, with the same
+ * confusion matrix output as the single trees.
+ */
+
+package forest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import definition.ColumnarDataSet;
+import definition.Instance;
+import evaluate.EvaluateTree;
+import node.CompiledTree;
+
+public class EvaluateForest extends EvaluateTree {
+	private String algorithm;
+	private String isPruned;
+	private int max_depth;
+	private RandomForest forest;
+
+	/**
+	 * Constructor to process the csv path
+	 *
+	 * @param trainData
+	 * @param testData
+	 * @param targetAttr
+	 * @param algorithm "IG", "GI" or "GR"
+	 * @throws IOException
+	 */
+	public EvaluateForest(String trainData, String testData, String targetAttr, String algorithm, String isPruned, int max_depth) throws IOException {
+		super(trainData, testData, targetAttr, isPruned, max_depth);
+		this.algorithm = algorithm;
+		this.isPruned = isPruned;
+		this.max_depth = max_depth;
+	}
+
+	/**
+	 * Overloaded constructor to process the nodes from Neo4j
+	 *
+	 * @param trainDataList
+	 * @param testDataList
+	 * @param targetAttr
+	 * @param algorithm "IG", "GI" or "GR"
+	 * @throws IOException
+	 */
+	public EvaluateForest(ArrayList<String> trainDataList, ArrayList<String> testDataList, String targetAttr, String algorithm, String isPruned, int max_depth) throws IOException {
+		super(trainDataList, testDataList, targetAttr, isPruned, max_depth);
+		this.algorithm = algorithm;
+		this.isPruned = isPruned;
+		this.max_depth = max_depth;
+	}
+
+	/**
+	 * Train the forest and evaluate it on the test set
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public String calculateAccuracy() throws IOException {
+		//time taken to generate the forest
+		String confusionMatrix = "";
+
+		long tstTime = System.currentTimeMillis();
+		ForestOptions options = getOptions() instanceof ForestOptions ? (ForestOptions) getOptions()
+				: new ForestOptions(getOptions());
+		forest = new RandomForest(getTrainData(), getAttributes(), algorithm, isPruned, max_depth, options);
+		forest.train();
+
+		long teTime = System.currentTimeMillis();
+		double generationTime = (teTime-tstTime)/1000f;
+		System.out.println("Time taken to generate forest:"+ generationTime +"s");
+
+		//time taken to run predictions
+		long startTime = System.currentTimeMillis();
+
+		int correct = 0;
+
+		ArrayList<Instance> res = getResult();
+
+		createClassificationResults(res);
+
+		ArrayList<String> actual = new ArrayList<>();
+		ArrayList<String> predictions = new ArrayList<>();
+
+		for (Instance item : res) {
+			String testLabel = item.getAttributeValuePairs().get("Test" + getTarget().getName());
+			predictions.add(testLabel);
+
+			String label = item.getAttributeValuePairs().get(getTarget().getName());
+			actual.add(label);
+			if(testLabel == null) {
+				continue;
+			}
+
+			if (testLabel.equals(label)) {
+				correct++;
+			}
+		}
+
+		confusionMatrix = calculateConfusionMatrix(actual, predictions);
+
+		super.setScore(correct * 1.0 / res.size());
+
+		long endTime = System.currentTimeMillis();
+		double predTime = (endTime - startTime)/1000f;
+		System.out.println("Time taken to generate prediction: " + predTime + " s\n");
+
+		return "Time taken to generate forest: " + generationTime + " s\n" + "Time taken to generate prediction: " + predTime + " s\n" + confusionMatrix + "%";
+	}
+
+	/**
+	 * Predict every test instance by majority vote of the trees
+	 */
+	@Override
+	protected void traverseTree() {
+		ColumnarDataSet testData = getTestData();
+		int[] predictions = forest.predictAll(testData);
+		for (int i = 0; i < predictions.length; i++) {
+			if (predictions[i] != CompiledTree.NO_PREDICTION) {
+				HashMap<String, String> pairs = result.get(i).getAttributeValuePairs();
+				pairs.put("Test" + getTarget().getName(), forest.getClassLabel(predictions[i]));
+			}
+		}
+	}
+
+	public RandomForest getForest() {
+		return forest;
+	}
+}
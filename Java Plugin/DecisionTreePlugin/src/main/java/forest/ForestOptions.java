@@ -0,0 +1,90 @@
+/**
+ * This class holds the options of a random forest: the options of its trees and the
+ * number of trees. In a forest, featureSubset 0 stands for the square root of the number
+ * of attributes, and parallelism is the number of threads shared by all trees.
+ * The user functions pass them as an optional map, e.g. {numTrees: 200, parallelism: 8},
+ * or {extraTrees: true, bootstrap: false} for an ExtraTrees ensemble.
+ */
+
+package forest;
+
+import java.util.Map;
+
+import core.TreeOptions;
+
+public class ForestOptions extends TreeOptions {
+
+	// Number of trees of the forest
+	private int numTrees = 100;
+
+	// Train every tree on a bootstrap sample, or on all rows
+	private boolean bootstrap = true;
+
+
+	public ForestOptions() {}
+
+	/**
+	 * Constructor: copy the options; a forest copied from tree options gets the default
+	 * number of trees
+	 * @param options
+	 */
+	public ForestOptions(TreeOptions options) {
+		super(options);
+		if (options instanceof ForestOptions) {
+			this.numTrees = ((ForestOptions) options).numTrees;
+			this.bootstrap = ((ForestOptions) options).bootstrap;
+		}
+	}
+
+	/**
+	 * Read the options from a map of option name to value. Unknown names are rejected.
+	 * @param options
+	 * @return ForestOptions
+	 */
+	public static ForestOptions fromMap(Map<String, Object> options) {
+		ForestOptions forestOptions = new ForestOptions();
+		forestOptions.setAll(options);
+		return forestOptions;
+	}
+
+	@Override
+	protected void setOption(String name, Object value) {
+		if (name.equals("numTrees")) {
+			setNumTrees(toInt(name, value));
+		} else if (name.equals("bootstrap")) {
+			setBootstrap(toBoolean(name, value));
+		} else {
+			super.setOption(name, value);
+		}
+	}
+
+
+	public int getNumTrees() {
+		return numTrees;
+	}
+
+	/**
+	 * @param numTrees number of trees of the forest, at least 1
+	 */
+	public void setNumTrees(int numTrees) {
+		if (numTrees < 1)
+			throw new IllegalArgumentException("numTrees must be at least 1: " + numTrees);
+		this.numTrees = numTrees;
+	}
+
+	public boolean isBootstrap() {
+		return bootstrap;
+	}
+
+	/**
+	 * @param bootstrap true to train every tree on a bootstrap sample, false to train all
+	 * trees on all rows (as ExtraTrees does, the randomness coming from the cuts)
+	 */
+	public void setBootstrap(boolean bootstrap) {
+		this.bootstrap = bootstrap;
+	}
+
+	public String toString() {
+		return super.toString() + "; numTrees: " + numTrees + "; bootstrap: " + bootstrap;
+	}
+}
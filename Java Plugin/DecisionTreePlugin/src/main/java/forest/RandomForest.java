@@ -0,0 +1,203 @@
+/**
+ * This class trains a random forest: every tree is built by the tree builder of the chosen
+ * criterion (information gain, gini index or gain ratio) on a bootstrap sample of the
+ * training rows, choosing every split among a random subset of the attributes.
+ * The bootstrap sample of a tree is a weight per row (the number of times the row was
+ * drawn), so the trees share the columnar training data and no instances are copied; in
+ * histogram mode they also share one binning of it, with exact split finding one sort of it.
+ * With the extraTrees option and without bootstrap, this is an ExtraTrees ensemble.
+ * The trees are independent and are built as parallel fork-join tasks. Every tree is
+ * compiled for prediction; the forest predicts the class most trees vote for.
+ * All random choices derive from the seed of the options, so a forest can be trained again.
+ */
+
+package forest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.ConstructTree;
+import core.ParallelTasks;
+import core.PresortedIndex;
+import core.TreeOptions;
+import definition.Attribute;
+import definition.BinnedDataSet;
+import definition.ColumnarDataSet;
+import gainratio.ConstructTreeGR;
+import gini.ConstructTreeGI;
+import node.CompiledTree;
+import node.TreeNode;
+
+public class RandomForest {
+
+	private ColumnarDataSet data;
+	private ArrayList<Attribute> attributes;
+	// "IG" for information gain, "GI" for gini index, "GR" for gain ratio
+	private String algorithm;
+	private String isPruned;
+	private int maxDepth;
+	private ForestOptions options;
+	private TreeNode[] trees;
+	private CompiledTree[] compiledTrees;
+
+
+	/**
+	 * Constructor
+	 * @param data training data
+	 * @param attributes attributes the trees may split on
+	 * @param algorithm "IG", "GI" or "GR"
+	 * @param isPruned "True" to stop the trees at maxDepth
+	 * @param maxDepth
+	 * @param options
+	 */
+	public RandomForest(ColumnarDataSet data, ArrayList<Attribute> attributes, String algorithm,
+			String isPruned, int maxDepth, ForestOptions options) {
+		this.data = data;
+		this.attributes = attributes;
+		this.algorithm = algorithm;
+		this.isPruned = isPruned;
+		this.maxDepth = maxDepth;
+		this.options = options;
+	}
+
+	/**
+	 * Train all trees of the forest
+	 * @throws IOException
+	 */
+	public void train() throws IOException {
+		int numTrees = options.getNumTrees();
+		trees = new TreeNode[numTrees];
+		compiledTrees = new CompiledTree[numTrees];
+
+		final int featureSubset = options.getFeatureSubset() > 0 ? options.getFeatureSubset()
+				: Math.max(1, (int) Math.round(Math.sqrt(attributes.size())));
+		// In histogram mode all trees split on the same bins
+		final BinnedDataSet binned = options.isHistogram() && !options.isExtraTrees()
+				? new BinnedDataSet(data, options.getMaxBins()) : null;
+		if (binned != null) {
+			data = binned.getData();
+		}
+		// Otherwise, with exact split finding, all trees filter the same sorted rows
+		final int[][] presortedRows = !options.isHistogram() && !options.isExtraTrees()
+				? PresortedIndex.presort(data) : null;
+		final long[] seeds = new long[numTrees];
+		Random random = new Random(options.getSeed());
+		for (int t = 0; t < numTrees; t++) {
+			seeds[t] = random.nextLong();
+		}
+
+		ParallelTasks.forEach(numTrees, options.getParallelism(), new ParallelTasks.Task() {
+			public void run(int t) throws IOException {
+				TreeOptions treeOptions = new TreeOptions(options);
+				treeOptions.setFeatureSubset(featureSubset);
+				treeOptions.setSeed(seeds[t]);
+				ConstructTree tree = createTree();
+				tree.setOptions(treeOptions);
+				tree.setBinnedData(binned);
+				tree.setPresortedRows(presortedRows);
+				if (options.isBootstrap()) {
+					tree.setRowWeights(bootstrapWeights(data.size(), new Random(seeds[t])));
+				}
+				trees[t] = tree.construct();
+				compiledTrees[t] = CompiledTree.compile(trees[t], data.getAttributes(), data.getTarget().getValues());
+			}
+		});
+	}
+
+	/**
+	 * @return ConstructTree an untrained tree of the forest's criterion
+	 */
+	protected ConstructTree createTree() {
+		if (algorithm.equals("GR")) {
+			return new ConstructTreeGR(data, attributes, isPruned, maxDepth);
+		} else if (algorithm.equals("GI")) {
+			return new ConstructTreeGI(data, attributes, isPruned, maxDepth);
+		}
+		return new ConstructTree(data, attributes, isPruned, maxDepth);
+	}
+
+	/**
+	 * Draw a bootstrap sample: n rows drawn with replacement
+	 * @param n number of rows
+	 * @param random
+	 * @return int[] number of times every row was drawn
+	 */
+	public static int[] bootstrapWeights(int n, Random random) {
+		int[] weights = new int[n];
+		for (int i = 0; i < n; i++) {
+			weights[random.nextInt(n)]++;
+		}
+		return weights;
+	}
+
+
+	/**
+	 * Predict one row of a columnar data set encoded with the attributes of the training
+	 * data by majority vote of the trees. Ties go to the first class in target order.
+	 * @param testData
+	 * @param row
+	 * @return int class id, or CompiledTree.NO_PREDICTION if no tree predicts the row
+	 */
+	public int predict(ColumnarDataSet testData, int row) {
+		return vote(testData, row, new int[data.getNumClasses()]);
+	}
+
+	/**
+	 * Predict every row of a columnar data set
+	 * @param testData
+	 * @return int[] class id of every row, or CompiledTree.NO_PREDICTION
+	 */
+	public int[] predictAll(ColumnarDataSet testData) {
+		int[] votes = new int[data.getNumClasses()];
+		int[] predictions = new int[testData.size()];
+		for (int row = 0; row < predictions.length; row++) {
+			predictions[row] = vote(testData, row, votes);
+		}
+		return predictions;
+	}
+
+	private int vote(ColumnarDataSet testData, int row, int[] votes) {
+		for (int c = 0; c < votes.length; c++) {
+			votes[c] = 0;
+		}
+		for (CompiledTree tree : compiledTrees) {
+			int classId = tree.predict(testData, row);
+			// Leaf labels outside the target values come after them and get no vote
+			if (classId >= 0 && classId < votes.length) {
+				votes[classId]++;
+			}
+		}
+		int best = CompiledTree.NO_PREDICTION;
+		for (int c = 0; c < votes.length; c++) {
+			if (votes[c] > 0 && (best < 0 || votes[c] > votes[best])) {
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param classId
+	 * @return String the class label, null for NO_PREDICTION
+	 */
+	public String getClassLabel(int classId) {
+		return classId < 0 ? null : data.getClassLabel(classId);
+	}
+
+	public TreeNode[] getTrees() {
+		return trees;
+	}
+
+	public CompiledTree[] getCompiledTrees() {
+		return compiledTrees;
+	}
+
+	public ForestOptions getOptions() {
+		return options;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+}
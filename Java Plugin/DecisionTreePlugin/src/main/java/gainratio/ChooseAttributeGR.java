@@ -3,9 +3,11 @@ package gainratio;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import core.*;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 
 
@@ -61,6 +63,84 @@ public class ChooseAttributeGR extends ChooseAttribute{
 				}
 			}
 		}
+	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * Continuous attributes are evaluated on the presorted rows or histograms of the node;
+	 * only the chosen one makes its partition.
+	 * @param data
+	 * @param attributes
+	 * @param index rows of the current node
+	 * @throws IOException
+	 */
+	  public ChooseAttributeGR(ColumnarDataSet data, List<Attribute> attributes, 
+				SplitIndex index) throws IOException {
+			this(data, attributes, index, 1);
+		}
+	
+	/**
+	 * Constructor: as above, evaluating the attributes as parallel fork-join tasks.
+	 * The attribute is chosen in list order afterwards, so ties are broken as in a
+	 * sequential evaluation: the first attribute with the largest gain ratio wins.
+	 * @param data
+	 * @param attributes
+	 * @param index rows of the current node
+	 * @param parallelism number of attributes evaluated at the same time
+	 * @throws IOException
+	 */
+	  public ChooseAttributeGR(final ColumnarDataSet data, final List<Attribute> attributes, 
+				final SplitIndex index, int parallelism) throws IOException {
+			
+			// Evaluate every attribute
+			final Object[] evaluations = new Object[attributes.size()];
+			ParallelTasks.forEach(attributes.size(), parallelism, new ParallelTasks.Task() {
+				public void run(int i) throws IOException {
+					Attribute currAttribute = attributes.get(i);
+					if (currAttribute.getType().equals("continuous")) {
+						evaluations[i] = new GainRatioContinuous(currAttribute, data, index);
+					} else {
+						evaluations[i] = new GainRatioDiscrete(data, currAttribute, index.getRows(), index.getFrom(), index.getTo());
+					}
+				}
+			});
+			
+			// Initialize variables
+			chosen = null;
+			infoGain = -1;
+			partition = null;
+			GainRatioContinuous chosenContinuous = null;
+
+			// Iterate to find the attribute with the largest gain ratio
+			for (int i = 0; i < attributes.size(); i++) {
+				Attribute currAttribute = attributes.get(i);
+				double currGainRatio = 0;
+				double currThreshold = 0;
+				Partition currSubset = null;
+				GainRatioContinuous continuous = null;
+
+				if (currAttribute.getType().equals("continuous")) {
+					continuous = (GainRatioContinuous) evaluations[i];
+					currGainRatio = continuous.getGainRatio();
+					currThreshold = continuous.getThreshold();
+				} else {
+					GainRatioDiscrete discrete = (GainRatioDiscrete) evaluations[i];
+					currGainRatio = discrete.getGainRatio();
+					currSubset = discrete.getPartition();
+				}
+				if (currGainRatio > gainRatio) {
+					gainRatio = currGainRatio;
+					chosen = currAttribute;
+					partition = currSubset;
+					chosenContinuous = continuous;
+					threshold = currThreshold;
+				}
+			}
+			
+			// Make the partition of a continuous attribute only for the chosen one
+			if (chosenContinuous != null) {
+				partition = chosenContinuous.getPartition();
+			}
+		}
 		
 		public Attribute getChosen() {
 			return chosen;
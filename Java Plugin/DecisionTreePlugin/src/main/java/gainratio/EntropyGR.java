@@ -52,6 +52,24 @@ public class EntropyGR {
 		return entropy;
 	}
 	
+	/**
+	 * Calculate entropy from the number of instances per class of the target attribute.
+	 * @param classCounts number of instances per class id
+	 * @param totalN
+	 * @return double
+	 */
+	public static double calculate(int[] classCounts, int totalN) {
+		double entropy = 0;
+		for (int countSingleValue : classCounts) {
+			if (countSingleValue == 0) continue;
+			if (countSingleValue == totalN) return 0;
+			double pValue = ((double) countSingleValue) / ((double) totalN);
+			double itemRes = -pValue * (Math.log(pValue) / Math.log(2));
+			entropy += itemRes;
+		}
+		return entropy;
+	}
+	
 	/**
 	 * Calculate entropy of instances for the target attribute.
 	 * Only for continuous attribute.
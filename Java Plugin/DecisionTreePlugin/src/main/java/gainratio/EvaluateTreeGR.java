@@ -40,7 +40,8 @@ public class EvaluateTreeGR extends EvaluateTree{
 		long tstTime = System.currentTimeMillis();
 		String confusionMatrix = "";
 
-		ConstructTreeGR tree = new ConstructTreeGR(getTrainInstances(), getAttributes(), getTarget(), isPruned, max_depth);
+		ConstructTreeGR tree = new ConstructTreeGR(getTrainData(), getAttributes(), isPruned, max_depth);
+		configureTree(tree);
 		//root = tree.construct();
 		super.setRoot(tree.construct());
 		featureTable = tree.getFeatureTable();
@@ -7,7 +7,12 @@ import java.util.Comparator;
 import java.util.HashMap;
 
 import core.Entropy;
+import core.Partition;
+import core.SplitCriterion;
+import core.SplitIndex;
+import core.SplitScanner;
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 
 public class GainRatioContinuous{
@@ -16,6 +21,7 @@ public class GainRatioContinuous{
 	private double threshold;
 	private double gainRatio = -1;
 	private HashMap<String, ArrayList<Instance>> subset;
+	private SplitScanner scanner;
 	
 	/**
 	 * Constructor: initialize fields. This class is for calculating the splitinformation
@@ -131,6 +137,23 @@ public class GainRatioContinuous{
 	
 	
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * The best cut is found in one pass by SplitScanner, on the presorted rows or on the
+	 * class histogram of the node; the row subsets are only made if asked for.
+	 * @param attribute
+	 * @param data
+	 * @param index rows of the current node (see PresortedIndex and HistogramIndex)
+	 * @throws IOException
+	 */
+	public GainRatioContinuous(Attribute attribute, ColumnarDataSet data, SplitIndex index) throws IOException {
+		
+		this.attribute = attribute;
+		scanner = index.scan(data.indexOf(attribute), SplitCriterion.GAIN_RATIO);
+		gainRatio = scanner.getScore();
+		threshold = scanner.isSplittable() ? scanner.getThreshold() : 0.0;
+	}
+	
 	/**
 	 * Calculate info gain 
 	 * @param attribute
@@ -201,6 +224,10 @@ public class GainRatioContinuous{
 		return subset;
 	}
 	
+	public Partition getPartition() {
+		return scanner == null ? null : scanner.getPartition();
+	}
+	
 	public String toString() {
 		return "Attribute: " + attribute.getName() + "\n" + "Threshold: " + threshold + "\n" 
 				+ "splitinfo: " + gainRatio + "\n" + "Subset: " + subset;
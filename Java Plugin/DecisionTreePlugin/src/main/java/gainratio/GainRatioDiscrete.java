@@ -1,6 +1,7 @@
 package gainratio;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 import core.*;
 
@@ -20,6 +21,7 @@ public class GainRatioDiscrete{
 	private Attribute attribute;
 	private double gainRatio;
 	private HashMap<String, ArrayList<Instance>> subset;
+	private ValuePartition partition;
 	
 	/**
 	 * Constructor: initialize fields. This class is for calculating the Splitinfo for
@@ -84,6 +86,42 @@ public class GainRatioDiscrete{
 	
 
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * The rows are not copied; the partition gives the branch and class counts of every value.
+	 * @param data
+	 * @param attribute
+	 * @param rows row array holding the rows of the current node at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @throws IOException
+	 */
+	public GainRatioDiscrete(ColumnarDataSet data, Attribute attribute, int[] rows, int from, int to) throws IOException {
+		
+		this.attribute = attribute;
+		
+		partition = new ValuePartition(data, attribute, rows, from, to);
+		
+		int totalN = to - from;
+		double splitInfo = 0;
+		double infoGain = Entropy.calculate(data.classCounts(rows, from, to), totalN);
+		
+		//calculate gain ratio
+		int[] sizes = partition.getSizes();
+		int[][] classCounts = partition.getClassCounts();
+		for (int b = 0; b < sizes.length; b++) {
+			int subN = sizes[b];
+			
+			double subRes = ((double) subN) / ((double) totalN);
+			splitInfo -= subRes * (Math.log(subRes) / Math.log(2));
+			
+			double subResInfo = ((double) subN) / ((double) totalN) * Entropy.calculate(classCounts[b], subN);
+			infoGain -= subResInfo;
+		}
+		
+		gainRatio = infoGain/splitInfo;
+	}
+	
 	public Attribute getAttribute() {
 		return attribute;
 	}
@@ -95,4 +133,8 @@ public class GainRatioDiscrete{
 	public HashMap<String, ArrayList<Instance>> getSubset() {
 		return subset;
 	}
+	
+	public ValuePartition getPartition() {
+		return partition;
+	}
 }
\ No newline at end of file
@@ -1,17 +1,23 @@
 package gini;
 
 import core.ChooseAttribute;
+import core.ParallelTasks;
+import core.Partition;
+import core.SplitIndex;
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public class ChooseAttributeGI extends ChooseAttribute{
 	
 	private Attribute chosen;
 	private HashMap<String, ArrayList<Instance>> subset;
+	private Partition partition;
 	private double probabilities;
 	private double threshold;
 	
@@ -63,6 +69,84 @@ public class ChooseAttributeGI extends ChooseAttribute{
 		}
 	}
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * Continuous attributes are evaluated on the presorted rows or histograms of the node;
+	 * only the chosen one makes its partition.
+	 * @param data
+	 * @param attributes
+	 * @param index rows of the current node
+	 * @throws IOException
+	 */
+	public ChooseAttributeGI(ColumnarDataSet data, List<Attribute> attributes, 
+			SplitIndex index) throws IOException {
+		this(data, attributes, index, 1);
+	}
+	
+	/**
+	 * Constructor: as above, evaluating the attributes as parallel fork-join tasks.
+	 * The attribute is chosen in list order afterwards, so ties are broken as in a
+	 * sequential evaluation: the first attribute with the smallest gini index wins.
+	 * @param data
+	 * @param attributes
+	 * @param index rows of the current node
+	 * @param parallelism number of attributes evaluated at the same time
+	 * @throws IOException
+	 */
+	public ChooseAttributeGI(final ColumnarDataSet data, final List<Attribute> attributes, 
+			final SplitIndex index, int parallelism) throws IOException {
+		
+		// Evaluate every attribute
+		final Object[] evaluations = new Object[attributes.size()];
+		ParallelTasks.forEach(attributes.size(), parallelism, new ParallelTasks.Task() {
+			public void run(int i) throws IOException {
+				Attribute currAttribute = attributes.get(i);
+				if (currAttribute.getType().equals("continuous")) {
+					evaluations[i] = new ContinuousProbability(currAttribute, data, index);
+				} else {
+					evaluations[i] = new DiscreteProbability(data, currAttribute, index.getRows(), index.getFrom(), index.getTo());
+				}
+			}
+		});
+		
+		// Initialize variables
+		chosen = null;
+		probabilities = Double.POSITIVE_INFINITY;
+		partition = null;
+		ContinuousProbability chosenContinuous = null;
+		
+		// Iterate to find the attribute with the smallest gini index
+		for (int i = 0; i < attributes.size(); i++) {
+			Attribute currAttribute = attributes.get(i);
+			double currProbability = 0;
+			double currThreshold = 0;
+			Partition currSubset = null;
+			ContinuousProbability continuous = null;
+			
+			if (currAttribute.getType().equals("continuous")) {
+				continuous = (ContinuousProbability) evaluations[i];
+				currProbability = continuous.getGiniValue();
+				currThreshold = continuous.getThreshold();
+			} else {
+				DiscreteProbability discrete = (DiscreteProbability) evaluations[i];
+				currProbability = discrete.getGiniValue();
+				currSubset = discrete.getPartition();
+			}
+			if (currProbability < probabilities) {
+				probabilities = currProbability;
+				chosen = currAttribute;
+				partition = currSubset;
+				chosenContinuous = continuous;
+				threshold = currThreshold;
+			}
+		}
+		
+		// Make the partition of a continuous attribute only for the chosen one
+		if (chosenContinuous != null) {
+			partition = chosenContinuous.getPartition();
+		}
+	}
+	
 	public Attribute getChosen() {
 		return chosen;
 	}
@@ -75,6 +159,10 @@ public class ChooseAttributeGI extends ChooseAttribute{
 		return subset;
 	}
 	
+	public Partition getPartition() {
+		return partition;
+	}
+	
 	public double getThreshold() {
 		return threshold;
 	}
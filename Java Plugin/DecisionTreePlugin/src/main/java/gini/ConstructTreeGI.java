@@ -1,19 +1,19 @@
 package gini;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
+import core.ChooseAttribute;
 import core.ConstructTree;
+import core.SplitCriterion;
+import core.SplitIndex;
 import definition.Instance;
-import node.TreeNode;
-import scala.reflect.api.Trees.SuperExtractor;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 
 
 public class ConstructTreeGI extends ConstructTree{
-	int count =0;
-	private String featureTable = "";
 	
 	public ConstructTreeGI(ArrayList<Instance> instances, ArrayList<Attribute> attributes, Attribute target, String isPruned, int max_depth){
 		super(instances,attributes,target,isPruned,max_depth);
@@ -21,100 +21,27 @@ public class ConstructTreeGI extends ConstructTree{
 		this.setIsPruned(isPruned);
 	}
 	
-	/**
-	 * Construct tree
-	 * @return TreeNode
-	 * @throws IOException
-	 */
-	public TreeNode construct() throws IOException {
-		return constructTree(target, attributes, instances);
+	public ConstructTreeGI(ColumnarDataSet data, ArrayList<Attribute> attributes, String isPruned, int max_depth){
+		super(data,attributes,isPruned,max_depth);
 	}
 	
+	@Override
+	protected ChooseAttribute chooseAttribute(List<Attribute> attributes, SplitIndex index) throws IOException {
+		return new ChooseAttributeGI(data, attributes, index, getOptions().getParallelism());
+	}
 	
-	/**
-	 * Construct tree recursively. First make the root node, then construct its subtrees 
-	 * recursively, and finally connect root with subtrees.
-	 * @param target
-	 * @param attributes
-	 * @param instances
-	 * @return TreeNode
-	 * @throws IOException
-	 */
-	private TreeNode constructTree(Attribute target, ArrayList<Attribute> attributes, 
-			ArrayList<Instance> instances) throws IOException {
+	@Override
+	protected double impurity(int[] classCounts, int totalN) {
+		return GiniIndex.calculate(classCounts, totalN);
+	}
 	
-		
-		if (GiniIndex.calculate(target, instances) == 0 || attributes.size() == 0) {
-			String leafLabel = "";
-			if (GiniIndex.calculate(target, instances) == 0) {
-				leafLabel = instances.get(0).getAttributeValuePairs().get(target.getName());
-			} else {
-				leafLabel = getMajorityLabel(target, instances);
-			}
-			TreeNode leaf = new TreeNode(leafLabel);
-			return leaf;
-		}
-		
-		// Choose the root attribute
-		ChooseAttributeGI choose = new ChooseAttributeGI(target, attributes, instances);
-		Attribute rootAttr = choose.getChosen();
-		if(rootAttr!=null)
-		{
-			String feature = rootAttr.toString() + "; GiniValue: " + choose.getInfoGain();
-			featureTable = featureTable + "|" + feature;	
-		}
-		// Remove the chosen attribute from attribute set
-		attributes.remove(rootAttr);
-		
-		// Make a new root
-		TreeNode root = new TreeNode(rootAttr);
-		
-		// Get value subsets of the root attribute to construct branches
-		HashMap<String, ArrayList<Instance>> valueSubsets = choose.getSubset();
-		
-		if (valueSubsets == null || valueSubsets.size() == 0) {
-			String leafLabel = getMajorityLabel(target, instances);
-			TreeNode leaf = new TreeNode(leafLabel);
-			return leaf;
-		}else {
-			
-			for (String valueName : valueSubsets.keySet()) {
-				ArrayList<Instance> subset = valueSubsets.get(valueName);
-				if(getIsPruned().equals("True"))
-				{
-					if (count < this.getMax_depth()) {
-						count += 1;
-						TreeNode child = constructTree(target, attributes, subset);
-						root.addChild(valueName, child);
-					}
-					else {
-						String leafLabel = getMajorityLabel(target, instances);
-						TreeNode leaf = new TreeNode(leafLabel);
-						root.addChild(valueName, leaf);
-					}
-				}
-				else
-				{
-					if (subset.size() == 0) 
-					{
-						String leafLabel = getMajorityLabel(target, instances);
-						TreeNode leaf = new TreeNode(leafLabel);
-						root.addChild(valueName, leaf);
-					} else {
-						TreeNode child = constructTree(target, attributes, subset);
-						root.addChild(valueName, child);
-					}
-				}		
-			}	
-		}
-		
-		attributes.add(rootAttr);
-		
-		return root;
+	@Override
+	protected SplitCriterion getCriterion() {
+		return SplitCriterion.GINI_INDEX;
 	}
 	
-	public String getFeatureTable()
-	{
-		return featureTable;
+	@Override
+	protected String getCriterionName() {
+		return "GiniValue";
 	}
 }
@@ -1,8 +1,13 @@
 package gini;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
 import core.InfoGainContinuous;
+import core.Partition;
+import core.SplitCriterion;
+import core.SplitIndex;
+import core.SplitScanner;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -17,6 +22,7 @@ public class ContinuousProbability{
 	private Attribute attribute;
 	private double giniValue;
 	private HashMap<String, ArrayList<Instance>> subset;
+	private SplitScanner scanner;
 	protected double threshold;
 	
 	/**
@@ -132,6 +138,22 @@ public class ContinuousProbability{
 		subset.put(rightName, rightInstances);
 	}
 
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * The best cut is found in one pass by SplitScanner, on the presorted rows or on the
+	 * class histogram of the node; the row subsets are only made if asked for.
+	 * @param attribute
+	 * @param data
+	 * @param index rows of the current node (see PresortedIndex and HistogramIndex)
+	 * @throws IOException
+	 */
+	public ContinuousProbability(Attribute attribute, ColumnarDataSet data, SplitIndex index) throws IOException {
+		
+		this.attribute = attribute;
+		scanner = index.scan(data.indexOf(attribute), SplitCriterion.GINI_INDEX);
+		giniValue = scanner.getScore();
+		threshold = scanner.isSplittable() ? scanner.getThreshold() : 0.0;
+	}
 	
 	public Attribute getAttribute() {
 		return attribute;
@@ -149,6 +171,10 @@ public class ContinuousProbability{
 		return subset;
 	}
 	
+	public Partition getPartition() {
+		return scanner == null ? null : scanner.getPartition();
+	}
+	
 	
 	public static void main(String[] args) throws IOException {
 		String[] attributes = { "lotion", "expos", "burn"};
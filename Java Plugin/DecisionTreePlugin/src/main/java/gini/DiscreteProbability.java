@@ -1,8 +1,9 @@
 package gini;
 
 import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.Instance;
-import core.InfoGainDiscrete;
+import core.ValuePartition;
 
 import java.io.File;
 import java.io.IOException;
@@ -17,6 +18,7 @@ public class DiscreteProbability{
 	private Attribute attribute;
 	private double giniValue;
 	private HashMap<String, ArrayList<Instance>> subset;
+	private ValuePartition partition;
 	
 	/**
 	 * Constructor: initialize fields. This class is for calculating the gini for
@@ -69,6 +71,33 @@ public class DiscreteProbability{
 		}
 	}
 	
+	/**
+	 * Constructor: initialize fields from columnar data, for the rows of the current node.
+	 * The rows are not copied; the partition gives the branch and class counts of every value.
+	 * @param data
+	 * @param attribute
+	 * @param rows row array holding the rows of the current node at positions from to to - 1
+	 * @param from
+	 * @param to
+	 * @throws IOException
+	 */
+	public DiscreteProbability(ColumnarDataSet data, Attribute attribute, int[] rows, int from, int to) throws IOException {
+		
+		this.attribute = attribute;
+		
+		partition = new ValuePartition(data, attribute, rows, from, to);
+		
+		int totalN = to - from;
+		int[] sizes = partition.getSizes();
+		int[][] classCounts = partition.getClassCounts();
+		for (int b = 0; b < sizes.length; b++) {
+			int subN = sizes[b];
+			double gValue = GiniIndex.calculate(classCounts[b], subN);
+			double weightedSum = ((double) subN) / ((double)totalN) * (gValue);
+			giniValue += weightedSum;
+		}
+	}
+	
 	
 	
 	
@@ -84,6 +113,10 @@ public class DiscreteProbability{
 		return subset;
 	}
 	
+	public ValuePartition getPartition() {
+		return partition;
+	}
+	
 	
 	public static ArrayList<Attribute> addTradingDataSet() throws IOException{
 		ArrayList<Attribute> attributeSet = new ArrayList<Attribute>();
@@ -51,7 +51,8 @@ public class EvaluateTreeGI extends EvaluateTree{
 		String confusionMatrix = "";
 		
 		long tstTime = System.currentTimeMillis();
-		ConstructTreeGI tree = new ConstructTreeGI(getTrainInstances(), getAttributes(), getTarget(), isPruned, max_depth);
+		ConstructTreeGI tree = new ConstructTreeGI(getTrainData(), getAttributes(), isPruned, max_depth);
+		configureTree(tree);
 		super.setRoot(tree.construct());
 		featureTable = tree.getFeatureTable();
 		
@@ -64,6 +64,39 @@ public class GiniIndex extends Entropy{
 	
 	
 	
+	/**
+	 * Calculate gini index from the number of instances per class of the target attribute.
+	 * @param classCounts number of instances per class id
+	 * @param totalN
+	 * @return double
+	 */
+	public static double calculate(int[] classCounts, int totalN) {
+		double giniindex = 0;
+		for (int countSingleValue : classCounts) {
+			if (countSingleValue == 0) continue;
+			double pValue = ((double) countSingleValue) / ((double) totalN);
+			giniindex += Math.pow(pValue, 2);
+		}
+		return 1 - giniindex;
+	}
+
+	/**
+	 * Calculate gini index from the (possibly fractional) weight of instances per class.
+	 * @param classWeights weight of instances per class id
+	 * @param totalWeight
+	 * @return double
+	 */
+	public static double calculate(double[] classWeights, double totalWeight) {
+		double giniindex = 0;
+		for (double weight : classWeights) {
+			if (weight <= 0) continue;
+			double pValue = weight / totalWeight;
+			giniindex += pValue * pValue;
+		}
+		return 1 - giniindex;
+	}
+	
+	
 	/**
 	 * Calculate gini index of instances for the target attribute.
 	 * Only for continuous attribute.
@@ -0,0 +1,133 @@
+/**
+ * This class is used for training a Hoeffding tree on a batch of train data, or updating
+ * an existing one with it, and evaluating the tree on the test set with the same
+ * confusion matrix output as the batch trees.
+ */
+
+package hoeffding;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import definition.ColumnarDataSet;
+import definition.Instance;
+import evaluate.EvaluateTree;
+
+public class EvaluateHoeffding extends EvaluateTree {
+	private String algorithm;
+	private int max_depth;
+	private HoeffdingTree tree;
+	private int learnt;
+
+	/**
+	 * Constructor to process the csv path
+	 *
+	 * @param trainData
+	 * @param testData
+	 * @param targetAttr
+	 * @param algorithm "IG" or "GI"
+	 * @param max_depth largest depth of a leaf, 0 for no limit
+	 * @throws IOException
+	 */
+	public EvaluateHoeffding(String trainData, String testData, String targetAttr, String algorithm, int max_depth) throws IOException {
+		super(trainData, testData, targetAttr, "False", max_depth);
+		this.algorithm = algorithm;
+		this.max_depth = max_depth;
+	}
+
+	/**
+	 * Overloaded constructor to process the nodes from Neo4j
+	 *
+	 * @param trainDataList
+	 * @param testDataList
+	 * @param targetAttr
+	 * @param algorithm "IG" or "GI"
+	 * @param max_depth largest depth of a leaf, 0 for no limit
+	 * @throws IOException
+	 */
+	public EvaluateHoeffding(ArrayList<String> trainDataList, ArrayList<String> testDataList, String targetAttr, String algorithm, int max_depth) throws IOException {
+		super(trainDataList, testDataList, targetAttr, "False", max_depth);
+		this.algorithm = algorithm;
+		this.max_depth = max_depth;
+	}
+
+	/**
+	 * Learn the train data with the tree set by setTree, or with a new tree, and evaluate
+	 * the tree on the test set
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public String calculateAccuracy() throws IOException {
+		//time taken to learn the batch
+		String confusionMatrix = "";
+
+		long tstTime = System.currentTimeMillis();
+		ColumnarDataSet trainData;
+		if (tree == null) {
+			HoeffdingOptions options = getOptions() instanceof HoeffdingOptions ? (HoeffdingOptions) getOptions()
+					: new HoeffdingOptions(getOptions());
+			tree = new HoeffdingTree(getAttributes(), getTarget(), algorithm, max_depth, options);
+			trainData = getTrainData();
+		} else {
+			// Encode the batch with the dictionaries the tree was created with
+			trainData = new ColumnarDataSet(getTrainInstances(), tree.getAttributes(), tree.getTarget(), true);
+		}
+		learnt = tree.learn(trainData);
+		setRoot(tree.toTreeNode());
+
+		long teTime = System.currentTimeMillis();
+		double generationTime = (teTime-tstTime)/1000f;
+		System.out.println("Time taken to learn the batch:"+ generationTime +"s, " + tree);
+
+		//time taken to run predictions
+		long startTime = System.currentTimeMillis();
+
+		int correct = 0;
+
+		ArrayList<Instance> res = getResult();
+
+		createClassificationResults(res);
+
+		ArrayList<String> actual = new ArrayList<>();
+		ArrayList<String> predictions = new ArrayList<>();
+
+		for (Instance item : res) {
+			String testLabel = item.getAttributeValuePairs().get("Test" + getTarget().getName());
+			predictions.add(testLabel);
+
+			String label = item.getAttributeValuePairs().get(getTarget().getName());
+			actual.add(label);
+			if(testLabel == null) {
+				continue;
+			}
+
+			if (testLabel.equals(label)) {
+				correct++;
+			}
+		}
+
+		confusionMatrix = calculateConfusionMatrix(actual, predictions);
+
+		super.setScore(correct * 1.0 / res.size());
+
+		long endTime = System.currentTimeMillis();
+		double predTime = (endTime - startTime)/1000f;
+		System.out.println("Time taken to generate prediction: " + predTime + " s\n");
+
+		return "Time taken to learn the batch: " + generationTime + " s\n" + "Instances learnt: " + learnt
+				+ ", total: " + tree.getSeen() + ", nodes: " + tree.getNodeCount() + "\n"
+				+ "Time taken to generate prediction: " + predTime + " s\n" + confusionMatrix + "%";
+	}
+
+	/**
+	 * @param tree an existing tree to update with the train data, instead of a new one
+	 */
+	public void setTree(HoeffdingTree tree) {
+		this.tree = tree;
+	}
+
+	public HoeffdingTree getTree() {
+		return tree;
+	}
+}
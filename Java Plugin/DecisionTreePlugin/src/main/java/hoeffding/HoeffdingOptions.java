@@ -0,0 +1,130 @@
+/**
+ * This class holds the options of an incremental Hoeffding tree: how often a leaf tries to
+ * split, the confidence of the Hoeffding bound, the tie threshold and the number of
+ * candidate thresholds of continuous attributes. The tree options (maxBins, parallelism,
+ * ...) are not used by the incremental tree.
+ * The user functions pass them as an optional map, e.g. {gracePeriod: 100, splitConfidence: 1e-6}.
+ */
+
+package hoeffding;
+
+import java.util.Map;
+
+import core.TreeOptions;
+
+public class HoeffdingOptions extends TreeOptions {
+
+	// Number of instances a leaf observes between two split attempts
+	private int gracePeriod = 200;
+
+	// Probability that the chosen split is not the best one (delta of the Hoeffding bound)
+	private double splitConfidence = 1e-7;
+
+	// Split anyway when the Hoeffding bound falls below this, as the candidates are tied
+	private double tieThreshold = 0.05;
+
+	// Number of candidate thresholds of a continuous attribute
+	private int numCuts = 10;
+
+
+	public HoeffdingOptions() {}
+
+	/**
+	 * Constructor: copy the tree options, with the default Hoeffding options
+	 * @param options
+	 */
+	public HoeffdingOptions(TreeOptions options) {
+		super(options);
+		if (options instanceof HoeffdingOptions) {
+			HoeffdingOptions hoeffding = (HoeffdingOptions) options;
+			this.gracePeriod = hoeffding.gracePeriod;
+			this.splitConfidence = hoeffding.splitConfidence;
+			this.tieThreshold = hoeffding.tieThreshold;
+			this.numCuts = hoeffding.numCuts;
+		}
+	}
+
+	/**
+	 * Read the options from a map of option name to value. Unknown names are rejected.
+	 * @param options
+	 * @return HoeffdingOptions
+	 */
+	public static HoeffdingOptions fromMap(Map<String, Object> options) {
+		HoeffdingOptions hoeffdingOptions = new HoeffdingOptions();
+		hoeffdingOptions.setAll(options);
+		return hoeffdingOptions;
+	}
+
+	@Override
+	protected void setOption(String name, Object value) {
+		if (name.equals("gracePeriod")) {
+			setGracePeriod(toInt(name, value));
+		} else if (name.equals("splitConfidence")) {
+			setSplitConfidence(toDouble(name, value));
+		} else if (name.equals("tieThreshold")) {
+			setTieThreshold(toDouble(name, value));
+		} else if (name.equals("numCuts")) {
+			setNumCuts(toInt(name, value));
+		} else {
+			super.setOption(name, value);
+		}
+	}
+
+
+	public int getGracePeriod() {
+		return gracePeriod;
+	}
+
+	/**
+	 * @param gracePeriod number of instances a leaf observes between two split attempts, at least 1
+	 */
+	public void setGracePeriod(int gracePeriod) {
+		if (gracePeriod < 1)
+			throw new IllegalArgumentException("gracePeriod must be at least 1: " + gracePeriod);
+		this.gracePeriod = gracePeriod;
+	}
+
+	public double getSplitConfidence() {
+		return splitConfidence;
+	}
+
+	/**
+	 * @param splitConfidence delta of the Hoeffding bound, between 0 and 1 (exclusive)
+	 */
+	public void setSplitConfidence(double splitConfidence) {
+		if (!(splitConfidence > 0 && splitConfidence < 1))
+			throw new IllegalArgumentException("splitConfidence must be between 0 and 1: " + splitConfidence);
+		this.splitConfidence = splitConfidence;
+	}
+
+	public double getTieThreshold() {
+		return tieThreshold;
+	}
+
+	/**
+	 * @param tieThreshold bound below which the best candidate is taken, at least 0
+	 */
+	public void setTieThreshold(double tieThreshold) {
+		if (tieThreshold < 0)
+			throw new IllegalArgumentException("tieThreshold must be at least 0: " + tieThreshold);
+		this.tieThreshold = tieThreshold;
+	}
+
+	public int getNumCuts() {
+		return numCuts;
+	}
+
+	/**
+	 * @param numCuts number of candidate thresholds of a continuous attribute, at least 1
+	 */
+	public void setNumCuts(int numCuts) {
+		if (numCuts < 1)
+			throw new IllegalArgumentException("numCuts must be at least 1: " + numCuts);
+		this.numCuts = numCuts;
+	}
+
+	public String toString() {
+		return super.toString() + "; gracePeriod: " + gracePeriod + "; splitConfidence: " + splitConfidence
+				+ "; tieThreshold: " + tieThreshold + "; numCuts: " + numCuts;
+	}
+}
@@ -0,0 +1,513 @@
+/**
+ * This class is an incremental decision tree (Hoeffding tree, VFDT): instances are learnt
+ * one at a time and never stored. Every leaf keeps sufficient statistics in primitive
+ * arrays: the weight of every class, per discrete attribute the weight of every value and
+ * class, per continuous attribute and class a gaussian summary (weight, mean, sum of
+ * squared deviations, minimum, maximum). Learning an instance updates the statistics of
+ * its leaf, so it costs the same however many instances were learnt before.
+ * Every gracePeriod instances, a leaf compares its best split with the second best (or
+ * with not splitting) and splits when the difference exceeds the Hoeffding bound
+ * sqrt(R^2 ln(1/delta) / 2n), i.e. when the best split on all future data would most
+ * likely be the same. Splits are scored by information gain (core.Entropy) or gini index
+ * (gini.GiniIndex); discrete attributes split into one branch per value and are not used
+ * again below, continuous ones split at the best of numCuts thresholds estimated from the
+ * gaussian summaries. The children start with the class weights of their branch.
+ * The tree can predict, or be converted to TreeNode objects, at any point. Discrete values
+ * which are not in the dictionaries of the attributes are ignored when learning and get
+ * no prediction, as in EvaluateTree.
+ */
+
+package hoeffding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import core.SplitCriterion;
+import definition.Attribute;
+import definition.ColumnarDataSet;
+import node.CompiledTree;
+import node.TreeNode;
+
+public class HoeffdingTree {
+
+	// Gaussian summary of one class: weight, mean, sum of squared deviations, min, max
+	private static final int GAUSS = 5;
+
+	private ArrayList<Attribute> attributes;
+	private Attribute target;
+	private SplitCriterion criterion;
+	private int maxDepth;
+	private HoeffdingOptions options;
+
+	private boolean[] continuous;
+	// Number of values of every discrete attribute
+	private int[] valueCount;
+	private int numClasses;
+	// Range of the criterion, R of the Hoeffding bound
+	private double range;
+
+	private Node root;
+	private long seen;
+	private int nodeCount;
+	private int leafCount;
+
+
+	/**
+	 * Constructor: an empty tree, which is a single leaf
+	 * @param attributes attributes in the order of the rows to learn
+	 * @param target
+	 * @param algorithm "IG" for information gain, "GI" for gini index
+	 * @param maxDepth largest depth of a leaf, 0 for no limit
+	 * @param options
+	 */
+	public HoeffdingTree(ArrayList<Attribute> attributes, Attribute target, String algorithm, int maxDepth,
+			HoeffdingOptions options) {
+		if (algorithm.equals("GI")) {
+			this.criterion = SplitCriterion.GINI_INDEX;
+		} else if (algorithm.equals("IG")) {
+			this.criterion = SplitCriterion.INFO_GAIN;
+		} else {
+			throw new IllegalArgumentException("The Hoeffding tree supports IG and GI: " + algorithm);
+		}
+		this.attributes = new ArrayList<Attribute>(attributes);
+		this.target = target;
+		this.maxDepth = maxDepth;
+		this.options = options;
+
+		continuous = new boolean[attributes.size()];
+		valueCount = new int[attributes.size()];
+		for (int a = 0; a < attributes.size(); a++) {
+			continuous[a] = attributes.get(a).getType().equals("continuous");
+			valueCount[a] = continuous[a] ? 0 : attributes.get(a).getValues().size();
+		}
+		numClasses = target.getValues().size();
+		range = criterion == SplitCriterion.GINI_INDEX ? 1 : Math.log(Math.max(numClasses, 2)) / Math.log(2);
+
+		boolean[] usable = new boolean[attributes.size()];
+		Arrays.fill(usable, true);
+		root = new Node(0, new double[numClasses], usable, CompiledTree.NO_PREDICTION);
+		nodeCount = 1;
+		leafCount = 1;
+	}
+
+	/**
+	 * Learn every row of a data set encoded with the attributes of the tree. Rows whose
+	 * class is not in the target values are skipped.
+	 * @param data
+	 * @return int number of rows learnt
+	 */
+	public int learn(ColumnarDataSet data) {
+		double[] row = new double[attributes.size()];
+		int[] labels = data.getLabels();
+		int learnt = 0;
+		for (int r = 0; r < data.size(); r++) {
+			if (labels[r] < 0 || labels[r] >= numClasses) continue;
+			data.readRow(r, row);
+			learn(row, labels[r]);
+			learnt++;
+		}
+		return learnt;
+	}
+
+	/**
+	 * Learn one instance
+	 * @param row one value per attribute: the number for continuous attributes, the value
+	 * code for discrete ones (see ColumnarDataSet.readRow)
+	 * @param classId
+	 */
+	public void learn(double[] row, int classId) {
+		Node node = root;
+		while (node.attribute >= 0) {
+			node = node.child(row);
+			// A value unseen in the dictionary cannot be routed
+			if (node == null) return;
+		}
+		seen++;
+		node.update(row, classId);
+		if (node.seen - node.seenAtLastCheck >= options.getGracePeriod()) {
+			node.seenAtLastCheck = node.seen;
+			if (maxDepth <= 0 || node.depth < maxDepth) {
+				attemptSplit(node);
+			}
+		}
+	}
+
+	/**
+	 * Predict one row
+	 * @param row one value per attribute, as for learn
+	 * @return int class id, or CompiledTree.NO_PREDICTION
+	 */
+	public int predict(double[] row) {
+		Node node = root;
+		while (node.attribute >= 0) {
+			node = node.child(row);
+			if (node == null) return CompiledTree.NO_PREDICTION;
+		}
+		return node.majority();
+	}
+
+	/**
+	 * Predict one row of a data set encoded with the attributes of the tree
+	 * @param data
+	 * @param row
+	 * @return int class id, or CompiledTree.NO_PREDICTION
+	 */
+	public int predict(ColumnarDataSet data, int row) {
+		double[] values = new double[attributes.size()];
+		data.readRow(row, values);
+		return predict(values);
+	}
+
+	/**
+	 * @param classId
+	 * @return String the class label, null for NO_PREDICTION
+	 */
+	public String getClassLabel(int classId) {
+		return classId < 0 ? null : target.getValues().get(classId);
+	}
+
+	/**
+	 * Split a leaf if its best split is better than the second best by more than the
+	 * Hoeffding bound, or if the bound is below the tie threshold
+	 */
+	private void attemptSplit(Node leaf) {
+		double total = 0;
+		int nonZero = 0;
+		for (double weight : leaf.classWeights) {
+			total += weight;
+			if (weight > 0) nonZero++;
+		}
+		if (nonZero < 2) return;
+
+		// Not splitting has a merit of 0, so it is the second best until two attributes score
+		double bestMerit = 0;
+		double secondMerit = 0;
+		int bestAttribute = -1;
+		double bestThreshold = 0;
+		double[] cut = new double[1];
+		for (int a = 0; a < attributes.size(); a++) {
+			if (!leaf.usable[a]) continue;
+			double merit = continuous[a] ? continuousMerit(leaf, a, cut) : discreteMerit(leaf, a);
+			if (merit > bestMerit) {
+				secondMerit = bestMerit;
+				bestMerit = merit;
+				bestAttribute = a;
+				bestThreshold = cut[0];
+			} else if (merit > secondMerit) {
+				secondMerit = merit;
+			}
+		}
+		if (bestAttribute < 0) return;
+
+		double bound = Math.sqrt(range * range * Math.log(1 / options.getSplitConfidence()) / (2 * total));
+		if (bestMerit - secondMerit > bound || bound < options.getTieThreshold()) {
+			split(leaf, bestAttribute, bestThreshold);
+		}
+	}
+
+	/**
+	 * Merit of splitting a leaf by the values of a discrete attribute, over the instances
+	 * which have a value
+	 */
+	private double discreteMerit(Node leaf, int a) {
+		double[] stats = leaf.stats[a];
+		double[] parent = new double[numClasses];
+		double[] part = new double[numClasses];
+		double attributeTotal = 0;
+		for (int i = 0; i < stats.length; i++) {
+			parent[i % numClasses] += stats[i];
+			attributeTotal += stats[i];
+		}
+		if (attributeTotal <= 0) return Double.NEGATIVE_INFINITY;
+		double weighted = 0;
+		int parts = 0;
+		for (int v = 0; v < valueCount[a]; v++) {
+			double partTotal = 0;
+			for (int c = 0; c < numClasses; c++) {
+				part[c] = stats[v * numClasses + c];
+				partTotal += part[c];
+			}
+			if (partTotal <= 0) continue;
+			parts++;
+			weighted += partTotal / attributeTotal * criterion.impurity(part, partTotal);
+		}
+		if (parts < 2) return Double.NEGATIVE_INFINITY;
+		return criterion.impurity(parent, attributeTotal) - weighted;
+	}
+
+	/**
+	 * Merit of the best of numCuts thresholds of a continuous attribute, spread evenly
+	 * between its smallest and largest value in the leaf
+	 * @param cut receives the best threshold
+	 */
+	private double continuousMerit(Node leaf, int a, double[] cut) {
+		double[] stats = leaf.stats[a];
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double[] parent = new double[numClasses];
+		double attributeTotal = 0;
+		for (int c = 0; c < numClasses; c++) {
+			int g = c * GAUSS;
+			if (stats[g] <= 0) continue;
+			parent[c] = stats[g];
+			attributeTotal += stats[g];
+			min = Math.min(min, stats[g + 3]);
+			max = Math.max(max, stats[g + 4]);
+		}
+		if (!(min < max)) return Double.NEGATIVE_INFINITY;
+		double parentImpurity = criterion.impurity(parent, attributeTotal);
+
+		double[] left = new double[numClasses];
+		double[] right = new double[numClasses];
+		double best = Double.NEGATIVE_INFINITY;
+		int numCuts = options.getNumCuts();
+		for (int k = 1; k <= numCuts; k++) {
+			double threshold = min + (max - min) * k / (numCuts + 1);
+			double leftTotal = estimateLeft(stats, threshold, left, right);
+			double rightTotal = attributeTotal - leftTotal;
+			if (leftTotal <= 0 || rightTotal <= 0) continue;
+			double merit = parentImpurity - leftTotal / attributeTotal * criterion.impurity(left, leftTotal)
+					- rightTotal / attributeTotal * criterion.impurity(right, rightTotal);
+			if (merit > best) {
+				best = merit;
+				cut[0] = threshold;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Estimate the class weights below and above a threshold from the gaussian summaries
+	 * @return double total weight below the threshold
+	 */
+	private double estimateLeft(double[] stats, double threshold, double[] left, double[] right) {
+		double leftTotal = 0;
+		for (int c = 0; c < numClasses; c++) {
+			int g = c * GAUSS;
+			double weight = stats[g];
+			double below;
+			if (weight <= 0 || threshold <= stats[g + 3]) {
+				below = 0;
+			} else if (threshold > stats[g + 4]) {
+				below = weight;
+			} else {
+				double variance = weight > 1 ? stats[g + 2] / (weight - 1) : 0;
+				double deviation = Math.sqrt(variance);
+				below = deviation > 0 ? weight * normalProbability((threshold - stats[g + 1]) / deviation)
+						: (threshold > stats[g + 1] ? weight : 0);
+			}
+			left[c] = below;
+			right[c] = weight - below;
+			leftTotal += below;
+		}
+		return leftTotal;
+	}
+
+	/**
+	 * Standard normal cumulative distribution, by the approximation 7.1.26 of the error
+	 * function in Abramowitz and Stegun (absolute error below 1.5e-7)
+	 */
+	private static double normalProbability(double z) {
+		double x = Math.abs(z) / Math.sqrt(2);
+		double t = 1 / (1 + 0.3275911 * x);
+		double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027
+				+ t * 1.061405429)))) * Math.exp(-x * x);
+		return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+	}
+
+	/**
+	 * Turn a leaf into a node splitting on an attribute, with one new leaf per branch
+	 */
+	private void split(Node leaf, int a, double threshold) {
+		int fallback = leaf.majority();
+		boolean[] usable = leaf.usable;
+		Node[] children;
+		if (continuous[a]) {
+			double[] left = new double[numClasses];
+			double[] right = new double[numClasses];
+			estimateLeft(leaf.stats[a], threshold, left, right);
+			children = new Node[] { new Node(leaf.depth + 1, left, usable, fallback),
+					new Node(leaf.depth + 1, right, usable, fallback) };
+		} else {
+			usable = usable.clone();
+			usable[a] = false;
+			children = new Node[valueCount[a]];
+			for (int v = 0; v < children.length; v++) {
+				double[] weights = new double[numClasses];
+				System.arraycopy(leaf.stats[a], v * numClasses, weights, 0, numClasses);
+				children[v] = new Node(leaf.depth + 1, weights, usable, fallback);
+			}
+		}
+		leaf.attribute = a;
+		leaf.threshold = threshold;
+		leaf.children = children;
+		leaf.stats = null;
+		nodeCount += children.length;
+		leafCount += children.length - 1;
+	}
+
+
+	/**
+	 * Convert the tree to TreeNode objects, with the branch names of the batch trees
+	 * ("less"/"more" + threshold, or the discrete value), e.g. to compile, print or save it
+	 * @return TreeNode
+	 */
+	public TreeNode toTreeNode() {
+		return toTreeNode(root);
+	}
+
+	private TreeNode toTreeNode(Node node) {
+		if (node.attribute < 0) {
+			return new TreeNode(getClassLabel(node.majority()));
+		}
+		TreeNode treeNode = new TreeNode(attributes.get(node.attribute));
+		if (continuous[node.attribute]) {
+			treeNode.addChild("less" + node.threshold, toTreeNode(node.children[0]));
+			treeNode.addChild("more" + node.threshold, toTreeNode(node.children[1]));
+		} else {
+			ArrayList<String> values = attributes.get(node.attribute).getValues();
+			for (int v = 0; v < node.children.length; v++) {
+				treeNode.addChild(values.get(v), toTreeNode(node.children[v]));
+			}
+		}
+		return treeNode;
+	}
+
+	/**
+	 * @return CompiledTree the current tree compiled for prediction
+	 */
+	public CompiledTree compile() {
+		return CompiledTree.compile(toTreeNode(), attributes, target);
+	}
+
+
+	/**
+	 * @return String "IG" for information gain, "GI" for gini index
+	 */
+	public String getCriterionName() {
+		return criterion == SplitCriterion.GINI_INDEX ? "GI" : "IG";
+	}
+
+	public ArrayList<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	public Attribute getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return long number of instances learnt
+	 */
+	public long getSeen() {
+		return seen;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getLeafCount() {
+		return leafCount;
+	}
+
+	public HoeffdingOptions getOptions() {
+		return options;
+	}
+
+	public String toString() {
+		return "@HoeffdingTree criterion: " + criterion + "; seen: " + seen + "; nodes: " + nodeCount
+				+ "; leaves: " + leafCount;
+	}
+
+
+	/**
+	 * A node of the tree. A leaf (attribute -1) keeps the statistics of the instances it
+	 * observed; a split node keeps its attribute, threshold and children.
+	 */
+	private final class Node {
+		int depth;
+		int attribute = -1;
+		double threshold;
+		Node[] children;
+
+		double[] classWeights;
+		// Per attribute: weight per value and class (discrete), gaussian summary per class
+		// (continuous), null for attributes which are no longer usable
+		double[][] stats;
+		boolean[] usable;
+		// Class predicted while the leaf has no weight: the majority of its parent
+		int fallback;
+		long seen;
+		long seenAtLastCheck;
+
+		Node(int depth, double[] classWeights, boolean[] usable, int fallback) {
+			this.depth = depth;
+			this.classWeights = classWeights;
+			this.usable = usable;
+			this.fallback = fallback;
+			stats = new double[attributes.size()][];
+			for (int a = 0; a < stats.length; a++) {
+				if (!usable[a]) continue;
+				stats[a] = new double[continuous[a] ? numClasses * GAUSS : valueCount[a] * numClasses];
+			}
+		}
+
+		/**
+		 * @return Node child of a split node for the row, null for an unknown discrete value
+		 */
+		Node child(double[] row) {
+			double value = row[attribute];
+			if (continuous[attribute]) {
+				// NaN follows the "more" branch, as in CompiledTree
+				return value < threshold ? children[0] : children[1];
+			}
+			int code = (int) value;
+			return code < 0 || code >= children.length ? null : children[code];
+		}
+
+		void update(double[] row, int classId) {
+			seen++;
+			classWeights[classId]++;
+			for (int a = 0; a < stats.length; a++) {
+				double[] s = stats[a];
+				if (s == null) continue;
+				double value = row[a];
+				if (continuous[a]) {
+					if (Double.isNaN(value)) continue;
+					int g = classId * GAUSS;
+					double weight = s[g] + 1;
+					if (s[g] == 0) {
+						s[g + 3] = value;
+						s[g + 4] = value;
+					} else {
+						if (value < s[g + 3]) s[g + 3] = value;
+						if (value > s[g + 4]) s[g + 4] = value;
+					}
+					// Welford's update of the mean and the sum of squared deviations
+					double delta = value - s[g + 1];
+					s[g + 1] += delta / weight;
+					s[g + 2] += delta * (value - s[g + 1]);
+					s[g] = weight;
+				} else {
+					int code = (int) value;
+					if (code >= 0 && code < valueCount[a]) {
+						s[code * numClasses + classId]++;
+					}
+				}
+			}
+		}
+
+		int majority() {
+			int best = fallback;
+			double bestWeight = 0;
+			for (int c = 0; c < classWeights.length; c++) {
+				if (classWeights[c] > bestWeight) {
+					bestWeight = classWeights[c];
+					best = c;
+				}
+			}
+			return best;
+		}
+	}
+}
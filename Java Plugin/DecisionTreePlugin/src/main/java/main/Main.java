@@ -1,13 +1,10 @@
 package main;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
 
-import cv.CrossValidation;
-import input.ProcessInputData;
-import output.PrintTree;
+import cv.RepeatStatistics;
+import cv.RepeatedCrossValidation;
 /**
  * This class is used to run cross validation on the entire sample 
  * Dataset1 - heart_failure_original.csv . Target - 'DEATH_EVENT'
@@ -26,37 +23,22 @@ public class Main {
 		Scanner in = new Scanner(System.in);
 		System.out.println("===============================================================");
 
-		CrossValidation cv = new CrossValidation("data/metaprotein_50.csv", "Diagnosis");
+		RepeatedCrossValidation cv = new RepeatedCrossValidation("data/metaprotein_50.csv", "Diagnosis");
+		cv.setRepeats(30);
 
-		ArrayList<Double> final_score = cv.validate(10, "GiniIndex");
+		cv.validate(10, "GiniIndex");
 
-		ArrayList<Double> totalGenerationTime = cv.getCvGenerationTime();
+		RepeatStatistics accuracy = cv.getScoreStatistics();
+		RepeatStatistics generationTime = cv.getGenerationTimeStatistics();
 
-		ArrayList<Double> totalRepeatsAccuracy = new ArrayList<>();
-		ArrayList<Double> totalRepeatsTime = new ArrayList<>();
-
-		for (int i = 0; i < 30; i++) {
-
-			double accuracy = calculateAverage(final_score);
-			double gTime = calculateAverage(totalGenerationTime);
-
-			totalRepeatsAccuracy.add(accuracy);
-			totalRepeatsTime.add(gTime);
-
-		}
-
-		System.out.println("Accuracy:" + calculateAverage(totalRepeatsAccuracy) * 100 + "%");
-		System.out.println("GenerationTime:" + calculateAverage(totalRepeatsTime) + "sec");
+		System.out.println("Accuracy:" + accuracy.getMean() * 100 + "%");
+		System.out.println("Accuracy " + accuracy);
+		System.out.println("GenerationTime:" + generationTime.getMean() + "sec");
+		System.out.println("GenerationTime " + generationTime);
 
 		in.close();
     }
     
-    private static double calculateAverage(ArrayList<Double> final_score) {
-        return final_score.stream()
-                    .mapToDouble(d -> d)
-                    .average()
-                    .orElse(0.0);
-    }
     
     
     
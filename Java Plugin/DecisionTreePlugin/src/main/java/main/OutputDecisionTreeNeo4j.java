@@ -1,11 +1,13 @@
 package main;
 import static org.neo4j.driver.Values.parameters;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.regex.Pattern;
 
@@ -22,24 +24,47 @@ import org.neo4j.driver.TransactionWork;
 import org.neo4j.driver.Value;
 import org.neo4j.driver.exceptions.Neo4jException;
 import org.neo4j.driver.util.Pair;
+import org.neo4j.graphdb.Entity;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.UserFunction;
 
+import boosting.BoostingOptions;
+import boosting.EvaluateBoosting;
+import core.TreeOptions;
 import cv.CrossValidation;
+import cv.RepeatedCrossValidation;
+import definition.Attribute;
+import definition.ColumnarDataSet;
 import definition.EdgeList;
 import definition.EdgeList2;
 import definition.NodeList2;
 import eigendecomposed.EigenCalculation;
 import eigendecomposed.MatrixCalculation;
 import evaluate.EvaluateTree;
+import forest.EvaluateForest;
+import forest.ForestOptions;
 import gainratio.EvaluateTreeGR;
 import gini.EvaluateTreeGI;
 import global.Neo4jGraphHandler;
 import global.ReadCsvFile;
 import graph.GraphTransform;
+import hoeffding.EvaluateHoeffding;
+import hoeffding.HoeffdingOptions;
+import hoeffding.HoeffdingTree;
 import input.ProcessInputData;
+import node.CompiledTree;
+import node.ModelFile;
+import node.RowEncoder;
+import outofcore.OutOfCoreOptions;
+import outofcore.OutOfCoreTree;
+import output.BatchScorer;
 import output.PrintTree;
+import registry.ModelRegistry;
+import registry.TrainedModel;
+import tuning.HyperparameterSearch;
+import tuning.TrialResult;
+import tuning.TuningOptions;
 
 /**
  *
@@ -59,6 +84,10 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	private static ArrayList<String> autoSplitDataList =  new ArrayList<String>();
 	private static ArrayList<String> classificationDataList = new ArrayList<String>();
 	private static ArrayList<String> mapNodeList =  new ArrayList<String>();
+	// Trained models by name
+	private static ModelRegistry models = new ModelRegistry();
+	// Incremental trees by model name, updated by updateHoeffdingTree
+	private static HashMap<String, HoeffdingTree> hoeffdingTrees = new HashMap<String, HoeffdingTree>();
 
 	/**
 	 * Creation of driver object using bolt protocol
@@ -127,22 +156,9 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 				return targetAttribute + "False";
 			}else {
 
-				EvaluateTree mine;
-				if(decisionTreeType == "IG")
-				{
-					mine = new EvaluateTree(trainDataList, testDataList, targetAttribute,"False",0);
-				}
-				else if (decisionTreeType == "GI")
-				{
-					mine = new EvaluateTreeGI(trainDataList, testDataList, targetAttribute,"False",0);
-				}
-				else
-				{
-					mine = new EvaluateTreeGR(trainDataList, testDataList, targetAttribute,"False",0);
-				}
-
-				mine.calculateAccuracy();
-				HashMap<String, ArrayList<String>> hashMapClassify = mine.predictedResults;
+				String algoType = decisionTreeType.equals("IG") || decisionTreeType.equals("GI") ? decisionTreeType : "GR";
+				TrainedModel model = cachedModel(algoType, targetAttribute, "False", 0);
+				HashMap<String, ArrayList<String>> hashMapClassify = model.getPredictedResults();
 				for (String classLabel: hashMapClassify.keySet()) {
 					ArrayList<String> arrayNodes = hashMapClassify.get(classLabel);
 					for (String node : arrayNodes)
@@ -711,6 +727,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 		autoSplitDataList.clear();
 		testDataList.clear();
 		trainDataList.clear();
+		models.dropCached();
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123" ) )
 		{
 			queryData(nodeType);
@@ -726,11 +743,11 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 							{
 								if(valueOfNode != "")
 								{
-									valueOfNode = valueOfNode + ", " + nodeKey + ":" + value.get(nodeKey);
+									valueOfNode = valueOfNode + ", " + nodeKey + ":" + RowEncoder.propertyString(value.get(nodeKey));
 								}
 								else
 								{
-									valueOfNode = nodeKey + ":" + value.get(nodeKey);
+									valueOfNode = nodeKey + ":" + RowEncoder.propertyString(value.get(nodeKey));
 								}
 
 							}
@@ -738,12 +755,12 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 							{
 								if(valueOfNode != "")
 								{
-									String converValueToString = String.valueOf(value.get(nodeKey));
+									String converValueToString = RowEncoder.propertyString(value.get(nodeKey));
 									valueOfNode = valueOfNode + ", " + nodeKey + ":" + converValueToString;
 								}
 								else
 								{
-									String converValueToString = String.valueOf(value.get(nodeKey));
+									String converValueToString = RowEncoder.propertyString(value.get(nodeKey));
 									valueOfNode =  nodeKey + ":" + converValueToString;
 								}
 							}
@@ -783,6 +800,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	{
 		String listOfData = "";
 		testDataList.clear();
+		models.dropCached();
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123412345" ) )
 		{
 			queryData(nodeType);
@@ -814,14 +832,14 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 							{
 								if(valueOfNode != "")
 								{
-									String converValueToString = String.valueOf(value.get(nodeKey));
-									valueOfNode = valueOfNode + "," + nodeKey + ":" + converValueToString.replaceAll("^\"|\"$", "");
+									String converValueToString = RowEncoder.propertyString(value.get(nodeKey));
+									valueOfNode = valueOfNode + "," + nodeKey + ":" + converValueToString;
 									//nodeData.add(nodeKey+":"+converValueToString);
 								}
 								else
 								{
-									String converValueToString = String.valueOf(value.get(nodeKey));
-									valueOfNode =  nodeKey + ":" + converValueToString.replaceAll("^\"|\"$", "");
+									String converValueToString = RowEncoder.propertyString(value.get(nodeKey));
+									valueOfNode =  nodeKey + ":" + converValueToString;
 									//nodeData.add(nodeKey+":"+converValueToString);
 								}
 
@@ -849,6 +867,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	{
 		String listOfData = "";
 		trainDataList.clear();
+		models.dropCached();
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123412345" ) )
 		{
 			queryData(nodeType);
@@ -879,14 +898,14 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 							{
 								if(valueOfNode != "")
 								{
-									String converValueToString = String.valueOf(value.get(nodeKey));
-									valueOfNode = valueOfNode + "," + nodeKey + ":" + converValueToString.replaceAll("^\"|\"$", "");
+									String converValueToString = RowEncoder.propertyString(value.get(nodeKey));
+									valueOfNode = valueOfNode + "," + nodeKey + ":" + converValueToString;
 									//nodeData.add(nodeKey+":"+converValueToString);
 								}
 								else
 								{
-									String converValueToString = String.valueOf(value.get(nodeKey));
-									valueOfNode =  nodeKey + ":" + converValueToString.replaceAll("^\"|\"$", "");
+									String converValueToString = RowEncoder.propertyString(value.get(nodeKey));
+									valueOfNode =  nodeKey + ":" + converValueToString;
 									//nodeData.add(nodeKey+":"+converValueToString);
 								}
 							}
@@ -952,11 +971,12 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	/**
 	 * User defined function to create the decision tree with nodes and relationships in neo4j. This creates a tree based on information gain.
 	 * @param target attribute
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
 	 * @return
 	 * @throws Exception
 	 */
 	@UserFunction
-	public String createTreeIG(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth) throws Exception {
+	public String createTreeIG(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception {
 
 		String confusionMatrix = "";
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123412345" ) )
@@ -969,6 +989,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 			}else {
 				int maxDepth = Integer.parseInt(max_depth);
 				EvaluateTree mine = new EvaluateTree(trainDataList, testDataList, target, isPruned, maxDepth);
+				mine.setOptions(TreeOptions.fromMap(options));
 
 				confusionMatrix = mine.calculateAccuracy();
 
@@ -994,11 +1015,12 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	/**
 	 * User defined function to create the decision tree with nodes and relationships in neo4j. This creates a tree based on gini index.
 	 * @param target attribute
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
 	 * @return
 	 * @throws Exception
 	 */
 	@UserFunction
-	public String createTreeGI(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth) throws Exception {
+	public String createTreeGI(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception {
 
 		String confusionMatrix = "";
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123" ) )
@@ -1011,6 +1033,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 			}else {
 				int maxDepth = Integer.parseInt(max_depth);
 				EvaluateTreeGI mine = new EvaluateTreeGI(trainDataList, testDataList, target, isPruned, maxDepth);
+				mine.setOptions(TreeOptions.fromMap(options));
 
 				confusionMatrix = mine.calculateAccuracy();
 
@@ -1037,11 +1060,12 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	/**
 	 * User defined function to create the decision tree with nodes and relationships in neo4j. This creates a tree based on gain ratio.
 	 * @param target attribute
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
 	 * @return
 	 * @throws Exception
 	 */
 	@UserFunction
-	public String createTreeGR(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth) throws Exception {
+	public String createTreeGR(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception {
 
 		String confusionMatrix = "";
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123412345" ) )
@@ -1054,6 +1078,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 			}else {
 				int maxDepth = Integer.parseInt(max_depth);
 				EvaluateTreeGR mine = new EvaluateTreeGR(trainDataList, testDataList, target, isPruned, maxDepth);
+				mine.setOptions(TreeOptions.fromMap(options));
 
 				confusionMatrix = mine.calculateAccuracy();
 
@@ -1080,11 +1105,12 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	/**
 	 * User defined function to create the decision tree with nodes and relationships in neo4j
 	 * @param path
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
 	 * @return
 	 * @throws Exception
 	 */
 	@UserFunction
-	public String createTreeGIcsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth ) throws Exception
+	public String createTreeGIcsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
 	{
 		String confusionMatrix = "";
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123" ) )
@@ -1093,6 +1119,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 
 			int maxDepth = Integer.parseInt(max_depth);
 			EvaluateTreeGI mine = new EvaluateTreeGI(trainPath, testPath, targetAttribute, isPruned, maxDepth);
+			mine.setOptions(TreeOptions.fromMap(options));
 
 			confusionMatrix = mine.calculateAccuracy();
 
@@ -1119,12 +1146,13 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	/**
 	 * This function creates tree from csv path which is based on gain ratio
 	 * @param path The path is composed of 3 parts, 1st-training dataset, 2nd-test dataset, 3rd- target attribute(as string)
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
 	 * @return
 	 * @throws Exception
 	 */
 
 	@UserFunction
-	public String createTreeGRcsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth) throws Exception
+	public String createTreeGRcsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
 	{
 		String confusionMatrix = "";
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123" ) )
@@ -1133,6 +1161,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 
 			int maxDepth = Integer.parseInt(max_depth);
 			EvaluateTreeGR mine = new EvaluateTreeGR(trainPath, testPath, targetAttribute, isPruned, maxDepth);
+			mine.setOptions(TreeOptions.fromMap(options));
 
 			confusionMatrix = mine.calculateAccuracy();
 
@@ -1160,12 +1189,13 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 	 * This function creates tree from csv path which is based on information gain
 	 *
 	 * @param path - The path is composed of 3 parts, 1st-training dataset, 2nd-test dataset, 3rd- target attribute(as string)
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
 	 * @return
 	 * @throws Exception
 	 */
 
 	@UserFunction
-	public String createTreeIGcsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth )throws Exception
+	public String createTreeIGcsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options)throws Exception
 	{
 		String confusionMatrix = "";
 		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123" ) )
@@ -1174,6 +1204,7 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 
 			int maxDepth = Integer.parseInt(max_depth);
 			EvaluateTree mine = new EvaluateTree(trainPath, testPath, targetAttribute, isPruned, maxDepth);
+			mine.setOptions(TreeOptions.fromMap(options));
 
 			confusionMatrix = mine.calculateAccuracy();
 
@@ -1198,6 +1229,136 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 
 	}
 
+	/**
+	 * User defined function to train a random forest of information gain trees on the queried train data and
+	 * evaluate it on the test data. Every tree is trained on a bootstrap sample and chooses each split among a
+	 * random subset of the attributes; the forest predicts by majority vote.
+	 * @param target attribute
+	 * @param options forest options, e.g. {numTrees: 200, featureSubset: 4, parallelism: 8, seed: 1}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train and evaluate a random forest of Information Gain Decision Trees")
+	public String createForestIG(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		return createForest(target, isPruned, max_depth, "IG", options, "Information Gain");
+	}
+
+	/**
+	 * User defined function to train a random forest of gini index trees on the queried train data and
+	 * evaluate it on the test data
+	 * @param target attribute
+	 * @param options forest options, e.g. {numTrees: 200, featureSubset: 4, parallelism: 8, seed: 1}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train and evaluate a random forest of Gini Index Decision Trees")
+	public String createForestGI(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		return createForest(target, isPruned, max_depth, "GI", options, "Gini Index");
+	}
+
+	/**
+	 * User defined function to train a random forest of gain ratio trees on the queried train data and
+	 * evaluate it on the test data
+	 * @param target attribute
+	 * @param options forest options, e.g. {numTrees: 200, featureSubset: 4, parallelism: 8, seed: 1}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train and evaluate a random forest of Gain Ratio Decision Trees")
+	public String createForestGR(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		return createForest(target, isPruned, max_depth, "GR", options, "Gain Ratio");
+	}
+
+	/**
+	 * User defined function to train a random forest on a csv train file and evaluate it on a csv test file
+	 * @param algoType "IG", "GI" or "GR"
+	 * @param options forest options, e.g. {numTrees: 200, featureSubset: 4, parallelism: 8, seed: 1}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train and evaluate a random forest from csv files")
+	public String createForestCsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name("Algorithm Type") String algoType, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		if(trainPath == null || testPath == null)
+		{
+			return null;
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateForest mine = new EvaluateForest(trainPath, testPath, targetAttribute, algoType, isPruned, maxDepth);
+		mine.setOptions(ForestOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		return "Create the Random Forest successful, " + confusionMatrix;
+	}
+
+	/**
+	 * User defined function to train gradient boosted trees (softmax loss, histogram splits) on the queried
+	 * train data and evaluate them on the test data
+	 * @param target attribute
+	 * @param max_depth depth of the boosted trees
+	 * @param options boosting options, e.g. {numRounds: 300, learningRate: 0.05, subsample: 0.8, parallelism: 8}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train and evaluate gradient boosted trees")
+	public String createBoostedTrees(@Name("target") String target, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		boolean isTrainListEmpty = trainDataList.isEmpty();
+		boolean isTestListEmpty = testDataList.isEmpty();
+		if(isTrainListEmpty && isTestListEmpty) {
+			return target + "False";
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateBoosting mine = new EvaluateBoosting(trainDataList, testDataList, target, maxDepth);
+		mine.setOptions(BoostingOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		return "Create the Gradient Boosted Trees successful, " + confusionMatrix;
+	}
+
+	/**
+	 * User defined function to train gradient boosted trees on a csv train file and evaluate them on a csv test file
+	 * @param max_depth depth of the boosted trees
+	 * @param options boosting options, e.g. {numRounds: 300, learningRate: 0.05, subsample: 0.8, parallelism: 8}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train and evaluate gradient boosted trees from csv files")
+	public String createBoostedTreesCsv(@Name("trainPath") String trainPath,@Name("testPath") String testPath, @Name("targetAttribute") String targetAttribute, @Name("maxDepth") String max_depth, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		if(trainPath == null || testPath == null)
+		{
+			return null;
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateBoosting mine = new EvaluateBoosting(trainPath, testPath, targetAttribute, maxDepth);
+		mine.setOptions(BoostingOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		return "Create the Gradient Boosted Trees successful, " + confusionMatrix;
+	}
+
+	private String createForest(String target, String isPruned, String max_depth, String algoType,
+			Map<String, Object> options, String criterionName) throws Exception
+	{
+		boolean isTrainListEmpty = trainDataList.isEmpty();
+		boolean isTestListEmpty = testDataList.isEmpty();
+		if(isTrainListEmpty && isTestListEmpty) {
+			return target + "False";
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateForest mine = new EvaluateForest(trainDataList, testDataList, target, algoType, isPruned, maxDepth);
+		mine.setOptions(ForestOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		return "Create the " + criterionName + " Random Forest successful, " + confusionMatrix;
+	}
+
 	/**
 	 * This function retrieves the confusion matrix of decision tree based on information gain
 	 * @param path
@@ -1303,12 +1464,9 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 		}
 		else
 		{
-			String confusionMatrix = "";
 			int maxDepth = Integer.parseInt(max_depth);
-			EvaluateTree mine = new EvaluateTree(trainDataList, testDataList, target, isPruned, maxDepth);
-
-			confusionMatrix = mine.calculateAccuracy();
-			return "The confusion Matrix for Information Gain DT : " + confusionMatrix;
+			TrainedModel model = cachedModel("IG", target, isPruned, maxDepth);
+			return "The confusion Matrix for Information Gain DT : " + model.getConfusionMatrix();
 		}
 	}
 
@@ -1323,12 +1481,9 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 		}
 		else
 		{
-			String confusionMatrix = "";
 			int maxDepth = Integer.parseInt(max_depth);
-			EvaluateTreeGR mine = new EvaluateTreeGR(trainDataList, testDataList, target, isPruned, maxDepth);
-
-			confusionMatrix = mine.calculateAccuracy();
-			return "The confusion Matrix for Gain Ratio DT: " + confusionMatrix;
+			TrainedModel model = cachedModel("GR", target, isPruned, maxDepth);
+			return "The confusion Matrix for Gain Ratio DT: " + model.getConfusionMatrix();
 		}
 	}
 
@@ -1351,13 +1506,9 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 		}
 		else
 		{
-			String confusionMatrix = "";
 			int maxDepth = Integer.parseInt(max_depth);
-			EvaluateTreeGI mine = new EvaluateTreeGI(trainDataList, testDataList, target, isPruned, maxDepth);
-
-
-			confusionMatrix = mine.calculateAccuracy();
-			return "The confusion Matrix for Gini Index DT: " + confusionMatrix;
+			TrainedModel model = cachedModel("GI", target, isPruned, maxDepth);
+			return "The confusion Matrix for Gini Index DT: " + model.getConfusionMatrix();
 		}
 	}
 
@@ -1469,6 +1620,47 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 
 
 
+	@UserFunction
+	@Description("repeated cross validation with confidence intervals for data from graph database")
+	public String cvRepeated(@Name("target") String target, @Name("numberOfFold") String numberOfFold, @Name("repeats") String repeats, @Name(value = "algorithmType", defaultValue = "InfoGain") String algorithmType) throws Exception
+	{
+		if(target == null)
+		{
+			return null;
+		}
+		RepeatedCrossValidation cv = new RepeatedCrossValidation(autoSplitDataList, target);
+		return repeatCv(cv, numberOfFold, repeats, algorithmType);
+	}
+
+	@UserFunction
+	@Description("repeated cross validation with confidence intervals for data from csv")
+	public String cvRepeatedCsv(@Name("path") String path, @Name("target") String target, @Name("numberOfFold") String numberOfFold, @Name("repeats") String repeats, @Name(value = "algorithmType", defaultValue = "InfoGain") String algorithmType) throws Exception
+	{
+		if(path == null)
+		{
+			return null;
+		}
+		ArrayList<String> customList = ProcessInputData.CustomListFromCSV(path);
+		RepeatedCrossValidation cv = new RepeatedCrossValidation(customList, target);
+		return repeatCv(cv, numberOfFold, repeats, algorithmType);
+	}
+
+	/**
+	 * Run a repeated cross validation
+	 * @param cv
+	 * @param numberOfFold
+	 * @param repeats
+	 * @param algorithmType "InfoGain", "GainRatio" or "GiniIndex"
+	 * @return the statistics of the accuracy and the generation time of the repeats
+	 * @throws IOException
+	 */
+	private static String repeatCv(RepeatedCrossValidation cv, String numberOfFold, String repeats, String algorithmType) throws IOException
+	{
+		cv.setRepeats(Integer.parseInt(repeats));
+		cv.validate(Integer.parseInt(numberOfFold), algorithmType);
+		return "accuracy: " + cv.getScoreStatistics() + "\n" + "generateTime: " + cv.getGenerationTimeStatistics();
+	}
+
 	/**
 	 * To calculate the average of a list
 	 * @param final_score
@@ -1538,6 +1730,434 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 		}
 	}
 
+	/**
+	 * User defined function to train a decision tree on the queried train data and save it as a binary model file,
+	 * which loadTreeModel reads back without the training data
+	 * @param path model file to write
+	 * @param algoType "IG", "GI" or "GR"
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train a decision tree and save it as a binary model file")
+	public String saveTreeModel(@Name("path") String path, @Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name("Algorithm Type") String algoType, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		boolean isTrainListEmpty = trainDataList.isEmpty();
+		boolean isTestListEmpty = testDataList.isEmpty();
+		if(isTrainListEmpty && isTestListEmpty) {
+			return "Need to query to data";
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateTree mine = createEvaluator(algoType, target, isPruned, maxDepth);
+		mine.setOptions(TreeOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		ModelFile.save(mine.getCompiledTree(), Paths.get(path));
+		return "Saved the decision tree model to " + path + ", " + confusionMatrix;
+	}
+
+	/**
+	 * User defined function to load a binary model file written by saveTreeModel
+	 * @param path model file to read
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("load a decision tree from a binary model file")
+	public String loadTreeModel(@Name("path") String path, @Name(value = "modelName", defaultValue = "") String modelName) throws Exception
+	{
+		long startTime = System.nanoTime();
+		CompiledTree tree = ModelFile.load(Paths.get(path));
+		double loadTime = (System.nanoTime() - startTime) / 1e6;
+		if (!modelName.isEmpty())
+		{
+			models.put(new TrainedModel(modelName, "file", tree, null, null, null, false));
+		}
+		return "Loaded the decision tree model from " + path + ": " + tree.getNodeCount() + " nodes, target "
+				+ tree.getTargetName() + ", in " + loadTime + " ms";
+	}
+
+	/**
+	 * User defined function to train a decision tree on the queried data and register it under a name.
+	 * The model functions then use it without training again.
+	 * @param modelName
+	 * @param algoType "IG", "GI" or "GR"
+	 * @param options training options, e.g. {maxBins: 64, parallelism: 8}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train a decision tree and register it under a name")
+	public String trainModel(@Name("modelName") String modelName, @Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name("Algorithm Type") String algoType, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		boolean isTrainListEmpty = trainDataList.isEmpty();
+		boolean isTestListEmpty = testDataList.isEmpty();
+		if(isTrainListEmpty && isTestListEmpty) {
+			return "Need to query to data";
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateTree mine = createEvaluator(algoType, target, isPruned, maxDepth);
+		mine.setOptions(TreeOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		TrainedModel model = TrainedModel.of(modelName, algorithmOf(algoType), mine, confusionMatrix, false);
+		models.put(model);
+		return "Registered the model " + model + ", " + confusionMatrix;
+	}
+
+	@UserFunction
+	@Description("retrieve the confusion matrix of a registered model")
+	public String confmModel(@Name("modelName") String modelName) throws Exception
+	{
+		TrainedModel model = models.get(modelName);
+		if (model == null || model.getConfusionMatrix() == null) {
+			return "No evaluated model named " + modelName;
+		}
+		return "The confusion Matrix for " + modelName + ": " + model.getConfusionMatrix();
+	}
+
+	@UserFunction
+	@Description("retrieve the feature table of a registered model")
+	public String featureTableModel(@Name("modelName") String modelName) throws Exception
+	{
+		TrainedModel model = models.get(modelName);
+		if (model == null || model.getFeatureTable() == null) {
+			return "No evaluated model named " + modelName;
+		}
+		return "The feature table: " + model.getFeatureTable();
+	}
+
+	@UserFunction
+	@Description("remove a registered model")
+	public String dropModel(@Name("modelName") String modelName) throws Exception
+	{
+		boolean incremental;
+		synchronized (hoeffdingTrees) {
+			incremental = hoeffdingTrees.remove(modelName) != null;
+		}
+		if (models.drop(modelName) || incremental) {
+			return "Dropped the model " + modelName;
+		}
+		return "No model named " + modelName;
+	}
+
+	/**
+	 * User defined function to list the registered models, least recently used first, with their estimated memory
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("list the registered models")
+	public String listModels() throws Exception
+	{
+		StringBuilder output = new StringBuilder();
+		output.append("Models: ").append(models.size()).append(", bytes: ").append(models.getUsedBytes())
+				.append(" of ").append(models.getMaxBytes());
+		for (TrainedModel model : models.list()) {
+			output.append("\n").append(model);
+		}
+		return output.toString();
+	}
+
+	/**
+	 * User defined function to set the memory budget of the registered models. The least recently used models
+	 * which no longer fit are evicted.
+	 * @param megabytes
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("set the memory budget of the registered models")
+	public String setModelCacheSize(@Name("megabytes") Long megabytes) throws Exception
+	{
+		models.setMaxBytes(megabytes * 1024 * 1024);
+		return "Model memory budget: " + models.getMaxBytes() + " bytes, models: " + models.size();
+	}
+
+	/**
+	 * User defined function to predict the class of a node, or of a map of property name to value, with a
+	 * registered model, e.g. MATCH (n:Patient) RETURN predict('m1', n). The properties the tree splits on
+	 * are read directly and encoded with the dictionaries of the model.
+	 * @param modelName
+	 * @param node a node or a map
+	 * @return the predicted class label, null if the tree has no prediction for the node
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("predict the class of a node or map with a registered model")
+	public String predict(@Name("modelName") String modelName, @Name("node") Object node) throws Exception
+	{
+		TrainedModel model = models.get(modelName);
+		if (model == null) {
+			throw new IllegalArgumentException("No model named " + modelName);
+		}
+		RowEncoder encoder = model.getEncoder();
+		double[] row = encoder.newRow();
+		if (node instanceof Entity)
+		{
+			Entity entity = (Entity) node;
+			int[] attributes = encoder.getUsedAttributes();
+			String[] names = encoder.getUsedNames();
+			for (int u = 0; u < attributes.length; u++) {
+				row[attributes[u]] = encoder.encode(attributes[u], entity.getProperty(names[u], null));
+			}
+		}
+		else if (node instanceof Map)
+		{
+			@SuppressWarnings("unchecked")
+			Map<String, Object> properties = (Map<String, Object>) node;
+			encoder.encode(properties, row);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Expected a node or a map: " + node);
+		}
+		CompiledTree tree = model.getTree();
+		return tree.getClassLabel(tree.predict(row));
+	}
+
+	/**
+	 * User defined function to score all nodes of a label with a registered model and write the predicted labels
+	 * back in batches, e.g. scoreNodes('Patient', 'm1', {batchSize: 20000, writeProperty: 'diagnosis'}), or
+	 * {relationshipType: 'link'} to link every node to its class node as classifyOfNodes does. The nodes are
+	 * streamed, so the memory used is bounded by the batch size.
+	 * @param nodeType label of the nodes to score
+	 * @param modelName
+	 * @param options batchSize (10000), writeProperty ("predictedLabel"), relationshipType
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("score the nodes of a label with a registered model and write the predictions in batches")
+	public String scoreNodes(@Name("nodeType") String nodeType, @Name("modelName") String modelName, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		TrainedModel model = models.get(modelName);
+		if (model == null) {
+			throw new IllegalArgumentException("No model named " + modelName);
+		}
+		try ( OutputDecisionTreeNeo4j connector = new OutputDecisionTreeNeo4j( "bolt://localhost:7687", "neo4j", "123412345" ) )
+		{
+			BatchScorer scorer = new BatchScorer(connector.getDriver(), model.getEncoder(), nodeType);
+			scorer.setOptions(options);
+			long startTime = System.currentTimeMillis();
+			scorer.run();
+			double scoreTime = (System.currentTimeMillis() - startTime) / 1000f;
+			return "Scored " + scorer.getScored() + " nodes in " + scorer.getBatches() + " batches, "
+					+ scorer.getUnpredicted() + " without prediction, in " + scoreTime + " s";
+		}
+	}
+
+	/**
+	 * User defined function to train an incremental (Hoeffding) decision tree on the queried train data and
+	 * register it under a name. updateHoeffdingTree then learns newly queried train data without training again.
+	 * @param modelName
+	 * @param target
+	 * @param max_depth largest depth of a leaf, 0 for no limit
+	 * @param algoType "IG" or "GI"
+	 * @param options e.g. {gracePeriod: 200, splitConfidence: 1e-7, tieThreshold: 0.05, numCuts: 10}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train an incremental Hoeffding tree and register it under a name")
+	public String createHoeffdingTree(@Name("modelName") String modelName, @Name("target") String target, @Name("maxDepth") String max_depth, @Name("Algorithm Type") String algoType, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		boolean isTrainListEmpty = trainDataList.isEmpty();
+		boolean isTestListEmpty = testDataList.isEmpty();
+		if(isTrainListEmpty && isTestListEmpty) {
+			return "Need to query to data";
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		EvaluateHoeffding mine = new EvaluateHoeffding(trainDataList, testDataList, target, algoType, maxDepth);
+		mine.setOptions(HoeffdingOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy();
+		synchronized (hoeffdingTrees) {
+			hoeffdingTrees.put(modelName, mine.getTree());
+		}
+		models.put(hoeffdingModel(modelName, mine, confusionMatrix));
+		return "Created the Hoeffding tree " + modelName + ", " + confusionMatrix;
+	}
+
+	/**
+	 * The registered snapshot of a Hoeffding tree. It is compiled with the dictionaries of the tree, not with
+	 * those of the last batch the evaluator compiled it with for the confusion matrix, so the values and
+	 * classes the batch lacks are kept.
+	 * @param modelName
+	 * @param mine evaluator which learnt the last batch
+	 * @param confusionMatrix
+	 * @return TrainedModel
+	 */
+	private static TrainedModel hoeffdingModel(String modelName, EvaluateHoeffding mine, String confusionMatrix)
+	{
+		HoeffdingTree tree = mine.getTree();
+		return new TrainedModel(modelName, tree.getCriterionName(), tree.compile(), confusionMatrix,
+				mine.getFeatureTable(), mine.predictedResults, false);
+	}
+
+	/**
+	 * User defined function to learn the queried train data with a Hoeffding tree created by createHoeffdingTree,
+	 * evaluate it on the queried test data and register the updated tree. Discrete values which were not in the
+	 * first train data are ignored.
+	 * @param modelName
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("learn the queried train data with a Hoeffding tree")
+	public String updateHoeffdingTree(@Name("modelName") String modelName) throws Exception
+	{
+		HoeffdingTree tree;
+		synchronized (hoeffdingTrees) {
+			tree = hoeffdingTrees.get(modelName);
+		}
+		if (tree == null) {
+			throw new IllegalArgumentException("No Hoeffding tree named " + modelName);
+		}
+		if (trainDataList.isEmpty()) {
+			return "Need to query to data";
+		}
+		synchronized (tree) {
+			EvaluateHoeffding mine = new EvaluateHoeffding(trainDataList, testDataList, tree.getTarget().getName(),
+					tree.getCriterionName(), 0);
+			mine.setTree(tree);
+			String confusionMatrix = mine.calculateAccuracy();
+			models.put(hoeffdingModel(modelName, mine, confusionMatrix));
+			return "Updated the Hoeffding tree " + modelName + ", " + confusionMatrix;
+		}
+	}
+
+	/**
+	 * User defined function to train a decision tree on a csv file larger than the heap and register it under
+	 * a name. The train file is read twice and kept in temporary column files while the tree is built one depth
+	 * at a time with histogram cuts; the test file is streamed to compute the confusion matrix.
+	 * @param modelName
+	 * @param trainPath
+	 * @param testPath
+	 * @param algoType "IG", "GI" or "GR"
+	 * @param options e.g. {maxBins: 128, sampleSize: 200000, tempDirectory: "/data/tmp"}
+	 * @return
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("train a decision tree on a csv file larger than the heap and register it under a name")
+	public String createTreeOutOfCore(@Name("modelName") String modelName, @Name("trainPath") String trainPath, @Name("testPath") String testPath, @Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name("Algorithm Type") String algoType, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		if(trainPath == null || testPath == null)
+		{
+			return null;
+		}
+		int maxDepth = Integer.parseInt(max_depth);
+		String algorithm = algorithmOf(algoType);
+		OutOfCoreTree mine = new OutOfCoreTree(trainPath, target, algorithm, isPruned, maxDepth, OutOfCoreOptions.fromMap(options));
+		String confusionMatrix = mine.calculateAccuracy(testPath);
+		models.put(new TrainedModel(modelName, algorithm, mine.getCompiledTree(), confusionMatrix, mine.getFeatureTable(), null, false));
+		return "Created the decision tree " + modelName + " from " + mine.getTrainSize() + " rows, " + confusionMatrix;
+	}
+
+	/**
+	 * User defined function to search the tree settings with the best cross validation accuracy on the queried
+	 * data. Every configuration of the search space is cross validated on the same folds, in parallel, over one
+	 * encoded copy of the data. With search "halving", the configurations are evaluated on growing samples of
+	 * the rows and the worse ones are dropped after every sample.
+	 * @param target
+	 * @param modelName name to register the best tree under, trained on all rows, or "" not to register it
+	 * @param options e.g. {algorithms: ["IG", "GI"], maxDepth: [0, 4, 8], pruning: [false, true],
+	 * minLeafSize: [1, 5], folds: 5, search: "random", trials: 10, parallelism: 8}, or {search: "halving", eta: 3}
+	 * @return the configurations ranked by average accuracy
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("search the decision tree settings with the best cross validation accuracy for data from graph database")
+	public String tuneTree(@Name("target") String target, @Name(value = "modelName", defaultValue = "") String modelName, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		if(target == null)
+		{
+			return null;
+		}
+		if(autoSplitDataList.isEmpty())
+		{
+			return "Need to query to data";
+		}
+		return tune(autoSplitDataList, target, modelName, options);
+	}
+
+	/**
+	 * User defined function to search the tree settings with the best cross validation accuracy on a csv file
+	 * @param path
+	 * @param target
+	 * @param modelName name to register the best tree under, trained on all rows, or "" not to register it
+	 * @param options see tuneTree
+	 * @return the configurations ranked by average accuracy
+	 * @throws Exception
+	 */
+	@UserFunction
+	@Description("search the decision tree settings with the best cross validation accuracy for data from csv")
+	public String tuneTreeCsv(@Name("path") String path, @Name("target") String target, @Name(value = "modelName", defaultValue = "") String modelName, @Name(value = "options", defaultValue = "{}") Map<String, Object> options) throws Exception
+	{
+		if(path == null)
+		{
+			return null;
+		}
+		ArrayList<String> customList = ProcessInputData.CustomListFromCSV(path);
+		return tune(customList, target, modelName, options);
+	}
+
+	private static String tune(ArrayList<String> dataList, String target, String modelName, Map<String, Object> options) throws IOException
+	{
+		TuningOptions tuningOptions = TuningOptions.fromMap(options);
+		ProcessInputData input = new ProcessInputData(dataList, target);
+		ArrayList<Attribute> attributes = input.getAttributeSet();
+		ColumnarDataSet data = new ColumnarDataSet(input.getInstanceSet(), attributes, input.getTargetAttribute());
+		HyperparameterSearch search = new HyperparameterSearch(data, attributes, tuningOptions);
+		List<TrialResult> ranked = search.search();
+		String table = HyperparameterSearch.formatTable(ranked);
+		if(modelName != null && !modelName.isEmpty())
+		{
+			TrialResult best = ranked.get(0);
+			CompiledTree tree = search.train(best.getConfiguration());
+			models.put(new TrainedModel(modelName, best.getConfiguration().getAlgorithm(), tree, best.toString(), search.getFeatureTable(), null, false));
+			table = table + "Registered the best decision tree as " + modelName;
+		}
+		return table;
+	}
+
+	/**
+	 * The model trained on the queried data with default options by the functions which train on demand
+	 * (confusion matrix, feature table, classification of nodes). It is registered on first use and dropped
+	 * when the data is queried again.
+	 */
+	private static TrainedModel cachedModel(String algoType, String target, String isPruned, int maxDepth) throws IOException
+	{
+		String algorithm = algorithmOf(algoType);
+		String name = algorithm + ":" + target + ":" + isPruned + ":" + maxDepth;
+		TrainedModel model = models.get(name);
+		if (model == null)
+		{
+			EvaluateTree mine = createEvaluator(algorithm, target, isPruned, maxDepth);
+			String confusionMatrix = mine.calculateAccuracy();
+			model = TrainedModel.of(name, algorithm, mine, confusionMatrix, true);
+			models.put(model);
+		}
+		return model;
+	}
+
+	private static EvaluateTree createEvaluator(String algoType, String target, String isPruned, int maxDepth) throws IOException
+	{
+		if (algoType.equals("GR"))
+		{
+			return new EvaluateTreeGR(trainDataList, testDataList, target, isPruned, maxDepth);
+		}
+		else if (algoType.equals("GI"))
+		{
+			return new EvaluateTreeGI(trainDataList, testDataList, target, isPruned, maxDepth);
+		}
+		return new EvaluateTree(trainDataList, testDataList, target, isPruned, maxDepth);
+	}
+
+	private static String algorithmOf(String algoType)
+	{
+		return algoType.equals("GR") || algoType.equals("GI") ? algoType : "IG";
+	}
+
 	@UserFunction
 	@Description("generate the feature table from neo4j dataset")
 	public String featureTable(@Name("target") String target, @Name("isPruned") String isPruned, @Name("maxDepth") String max_depth, @Name("Algorithm Type") String algoType) throws Exception
@@ -1549,28 +2169,9 @@ public class OutputDecisionTreeNeo4j implements AutoCloseable{
 		}
 		else
 		{
-			String featureTable = "";
 			int maxDepth = Integer.parseInt(max_depth);
-			if (algoType.equals("GR"))
-			{
-				EvaluateTreeGR mine = new EvaluateTreeGR(trainDataList, testDataList, target, isPruned, maxDepth);
-				mine.calculateAccuracy();
-				featureTable = mine.getFeatureTable();
-			}
-			else if (algoType.equals("GI"))
-			{
-				EvaluateTreeGI mine = new EvaluateTreeGI(trainDataList, testDataList, target, isPruned, maxDepth);
-				mine.calculateAccuracy();
-				featureTable = mine.getFeatureTable();
-			}
-			else
-			{
-				EvaluateTree mine = new EvaluateTree(trainDataList, testDataList, target, isPruned, maxDepth);
-				mine.calculateAccuracy();
-				featureTable = mine.getFeatureTable();
-			}
-
-			return "The feature table: " + featureTable;
+			TrainedModel model = cachedModel(algoType, target, isPruned, maxDepth);
+			return "The feature table: " + model.getFeatureTable();
 		}
 	}
 
@@ -0,0 +1,146 @@
+package main;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import definition.ColumnarDataSet;
+import evaluate.EvaluateTree;
+import node.CompiledTree;
+import node.TreeClassGenerator;
+import node.TreeNode;
+import node.TreePredictor;
+
+/**
+ *
+ * This main class measures the prediction throughput of a trained tree: the interpreted
+ * walk over TreeNode objects which EvaluateTree.traverseTree used to do, the compiled
+ * arrays of CompiledTree, and the class generated by TreeClassGenerator. The compiled tree
+ * is timed on the columns of the test set and, like the generated class, on rows read
+ * into double arrays beforehand. Every path predicts all test rows for a number of
+ * rounds, after the same number of warm-up rounds, and the predictions of all paths are
+ * checked to be equal.
+ * Arguments (all optional): training file, test file, target attribute, isPruned,
+ * max depth, rounds
+ *
+ * @author nasim
+ *
+ */
+
+public class PredictionBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		String trainFile = args.length > 0 ? args[0] : "data/heart_train.csv";
+		String testFile = args.length > 1 ? args[1] : "data/heart_test.csv";
+		String targetAttribute = args.length > 2 ? args[2] : "DEATH_EVENT";
+		String isPruned = args.length > 3 ? args[3] : "False";
+		int maxDepth = args.length > 4 ? Integer.parseInt(args[4]) : Constants.MAX_DEPTH;
+		int rounds = args.length > 5 ? Integer.parseInt(args[5]) : 20000;
+
+		EvaluateTree mine = new EvaluateTree(trainFile, testFile, targetAttribute, isPruned, maxDepth);
+		mine.calculateAccuracy();
+		TreeNode root = mine.getRoot();
+		ColumnarDataSet testData = mine.getTestData();
+		int rows = testData.size();
+
+		CompiledTree compiled = CompiledTree.compile(root, testData.getAttributes(), testData.getTarget().getValues());
+		long start = System.nanoTime();
+		TreePredictor generated = TreeClassGenerator.generate(compiled);
+		long generateTime = System.nanoTime() - start;
+		System.out.println("Nodes: " + compiled.getNodeCount() + ", test rows: " + rows + ", rounds: " + rounds
+				+ ", class generated in " + generateTime / 1000 + " us"
+				+ (generated == compiled ? " (too large, compiled tree used)" : ""));
+
+		String[] interpreted = new String[rows];
+		String[] fromCompiled = new String[rows];
+		String[] fromArrays = new String[rows];
+		String[] fromGenerated = new String[rows];
+		double[][] values = new double[rows][testData.getAttributes().size()];
+		for (int i = 0; i < rows; i++) {
+			testData.readRow(i, values[i]);
+		}
+
+		for (int pass = 0; pass < 2; pass++) {
+			boolean measure = pass == 1;
+
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				for (int i = 0; i < rows; i++) {
+					interpreted[i] = interpret(root, testData, i);
+				}
+			}
+			report(measure, "Interpreted TreeNode walk", System.nanoTime() - start, rounds * (long) rows);
+
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				for (int i = 0; i < rows; i++) {
+					fromCompiled[i] = compiled.getClassLabel(compiled.predict(testData, i));
+				}
+			}
+			report(measure, "CompiledTree (columns)", System.nanoTime() - start, rounds * (long) rows);
+
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				for (int i = 0; i < rows; i++) {
+					fromArrays[i] = compiled.getClassLabel(compiled.predict(values[i]));
+				}
+			}
+			report(measure, "CompiledTree (rows)", System.nanoTime() - start, rounds * (long) rows);
+
+			start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				for (int i = 0; i < rows; i++) {
+					fromGenerated[i] = compiled.getClassLabel(generated.predict(values[i]));
+				}
+			}
+			report(measure, "Generated class (rows)", System.nanoTime() - start, rounds * (long) rows);
+		}
+
+		int differences = 0;
+		for (int i = 0; i < rows; i++) {
+			if (!same(interpreted[i], fromCompiled[i]) || !same(interpreted[i], fromArrays[i])
+					|| !same(interpreted[i], fromGenerated[i])) {
+				differences++;
+			}
+		}
+		System.out.println("Rows with different predictions: " + differences);
+	}
+
+	/**
+	 * Predict one row by walking the TreeNode objects and matching branch names
+	 */
+	private static String interpret(TreeNode root, ColumnarDataSet testData, int i) {
+		TreeNode node = root;
+		while (node != null && !node.getType().equals("leaf")) {
+			int attributeIndex = testData.indexOf(node.getAttribute());
+			HashMap<String, TreeNode> children = node.getChildren();
+			if (attributeIndex < 0) {
+				node = null;
+			} else if (testData.isContinuous(attributeIndex)) {
+				double value = testData.getContinuousColumn(attributeIndex)[i];
+				TreeNode next = null;
+				for (String s : children.keySet()) {
+					double threshold = Double.parseDouble(s.substring(4));
+					String tmp = value < threshold ? "less" : "more";
+					if (tmp.equals(s.substring(0, 4)))
+						next = children.get(s);
+				}
+				node = next;
+			} else {
+				int code = testData.getDiscreteColumn(attributeIndex)[i];
+				String value = testData.getDiscreteValue(attributeIndex, code);
+				node = value == null ? null : children.get(value);
+			}
+		}
+		return node == null ? null : node.getTargetLabel();
+	}
+
+	private static void report(boolean measure, String name, long nanos, long predictions) {
+		if (!measure) return;
+		System.out.println(String.format("%-28s %10.1f ns/row %14.0f rows/s", name,
+				(double) nanos / predictions, predictions * 1e9 / nanos));
+	}
+
+	private static boolean same(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
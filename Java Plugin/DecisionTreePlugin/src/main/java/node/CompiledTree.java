@@ -0,0 +1,446 @@
+/**
+ * This class is a decision tree compiled from TreeNode objects into flat primitive arrays,
+ * one entry per node, for fast prediction. Branch names are resolved once: continuous
+ * nodes keep their threshold and the positions of their "less" and "more" children,
+ * discrete nodes a table of children by value code, and leaves the id of their class.
+ * Predicting a row is a loop over these arrays, without string handling or allocation.
+ * A row which reaches a missing branch (e.g. a value unseen in training) gets no
+ * prediction, as in EvaluateTree.
+ * The tree also keeps the names and value dictionaries of its attributes and the name of
+ * its target, so that it can be saved on its own (see ModelFile) and encode new rows.
+ */
+
+package node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import definition.Attribute;
+import definition.ColumnarDataSet;
+
+public class CompiledTree implements TreePredictor {
+
+	// Class id returned for rows without prediction
+	public static final int NO_PREDICTION = -1;
+
+	// Attribute index of every node, -1 for leaves
+	private int[] feature;
+	// Threshold of continuous nodes
+	private double[] threshold;
+	// Children of continuous nodes; for discrete nodes, the position of the children in
+	// branches and the number of values
+	private int[] left;
+	private int[] right;
+	// Class id of leaves
+	private int[] leafClass;
+	// Children of discrete nodes by value code
+	private int[] branches;
+
+	private boolean[] continuous;
+	private String[] classLabels;
+	private int nodeCount;
+
+	// Name of every attribute, values of discrete attributes (null for continuous ones)
+	private String[] attributeNames;
+	private String[][] attributeValues;
+	private String targetName;
+
+	// While compiling: receives the TreeNode of every node, or null
+	private List<TreeNode> sources;
+
+
+	private CompiledTree() {}
+
+	/**
+	 * Constructor: a tree read back from its arrays, e.g. by ModelFile
+	 */
+	CompiledTree(int[] feature, double[] threshold, int[] left, int[] right, int[] leafClass, int[] branches,
+			String[] attributeNames, String[][] attributeValues, String[] classLabels, String targetName) {
+		this.feature = feature;
+		this.threshold = threshold;
+		this.left = left;
+		this.right = right;
+		this.leafClass = leafClass;
+		this.branches = branches;
+		this.nodeCount = feature.length;
+		this.attributeNames = attributeNames;
+		this.attributeValues = attributeValues;
+		this.continuous = new boolean[attributeNames.length];
+		for (int a = 0; a < attributeNames.length; a++) {
+			continuous[a] = attributeValues[a] == null;
+		}
+		this.classLabels = classLabels;
+		this.targetName = targetName;
+	}
+
+	/**
+	 * Compile a tree, keeping the name of the target
+	 * @param root
+	 * @param attributes attributes in the order of the rows to predict
+	 * @param target
+	 * @return CompiledTree
+	 */
+	public static CompiledTree compile(TreeNode root, List<Attribute> attributes, Attribute target) {
+		CompiledTree tree = compile(root, attributes, target.getValues());
+		tree.targetName = target.getName();
+		return tree;
+	}
+
+	/**
+	 * Compile a tree. Attributes are matched by name, and class ids are positions in
+	 * classLabels (leaf labels which are not in the list are appended).
+	 * @param root
+	 * @param attributes attributes in the order of the rows to predict
+	 * @param classLabels class labels, usually target.getValues()
+	 * @return CompiledTree
+	 */
+	public static CompiledTree compile(TreeNode root, List<Attribute> attributes, List<String> classLabels) {
+		return compile(root, attributes, classLabels, null);
+	}
+
+	/**
+	 * Compile a tree, listing the TreeNode of every compiled node
+	 * @param root
+	 * @param attributes attributes in the order of the rows to predict
+	 * @param classLabels class labels, usually target.getValues()
+	 * @param nodes receives the TreeNode of node i at position i, may be null
+	 * @return CompiledTree
+	 */
+	public static CompiledTree compile(TreeNode root, List<Attribute> attributes, List<String> classLabels,
+			List<TreeNode> nodes) {
+		CompiledTree tree = new CompiledTree();
+		tree.sources = nodes;
+		HashMap<String, Integer> attributeIndex = new HashMap<String, Integer>();
+		tree.continuous = new boolean[attributes.size()];
+		tree.attributeNames = new String[attributes.size()];
+		tree.attributeValues = new String[attributes.size()][];
+		for (int a = 0; a < attributes.size(); a++) {
+			attributeIndex.put(attributes.get(a).getName(), a);
+			tree.continuous[a] = attributes.get(a).getType().equals("continuous");
+			tree.attributeNames[a] = attributes.get(a).getName();
+			if (!tree.continuous[a]) {
+				ArrayList<String> values = attributes.get(a).getValues();
+				tree.attributeValues[a] = values.toArray(new String[values.size()]);
+			}
+		}
+		ArrayList<String> labels = new ArrayList<String>(classLabels);
+
+		int capacity = Math.max(1, count(root));
+		tree.feature = new int[capacity];
+		tree.threshold = new double[capacity];
+		tree.left = new int[capacity];
+		tree.right = new int[capacity];
+		tree.leafClass = new int[capacity];
+		tree.branches = new int[branchCount(root, attributeIndex, attributes)];
+		int[] branchFill = new int[1];
+		tree.feature[0] = -1;
+		tree.leafClass[0] = NO_PREDICTION;
+		tree.add(root, attributeIndex, attributes, labels, branchFill);
+		tree.classLabels = labels.toArray(new String[labels.size()]);
+		tree.sources = null;
+		tree.trim();
+		return tree;
+	}
+
+	/**
+	 * Copy the tree with some nodes turned into leaves; their subtrees are dropped
+	 * @param collapsed true for the nodes to turn into leaves
+	 * @param collapsedClass class id of every collapsed node
+	 * @return CompiledTree
+	 */
+	public CompiledTree prune(boolean[] collapsed, int[] collapsedClass) {
+		CompiledTree tree = new CompiledTree();
+		tree.continuous = continuous;
+		tree.classLabels = classLabels;
+		tree.attributeNames = attributeNames;
+		tree.attributeValues = attributeValues;
+		tree.targetName = targetName;
+		tree.feature = new int[nodeCount];
+		tree.threshold = new double[nodeCount];
+		tree.left = new int[nodeCount];
+		tree.right = new int[nodeCount];
+		tree.leafClass = new int[nodeCount];
+		tree.branches = new int[branches.length];
+		int[] branchFill = new int[1];
+		tree.copy(this, 0, collapsed, collapsedClass, branchFill);
+		tree.branches = Arrays.copyOf(tree.branches, branchFill[0]);
+		tree.trim();
+		return tree;
+	}
+
+	/**
+	 * Copy a node of another tree and its subtree in depth first order
+	 * @return int position of the node, NO_PREDICTION for a missing node
+	 */
+	private int copy(CompiledTree source, int m, boolean[] collapsed, int[] collapsedClass, int[] branchFill) {
+		if (m < 0) return NO_PREDICTION;
+		int n = nodeCount++;
+		feature[n] = -1;
+		leafClass[n] = source.leafClass[m];
+		int f = source.feature[m];
+		if (collapsed[m]) {
+			leafClass[n] = collapsedClass[m];
+			return n;
+		}
+		if (f < 0) return n;
+		feature[n] = f;
+		threshold[n] = source.threshold[m];
+		if (continuous[f]) {
+			left[n] = copy(source, source.left[m], collapsed, collapsedClass, branchFill);
+			right[n] = copy(source, source.right[m], collapsed, collapsedClass, branchFill);
+		} else {
+			int offset = branchFill[0];
+			int count = source.right[m];
+			branchFill[0] += count;
+			left[n] = offset;
+			right[n] = count;
+			for (int v = 0; v < count; v++) {
+				branches[offset + v] = copy(source, source.branches[source.left[m] + v], collapsed, collapsedClass,
+						branchFill);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Shrink the node arrays to the number of nodes, which is smaller than the capacity
+	 * when a node has an attribute which is not in the list
+	 */
+	private void trim() {
+		if (nodeCount == feature.length) return;
+		int n = Math.max(1, nodeCount);
+		feature = Arrays.copyOf(feature, n);
+		threshold = Arrays.copyOf(threshold, n);
+		left = Arrays.copyOf(left, n);
+		right = Arrays.copyOf(right, n);
+		leafClass = Arrays.copyOf(leafClass, n);
+		nodeCount = n;
+	}
+
+	private static int count(TreeNode node) {
+		if (node == null) return 0;
+		int n = 1;
+		if (!node.getType().equals("leaf")) {
+			for (TreeNode child : node.getChildren().values()) {
+				n += count(child);
+			}
+		}
+		return n;
+	}
+
+	private static int branchCount(TreeNode node, HashMap<String, Integer> attributeIndex, List<Attribute> attributes) {
+		if (node == null || node.getType().equals("leaf")) return 0;
+		int n = 0;
+		Integer a = node.getAttribute() == null ? null : attributeIndex.get(node.getAttribute().getName());
+		if (a != null && !attributes.get(a).getType().equals("continuous")) {
+			n += attributes.get(a).getValues().size();
+		}
+		for (TreeNode child : node.getChildren().values()) {
+			n += branchCount(child, attributeIndex, attributes);
+		}
+		return n;
+	}
+
+	/**
+	 * Add a node and its subtree in depth first order
+	 * @return int position of the node, NO_PREDICTION for a missing node
+	 */
+	private int add(TreeNode node, HashMap<String, Integer> attributeIndex, List<Attribute> attributes,
+			ArrayList<String> labels, int[] branchFill) {
+		if (node == null) return NO_PREDICTION;
+		int n = nodeCount++;
+		if (sources != null) sources.add(node);
+		feature[n] = -1;
+		leafClass[n] = NO_PREDICTION;
+		if (node.getType().equals("leaf")) {
+			String label = node.getTargetLabel();
+			if (label != null) {
+				int classId = labels.indexOf(label);
+				if (classId < 0) {
+					classId = labels.size();
+					labels.add(label);
+				}
+				leafClass[n] = classId;
+			}
+			return n;
+		}
+
+		Integer a = node.getAttribute() == null ? null : attributeIndex.get(node.getAttribute().getName());
+		if (a == null) return n;
+		feature[n] = a;
+		HashMap<String, TreeNode> children = node.getChildren();
+		if (continuous[a]) {
+			left[n] = NO_PREDICTION;
+			right[n] = NO_PREDICTION;
+			for (String s : children.keySet()) {
+				threshold[n] = Double.parseDouble(s.substring(4));
+				int child = add(children.get(s), attributeIndex, attributes, labels, branchFill);
+				if (s.startsWith("less")) left[n] = child;
+				else right[n] = child;
+			}
+		} else {
+			ArrayList<String> values = attributes.get(a).getValues();
+			int offset = branchFill[0];
+			branchFill[0] += values.size();
+			left[n] = offset;
+			right[n] = values.size();
+			for (int v = 0; v < values.size(); v++) {
+				branches[offset + v] = add(children.get(values.get(v)), attributeIndex, attributes, labels, branchFill);
+			}
+		}
+		return n;
+	}
+
+
+	/**
+	 * Predict one row of a columnar data set encoded with the attributes of the tree
+	 * @param data
+	 * @param row
+	 * @return int class id, or NO_PREDICTION
+	 */
+	public int predict(ColumnarDataSet data, int row) {
+		int n = 0;
+		while (n >= 0) {
+			int f = feature[n];
+			if (f < 0) return leafClass[n];
+			if (continuous[f]) {
+				// Unparseable values are NaN and follow the "more" branch
+				n = data.getContinuousColumn(f)[row] < threshold[n] ? left[n] : right[n];
+			} else {
+				int code = data.getDiscreteColumn(f)[row];
+				if (code < 0 || code >= right[n]) return NO_PREDICTION;
+				n = branches[left[n] + code];
+			}
+		}
+		return NO_PREDICTION;
+	}
+
+	/**
+	 * Predict one row given as one value per attribute: the number for continuous
+	 * attributes, the value code (index in Attribute.getValues(), or -1) for discrete ones
+	 * @param row
+	 * @return int class id, or NO_PREDICTION
+	 */
+	public int predict(double[] row) {
+		int n = 0;
+		while (n >= 0) {
+			int f = feature[n];
+			if (f < 0) return leafClass[n];
+			if (continuous[f]) {
+				n = row[f] < threshold[n] ? left[n] : right[n];
+			} else {
+				int code = (int) row[f];
+				if (code < 0 || code >= right[n]) return NO_PREDICTION;
+				n = branches[left[n] + code];
+			}
+		}
+		return NO_PREDICTION;
+	}
+
+	/**
+	 * Predict every row of a columnar data set
+	 * @param data
+	 * @return int[] class id of every row, or NO_PREDICTION
+	 */
+	public int[] predictAll(ColumnarDataSet data) {
+		int[] predictions = new int[data.size()];
+		for (int row = 0; row < predictions.length; row++) {
+			predictions[row] = predict(data, row);
+		}
+		return predictions;
+	}
+
+	/**
+	 * @param classId
+	 * @return String the class label, null for NO_PREDICTION
+	 */
+	public String getClassLabel(int classId) {
+		return classId < 0 ? null : classLabels[classId];
+	}
+
+	public String[] getClassLabels() {
+		return classLabels;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int[] getFeature() {
+		return feature;
+	}
+
+	public double[] getThreshold() {
+		return threshold;
+	}
+
+	public int[] getLeft() {
+		return left;
+	}
+
+	public int[] getRight() {
+		return right;
+	}
+
+	public int[] getLeafClass() {
+		return leafClass;
+	}
+
+	public int[] getBranches() {
+		return branches;
+	}
+
+	public boolean[] getContinuous() {
+		return continuous;
+	}
+
+	public String[] getAttributeNames() {
+		return attributeNames;
+	}
+
+	/**
+	 * @return String[][] values of every discrete attribute in code order, null for
+	 * continuous attributes
+	 */
+	public String[][] getAttributeValues() {
+		return attributeValues;
+	}
+
+	/**
+	 * @return String name of the target, null if the tree was compiled from class labels only
+	 */
+	public String getTargetName() {
+		return targetName;
+	}
+
+	/**
+	 * Estimate the heap memory held by the tree: its arrays and dictionaries, counting
+	 * 16 bytes per array header and 40 bytes plus 2 per character per string
+	 * @return long estimated number of bytes
+	 */
+	public long estimateBytes() {
+		long bytes = 16L * 7 + (long) feature.length * (4 * 4 + 8) + (long) branches.length * 4 + continuous.length;
+		bytes += estimateBytes(classLabels) + estimateBytes(attributeNames) + estimateBytes(targetName);
+		if (attributeValues != null) {
+			for (String[] values : attributeValues) {
+				bytes += estimateBytes(values);
+			}
+		}
+		return bytes;
+	}
+
+	private static long estimateBytes(String[] strings) {
+		if (strings == null) return 0;
+		long bytes = 16 + 8L * strings.length;
+		for (String s : strings) {
+			bytes += estimateBytes(s);
+		}
+		return bytes;
+	}
+
+	private static long estimateBytes(String s) {
+		return s == null ? 0 : 40 + 2L * s.length();
+	}
+}
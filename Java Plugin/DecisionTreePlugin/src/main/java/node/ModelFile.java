@@ -0,0 +1,181 @@
+/**
+ * This class saves a compiled tree in a compact binary file and loads it back through a
+ * memory-mapped buffer. The file holds the flat arrays of the tree, the name and value
+ * dictionary of every attribute and the target name and class labels, so a model can be
+ * used for prediction after a restart without the training data. Loading copies the
+ * arrays out of the mapped file in bulk; no object graph is deserialized.
+ *
+ * Layout (big-endian), after the magic number and the format version:
+ *   attribute count, then per attribute: name, value count (-1 for continuous), values
+ *   target name, class label count, class labels
+ *   node count, branch count
+ *   feature[], left[], right[], leafClass[] (int per node), threshold[] (double per node)
+ *   branches[] (int per branch)
+ * Strings are an int byte length followed by UTF-8 bytes; a length of -1 is null.
+ */
+
+package node;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class ModelFile {
+
+	// "DTMF"
+	public static final int MAGIC = 0x44544D46;
+	public static final int VERSION = 1;
+
+
+	private ModelFile() {}
+
+	/**
+	 * Write a compiled tree to a file, replacing it if it exists
+	 * @param tree
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void save(CompiledTree tree, Path path) throws IOException {
+		String[] names = tree.getAttributeNames();
+		String[][] values = tree.getAttributeValues();
+		String[] classLabels = tree.getClassLabels();
+		int nodeCount = tree.getNodeCount();
+		int[] branches = tree.getBranches();
+
+		int size = 8 + 4;
+		for (int a = 0; a < names.length; a++) {
+			size += stringSize(names[a]) + 4;
+			if (values[a] != null) {
+				for (String value : values[a]) size += stringSize(value);
+			}
+		}
+		size += stringSize(tree.getTargetName()) + 4;
+		for (String label : classLabels) size += stringSize(label);
+		size += 8 + nodeCount * (4 * 4 + 8) + branches.length * 4;
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(names.length);
+		for (int a = 0; a < names.length; a++) {
+			putString(buffer, names[a]);
+			if (values[a] == null) {
+				buffer.putInt(-1);
+			} else {
+				buffer.putInt(values[a].length);
+				for (String value : values[a]) putString(buffer, value);
+			}
+		}
+		putString(buffer, tree.getTargetName());
+		buffer.putInt(classLabels.length);
+		for (String label : classLabels) putString(buffer, label);
+
+		buffer.putInt(nodeCount);
+		buffer.putInt(branches.length);
+		buffer.asIntBuffer().put(tree.getFeature(), 0, nodeCount);
+		buffer.position(buffer.position() + 4 * nodeCount);
+		buffer.asIntBuffer().put(tree.getLeft(), 0, nodeCount);
+		buffer.position(buffer.position() + 4 * nodeCount);
+		buffer.asIntBuffer().put(tree.getRight(), 0, nodeCount);
+		buffer.position(buffer.position() + 4 * nodeCount);
+		buffer.asIntBuffer().put(tree.getLeafClass(), 0, nodeCount);
+		buffer.position(buffer.position() + 4 * nodeCount);
+		buffer.asDoubleBuffer().put(tree.getThreshold(), 0, nodeCount);
+		buffer.position(buffer.position() + 8 * nodeCount);
+		buffer.asIntBuffer().put(branches);
+		buffer.position(buffer.position() + 4 * branches.length);
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Load a compiled tree from a file written by save
+	 * @param path
+	 * @return CompiledTree
+	 * @throws IOException if the file is not a model file of a known version
+	 */
+	public static CompiledTree load(Path path) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Invalid model file: " + path);
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported model file version " + version + ": " + path);
+
+			int attributeCount = buffer.getInt();
+			String[] names = new String[attributeCount];
+			String[][] values = new String[attributeCount][];
+			for (int a = 0; a < attributeCount; a++) {
+				names[a] = getString(buffer);
+				int valueCount = buffer.getInt();
+				if (valueCount >= 0) {
+					values[a] = new String[valueCount];
+					for (int v = 0; v < valueCount; v++) values[a][v] = getString(buffer);
+				}
+			}
+			String targetName = getString(buffer);
+			String[] classLabels = new String[buffer.getInt()];
+			for (int c = 0; c < classLabels.length; c++) classLabels[c] = getString(buffer);
+
+			int nodeCount = buffer.getInt();
+			int[] branches = new int[buffer.getInt()];
+			int[] feature = getInts(buffer, nodeCount);
+			int[] left = getInts(buffer, nodeCount);
+			int[] right = getInts(buffer, nodeCount);
+			int[] leafClass = getInts(buffer, nodeCount);
+			double[] threshold = new double[nodeCount];
+			buffer.asDoubleBuffer().get(threshold);
+			buffer.position(buffer.position() + 8 * nodeCount);
+			buffer.asIntBuffer().get(branches);
+
+			return new CompiledTree(feature, threshold, left, right, leafClass, branches, names, values,
+					classLabels, targetName);
+		} catch (RuntimeException e) {
+			// Truncated file or negative sizes
+			throw new IOException("Invalid model file: " + path, e);
+		}
+	}
+
+	private static int[] getInts(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * count);
+		return values;
+	}
+
+	private static int stringSize(String s) {
+		return 4 + (s == null ? 0 : s.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	private static void putString(ByteBuffer buffer, String s) {
+		if (s == null) {
+			buffer.putInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * This class encodes property values, e.g. of a Neo4j node or a map, into the rows
+ * CompiledTree.predict(double[]) takes, using the dictionaries saved in the tree: numbers
+ * for continuous attributes, value codes for discrete ones. Values are taken as they are,
+ * not through "key:value" strings; only the attributes the tree splits on are read.
+ * Values are matched as in ColumnarDataSet: continuous values which are not numbers are
+ * NaN, discrete values which are not in the dictionary are UNKNOWN. Discrete values are
+ * looked up as the graph ingest functions store them (see propertyString), then as plain
+ * text, so models trained on queried nodes and on csv files both match.
+ */
+
+package node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.ClientException;
+
+import definition.ColumnarDataSet;
+
+public class RowEncoder {
+
+	private CompiledTree tree;
+	// Attributes the tree splits on, in attribute order
+	private int[] usedAttributes;
+	private String[] usedNames;
+	// Value codes of discrete attributes, null for continuous ones
+	private HashMap<String, Integer>[] dictionaries;
+
+
+	/**
+	 * Constructor
+	 * @param tree
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public RowEncoder(CompiledTree tree) {
+		this.tree = tree;
+		String[] names = tree.getAttributeNames();
+		String[][] values = tree.getAttributeValues();
+		boolean[] used = new boolean[names.length];
+		int usedCount = 0;
+		for (int n = 0; n < tree.getNodeCount(); n++) {
+			int f = tree.getFeature()[n];
+			if (f >= 0 && !used[f]) {
+				used[f] = true;
+				usedCount++;
+			}
+		}
+		usedAttributes = new int[usedCount];
+		usedNames = new String[usedCount];
+		dictionaries = new HashMap[names.length];
+		int u = 0;
+		for (int a = 0; a < names.length; a++) {
+			if (!used[a]) continue;
+			usedAttributes[u] = a;
+			usedNames[u] = names[a];
+			u++;
+			if (values[a] != null) {
+				dictionaries[a] = new HashMap<String, Integer>();
+				for (int v = 0; v < values[a].length; v++) {
+					dictionaries[a].put(values[a][v], v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return double[] a row for the tree, to be filled by encode
+	 */
+	public double[] newRow() {
+		return new double[tree.getAttributeNames().length];
+	}
+
+	/**
+	 * Encode the attributes the tree splits on from a map of property name to value
+	 * @param properties
+	 * @param row
+	 */
+	public void encode(Map<String, Object> properties, double[] row) {
+		for (int u = 0; u < usedAttributes.length; u++) {
+			row[usedAttributes[u]] = encode(usedAttributes[u], properties.get(usedNames[u]));
+		}
+	}
+
+	/**
+	 * Encode one value
+	 * @param attribute attribute index
+	 * @param value property value or driver value, or null if it is missing
+	 * @return double the number, or the value code of a discrete attribute
+	 */
+	public double encode(int attribute, Object value) {
+		if (value instanceof Value) {
+			Value driverValue = (Value) value;
+			value = driverValue.isNull() ? null : driverValue.asObject();
+		}
+		HashMap<String, Integer> dictionary = dictionaries[attribute];
+		if (dictionary == null) {
+			if (value instanceof Number) {
+				return ((Number) value).doubleValue();
+			}
+			if (value == null) return Double.NaN;
+			try {
+				return Double.parseDouble(value.toString());
+			} catch (NumberFormatException e) {
+				// not a double
+				return Double.NaN;
+			}
+		}
+		if (value == null) return ColumnarDataSet.UNKNOWN;
+		Integer code = dictionary.get(propertyString(value));
+		if (code == null) {
+			code = dictionary.get(value.toString());
+		}
+		return code == null ? ColumnarDataSet.UNKNOWN : code;
+	}
+
+	/**
+	 * Text of a property value as the functions which query the training and test nodes
+	 * store it: the driver's text of the value, without the quotes of a string
+	 * @param value a driver value, or a property value of a node or map
+	 * @return String
+	 */
+	public static String propertyString(Object value) {
+		Value driverValue;
+		if (value instanceof Value) {
+			driverValue = (Value) value;
+		} else {
+			try {
+				driverValue = Values.value(value);
+			} catch (ClientException e) {
+				// not a property type of the driver
+				return String.valueOf(value);
+			}
+		}
+		return String.valueOf(driverValue).replaceAll("^\"|\"$", "");
+	}
+
+	/**
+	 * Predict the class label of a map of property name to value
+	 * @param properties
+	 * @return String the class label, null if the tree has no prediction
+	 */
+	public String predict(Map<String, Object> properties) {
+		double[] row = newRow();
+		encode(properties, row);
+		return tree.getClassLabel(tree.predict(row));
+	}
+
+	/**
+	 * Estimate the heap memory of the dictionaries (the strings belong to the tree)
+	 * @return long estimated number of bytes
+	 */
+	public long estimateBytes() {
+		long bytes = 64 + 16L * dictionaries.length + 12L * usedAttributes.length;
+		for (HashMap<String, Integer> dictionary : dictionaries) {
+			if (dictionary != null) {
+				bytes += 64 + 48L * dictionary.size();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return int[] indexes of the attributes the tree splits on
+	 */
+	public int[] getUsedAttributes() {
+		return usedAttributes;
+	}
+
+	/**
+	 * @return String[] names of the attributes the tree splits on
+	 */
+	public String[] getUsedNames() {
+		return usedNames;
+	}
+
+	public CompiledTree getTree() {
+		return tree;
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * This class turns a compiled decision tree into a class generated at runtime, whose
+ * predict method is the tree written out as nested branches: a continuous node compares
+ * the value of the row with a constant threshold, a discrete node is a tableswitch over
+ * the value code, and a leaf returns its class id as a constant. The JIT compiles such a
+ * method like hand-written code, without the loads of the node arrays of CompiledTree.
+ * Every class is defined by its own class loader, so it is unloaded with its predictor.
+ * The bytecode is written with ASM, which Neo4j provides.
+ */
+
+package node;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+public class TreeClassGenerator {
+
+	private static final String PREDICTOR = Type.getInternalName(TreePredictor.class);
+	private static final String CLASS_PREFIX = "node/generated/Tree";
+	private static final AtomicInteger classCount = new AtomicInteger();
+
+	private CompiledTree tree;
+	private MethodVisitor method;
+
+
+	private TreeClassGenerator(CompiledTree tree) {
+		this.tree = tree;
+	}
+
+	/**
+	 * Generate a predictor class for a compiled tree. A tree too large for one method
+	 * (64 KB of bytecode) is not generated; the compiled tree itself is returned instead.
+	 * @param tree
+	 * @return TreePredictor an instance of the generated class, or the compiled tree
+	 */
+	public static TreePredictor generate(CompiledTree tree) {
+		String name = CLASS_PREFIX + classCount.incrementAndGet();
+		byte[] bytes;
+		try {
+			bytes = new TreeClassGenerator(tree).write(name);
+		} catch (MethodTooLargeException e) {
+			return tree;
+		}
+		TreeClassLoader loader = new TreeClassLoader(TreePredictor.class.getClassLoader());
+		try {
+			Class<?> generated = loader.define(name.replace('/', '.'), bytes);
+			return (TreePredictor) generated.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot load generated tree " + name, e);
+		}
+	}
+
+	private byte[] write(String name) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, name, null,
+				"java/lang/Object", new String[] { PREDICTOR });
+
+		MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(Opcodes.ALOAD, 0);
+		constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		constructor.visitInsn(Opcodes.RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+
+		method = writer.visitMethod(Opcodes.ACC_PUBLIC, "predict", "([D)I", null, null);
+		method.visitCode();
+		writeNode(0);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Write the code of a node and its subtree; every path ends with a return
+	 * @param n position of the node, NO_PREDICTION for a missing node
+	 */
+	private void writeNode(int n) {
+		if (n < 0) {
+			returnClass(CompiledTree.NO_PREDICTION);
+			return;
+		}
+		int f = tree.getFeature()[n];
+		if (f < 0) {
+			returnClass(tree.getLeafClass()[n]);
+			return;
+		}
+
+		method.visitVarInsn(Opcodes.ALOAD, 1);
+		pushInt(f);
+		method.visitInsn(Opcodes.DALOAD);
+		if (tree.getContinuous()[f]) {
+			// row[f] < threshold, else (NaN included) the "more" branch
+			Label more = new Label();
+			method.visitLdcInsn(tree.getThreshold()[n]);
+			method.visitInsn(Opcodes.DCMPG);
+			method.visitJumpInsn(Opcodes.IFGE, more);
+			writeNode(tree.getLeft()[n]);
+			method.visitLabel(more);
+			writeNode(tree.getRight()[n]);
+		} else {
+			int offset = tree.getLeft()[n];
+			int valueCount = tree.getRight()[n];
+			method.visitInsn(Opcodes.D2I);
+			Label unknown = new Label();
+			if (valueCount == 0) {
+				method.visitInsn(Opcodes.POP);
+			} else {
+				Label[] cases = new Label[valueCount];
+				for (int v = 0; v < valueCount; v++) {
+					cases[v] = new Label();
+				}
+				method.visitTableSwitchInsn(0, valueCount - 1, unknown, cases);
+				for (int v = 0; v < valueCount; v++) {
+					method.visitLabel(cases[v]);
+					writeNode(tree.getBranches()[offset + v]);
+				}
+			}
+			method.visitLabel(unknown);
+			returnClass(CompiledTree.NO_PREDICTION);
+		}
+	}
+
+	private void returnClass(int classId) {
+		pushInt(classId);
+		method.visitInsn(Opcodes.IRETURN);
+	}
+
+	private void pushInt(int value) {
+		if (value >= -1 && value <= 5) {
+			method.visitInsn(Opcodes.ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			method.visitIntInsn(Opcodes.BIPUSH, value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			method.visitIntInsn(Opcodes.SIPUSH, value);
+		} else {
+			method.visitLdcInsn(value);
+		}
+	}
+
+
+	/**
+	 * Class loader of one generated class
+	 */
+	private static class TreeClassLoader extends ClassLoader {
+
+		TreeClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
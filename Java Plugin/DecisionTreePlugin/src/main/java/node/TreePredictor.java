@@ -0,0 +1,18 @@
+/**
+ * This interface is a trained decision tree reduced to prediction: a row given as one
+ * value per attribute goes in, the id of the predicted class comes out. It is implemented
+ * by CompiledTree and by the classes generated by TreeClassGenerator.
+ */
+
+package node;
+
+public interface TreePredictor {
+
+	/**
+	 * Predict one row given as one value per attribute: the number for continuous
+	 * attributes, the value code (index in Attribute.getValues(), or -1) for discrete ones
+	 * @param row
+	 * @return int class id, or CompiledTree.NO_PREDICTION
+	 */
+	int predict(double[] row);
+}
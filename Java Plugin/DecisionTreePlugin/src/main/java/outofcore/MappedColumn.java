@@ -0,0 +1,164 @@
+/**
+ * This class is a column of non-negative integer codes, one per row, kept in a temporary
+ * file and read through memory-mapped buffers instead of the heap. A code takes one byte
+ * (codes up to 255) or four. A column is either written once, sequentially, and then
+ * mapped read-only, or allocated with a size and mapped read-write to be updated in place.
+ * Files larger than one mapping are mapped in chunks of CHUNK_ROWS rows.
+ * The file is deleted when the column is closed.
+ */
+
+package outofcore;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedColumn implements Closeable {
+
+	// Rows per mapped buffer, so that a buffer of four byte codes stays below 2 GB
+	static final int CHUNK_SHIFT = 28;
+	static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+	private Path file;
+	private int width;
+	private int size;
+	private DataOutputStream output;
+	private MappedByteBuffer[] buffers;
+
+
+	/**
+	 * Constructor: an empty column in a new temporary file, to be written with append
+	 * @param directory directory of the temporary file, null for the default one
+	 * @param name part of the file name
+	 * @param width bytes per code, 1 or 4
+	 * @throws IOException
+	 */
+	public MappedColumn(Path directory, String name, int width) throws IOException {
+		if (width != 1 && width != 4)
+			throw new IllegalArgumentException("width must be 1 or 4: " + width);
+		this.width = width;
+		this.file = createFile(directory, name);
+		this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+	}
+
+	/**
+	 * Allocate a column of four byte codes, all 0, mapped read-write
+	 * @param directory directory of the temporary file, null for the default one
+	 * @param name part of the file name
+	 * @param size number of rows
+	 * @return MappedColumn
+	 * @throws IOException
+	 */
+	public static MappedColumn allocate(Path directory, String name, int size) throws IOException {
+		MappedColumn column = new MappedColumn();
+		column.width = 4;
+		column.size = size;
+		column.file = createFile(directory, name);
+		try (RandomAccessFile raf = new RandomAccessFile(column.file.toFile(), "rw")) {
+			raf.setLength(4L * size);
+			column.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE);
+		}
+		return column;
+	}
+
+	private MappedColumn() {}
+
+	private static Path createFile(Path directory, String name) throws IOException {
+		return directory == null ? Files.createTempFile("dt-" + name + "-", ".col")
+				: Files.createTempFile(directory, "dt-" + name + "-", ".col");
+	}
+
+	/**
+	 * Append the code of the next row
+	 * @param code
+	 * @throws IOException
+	 */
+	public void append(int code) throws IOException {
+		if (width == 1) {
+			output.writeByte(code);
+		} else {
+			output.writeInt(code);
+		}
+		size++;
+	}
+
+	/**
+	 * Close the file for writing and map it read-only
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		output.close();
+		output = null;
+		try (FileChannel channel = FileChannel.open(file)) {
+			map(channel, FileChannel.MapMode.READ_ONLY);
+		}
+	}
+
+	private void map(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+		int chunks = (int) (((long) size + CHUNK_ROWS - 1) >>> CHUNK_SHIFT);
+		buffers = new MappedByteBuffer[Math.max(chunks, 1)];
+		for (int c = 0; c < chunks; c++) {
+			long from = (long) c << CHUNK_SHIFT;
+			long rows = Math.min(CHUNK_ROWS, size - from);
+			buffers[c] = channel.map(mode, from * width, rows * width);
+		}
+	}
+
+	/**
+	 * @param row
+	 * @return int the code of the row
+	 */
+	public int get(int row) {
+		MappedByteBuffer buffer = buffers[row >>> CHUNK_SHIFT];
+		int index = row & CHUNK_MASK;
+		return width == 1 ? buffer.get(index) & 0xFF : buffer.getInt(index << 2);
+	}
+
+	/**
+	 * Update the code of a row of an allocated column
+	 * @param row
+	 * @param code
+	 */
+	public void set(int row, int code) {
+		buffers[row >>> CHUNK_SHIFT].putInt((row & CHUNK_MASK) << 2, code);
+	}
+
+	/**
+	 * Set every row of an allocated column to a code
+	 * @param code
+	 */
+	public void fill(int code) {
+		for (int row = 0; row < size; row++) {
+			set(row, code);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Release the mapping and delete the file
+	 */
+	@Override
+	public void close() throws IOException {
+		if (output != null) {
+			output.close();
+			output = null;
+		}
+		// The mapping goes away with the buffers; the file can be deleted while mapped
+		buffers = null;
+		Files.deleteIfExists(file);
+	}
+}
@@ -0,0 +1,418 @@
+/**
+ * This class builds a decision tree on a SpilledDataSet, one depth at a time, like the
+ * histogram mode of LevelWiseBuilder. For every attribute, one sequential pass over its
+ * column file and the labels gathers the class histograms of all open nodes; every node
+ * chooses its attribute, and one more pass writes the node of every row of the next depth
+ * in place, to a column file. The heap holds the nodes and their histograms, not the rows.
+ * With bins computed from all rows, the tree is the one LevelWiseBuilder builds with the
+ * same number of bins.
+ */
+
+package outofcore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import core.ConstructTree;
+import core.ParallelTasks;
+import core.Partition;
+import core.SplitCriterion;
+import definition.Attribute;
+import node.TreeNode;
+
+public class OutOfCoreBuilder {
+
+	private SpilledDataSet data;
+	private SplitCriterion criterion;
+	private String criterionName;
+	private boolean isPruned;
+	private int maxDepth;
+	private int parallelism;
+	private int numClasses;
+	private List<String> classLabels;
+	private MappedColumn labels;
+
+	// Values of every discrete attribute in the branch order of the depth first builder
+	private int[][] valueOrder;
+
+	// Position plus one of the open node of every row in the current depth, 0 if its node
+	// is done
+	private MappedColumn nodeOf;
+	private String featureTable = "";
+
+
+	/**
+	 * One node of the tree while it is built
+	 */
+	private static class Node {
+		List<Attribute> attributes;
+		boolean[] usable;
+		int depth;
+		int[] classCounts;
+		int size;
+		String emptyLabel;
+
+		TreeNode treeNode;
+		String feature;
+		String[] branchNames;
+		Node[] children;
+
+		// Chosen split: attribute index, and for continuous attributes the first bin of
+		// the right part
+		int attribute = -1;
+		int cut;
+		int lessChild;
+		// Branch of every value code of a discrete attribute
+		int[] branchOf;
+
+		Node(List<Attribute> attributes, int depth, int numClasses) {
+			this.attributes = attributes;
+			this.depth = depth;
+			this.classCounts = new int[numClasses];
+		}
+	}
+
+
+	/**
+	 * Constructor
+	 * @param data training data
+	 * @param algorithm "IG" for information gain, "GI" for gini index, "GR" for gain ratio
+	 * @param isPruned "True" to stop at the maximum depth
+	 * @param maxDepth
+	 * @param options
+	 */
+	public OutOfCoreBuilder(SpilledDataSet data, String algorithm, String isPruned, int maxDepth,
+			OutOfCoreOptions options) {
+		this.data = data;
+		if (algorithm.equals("GI")) {
+			criterion = SplitCriterion.GINI_INDEX;
+			criterionName = "GiniValue";
+		} else if (algorithm.equals("GR")) {
+			criterion = SplitCriterion.GAIN_RATIO;
+			criterionName = "GainRatioValue";
+		} else {
+			criterion = SplitCriterion.INFO_GAIN;
+			criterionName = "InfoGainValue";
+		}
+		this.isPruned = isPruned.equals("True");
+		this.maxDepth = maxDepth;
+		this.parallelism = options.getParallelism();
+		this.numClasses = data.getNumClasses();
+		this.classLabels = data.getTarget().getValues();
+		this.labels = data.getLabels();
+
+		valueOrder = new int[data.getAttributes().size()][];
+		for (int a = 0; a < valueOrder.length; a++) {
+			if (!data.isContinuous(a)) {
+				valueOrder[a] = Partition.branchOrder(data.getAttributes().get(a).getValues());
+			}
+		}
+	}
+
+	/**
+	 * Build the tree, one depth at a time
+	 * @return TreeNode
+	 * @throws IOException
+	 */
+	public TreeNode build() throws IOException {
+		Node root = new Node(Collections.unmodifiableList(new ArrayList<Attribute>(data.getAttributes())), 0, numClasses);
+		for (int row = 0; row < data.size(); row++) {
+			root.classCounts[labels.get(row)]++;
+		}
+		root.size = data.size();
+
+		nodeOf = MappedColumn.allocate(data.getTempDirectory(), "nodes", data.size());
+		try {
+			nodeOf.fill(1);
+			ArrayList<Node> level = new ArrayList<Node>();
+			level.add(root);
+			while (!level.isEmpty()) {
+				boolean[] open = new boolean[level.size()];
+				boolean anyOpen = false;
+				for (int k = 0; k < level.size(); k++) {
+					open[k] = !makeLeaf(level.get(k));
+					anyOpen |= open[k];
+				}
+				if (!anyOpen) break;
+
+				double[][][] evaluation = evaluate(level, open);
+				for (int k = 0; k < level.size(); k++) {
+					if (open[k]) choose(level.get(k), k, evaluation);
+				}
+				level = split(level, open);
+			}
+		} finally {
+			nodeOf.close();
+			nodeOf = null;
+		}
+
+		StringBuilder features = new StringBuilder();
+		connect(root, features);
+		featureTable = features.toString();
+		return root.treeNode;
+	}
+
+	/**
+	 * Make a node a leaf when (1) it has no rows (2) impurity is zero (3) no attribute is
+	 * left (4) the maximum depth is reached in a pruned tree
+	 * @param node
+	 * @return boolean true if the node is a leaf
+	 */
+	private boolean makeLeaf(Node node) {
+		if (node.size == 0) {
+			node.treeNode = new TreeNode(node.emptyLabel);
+			return true;
+		}
+		boolean pure = criterion.impurity(node.classCounts, node.size) == 0;
+		boolean maxDepthReached = isPruned && node.depth >= maxDepth;
+		if (pure || node.attributes.size() == 0 || maxDepthReached) {
+			if (pure) {
+				for (int c = 0; c < numClasses; c++) {
+					if (node.classCounts[c] > 0) node.treeNode = new TreeNode(data.getClassLabel(c));
+				}
+			} else {
+				node.treeNode = new TreeNode(ConstructTree.getMajorityLabel(node.classCounts, classLabels));
+			}
+			return true;
+		}
+		node.usable = new boolean[data.getAttributes().size()];
+		for (Attribute attribute : node.attributes) {
+			node.usable[data.indexOf(attribute)] = true;
+		}
+		return false;
+	}
+
+	/**
+	 * Score every attribute for every open node of one depth, one pass per attribute
+	 * @return double[][][] score, and for continuous attributes the cut bin and the
+	 * threshold, by attribute and node
+	 */
+	private double[][][] evaluate(final ArrayList<Node> level, final boolean[] open) throws IOException {
+		final int attributeCount = data.getAttributes().size();
+		final double[][][] evaluation = new double[attributeCount][][];
+		final double[] impurities = new double[level.size()];
+		for (int k = 0; k < level.size(); k++) {
+			if (open[k]) impurities[k] = criterion.impurity(level.get(k).classCounts, level.get(k).size);
+		}
+
+		ParallelTasks.forEach(attributeCount, parallelism, new ParallelTasks.Task() {
+			public void run(int a) throws IOException {
+				boolean used = false;
+				for (int k = 0; k < level.size(); k++) {
+					used |= open[k] && level.get(k).usable[a];
+				}
+				if (!used) return;
+				evaluation[a] = new double[3][level.size()];
+				if (data.isContinuous(a)) {
+					scanHistogram(a, level, open, impurities, evaluation[a]);
+				} else {
+					scanDiscrete(a, level, open, impurities, evaluation[a]);
+				}
+			}
+		});
+		return evaluation;
+	}
+
+	private boolean uses(ArrayList<Node> level, boolean[] open, int k, int a) {
+		return k >= 0 && open[k] && level.get(k).usable[a];
+	}
+
+	/**
+	 * Count the rows of every node per value and class, then score the nodes
+	 */
+	private void scanDiscrete(int a, ArrayList<Node> level, boolean[] open, double[] impurities,
+			double[][] evaluation) {
+		MappedColumn codes = data.getCodes(a);
+		int valueCount = valueOrder[a].length;
+		int[][][] counts = new int[level.size()][][];
+		int[][] sizes = new int[level.size()][];
+		for (int k = 0; k < level.size(); k++) {
+			if (!uses(level, open, k, a)) continue;
+			counts[k] = new int[valueCount][numClasses];
+			sizes[k] = new int[valueCount];
+		}
+		for (int row = 0; row < codes.size(); row++) {
+			int k = nodeOf.get(row) - 1;
+			if (!uses(level, open, k, a)) continue;
+			int code = codes.get(row);
+			counts[k][code][labels.get(row)]++;
+			sizes[k][code]++;
+		}
+		int[][] partCounts = new int[valueCount][];
+		int[] partN = new int[valueCount];
+		for (int k = 0; k < level.size(); k++) {
+			if (counts[k] == null) continue;
+			for (int p = 0; p < valueCount; p++) {
+				partCounts[p] = counts[k][valueOrder[a][p]];
+				partN[p] = sizes[k][valueOrder[a][p]];
+			}
+			evaluation[0][k] = criterion.score(partCounts, partN, level.get(k).size, impurities[k]);
+		}
+	}
+
+	/**
+	 * Count the class histogram of every node in one pass, then sweep the bins of each
+	 */
+	private void scanHistogram(int a, ArrayList<Node> level, boolean[] open, double[] impurities,
+			double[][] evaluation) {
+		MappedColumn codes = data.getCodes(a);
+		double[] thresholds = data.getThresholds(a);
+		int[][] histograms = new int[level.size()][];
+		for (int k = 0; k < level.size(); k++) {
+			if (uses(level, open, k, a)) histograms[k] = new int[data.getBinCount(a) * numClasses];
+		}
+		for (int row = 0; row < codes.size(); row++) {
+			int k = nodeOf.get(row) - 1;
+			if (k < 0 || histograms[k] == null) continue;
+			histograms[k][codes.get(row) * numClasses + labels.get(row)]++;
+		}
+
+		int[] leftCounts = new int[numClasses];
+		int[] rightCounts = new int[numClasses];
+		for (int k = 0; k < level.size(); k++) {
+			if (histograms[k] == null) continue;
+			Node node = level.get(k);
+			Arrays.fill(leftCounts, 0);
+			double score = criterion.worst();
+			int leftN = 0;
+			for (int bin = 0; bin < thresholds.length; bin++) {
+				int binN = 0;
+				for (int c = 0; c < numClasses; c++) {
+					int count = histograms[k][bin * numClasses + c];
+					leftCounts[c] += count;
+					binN += count;
+				}
+				leftN += binN;
+				if (binN == 0 || leftN == node.size) continue;
+				double currScore = criterion.score(leftCounts, leftN, node.classCounts, node.size,
+						impurities[k], rightCounts);
+				if (criterion.isBetter(currScore, score)) {
+					score = currScore;
+					evaluation[1][k] = bin + 1;
+					evaluation[2][k] = thresholds[bin];
+				}
+			}
+			evaluation[0][k] = score;
+		}
+	}
+
+	/**
+	 * Choose the attribute of a node in list order, as the choosers do, and make its
+	 * branches in the order of the depth first builder
+	 */
+	private void choose(Node node, int k, double[][][] evaluation) {
+		Attribute chosen = null;
+		double best = criterion.noSplit();
+		for (Attribute attribute : node.attributes) {
+			double score = evaluation[data.indexOf(attribute)][0][k];
+			if (criterion.isBetter(score, best)) {
+				best = score;
+				chosen = attribute;
+			}
+		}
+		if (chosen == null) {
+			node.treeNode = new TreeNode(ConstructTree.getMajorityLabel(node.classCounts, classLabels));
+			return;
+		}
+
+		int a = data.indexOf(chosen);
+		node.treeNode = new TreeNode(chosen);
+		node.feature = chosen.toString() + "; " + criterionName + ": " + best;
+		node.attribute = a;
+		if (data.isContinuous(a)) {
+			node.cut = (int) evaluation[a][1][k];
+			double threshold = evaluation[a][2][k];
+			ArrayList<String> names = new ArrayList<String>();
+			names.add("less" + threshold);
+			names.add("more" + threshold);
+			int[] order = Partition.branchOrder(names);
+			node.lessChild = order[0] == 0 ? 0 : 1;
+			node.branchNames = new String[] {names.get(order[0]), names.get(order[1])};
+		} else {
+			int[] order = valueOrder[a];
+			node.branchNames = new String[order.length];
+			node.branchOf = new int[order.length];
+			for (int p = 0; p < order.length; p++) {
+				node.branchNames[p] = chosen.getValues().get(order[p]);
+				node.branchOf[order[p]] = p;
+			}
+		}
+
+		ArrayList<Attribute> remaining = new ArrayList<Attribute>(node.attributes);
+		remaining.remove(chosen);
+		List<Attribute> childAttributes = Collections.unmodifiableList(remaining);
+		String emptyLabel = ConstructTree.getMajorityLabel(node.classCounts, classLabels);
+		node.children = new Node[node.branchNames.length];
+		for (int i = 0; i < node.children.length; i++) {
+			node.children[i] = new Node(childAttributes, node.depth + 1, numClasses);
+			node.children[i].emptyLabel = emptyLabel;
+		}
+	}
+
+	/**
+	 * Move the rows of every split node to its children in one pass, updating the node
+	 * file in place
+	 * @return ArrayList<Node> the nodes of the next depth
+	 */
+	private ArrayList<Node> split(ArrayList<Node> level, boolean[] open) {
+		ArrayList<Node> next = new ArrayList<Node>();
+		int[] firstChild = new int[level.size()];
+		for (int k = 0; k < level.size(); k++) {
+			Node node = level.get(k);
+			if (!open[k] || node.children == null) continue;
+			firstChild[k] = next.size();
+			next.addAll(Arrays.asList(node.children));
+		}
+
+		for (int row = 0; row < nodeOf.size(); row++) {
+			int k = nodeOf.get(row) - 1;
+			if (k < 0) continue;
+			Node node = level.get(k);
+			if (node.children == null) {
+				nodeOf.set(row, 0);
+				continue;
+			}
+			int code = data.getCodes(node.attribute).get(row);
+			int branch;
+			if (data.isContinuous(node.attribute)) {
+				branch = code < node.cut ? node.lessChild : 1 - node.lessChild;
+			} else {
+				branch = node.branchOf[code];
+			}
+			int child = firstChild[k] + branch;
+			nodeOf.set(row, child + 1);
+			Node childNode = next.get(child);
+			childNode.classCounts[labels.get(row)]++;
+			childNode.size++;
+		}
+		return next;
+	}
+
+	/**
+	 * Connect every node with its subtrees and write the feature table depth first
+	 */
+	private void connect(Node node, StringBuilder features) {
+		if (node.feature != null) {
+			features.append("|").append(node.feature);
+		}
+		if (node.children == null) return;
+		for (int i = 0; i < node.children.length; i++) {
+			connect(node.children[i], features);
+			node.treeNode.addChild(node.branchNames[i], node.children[i].treeNode);
+		}
+	}
+
+	/**
+	 * @return String name of the split criterion in the feature table
+	 */
+	public String getCriterionName() {
+		return criterionName;
+	}
+
+	public String getFeatureTable() {
+		return featureTable;
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * This class holds the options of a tree trained out of core: the size of the sample the
+ * bins of a continuous attribute are computed from, the number of distinct numeric values
+ * kept to tell discrete from continuous columns, and the directory of the column files.
+ * The tree is always built level-wise with histogram cuts; maxBins 0 means MAX_BINS bins.
+ * The user functions pass them as an optional map, e.g. {maxBins: 128, sampleSize: 200000}.
+ */
+
+package outofcore;
+
+import java.util.Map;
+
+import core.TreeOptions;
+
+public class OutOfCoreOptions extends TreeOptions {
+
+	// Number of values per continuous attribute sampled to place the bin thresholds
+	private int sampleSize = 100000;
+
+	// Numeric columns with more distinct values are continuous without counting further
+	private int maxDistinct = 65536;
+
+	// Directory of the column files, null for the default temporary directory
+	private String tempDirectory = null;
+
+
+	public OutOfCoreOptions() {}
+
+	/**
+	 * Constructor: copy the tree options, with the default out of core options
+	 * @param options
+	 */
+	public OutOfCoreOptions(TreeOptions options) {
+		super(options);
+		if (options instanceof OutOfCoreOptions) {
+			OutOfCoreOptions outOfCore = (OutOfCoreOptions) options;
+			this.sampleSize = outOfCore.sampleSize;
+			this.maxDistinct = outOfCore.maxDistinct;
+			this.tempDirectory = outOfCore.tempDirectory;
+		}
+	}
+
+	/**
+	 * Read the options from a map of option name to value. Unknown names are rejected.
+	 * @param options
+	 * @return OutOfCoreOptions
+	 */
+	public static OutOfCoreOptions fromMap(Map<String, Object> options) {
+		OutOfCoreOptions outOfCoreOptions = new OutOfCoreOptions();
+		outOfCoreOptions.setAll(options);
+		return outOfCoreOptions;
+	}
+
+	@Override
+	protected void setOption(String name, Object value) {
+		if (name.equals("sampleSize")) {
+			setSampleSize(toInt(name, value));
+		} else if (name.equals("maxDistinct")) {
+			setMaxDistinct(toInt(name, value));
+		} else if (name.equals("tempDirectory")) {
+			setTempDirectory(value == null ? null : String.valueOf(value));
+		} else {
+			super.setOption(name, value);
+		}
+	}
+
+	/**
+	 * @return int number of histogram bins of continuous attributes
+	 */
+	public int getBins() {
+		return isHistogram() ? getMaxBins() : MAX_BINS;
+	}
+
+
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	/**
+	 * @param sampleSize number of values per continuous attribute the bin thresholds are
+	 * computed from, at least 1. With at least as many values as rows, the bins are the
+	 * ones of the whole column.
+	 */
+	public void setSampleSize(int sampleSize) {
+		if (sampleSize < 1)
+			throw new IllegalArgumentException("sampleSize must be at least 1: " + sampleSize);
+		this.sampleSize = sampleSize;
+	}
+
+	public int getMaxDistinct() {
+		return maxDistinct;
+	}
+
+	/**
+	 * @param maxDistinct number of distinct values of a numeric column above which it is
+	 * continuous, at least 1
+	 */
+	public void setMaxDistinct(int maxDistinct) {
+		if (maxDistinct < 1)
+			throw new IllegalArgumentException("maxDistinct must be at least 1: " + maxDistinct);
+		this.maxDistinct = maxDistinct;
+	}
+
+	public String getTempDirectory() {
+		return tempDirectory;
+	}
+
+	/**
+	 * @param tempDirectory directory of the column files, null for the default one
+	 */
+	public void setTempDirectory(String tempDirectory) {
+		this.tempDirectory = tempDirectory;
+	}
+
+	public String toString() {
+		return super.toString() + "; sampleSize: " + sampleSize + "; maxDistinct: " + maxDistinct
+				+ "; tempDirectory: " + tempDirectory;
+	}
+}
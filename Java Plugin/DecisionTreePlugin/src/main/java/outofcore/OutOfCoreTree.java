@@ -0,0 +1,167 @@
+/**
+ * This class trains a decision tree on a csv file which does not fit in the heap and
+ * evaluates it on a test csv file, streaming both. The training set is spilled to column
+ * files (SpilledDataSet), the tree is built level-wise on them (OutOfCoreBuilder) and
+ * compiled, and the column files are deleted. The test rows are read one at a time and
+ * counted in the confusion matrix, which is written like the one of EvaluateTree.
+ */
+
+package outofcore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import evaluate.EvaluateTree;
+import node.CompiledTree;
+import node.RowEncoder;
+import node.TreeNode;
+
+public class OutOfCoreTree {
+
+	private String trainPath;
+	private String targetAttr;
+	private String algorithm;
+	private String isPruned;
+	private int max_depth;
+	private OutOfCoreOptions options;
+
+	private CompiledTree tree;
+	private String featureTable = "";
+	private int trainSize;
+	private double score;
+
+
+	/**
+	 * Constructor
+	 * @param trainPath csv file of the training set
+	 * @param targetAttr
+	 * @param algorithm "IG" for information gain, "GI" for gini index, "GR" for gain ratio
+	 * @param isPruned "True" to stop at the maximum depth
+	 * @param max_depth
+	 * @param options
+	 */
+	public OutOfCoreTree(String trainPath, String targetAttr, String algorithm, String isPruned, int max_depth,
+			OutOfCoreOptions options) {
+		this.trainPath = trainPath;
+		this.targetAttr = targetAttr;
+		this.algorithm = algorithm;
+		this.isPruned = isPruned;
+		this.max_depth = max_depth;
+		this.options = options;
+	}
+
+	/**
+	 * Train the tree
+	 * @return CompiledTree
+	 * @throws IOException
+	 */
+	public CompiledTree train() throws IOException {
+		try (SpilledDataSet data = SpilledDataSet.read(trainPath, targetAttr, options)) {
+			trainSize = data.size();
+			OutOfCoreBuilder builder = new OutOfCoreBuilder(data, algorithm, isPruned, max_depth, options);
+			TreeNode root = builder.build();
+			featureTable = builder.getFeatureTable();
+			tree = CompiledTree.compile(root, data.getAttributes(), data.getTarget());
+		}
+		return tree;
+	}
+
+	/**
+	 * Train the tree and evaluate it on the test set
+	 * @param testPath csv file of the test set
+	 * @return String the time taken and the confusion matrix
+	 * @throws IOException
+	 */
+	public String calculateAccuracy(String testPath) throws IOException {
+		long tstTime = System.currentTimeMillis();
+		train();
+		long teTime = System.currentTimeMillis();
+		double generationTime = (teTime - tstTime) / 1000f;
+		System.out.println("Time taken to generate tree: " + generationTime + " s, rows: " + trainSize);
+
+		long startTime = System.currentTimeMillis();
+		String confusionMatrix = evaluate(testPath);
+		long endTime = System.currentTimeMillis();
+		double predTime = (endTime - startTime) / 1000f;
+		System.out.println("Time taken to generate prediction: " + predTime + " s\n");
+
+		return "Time taken to generate tree: " + generationTime + " s\n" + "Time taken to generate prediction: "
+				+ predTime + " s\n" + confusionMatrix + "%";
+	}
+
+	/**
+	 * Predict the test rows one at a time and count them in the confusion matrix
+	 * @param testPath
+	 * @return String the confusion matrix
+	 * @throws IOException
+	 */
+	private String evaluate(String testPath) throws IOException {
+		RowEncoder encoder = new RowEncoder(tree);
+		int[] usedAttributes = encoder.getUsedAttributes();
+		String[] usedNames = encoder.getUsedNames();
+		String[] classLabels = tree.getClassLabels();
+		int matrixSize = classLabels.length;
+		int[][] confMatrix = new int[matrixSize][matrixSize];
+		int correct = 0;
+		int total = 0;
+
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(testPath), StandardCharsets.UTF_8)) {
+			String header = in.readLine();
+			if (header == null) throw new IOException("Invalid input data");
+			String[] names = header.split(",");
+			List<String> columns = Arrays.asList(names);
+			int targetColumn = columns.indexOf(targetAttr);
+			int[] columnOf = new int[usedNames.length];
+			for (int u = 0; u < usedNames.length; u++) {
+				columnOf[u] = columns.indexOf(usedNames[u]);
+			}
+			if (targetColumn < 0) throw new IOException("Invalid input data");
+
+			List<String> labels = Arrays.asList(classLabels);
+			double[] row = encoder.newRow();
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] values = line.split(",");
+				if (values.length != names.length) continue;
+				for (int u = 0; u < usedAttributes.length; u++) {
+					row[usedAttributes[u]] = encoder.encode(usedAttributes[u], columnOf[u] < 0 ? null : values[columnOf[u]]);
+				}
+				int predicted = tree.predict(row);
+				int actual = labels.indexOf(values[targetColumn]);
+				total++;
+				if (predicted == CompiledTree.NO_PREDICTION || actual < 0) continue;
+				confMatrix[actual][predicted]++;
+				if (predicted == actual) correct++;
+			}
+		}
+		score = total == 0 ? 0 : correct * 1.0 / total;
+		return EvaluateTree.formatConfusionMatrix(confMatrix);
+	}
+
+	public CompiledTree getCompiledTree() {
+		return tree;
+	}
+
+	public String getFeatureTable() {
+		return featureTable;
+	}
+
+	/**
+	 * @return int number of training rows
+	 */
+	public int getTrainSize() {
+		return trainSize;
+	}
+
+	/**
+	 * @return double share of the test rows predicted correctly
+	 */
+	public double getScore() {
+		return score;
+	}
+}
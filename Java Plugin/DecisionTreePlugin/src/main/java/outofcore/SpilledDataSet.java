@@ -0,0 +1,356 @@
+/**
+ * This class is a training set read from a csv file in two streaming passes and kept in
+ * column files instead of the heap. The first pass infers the attributes as
+ * ProcessInputData does, counts the rows and samples every numeric column; the bin
+ * thresholds of the continuous attributes are computed from the samples. The second pass
+ * writes one column of codes per attribute (bin codes of continuous attributes, value
+ * codes of discrete ones) and the class labels to MappedColumn files.
+ * Only the distinct values of the columns and the samples are held in the heap: a numeric
+ * column with more than maxDistinct distinct values stops counting them and is continuous.
+ */
+
+package outofcore;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import definition.Attribute;
+import definition.BinnedDataSet;
+
+public class SpilledDataSet implements Closeable {
+
+	private ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+	private Attribute target;
+	private int size;
+	private int numClasses;
+
+	// Position of every attribute in the csv header, and of the target
+	private int[] columnOf;
+	private int targetColumn;
+	private boolean[] continuous;
+	// Bin thresholds of every continuous attribute
+	private double[][] thresholds;
+
+	private MappedColumn[] codes;
+	private MappedColumn labels;
+	private Path tempDirectory;
+
+
+	/**
+	 * Statistics of one csv column gathered by the first pass
+	 */
+	private static class ColumnStats {
+		String name;
+		boolean numeric = true;
+		// Distinct values, null once a numeric column has more than maxDistinct
+		HashSet<String> distinct = new HashSet<String>();
+		// Reservoir sample of the values of a numeric column
+		double[] sample;
+		long seen;
+	}
+
+
+	/**
+	 * Read a csv file into column files
+	 * @param fileName
+	 * @param targetName
+	 * @param options
+	 * @return SpilledDataSet
+	 * @throws IOException
+	 */
+	public static SpilledDataSet read(String fileName, String targetName, OutOfCoreOptions options) throws IOException {
+		SpilledDataSet data = new SpilledDataSet();
+		data.tempDirectory = options.getTempDirectory() == null ? null : Paths.get(options.getTempDirectory());
+		try {
+			ColumnStats[] columns = data.scan(fileName, targetName, options);
+			data.makeAttributes(columns, targetName, options.getBins());
+			data.spill(fileName, columns.length);
+		} catch (IOException | RuntimeException e) {
+			data.close();
+			throw e;
+		}
+		return data;
+	}
+
+	private SpilledDataSet() {}
+
+	/**
+	 * First pass: distinct values, type, number of rows and sample of every column
+	 */
+	private ColumnStats[] scan(String fileName, String targetName, OutOfCoreOptions options) throws IOException {
+		Random random = new Random(options.getSeed());
+		int sampleSize = options.getSampleSize();
+		int maxDistinct = options.getMaxDistinct();
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			String header = in.readLine();
+			if (header == null) throw new IOException("Invalid input data");
+			String[] names = header.split(",");
+			ColumnStats[] columns = new ColumnStats[names.length];
+			targetColumn = -1;
+			for (int a = 0; a < names.length; a++) {
+				columns[a] = new ColumnStats();
+				columns[a].name = names[a];
+				if (names[a].equals(targetName)) {
+					targetColumn = a;
+				} else {
+					columns[a].sample = new double[Math.min(sampleSize, 1024)];
+				}
+			}
+			if (targetColumn < 0) throw new IOException("Invalid input data");
+
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] values = line.split(",");
+				if (values.length != names.length) continue;
+				size++;
+				for (int a = 0; a < values.length; a++) {
+					ColumnStats column = columns[a];
+					double number = Double.NaN;
+					if (column.numeric) {
+						try {
+							number = Double.parseDouble(values[a]);
+						} catch (NumberFormatException e) {
+							column.numeric = false;
+							column.sample = null;
+							if (column.distinct == null)
+								throw new IOException("Column " + column.name + " has a value which is not a number after "
+										+ maxDistinct + " distinct numbers");
+						}
+					}
+					if (column.distinct != null) {
+						column.distinct.add(values[a]);
+						if (column.numeric && a != targetColumn && column.distinct.size() > maxDistinct) {
+							column.distinct = null;
+						}
+					}
+					if (column.numeric && column.sample != null) {
+						sample(column, number, sampleSize, random);
+					}
+				}
+			}
+			if (size == 0) throw new IOException("Invalid input data");
+			return columns;
+		}
+	}
+
+	/**
+	 * Add a value to the reservoir sample of a column
+	 */
+	private static void sample(ColumnStats column, double value, int sampleSize, Random random) {
+		long seen = column.seen++;
+		if (seen < sampleSize) {
+			if (seen == column.sample.length) {
+				column.sample = Arrays.copyOf(column.sample, (int) Math.min(sampleSize, 2L * seen));
+			}
+			column.sample[(int) seen] = value;
+		} else {
+			long slot = (long) (random.nextDouble() * (seen + 1));
+			if (slot < sampleSize) column.sample[(int) slot] = value;
+		}
+	}
+
+	/**
+	 * Make the attributes of the columns with the rule of ProcessInputData, and the bin
+	 * thresholds of the continuous ones
+	 */
+	private void makeAttributes(ColumnStats[] columns, String targetName, int maxBins) throws IOException {
+		double threshold = 1.0 * columns[targetColumn].distinct.size() / size + 0.01;
+		columnOf = new int[columns.length - 1];
+		continuous = new boolean[columns.length - 1];
+		thresholds = new double[columns.length - 1][];
+		for (int a = 0; a < columns.length; a++) {
+			ColumnStats column = columns[a];
+			boolean isCategorical;
+			if (!column.numeric) {
+				isCategorical = true;
+			} else {
+				isCategorical = column.distinct != null && 1.0 * column.distinct.size() / size < threshold;
+			}
+
+			Attribute attribute;
+			if (isCategorical) {
+				attribute = new Attribute(column.name, "{" + String.join(",", column.distinct) + "}");
+			} else {
+				attribute = new Attribute(column.name, "real");
+			}
+			if (a == targetColumn) {
+				target = attribute;
+				continue;
+			}
+			int index = attributes.size();
+			attributes.add(attribute);
+			columnOf[index] = a;
+			continuous[index] = !isCategorical;
+			if (!isCategorical) {
+				int count = (int) Math.min(column.seen, column.sample.length);
+				thresholds[index] = BinnedDataSet.computeThresholds(Arrays.copyOf(column.sample, count), maxBins);
+			}
+			column.sample = null;
+			column.distinct = null;
+		}
+		if (!target.getType().equals("discrete")) throw new IOException("Invalid input data");
+		numClasses = target.getValues().size();
+	}
+
+	/**
+	 * Second pass: write the code columns and the labels
+	 */
+	private void spill(String fileName, int columnCount) throws IOException {
+		codes = new MappedColumn[attributes.size()];
+		List<HashMap<String, Integer>> dictionaries = new ArrayList<HashMap<String, Integer>>();
+		for (int a = 0; a < attributes.size(); a++) {
+			if (continuous[a]) {
+				dictionaries.add(null);
+				codes[a] = new MappedColumn(tempDirectory, "col" + a, 1);
+			} else {
+				List<String> values = attributes.get(a).getValues();
+				dictionaries.add(dictionary(values));
+				codes[a] = new MappedColumn(tempDirectory, "col" + a, values.size() <= 256 ? 1 : 4);
+			}
+		}
+		HashMap<String, Integer> classes = dictionary(target.getValues());
+		labels = new MappedColumn(tempDirectory, "labels", numClasses <= 256 ? 1 : 4);
+
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			in.readLine();
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] values = line.split(",");
+				if (values.length != columnCount) continue;
+				for (int a = 0; a < codes.length; a++) {
+					String value = values[columnOf[a]];
+					if (continuous[a]) {
+						codes[a].append(BinnedDataSet.binOf(thresholds[a], parse(value)));
+					} else {
+						codes[a].append(encode(dictionaries.get(a), value));
+					}
+				}
+				labels.append(encode(classes, values[targetColumn]));
+			}
+		}
+		// The file changed between the passes
+		if (labels.size() != size) throw new IOException("Invalid input data");
+		for (MappedColumn column : codes) {
+			column.finish();
+		}
+		labels.finish();
+	}
+
+	private static HashMap<String, Integer> dictionary(List<String> values) {
+		HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+		for (int i = 0; i < values.size(); i++) {
+			dictionary.put(values.get(i), i);
+		}
+		return dictionary;
+	}
+
+	private static int encode(HashMap<String, Integer> dictionary, String value) throws IOException {
+		Integer code = dictionary.get(value);
+		if (code == null) throw new IOException("Invalid input data");
+		return code;
+	}
+
+	private static double parse(String value) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			// not a double
+			return Double.NaN;
+		}
+	}
+
+
+	public ArrayList<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	public Attribute getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return int number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getNumClasses() {
+		return numClasses;
+	}
+
+	public String getClassLabel(int classId) {
+		return target.getValues().get(classId);
+	}
+
+	/**
+	 * @param attribute
+	 * @return int position of the attribute, -1 if it is not an attribute of the data
+	 */
+	public int indexOf(Attribute attribute) {
+		return attributes.indexOf(attribute);
+	}
+
+	public boolean isContinuous(int attribute) {
+		return continuous[attribute];
+	}
+
+	/**
+	 * @param attribute
+	 * @return MappedColumn bin codes of a continuous attribute, value codes of a discrete one
+	 */
+	public MappedColumn getCodes(int attribute) {
+		return codes[attribute];
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return double[] threshold between bin b and bin b + 1 at position b
+	 */
+	public double[] getThresholds(int attribute) {
+		return thresholds[attribute];
+	}
+
+	/**
+	 * @param attribute index of a continuous attribute
+	 * @return int number of bins, the last one holding the missing values
+	 */
+	public int getBinCount(int attribute) {
+		return thresholds[attribute].length + 1;
+	}
+
+	public MappedColumn getLabels() {
+		return labels;
+	}
+
+	/**
+	 * @return Path directory of the column files, null for the default one
+	 */
+	public Path getTempDirectory() {
+		return tempDirectory;
+	}
+
+	/**
+	 * Delete the column files
+	 */
+	@Override
+	public void close() throws IOException {
+		if (codes != null) {
+			for (MappedColumn column : codes) {
+				if (column != null) column.close();
+			}
+		}
+		if (labels != null) labels.close();
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * This class scores all nodes of a label with a trained model and writes the predictions
+ * back to the graph in batches. The nodes are streamed from one read query which returns
+ * only the id and the properties the tree splits on, fetched batchSize records at a time;
+ * every batch of predictions is written by one UNWIND query in its own transaction. At
+ * most one batch is held in memory, however many nodes the label has.
+ * A prediction is written as a property of the node or, if a relationship type is given,
+ * as a relationship from the node to a node {predictedLabel: label} per class, like
+ * classifyOfNodes does. The class nodes are merged once, before the first batch.
+ * Property values are encoded as RowEncoder encodes them, so string values match the
+ * dictionaries of models trained on queried nodes; a node counts as unpredicted only if
+ * the tree has no prediction for it, and then its property is removed.
+ */
+
+package output;
+
+import static org.neo4j.driver.Values.parameters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Value;
+
+import node.CompiledTree;
+import node.RowEncoder;
+
+public class BatchScorer {
+
+	private Driver driver;
+	private RowEncoder encoder;
+	private String nodeType;
+	// Number of nodes fetched, scored and written at a time
+	private int batchSize = 10000;
+	// Property the predicted label is written to
+	private String writeProperty = "predictedLabel";
+	// Relationship type from the node to its class node, null to write a property
+	private String relationshipType = null;
+
+	private long scored;
+	private long unpredicted;
+	private int batches;
+
+
+	/**
+	 * Constructor
+	 * @param driver
+	 * @param encoder encoder of the model
+	 * @param nodeType label of the nodes to score
+	 */
+	public BatchScorer(Driver driver, RowEncoder encoder, String nodeType) {
+		this.driver = driver;
+		this.encoder = encoder;
+		this.nodeType = nodeType;
+	}
+
+	/**
+	 * Read the options from a map of option name to value, e.g. {batchSize: 50000,
+	 * writeProperty: "diagnosis"} or {relationshipType: "link"}. Unknown names are rejected.
+	 * @param options
+	 */
+	public void setOptions(Map<String, Object> options) {
+		for (Map.Entry<String, Object> option : options.entrySet()) {
+			String name = option.getKey();
+			Object value = option.getValue();
+			if (name.equals("batchSize")) {
+				if (!(value instanceof Number))
+					throw new IllegalArgumentException("batchSize must be a number: " + value);
+				setBatchSize(((Number) value).intValue());
+			} else if (name.equals("writeProperty")) {
+				writeProperty = String.valueOf(value);
+			} else if (name.equals("relationshipType")) {
+				relationshipType = value == null ? null : String.valueOf(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + name);
+			}
+		}
+	}
+
+	/**
+	 * Score all nodes of the label and write the predictions
+	 * @return long number of nodes scored
+	 */
+	public long run() {
+		scored = 0;
+		unpredicted = 0;
+		batches = 0;
+		final CompiledTree tree = encoder.getTree();
+		final long[] classNodes = relationshipType == null ? null : mergeClassNodes(tree.getClassLabels());
+
+		StringBuilder projection = new StringBuilder();
+		for (String name : encoder.getUsedNames()) {
+			if (projection.length() > 0) projection.append(", ");
+			projection.append('.').append(quote(name));
+		}
+		// A tree which is a single leaf reads no property
+		String values = projection.length() > 0 ? "n {" + projection + "}" : "{}";
+		String query = "MATCH (n:" + quote(nodeType) + ") RETURN id(n) AS id, " + values + " AS p";
+
+		SessionConfig config = SessionConfig.builder().withDefaultAccessMode(AccessMode.READ)
+				.withFetchSize(batchSize).build();
+		try ( Session session = driver.session(config) )
+		{
+			Result result = session.run(query);
+			double[] row = encoder.newRow();
+			int[] attributes = encoder.getUsedAttributes();
+			String[] names = encoder.getUsedNames();
+			List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>(batchSize);
+			while (result.hasNext()) {
+				Record record = result.next();
+				// Encode the driver values, whose text is the one the training nodes were stored with
+				Value nodeValues = record.get("p");
+				for (int u = 0; u < attributes.length; u++) {
+					row[attributes[u]] = encoder.encode(attributes[u], nodeValues.get(names[u]));
+				}
+				int classId = tree.predict(row);
+				scored++;
+				if (classId == CompiledTree.NO_PREDICTION) {
+					unpredicted++;
+				}
+
+				Map<String, Object> item = new HashMap<String, Object>();
+				item.put("id", record.get("id").asLong());
+				if (classNodes == null) {
+					Map<String, Object> properties = new HashMap<String, Object>();
+					// A null value removes the prediction of an earlier run
+					properties.put(writeProperty, tree.getClassLabel(classId));
+					item.put("properties", properties);
+					batch.add(item);
+				} else if (classId != CompiledTree.NO_PREDICTION) {
+					item.put("classId", classNodes[classId]);
+					batch.add(item);
+				}
+				if (batch.size() >= batchSize) {
+					write(batch);
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				write(batch);
+			}
+		}
+		return scored;
+	}
+
+	private long[] mergeClassNodes(final String[] classLabels) {
+		try ( Session session = driver.session() )
+		{
+			return session.writeTransaction( new TransactionWork<long[]>()
+			{
+				@Override
+				public long[] execute( Transaction tx )
+				{
+					long[] ids = new long[classLabels.length];
+					for (int c = 0; c < classLabels.length; c++) {
+						ids[c] = tx.run("MERGE (b {predictedLabel: $label}) RETURN id(b) AS id",
+								parameters("label", classLabels[c])).single().get("id").asLong();
+					}
+					return ids;
+				}
+			} );
+		}
+	}
+
+	private void write(List<Map<String, Object>> batch) {
+		final String query;
+		if (relationshipType == null) {
+			query = "UNWIND $rows AS row MATCH (a) WHERE id(a) = row.id SET a += row.properties";
+		} else {
+			query = "UNWIND $rows AS row MATCH (a) WHERE id(a) = row.id MATCH (b) WHERE id(b) = row.classId "
+					+ "MERGE (a)-[:" + quote(relationshipType) + "]->(b)";
+		}
+		final Map<String, Object> rows = new HashMap<String, Object>();
+		rows.put("rows", batch);
+		try ( Session session = driver.session() )
+		{
+			session.writeTransaction( new TransactionWork<Void>()
+			{
+				@Override
+				public Void execute( Transaction tx )
+				{
+					tx.run(query, rows).consume();
+					return null;
+				}
+			} );
+		}
+		batches++;
+	}
+
+	/**
+	 * Quote a label, property or relationship type name for Cypher
+	 */
+	private static String quote(String name) {
+		return "`" + name.replace("`", "``") + "`";
+	}
+
+
+	/**
+	 * @param batchSize number of nodes fetched, scored and written at a time, at least 1
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public long getScored() {
+		return scored;
+	}
+
+	/**
+	 * @return long number of scored nodes for which the tree has no prediction
+	 */
+	public long getUnpredicted() {
+		return unpredicted;
+	}
+
+	public int getBatches() {
+		return batches;
+	}
+}
@@ -0,0 +1,438 @@
+/**
+ * This class computes the cost-complexity pruning path of a compiled tree (weakest link
+ * pruning, as in CART). One scoring pass over the training rows counts the classes of
+ * the rows reaching every node; the error of every node as a leaf and of its subtree
+ * follow from the counts. The nodes are then turned into leaves in the order of the
+ * smallest increase of error per removed leaf (alpha), with a priority queue, updating
+ * only the ancestors of each pruned node. The error of every tree of the path on another
+ * data set, e.g. a pruning set or a validation fold, takes one more scoring pass, so the
+ * alpha with the fewest errors can be picked without training again.
+ * Alphas are errors per removed leaf, as a share of the training rows.
+ */
+
+package pruning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import core.ConstructTree;
+import definition.ColumnarDataSet;
+import node.CompiledTree;
+import node.TreeNode;
+
+public class CostComplexityPruning {
+
+	private CompiledTree tree;
+	private int nodeCount;
+	private int numClasses;
+	private int[] parent;
+	private int[][] children;
+
+	// Class of every node as a leaf: its own class for leaves, the majority class of its
+	// training rows for inner nodes
+	private int[] nodeClass;
+	// Alpha at which every node is turned into a leaf, infinite if it never is
+	private double[] nodeAlpha;
+
+	// Node pruned at every step of the path, with the alpha, number of leaves and
+	// training errors of the tree after the step
+	private int[] pruned;
+	private double[] alphas;
+	private int[] leafCounts;
+	private int[] trainErrors;
+	private int initialLeaves;
+	private int initialErrors;
+
+
+	/**
+	 * A candidate node of the priority queue
+	 */
+	private static class Candidate {
+		double alpha;
+		int node;
+		int version;
+
+		Candidate(double alpha, int node, int version) {
+			this.alpha = alpha;
+			this.node = node;
+			this.version = version;
+		}
+	}
+
+
+	/**
+	 * Constructor: score the training rows and compute the pruning path
+	 * @param tree
+	 * @param data training data, encoded with the attributes of the tree
+	 */
+	public CostComplexityPruning(CompiledTree tree, ColumnarDataSet data) {
+		this(tree, data, null);
+	}
+
+	/**
+	 * Constructor: score some training rows and compute the pruning path
+	 * @param tree
+	 * @param data encoded with the attributes of the tree
+	 * @param rows training rows of data, null for all rows
+	 */
+	public CostComplexityPruning(CompiledTree tree, ColumnarDataSet data, int[] rows) {
+		this.tree = tree;
+		this.nodeCount = tree.getNodeCount();
+		this.numClasses = tree.getClassLabels().length;
+		linkNodes();
+
+		int[] sizes = new int[nodeCount];
+		int[][] counts = score(data, rows, sizes);
+		List<String> classLabels = Arrays.asList(tree.getClassLabels());
+		nodeClass = new int[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			if (tree.getFeature()[n] < 0) {
+				nodeClass[n] = tree.getLeafClass()[n];
+			} else {
+				nodeClass[n] = classLabels.indexOf(ConstructTree.getMajorityLabel(counts[n], classLabels));
+			}
+		}
+		computePath(counts, sizes, Math.max(1, rows == null ? data.size() : rows.length));
+	}
+
+	/**
+	 * Find the parent and the children of every node; children come after their parent
+	 */
+	private void linkNodes() {
+		int[] feature = tree.getFeature();
+		int[] left = tree.getLeft();
+		int[] right = tree.getRight();
+		parent = new int[nodeCount];
+		children = new int[nodeCount][];
+		Arrays.fill(parent, -1);
+		for (int n = 0; n < nodeCount; n++) {
+			int f = feature[n];
+			int[] candidates;
+			if (f < 0) {
+				candidates = new int[0];
+			} else if (tree.getContinuous()[f]) {
+				candidates = new int[] {left[n], right[n]};
+			} else {
+				candidates = Arrays.copyOfRange(tree.getBranches(), left[n], left[n] + right[n]);
+			}
+			int count = 0;
+			for (int child : candidates) {
+				if (child >= 0) candidates[count++] = child;
+			}
+			children[n] = Arrays.copyOf(candidates, count);
+			for (int child : children[n]) {
+				parent[child] = n;
+			}
+		}
+	}
+
+	/**
+	 * Count the rows reaching every node, per class, in one pass. A row stops at its leaf
+	 * or at a missing branch.
+	 * @param data
+	 * @param rows rows of data to score, null for all rows
+	 * @param sizes receives the number of rows of every node
+	 * @return int[][] class counts of every node
+	 */
+	private int[][] score(ColumnarDataSet data, int[] rows, int[] sizes) {
+		int[] feature = tree.getFeature();
+		double[] threshold = tree.getThreshold();
+		int[] left = tree.getLeft();
+		int[] right = tree.getRight();
+		int[] branches = tree.getBranches();
+		boolean[] continuous = tree.getContinuous();
+		int[] labels = data.getLabels();
+		int[][] counts = new int[nodeCount][numClasses];
+		int count = rows == null ? data.size() : rows.length;
+		for (int i = 0; i < count; i++) {
+			int row = rows == null ? i : rows[i];
+			int n = 0;
+			while (n >= 0) {
+				sizes[n]++;
+				if (labels[row] >= 0) counts[n][labels[row]]++;
+				int f = feature[n];
+				if (f < 0) break;
+				if (continuous[f]) {
+					n = data.getContinuousColumn(f)[row] < threshold[n] ? left[n] : right[n];
+				} else {
+					int code = data.getDiscreteColumn(f)[row];
+					n = code < 0 || code >= right[n] ? CompiledTree.NO_PREDICTION : branches[left[n] + code];
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Errors of every node as a leaf
+	 */
+	private int[] leafErrors(int[][] counts, int[] sizes) {
+		int[] errors = new int[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			errors[n] = sizes[n] - (nodeClass[n] >= 0 ? counts[n][nodeClass[n]] : 0);
+		}
+		return errors;
+	}
+
+	/**
+	 * Errors of the subtree of every node; rows stopped at a missing branch are errors
+	 */
+	private int[] subtreeErrors(int[] leafErrors, int[] sizes) {
+		int[] errors = new int[nodeCount];
+		for (int n = nodeCount - 1; n >= 0; n--) {
+			if (tree.getFeature()[n] < 0) {
+				errors[n] = leafErrors[n];
+				continue;
+			}
+			errors[n] = sizes[n];
+			for (int child : children[n]) {
+				errors[n] += errors[child] - sizes[child];
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * Turn the weakest link into a leaf until the root is a leaf
+	 */
+	private void computePath(int[][] counts, int[] sizes, int totalN) {
+		final int[] leafErrors = leafErrors(counts, sizes);
+		final int[] subtreeErrors = subtreeErrors(leafErrors, sizes);
+		final int[] leaves = new int[nodeCount];
+		for (int n = nodeCount - 1; n >= 0; n--) {
+			if (tree.getFeature()[n] < 0) {
+				leaves[n] = 1;
+			} else {
+				for (int child : children[n]) {
+					leaves[n] += leaves[child];
+				}
+			}
+		}
+		initialLeaves = leaves[0];
+		initialErrors = subtreeErrors[0];
+
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>(Math.max(1, nodeCount), new Comparator<Candidate>() {
+			public int compare(Candidate a, Candidate b) {
+				int order = Double.compare(a.alpha, b.alpha);
+				// Deeper nodes first among equal alphas
+				return order != 0 ? order : Integer.compare(b.node, a.node);
+			}
+		});
+		int[] versions = new int[nodeCount];
+		boolean[] removed = new boolean[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			if (tree.getFeature()[n] >= 0) {
+				queue.add(new Candidate(alpha(leafErrors[n], subtreeErrors[n], leaves[n], totalN), n, 0));
+			}
+		}
+
+		nodeAlpha = new double[nodeCount];
+		Arrays.fill(nodeAlpha, Double.POSITIVE_INFINITY);
+		int innerCount = queue.size();
+		pruned = new int[innerCount];
+		alphas = new double[innerCount];
+		leafCounts = new int[innerCount];
+		trainErrors = new int[innerCount];
+		int steps = 0;
+		double last = 0;
+		while (!queue.isEmpty()) {
+			Candidate candidate = queue.poll();
+			int n = candidate.node;
+			if (removed[n] || candidate.version != versions[n]) continue;
+
+			// The path is monotone: a node whose alpha fell below the last one goes now
+			last = Math.max(last, candidate.alpha);
+			nodeAlpha[n] = last;
+			removeSubtree(n, removed);
+			int errorIncrease = leafErrors[n] - subtreeErrors[n];
+			int leafDecrease = leaves[n] - 1;
+			subtreeErrors[n] = leafErrors[n];
+			leaves[n] = 1;
+			for (int p = parent[n]; p >= 0; p = parent[p]) {
+				subtreeErrors[p] += errorIncrease;
+				leaves[p] -= leafDecrease;
+				versions[p]++;
+				queue.add(new Candidate(alpha(leafErrors[p], subtreeErrors[p], leaves[p], totalN), p, versions[p]));
+			}
+
+			pruned[steps] = n;
+			alphas[steps] = last;
+			leafCounts[steps] = leaves[0];
+			trainErrors[steps] = subtreeErrors[0];
+			steps++;
+		}
+		pruned = Arrays.copyOf(pruned, steps);
+		alphas = Arrays.copyOf(alphas, steps);
+		leafCounts = Arrays.copyOf(leafCounts, steps);
+		trainErrors = Arrays.copyOf(trainErrors, steps);
+	}
+
+	private static double alpha(int leafErrors, int subtreeErrors, int leaves, int totalN) {
+		return (leafErrors - subtreeErrors) / (double) totalN / Math.max(1, leaves - 1);
+	}
+
+	/**
+	 * Mark the nodes below a pruned node, so that their queued candidates are skipped
+	 */
+	private void removeSubtree(int n, boolean[] removed) {
+		for (int child : children[n]) {
+			if (removed[child]) continue;
+			removed[child] = true;
+			removeSubtree(child, removed);
+		}
+	}
+
+	/**
+	 * Count the errors of every tree of the path on a data set, in one scoring pass
+	 * @param data encoded with the attributes of the tree
+	 * @return int[] errors of the unpruned tree at position 0, and of the tree after
+	 * step s at position s + 1
+	 */
+	public int[] errorsOnPath(ColumnarDataSet data) {
+		return errorsOnPath(data, null);
+	}
+
+	/**
+	 * Count the errors of every tree of the path on some rows of a data set
+	 * @param data encoded with the attributes of the tree
+	 * @param rows rows of data to score, null for all rows
+	 * @return int[] errors of the unpruned tree at position 0, and of the tree after
+	 * step s at position s + 1
+	 */
+	public int[] errorsOnPath(ColumnarDataSet data, int[] rows) {
+		int[] sizes = new int[nodeCount];
+		int[][] counts = score(data, rows, sizes);
+		int[] leafErrors = leafErrors(counts, sizes);
+		int[] subtreeErrors = subtreeErrors(leafErrors, sizes);
+		int[] errors = new int[pruned.length + 1];
+		errors[0] = subtreeErrors[0];
+		for (int s = 0; s < pruned.length; s++) {
+			int n = pruned[s];
+			int errorIncrease = leafErrors[n] - subtreeErrors[n];
+			subtreeErrors[n] = leafErrors[n];
+			for (int p = parent[n]; p >= 0; p = parent[p]) {
+				subtreeErrors[p] += errorIncrease;
+			}
+			errors[s + 1] = subtreeErrors[0];
+		}
+		return errors;
+	}
+
+	/**
+	 * Pick the alpha of the tree of the path with the fewest errors on a data set; among
+	 * equal errors the smaller tree is taken
+	 * @param data encoded with the attributes of the tree
+	 * @return double alpha, to be given to prune
+	 */
+	public double bestAlpha(ColumnarDataSet data) {
+		return bestAlpha(data, null);
+	}
+
+	/**
+	 * Pick the alpha of the tree of the path with the fewest errors on some rows of a data
+	 * set; among equal errors the smaller tree is taken
+	 * @param data encoded with the attributes of the tree
+	 * @param rows rows of data to score, null for all rows
+	 * @return double alpha, to be given to prune
+	 */
+	public double bestAlpha(ColumnarDataSet data, int[] rows) {
+		int[] errors = errorsOnPath(data, rows);
+		double best = 0;
+		int bestErrors = Integer.MAX_VALUE;
+		// Steps of equal alpha are pruned together, so only the last of them is a tree
+		if (alphas.length == 0 || alphas[0] > 0) {
+			bestErrors = errors[0];
+		}
+		for (int s = 0; s < alphas.length; s++) {
+			if (s + 1 < alphas.length && alphas[s + 1] == alphas[s]) continue;
+			if (errors[s + 1] <= bestErrors) {
+				bestErrors = errors[s + 1];
+				best = alphas[s];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param alpha
+	 * @return boolean[] true for the nodes which are leaves of the tree pruned with alpha
+	 */
+	private boolean[] collapsed(double alpha) {
+		boolean[] collapsed = new boolean[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			collapsed[n] = nodeAlpha[n] <= alpha;
+		}
+		return collapsed;
+	}
+
+	/**
+	 * @param alpha
+	 * @return CompiledTree the tree pruned with alpha
+	 */
+	public CompiledTree prune(double alpha) {
+		return tree.prune(collapsed(alpha), nodeClass);
+	}
+
+	/**
+	 * Prune the TreeNode objects the tree was compiled from, in place
+	 * @param alpha
+	 * @param nodes the TreeNode of every compiled node, as listed by CompiledTree.compile
+	 */
+	public void prune(double alpha, List<TreeNode> nodes) {
+		boolean[] collapsed = collapsed(alpha);
+		for (int n = 0; n < nodeCount; n++) {
+			if (!collapsed[n]) continue;
+			TreeNode node = nodes.get(n);
+			node.setType("leaf");
+			node.getChildren().clear();
+			node.setTargetLabel(tree.getClassLabel(nodeClass[n]));
+		}
+	}
+
+	/**
+	 * @return double[] alpha of every step of the path, in increasing order
+	 */
+	public double[] getAlphas() {
+		return alphas;
+	}
+
+	/**
+	 * @return int[] number of leaves of the tree after every step
+	 */
+	public int[] getLeafCounts() {
+		return leafCounts;
+	}
+
+	/**
+	 * @return int[] training errors of the tree after every step
+	 */
+	public int[] getTrainErrors() {
+		return trainErrors;
+	}
+
+	/**
+	 * @return int number of leaves of the unpruned tree
+	 */
+	public int getInitialLeaves() {
+		return initialLeaves;
+	}
+
+	/**
+	 * @return int training errors of the unpruned tree
+	 */
+	public int getInitialErrors() {
+		return initialErrors;
+	}
+
+	public String toString() {
+		ArrayList<String> steps = new ArrayList<String>();
+		for (int s = 0; s < alphas.length; s++) {
+			steps.add(alphas[s] + ":" + leafCounts[s]);
+		}
+		return "@CostComplexityPruning leaves: " + initialLeaves + "; errors: " + initialErrors
+				+ "; path (alpha:leaves): " + steps;
+	}
+}
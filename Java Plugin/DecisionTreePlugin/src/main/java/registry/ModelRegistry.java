@@ -0,0 +1,134 @@
+/**
+ * This class is the catalog of trained models of the plugin, by name. Its size is bounded
+ * by the estimated memory of the models: when a new model does not fit, the least recently
+ * used models are evicted. Looking a model up counts as a use.
+ * All methods are synchronized, as user functions may run on several threads.
+ */
+
+package registry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class ModelRegistry {
+
+	// Default memory budget: 256 MB
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	// Models in access order, least recently used first
+	private LinkedHashMap<String, TrainedModel> models = new LinkedHashMap<String, TrainedModel>(16, 0.75f, true);
+	private long maxBytes;
+	private long usedBytes;
+
+
+	public ModelRegistry() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Constructor
+	 * @param maxBytes memory budget of the models
+	 */
+	public ModelRegistry(long maxBytes) {
+		setMaxBytes(maxBytes);
+	}
+
+	/**
+	 * Register a model under its name, replacing the model of that name, and evict the
+	 * least recently used models until the others fit in the budget. A model larger than
+	 * the budget is kept on its own until the next registration.
+	 * @param model
+	 */
+	public synchronized void put(TrainedModel model) {
+		TrainedModel old = models.put(model.getName(), model);
+		if (old != null) {
+			usedBytes -= old.getBytes();
+		}
+		usedBytes += model.getBytes();
+		evict(model.getName());
+	}
+
+	/**
+	 * @param name
+	 * @return TrainedModel the model of that name, null if there is none
+	 */
+	public synchronized TrainedModel get(String name) {
+		return models.get(name);
+	}
+
+	/**
+	 * Remove a model
+	 * @param name
+	 * @return boolean true if a model of that name was registered
+	 */
+	public synchronized boolean drop(String name) {
+		TrainedModel model = models.remove(name);
+		if (model == null) {
+			return false;
+		}
+		usedBytes -= model.getBytes();
+		return true;
+	}
+
+	/**
+	 * Remove the models trained on demand, e.g. because the data they were trained on changed
+	 * @return int number of models removed
+	 */
+	public synchronized int dropCached() {
+		int count = 0;
+		Iterator<TrainedModel> iterator = models.values().iterator();
+		while (iterator.hasNext()) {
+			TrainedModel model = iterator.next();
+			if (model.isCached()) {
+				iterator.remove();
+				usedBytes -= model.getBytes();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return List the models, least recently used first
+	 */
+	public synchronized List<TrainedModel> list() {
+		return new ArrayList<TrainedModel>(models.values());
+	}
+
+	private void evict(String keep) {
+		Iterator<TrainedModel> iterator = models.values().iterator();
+		while (usedBytes > maxBytes && iterator.hasNext()) {
+			TrainedModel model = iterator.next();
+			if (!model.getName().equals(keep)) {
+				iterator.remove();
+				usedBytes -= model.getBytes();
+			}
+		}
+	}
+
+
+	public synchronized int size() {
+		return models.size();
+	}
+
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Set the memory budget, evicting the least recently used models which no longer fit
+	 * @param maxBytes
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		if (maxBytes < 1)
+			throw new IllegalArgumentException("maxBytes must be at least 1: " + maxBytes);
+		this.maxBytes = maxBytes;
+		evict(null);
+	}
+}
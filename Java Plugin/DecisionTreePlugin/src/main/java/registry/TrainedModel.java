@@ -0,0 +1,135 @@
+/**
+ * This class is a trained decision tree kept in the model registry under a name: the tree
+ * compiled for prediction with the encoder of its input rows, the results of its evaluation
+ * on the test set (confusion matrix, feature table and predicted nodes by class) and an
+ * estimate of the memory they hold.
+ * The training and test data are not kept, so a model costs about the size of its tree.
+ */
+
+package registry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import evaluate.EvaluateTree;
+import node.CompiledTree;
+import node.RowEncoder;
+
+public class TrainedModel {
+
+	private String name;
+	// "IG" for information gain, "GI" for gini index, "GR" for gain ratio
+	private String algorithm;
+	private CompiledTree tree;
+	// Encodes node properties for the tree
+	private RowEncoder encoder;
+	private String confusionMatrix;
+	private String featureTable;
+	private HashMap<String, ArrayList<String>> predictedResults;
+	// Registered by a function which trains on demand, dropped when the data is queried again
+	private boolean cached;
+	private long bytes;
+
+
+	/**
+	 * Constructor
+	 * @param name
+	 * @param algorithm "IG", "GI" or "GR"
+	 * @param tree
+	 * @param confusionMatrix
+	 * @param featureTable
+	 * @param predictedResults test nodes by predicted class
+	 * @param cached true if the model was trained on demand and not named by the user
+	 */
+	public TrainedModel(String name, String algorithm, CompiledTree tree, String confusionMatrix, String featureTable,
+			HashMap<String, ArrayList<String>> predictedResults, boolean cached) {
+		this.name = name;
+		this.algorithm = algorithm;
+		this.tree = tree;
+		this.encoder = new RowEncoder(tree);
+		this.confusionMatrix = confusionMatrix;
+		this.featureTable = featureTable;
+		this.predictedResults = predictedResults;
+		this.cached = cached;
+		this.bytes = estimateBytes();
+	}
+
+	/**
+	 * Create the model of an evaluated tree
+	 * @param name
+	 * @param algorithm "IG", "GI" or "GR"
+	 * @param evaluated tree on which calculateAccuracy was called
+	 * @param confusionMatrix result of calculateAccuracy
+	 * @param cached true if the model was trained on demand and not named by the user
+	 * @return TrainedModel
+	 */
+	public static TrainedModel of(String name, String algorithm, EvaluateTree evaluated, String confusionMatrix,
+			boolean cached) {
+		return new TrainedModel(name, algorithm, evaluated.getCompiledTree(), confusionMatrix,
+				evaluated.getFeatureTable(), evaluated.predictedResults, cached);
+	}
+
+	private long estimateBytes() {
+		long total = 64 + tree.estimateBytes() + encoder.estimateBytes() + estimateBytes(name)
+				+ estimateBytes(confusionMatrix) + estimateBytes(featureTable);
+		if (predictedResults != null) {
+			for (Map.Entry<String, ArrayList<String>> entry : predictedResults.entrySet()) {
+				total += 48 + estimateBytes(entry.getKey()) + 16 + 8L * entry.getValue().size();
+				for (String node : entry.getValue()) {
+					total += estimateBytes(node);
+				}
+			}
+		}
+		return total;
+	}
+
+	private static long estimateBytes(String s) {
+		return s == null ? 0 : 40 + 2L * s.length();
+	}
+
+
+	public String getName() {
+		return name;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public CompiledTree getTree() {
+		return tree;
+	}
+
+	public RowEncoder getEncoder() {
+		return encoder;
+	}
+
+	public String getConfusionMatrix() {
+		return confusionMatrix;
+	}
+
+	public String getFeatureTable() {
+		return featureTable;
+	}
+
+	public HashMap<String, ArrayList<String>> getPredictedResults() {
+		return predictedResults;
+	}
+
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * @return long estimated heap memory of the model in bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	public String toString() {
+		return name + " (" + algorithm + ", target: " + tree.getTargetName() + ", nodes: " + tree.getNodeCount()
+				+ ", bytes: " + bytes + (cached ? ", cached" : "") + ")";
+	}
+}
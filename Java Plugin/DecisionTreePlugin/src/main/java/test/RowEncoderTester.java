@@ -0,0 +1,96 @@
+package test;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import evaluate.EvaluateTree;
+import node.RowEncoder;
+import registry.TrainedModel;
+
+
+
+/**
+ * This class is to check that a model trained on queried nodes, as trainModel trains it,
+ * predicts the property values of a node, as predict and scoreNodes read them.
+ *
+ */
+
+public class RowEncoderTester {
+
+
+	/**
+	 * A queried node as the query functions store it: key:value pairs of the driver values
+	 */
+	private static String nodeString(Object gender, Object age, Object decision) {
+		return "Gender:" + RowEncoder.propertyString(Values.value(gender)) + ", Age:"
+				+ RowEncoder.propertyString(Values.value(age)) + ", Decision:"
+				+ RowEncoder.propertyString(Values.value(decision));
+	}
+
+	private static TrainedModel trainModel() throws IOException {
+		ArrayList<String> trainDataList = new ArrayList<String>();
+		ArrayList<String> testDataList = new ArrayList<String>();
+		for (int i = 0; i < 20; i++) {
+			boolean male = i % 2 == 0;
+			trainDataList.add(nodeString(male ? "Male" : "Female", 20L + i % 3, male ? "Yes" : "No"));
+		}
+		testDataList.add(nodeString("Male", 21L, "Yes"));
+		testDataList.add(nodeString("Female", 22L, "No"));
+
+		EvaluateTree mine = new EvaluateTree(trainDataList, testDataList, "Decision", "False", 0);
+		String confusionMatrix = mine.calculateAccuracy();
+		return TrainedModel.of("m1", "IG", mine, confusionMatrix, false);
+	}
+
+	@Test
+	public void testPredictStringSplit() throws IOException {
+		TrainedModel model = trainModel();
+		assertEquals("Gender", model.getTree().getAttributeNames()[model.getTree().getFeature()[0]]);
+
+		Map<String, Object> male = new HashMap<String, Object>();
+		male.put("Gender", "Male");
+		male.put("Age", 21L);
+		assertEquals("Yes", model.getEncoder().predict(male));
+
+		Map<String, Object> female = new HashMap<String, Object>();
+		female.put("Gender", "Female");
+		female.put("Age", 20L);
+		assertEquals("No", model.getEncoder().predict(female));
+	}
+
+	@Test
+	public void testScoreRecord() throws IOException {
+		TrainedModel model = trainModel();
+		RowEncoder encoder = model.getEncoder();
+
+		// The properties of a node as scoreNodes reads them from a record
+		Map<String, Object> node = new HashMap<String, Object>();
+		node.put("Gender", "Female");
+		node.put("Age", 21L);
+		Value properties = Values.value(node);
+		double[] row = encoder.newRow();
+		int[] attributes = encoder.getUsedAttributes();
+		String[] names = encoder.getUsedNames();
+		for (int u = 0; u < attributes.length; u++) {
+			row[attributes[u]] = encoder.encode(attributes[u], properties.get(names[u]));
+		}
+		assertEquals("No", model.getTree().getClassLabel(model.getTree().predict(row)));
+	}
+
+	@Test
+	public void testPropertyString() {
+		assertEquals("Male", RowEncoder.propertyString("Male"));
+		assertEquals("Male", RowEncoder.propertyString(Values.value("Male")));
+		assertEquals("21", RowEncoder.propertyString(21L));
+		assertEquals("2.5", RowEncoder.propertyString(2.5));
+	}
+}
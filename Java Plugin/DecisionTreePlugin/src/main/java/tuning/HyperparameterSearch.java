@@ -0,0 +1,435 @@
+/**
+ * This class searches the tree settings with the best cross validation accuracy. Every
+ * configuration of the search space (all of them in a grid search, a random sample in a
+ * random search) is cross validated on the same stratified folds, and the results are
+ * ranked by average accuracy. Successive halving evaluates all configurations on a small
+ * stratified sample of the rows, keeps the best 1/eta of them and evaluates those on eta
+ * times more rows, until the last ones are evaluated on all rows.
+ * All trials share one columnar copy of the data and, in exact split mode, the rows
+ * presorted once by every continuous attribute (in histogram mode, the data binned once):
+ * the tree of a fold is trained with row weights over the shared data and filters the
+ * presorted lists instead of sorting again. A halving round on a sample of the rows
+ * filters the lists down to the sample once, and its folds filter the smaller lists.
+ * The fold trainings of all configurations are independent tasks run on the shared pool of
+ * up to parallelism threads, and the results are gathered in configuration and fold order, so they do not
+ * depend on the parallelism.
+ */
+
+package tuning;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import core.ConstructTree;
+import core.ParallelTasks;
+import core.PresortedIndex;
+import core.TreeOptions;
+import cv.FoldSplitter;
+import definition.Attribute;
+import definition.BinnedDataSet;
+import definition.ColumnarDataSet;
+import gainratio.ConstructTreeGR;
+import gini.ConstructTreeGI;
+import node.CompiledTree;
+import pruning.CostComplexityPruning;
+
+public class HyperparameterSearch {
+
+	private ColumnarDataSet data;
+	private ArrayList<Attribute> attributes;
+	private TuningOptions options;
+	// All rows sorted by every continuous attribute, null when the trees do not use them
+	private int[][] presortedRows;
+	// Continuous attributes quantized once in histogram mode, null otherwise
+	private BinnedDataSet binnedData;
+
+	private List<TrialResult> results;
+	private String featureTable = "";
+
+
+	/**
+	 * The outputs of the tree of one fold
+	 */
+	private static class FoldResult {
+		double score;
+		double generationTime;
+		int[][] confMatrix;
+	}
+
+
+	/**
+	 * Constructor
+	 * @param data training data
+	 * @param attributes attributes the trees may split on
+	 * @param options
+	 */
+	public HyperparameterSearch(ColumnarDataSet data, ArrayList<Attribute> attributes, TuningOptions options) {
+		this.data = data;
+		this.attributes = attributes;
+		this.options = options;
+		if (options.isHistogram() && !options.isExtraTrees()) {
+			this.binnedData = new BinnedDataSet(data, options.getMaxBins());
+		} else if (!options.isExtraTrees()) {
+			this.presortedRows = PresortedIndex.presort(data);
+		}
+	}
+
+	/**
+	 * @return List the configurations to try: the whole grid, or trials of them drawn at
+	 * random from the seed of the options in a random search
+	 */
+	public List<TreeConfiguration> configurations() {
+		List<TreeConfiguration> grid = options.grid();
+		if (!options.isRandomSearch() || options.getTrials() >= grid.size()) {
+			return grid;
+		}
+		Collections.shuffle(grid, new Random(options.getSeed()));
+		return new ArrayList<TreeConfiguration>(grid.subList(0, options.getTrials()));
+	}
+
+	/**
+	 * Cross validate the configurations of the search space on all rows, or run successive
+	 * halving
+	 * @return List the results, best first
+	 * @throws IOException
+	 */
+	public List<TrialResult> search() throws IOException {
+		if (options.isHalving()) {
+			results = successiveHalving();
+		} else {
+			results = rank(evaluate(configurations(), data.allRows()));
+		}
+		return results;
+	}
+
+	/**
+	 * Successive halving over all configurations. With n configurations there are
+	 * ceil(log_eta(n)) rounds before the last one: round r is evaluated on eta^(r - rounds)
+	 * of the rows (at least minFraction of them), and the last one, with the single best
+	 * configuration, on all rows. The samples are nested, so every round adds rows.
+	 * @return List the results of the last round, then those of the configurations dropped
+	 * after every round, latest round first
+	 * @throws IOException
+	 */
+	private List<TrialResult> successiveHalving() throws IOException {
+		List<TreeConfiguration> candidates = configurations();
+		int eta = options.getEta();
+		int rounds = 0;
+		for (long n = 1; n < candidates.size(); n *= eta) {
+			rounds++;
+		}
+		int[][] classRows = shuffledClassRows();
+		double smallest = Math.max(options.getMinFraction(), 1.0 * options.getFolds() / data.size());
+
+		ArrayList<List<TrialResult>> dropped = new ArrayList<List<TrialResult>>();
+		List<TrialResult> ranked = null;
+		for (int r = 0; r <= rounds; r++) {
+			int[] rows;
+			if (r == rounds) {
+				rows = data.allRows();
+			} else {
+				rows = sample(classRows, Math.max(smallest, Math.pow(eta, r - rounds)));
+			}
+			ranked = rank(evaluate(candidates, rows));
+			if (r == rounds) break;
+			int keep = (ranked.size() + eta - 1) / eta;
+			dropped.add(ranked.subList(keep, ranked.size()));
+			candidates = new ArrayList<TreeConfiguration>();
+			for (TrialResult trial : ranked.subList(0, keep)) {
+				candidates.add(trial.getConfiguration());
+			}
+		}
+
+		ArrayList<TrialResult> all = new ArrayList<TrialResult>(ranked);
+		for (int r = dropped.size() - 1; r >= 0; r--) {
+			all.addAll(dropped.get(r));
+		}
+		return all;
+	}
+
+	/**
+	 * @return int[][] the rows of every class, shuffled from the seed of the options
+	 */
+	private int[][] shuffledClassRows() {
+		int[] labels = data.getLabels();
+		int[] counts = new int[data.getNumClasses()];
+		for (int label : labels) {
+			counts[label]++;
+		}
+		int[][] classRows = new int[counts.length][];
+		for (int c = 0; c < counts.length; c++) {
+			classRows[c] = new int[counts[c]];
+		}
+		int[] next = new int[counts.length];
+		for (int row = 0; row < labels.length; row++) {
+			classRows[labels[row]][next[labels[row]]++] = row;
+		}
+		Random random = new Random(options.getSeed());
+		for (int[] rows : classRows) {
+			for (int i = rows.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = rows[i];
+				rows[i] = rows[j];
+				rows[j] = swap;
+			}
+		}
+		return classRows;
+	}
+
+	/**
+	 * Stratified sample: the first ceil(fraction * size) shuffled rows of every class, so
+	 * the sample of a fraction holds the samples of the smaller fractions
+	 * @param classRows
+	 * @param fraction
+	 * @return int[]
+	 */
+	private static int[] sample(int[][] classRows, double fraction) {
+		int size = 0;
+		int[] counts = new int[classRows.length];
+		for (int c = 0; c < classRows.length; c++) {
+			counts[c] = (int) Math.min(classRows[c].length, Math.ceil(fraction * classRows[c].length));
+			size += counts[c];
+		}
+		int[] rows = new int[size];
+		int i = 0;
+		for (int c = 0; c < classRows.length; c++) {
+			System.arraycopy(classRows[c], 0, rows, i, counts[c]);
+			i += counts[c];
+		}
+		return rows;
+	}
+
+	/**
+	 * Cross validate configurations on some rows of the data set. The rows are split into
+	 * the same stratified folds for every configuration.
+	 * @param configurations
+	 * @param rows rows of the data set, each at most once
+	 * @return List the result of every configuration, in the order of the configurations
+	 * @throws IOException
+	 */
+	public List<TrialResult> evaluate(final List<TreeConfiguration> configurations, int[] rows) throws IOException {
+		final int k = options.getFolds();
+		int[] labels = new int[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			labels[i] = data.getLabels()[rows[i]];
+		}
+		FoldSplitter splitter = new FoldSplitter(labels, data.getNumClasses(), k, options.getSeed());
+		int[] permutation = splitter.getPermutation();
+
+		// Rows of every fold, and the training rows of the other folds: all of them, or the
+		// first two thirds when the tree is pruned on the last third
+		final int[][] testRows = new int[k][];
+		final int[][] trainRows = new int[k][];
+		final int[][] growRows = new int[k][];
+		final int[][] pruningRows = new int[k][];
+		for (int f = 0; f < k; f++) {
+			testRows[f] = new int[splitter.getTo(f) - splitter.getFrom(f)];
+			for (int p = splitter.getFrom(f); p < splitter.getTo(f); p++) {
+				testRows[f][p - splitter.getFrom(f)] = rows[permutation[p]];
+			}
+			int[] positions = splitter.trainRows(f);
+			trainRows[f] = new int[positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				trainRows[f][i] = rows[positions[i]];
+			}
+			int grow = trainRows[f].length * 2 / 3;
+			growRows[f] = Arrays.copyOf(trainRows[f], grow);
+			pruningRows[f] = Arrays.copyOfRange(trainRows[f], grow, trainRows[f].length);
+		}
+		// The folds of a sample filter the presorted rows of the sample, not of all rows
+		final int[][] roundPresorted = presortedRows == null || rows.length == data.size() ? presortedRows
+				: PresortedIndex.subset(presortedRows, rows, data.size());
+
+		final FoldResult[] folds = new FoldResult[configurations.size() * k];
+		ParallelTasks.forEach(folds.length, options.getParallelism(), new ParallelTasks.Task() {
+			public void run(int t) throws IOException {
+				TreeConfiguration configuration = configurations.get(t / k);
+				int f = t % k;
+				if (configuration.isPruned()) {
+					folds[t] = runFold(configuration, weights(growRows[f]), roundPresorted, growRows[f],
+							pruningRows[f], testRows[f]);
+				} else {
+					folds[t] = runFold(configuration, weights(trainRows[f]), roundPresorted, null, null,
+							testRows[f]);
+				}
+			}
+		});
+
+		ArrayList<TrialResult> trials = new ArrayList<TrialResult>();
+		int numClasses = data.getNumClasses();
+		for (int c = 0; c < configurations.size(); c++) {
+			double[] scores = new double[k];
+			double[] generationTimes = new double[k];
+			int[][] confMatrix = new int[numClasses][numClasses];
+			for (int f = 0; f < k; f++) {
+				FoldResult fold = folds[c * k + f];
+				scores[f] = fold.score;
+				generationTimes[f] = fold.generationTime;
+				for (int actual = 0; actual < numClasses; actual++) {
+					for (int predicted = 0; predicted < numClasses; predicted++) {
+						confMatrix[actual][predicted] += fold.confMatrix[actual][predicted];
+					}
+				}
+			}
+			trials.add(new TrialResult(configurations.get(c), scores, generationTimes, confMatrix, rows.length));
+		}
+		return trials;
+	}
+
+	/**
+	 * @param rows rows of the data set, each at most once
+	 * @return int[] weight 1 for the rows, 0 for the others
+	 */
+	private int[] weights(int[] rows) {
+		int[] weights = new int[data.size()];
+		for (int row : rows) {
+			weights[row] = 1;
+		}
+		return weights;
+	}
+
+	/**
+	 * Train the tree of one fold and score it on the rows of the fold
+	 * @param configuration
+	 * @param weights training rows
+	 * @param presorted the presorted rows of the rows the folds are drawn from, or null
+	 * @param growRows training rows of a pruned tree, null if it is not pruned
+	 * @param pruningRows rows the alpha of a pruned tree is chosen on
+	 * @param testRows
+	 * @return FoldResult
+	 * @throws IOException
+	 */
+	private FoldResult runFold(TreeConfiguration configuration, int[] weights, int[][] presorted, int[] growRows,
+			int[] pruningRows, int[] testRows) throws IOException {
+		FoldResult fold = new FoldResult();
+		long startTime = System.currentTimeMillis();
+		ConstructTree tree = createTree(configuration, weights, presorted);
+		CompiledTree compiled = CompiledTree.compile(tree.construct(), attributes, data.getTarget().getValues());
+		if (growRows != null) {
+			CostComplexityPruning pruning = new CostComplexityPruning(compiled, data, growRows);
+			compiled = pruning.prune(pruning.bestAlpha(data, pruningRows));
+		}
+		long endTime = System.currentTimeMillis();
+		fold.generationTime = (endTime - startTime) / 1000f;
+
+		int[] labels = data.getLabels();
+		int numClasses = data.getNumClasses();
+		fold.confMatrix = new int[numClasses][numClasses];
+		int correct = 0;
+		for (int row : testRows) {
+			int classId = compiled.predict(data, row);
+			if (classId == CompiledTree.NO_PREDICTION) continue;
+			fold.confMatrix[labels[row]][classId]++;
+			if (classId == labels[row]) correct++;
+		}
+		fold.score = correct * 1.0 / testRows.length;
+		return fold;
+	}
+
+	/**
+	 * @param configuration
+	 * @param weights number of times every row is used, null for every row once
+	 * @param presorted presorted rows holding every row used, or null
+	 * @return ConstructTree an untrained tree of the configuration over the shared data,
+	 * built by one thread
+	 */
+	private ConstructTree createTree(TreeConfiguration configuration, int[] weights, int[][] presorted) {
+		ConstructTree tree;
+		if (configuration.getAlgorithm().equals("GR")) {
+			tree = new ConstructTreeGR(data, attributes, configuration.getIsPruned(), configuration.getMaxDepth());
+		} else if (configuration.getAlgorithm().equals("GI")) {
+			tree = new ConstructTreeGI(data, attributes, configuration.getIsPruned(), configuration.getMaxDepth());
+		} else {
+			tree = new ConstructTree(data, attributes, configuration.getIsPruned(), configuration.getMaxDepth());
+		}
+		TreeOptions treeOptions = new TreeOptions(options);
+		treeOptions.setParallelism(1);
+		treeOptions.setMinLeafSize(configuration.getMinLeafSize());
+		tree.setOptions(treeOptions);
+		tree.setRowWeights(weights);
+		tree.setPresortedRows(presorted);
+		tree.setBinnedData(binnedData);
+		return tree;
+	}
+
+	/**
+	 * Train a configuration on all rows; a pruned tree is grown on two thirds of the rows,
+	 * drawn from the seed of the options, and pruned on the others
+	 * @param configuration
+	 * @return CompiledTree
+	 * @throws IOException
+	 */
+	public CompiledTree train(TreeConfiguration configuration) throws IOException {
+		int[] weights = null;
+		int[] growRows = null;
+		int[] pruningRows = null;
+		if (configuration.isPruned()) {
+			FoldSplitter splitter = new FoldSplitter(data.getLabels(), data.getNumClasses(), 3, options.getSeed());
+			growRows = splitter.trainRows(2);
+			pruningRows = Arrays.copyOfRange(splitter.getPermutation(), splitter.getFrom(2), splitter.getTo(2));
+			weights = weights(growRows);
+		}
+		ConstructTree tree = createTree(configuration, weights, presortedRows);
+		CompiledTree compiled = CompiledTree.compile(tree.construct(), attributes, data.getTarget().getValues());
+		featureTable = tree.getFeatureTable();
+		if (growRows != null) {
+			CostComplexityPruning pruning = new CostComplexityPruning(compiled, data, growRows);
+			compiled = pruning.prune(pruning.bestAlpha(data, pruningRows));
+		}
+		return compiled;
+	}
+
+	/**
+	 * Sort results by average accuracy, best first; among equal accuracies the lower
+	 * deviation comes first, then the order of the configurations is kept, so the ranking
+	 * does not depend on timings
+	 * @param trials
+	 * @return List
+	 */
+	public static List<TrialResult> rank(List<TrialResult> trials) {
+		ArrayList<TrialResult> ranked = new ArrayList<TrialResult>(trials);
+		Collections.sort(ranked, new Comparator<TrialResult>() {
+			public int compare(TrialResult a, TrialResult b) {
+				int order = Double.compare(b.getScoreAverage(), a.getScoreAverage());
+				return order != 0 ? order : Double.compare(a.getScoreDeviation(), b.getScoreDeviation());
+			}
+		});
+		return ranked;
+	}
+
+	/**
+	 * @param ranked results, best first
+	 * @return String one line per result with its rank
+	 */
+	public static String formatTable(List<TrialResult> ranked) {
+		StringBuilder table = new StringBuilder();
+		for (int i = 0; i < ranked.size(); i++) {
+			table.append("rank ").append(i + 1).append(": ").append(ranked.get(i)).append("\n");
+		}
+		return table.toString();
+	}
+
+
+	/**
+	 * @return List the results of the last search, best first
+	 */
+	public List<TrialResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return String the feature table of the last tree trained with train
+	 */
+	public String getFeatureTable() {
+		return featureTable;
+	}
+
+	public TuningOptions getOptions() {
+		return options;
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * This class is one point of the search space of a hyperparameter search: the criterion,
+ * maximum depth, cost-complexity pruning and minimum leaf size of a tree.
+ */
+
+package tuning;
+
+public class TreeConfiguration {
+
+	// "IG" for information gain, "GI" for gini index, "GR" for gain ratio
+	private String algorithm;
+	// 0 for no depth limit
+	private int maxDepth;
+	private boolean pruned;
+	private int minLeafSize;
+
+
+	/**
+	 * Constructor
+	 * @param algorithm "IG", "GI" or "GR"
+	 * @param maxDepth 0 for no limit
+	 * @param pruned true to prune the tree with cost-complexity pruning
+	 * @param minLeafSize
+	 */
+	public TreeConfiguration(String algorithm, int maxDepth, boolean pruned, int minLeafSize) {
+		this.algorithm = algorithm;
+		this.maxDepth = maxDepth;
+		this.pruned = pruned;
+		this.minLeafSize = minLeafSize;
+	}
+
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return String "True" if the tree stops at the maximum depth, as the tree builders take it
+	 */
+	public String getIsPruned() {
+		return maxDepth > 0 ? "True" : "False";
+	}
+
+	public boolean isPruned() {
+		return pruned;
+	}
+
+	public int getMinLeafSize() {
+		return minLeafSize;
+	}
+
+	public String toString() {
+		return "algorithm: " + algorithm + "; maxDepth: " + maxDepth + "; pruning: " + pruned
+				+ "; minLeafSize: " + minLeafSize;
+	}
+}
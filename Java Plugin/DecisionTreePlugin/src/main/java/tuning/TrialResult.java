@@ -0,0 +1,93 @@
+/**
+ * This class is the result of the cross validation of one configuration of a
+ * hyperparameter search: the accuracy and generation time of every fold and the confusion
+ * matrix summed over the folds.
+ */
+
+package tuning;
+
+import java.util.Arrays;
+
+public class TrialResult {
+
+	private TreeConfiguration configuration;
+	private double[] scores;
+	private double[] generationTimes;
+	// Counts by actual and predicted class id, over all folds
+	private int[][] confMatrix;
+	// Number of rows the configuration was cross validated on
+	private int rows;
+
+
+	/**
+	 * Constructor
+	 * @param configuration
+	 * @param scores accuracy of every fold
+	 * @param generationTimes seconds taken to train the tree of every fold
+	 * @param confMatrix counts by actual and predicted class id, over all folds
+	 * @param rows number of rows cross validated on
+	 */
+	public TrialResult(TreeConfiguration configuration, double[] scores, double[] generationTimes, int[][] confMatrix,
+			int rows) {
+		this.configuration = configuration;
+		this.scores = scores;
+		this.generationTimes = generationTimes;
+		this.confMatrix = confMatrix;
+		this.rows = rows;
+	}
+
+
+	public TreeConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	public double[] getScores() {
+		return scores;
+	}
+
+	public double[] getGenerationTimes() {
+		return generationTimes;
+	}
+
+	public int[][] getConfMatrix() {
+		return confMatrix;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public double getScoreAverage() {
+		return average(scores);
+	}
+
+	/**
+	 * @return double sample standard deviation of the fold accuracies
+	 */
+	public double getScoreDeviation() {
+		double average = average(scores);
+		double sum = 0;
+		for (double score : scores) {
+			sum += (score - average) * (score - average);
+		}
+		return scores.length < 2 ? 0 : Math.sqrt(sum / (scores.length - 1));
+	}
+
+	public double getGenerationTimeAverage() {
+		return average(generationTimes);
+	}
+
+	private static double average(double[] values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return values.length == 0 ? 0 : sum / values.length;
+	}
+
+	public String toString() {
+		return String.format("accuracy: %.4f; deviation: %.4f; generateTime: %.3f s; rows: %d; %s; confusion matrix: %s",
+				getScoreAverage(), getScoreDeviation(), getGenerationTimeAverage(), rows, configuration,
+				Arrays.deepToString(confMatrix));
+	}
+}
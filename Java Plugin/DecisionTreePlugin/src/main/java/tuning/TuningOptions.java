@@ -0,0 +1,271 @@
+/**
+ * This class holds the options of a hyperparameter search: the values tried for every
+ * setting of a tree (criterion, maximum depth, cost-complexity pruning and minimum leaf
+ * size), the number of cross validation folds, and grid, random or successive halving
+ * search. The other tree options (e.g. maxBins) apply to every trial; parallelism is the
+ * number of fold trainings run at the same time, every tree being built by one thread.
+ * The user functions pass them as an optional map, e.g.
+ * {algorithms: ["IG", "GI"], maxDepth: [0, 4, 8], pruning: [false, true], minLeafSize: [1, 5],
+ * folds: 5, search: "random", trials: 10, parallelism: 8}, or {search: "halving", eta: 3}.
+ */
+
+package tuning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import core.TreeOptions;
+
+public class TuningOptions extends TreeOptions {
+
+	// Values tried for every setting
+	private List<String> algorithms = Arrays.asList("IG", "GI", "GR");
+	// 0 stands for no depth limit
+	private List<Integer> maxDepths = Arrays.asList(0, 3, 5, 8);
+	private List<Boolean> pruning = Arrays.asList(false, true);
+	private List<Integer> minLeafSizes = Arrays.asList(1, 5);
+
+	// Number of cross validation folds of every trial
+	private int folds = 5;
+
+	// "grid" to try all configurations, "random" for a random sample of trials
+	// configurations, "halving" for successive halving of all configurations
+	private String search = "grid";
+	private int trials = 10;
+
+	// Successive halving keeps 1/eta of the configurations per round, and evaluates the
+	// first round on at least minFraction of the rows
+	private int eta = 2;
+	private double minFraction = 0.01;
+
+
+	public TuningOptions() {
+		setParallelism(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Read the options from a map of option name to value. Unknown names are rejected.
+	 * @param options
+	 * @return TuningOptions
+	 */
+	public static TuningOptions fromMap(Map<String, Object> options) {
+		TuningOptions tuningOptions = new TuningOptions();
+		tuningOptions.setAll(options);
+		return tuningOptions;
+	}
+
+	@Override
+	protected void setOption(String name, Object value) {
+		if (name.equals("algorithms")) {
+			ArrayList<String> values = new ArrayList<String>();
+			for (Object algorithm : toList(name, value)) {
+				values.add(String.valueOf(algorithm).trim());
+			}
+			setAlgorithms(values);
+		} else if (name.equals("maxDepth")) {
+			ArrayList<Integer> values = new ArrayList<Integer>();
+			for (Object depth : toList(name, value)) {
+				values.add(toInt(name, depth));
+			}
+			setMaxDepths(values);
+		} else if (name.equals("pruning")) {
+			ArrayList<Boolean> values = new ArrayList<Boolean>();
+			for (Object pruned : toList(name, value)) {
+				values.add(toBoolean(name, pruned));
+			}
+			setPruning(values);
+		} else if (name.equals("minLeafSize")) {
+			ArrayList<Integer> values = new ArrayList<Integer>();
+			for (Object size : toList(name, value)) {
+				values.add(toInt(name, size));
+			}
+			setMinLeafSizes(values);
+		} else if (name.equals("folds")) {
+			setFolds(toInt(name, value));
+		} else if (name.equals("search")) {
+			setSearch(String.valueOf(value).trim());
+		} else if (name.equals("trials")) {
+			setTrials(toInt(name, value));
+		} else if (name.equals("eta")) {
+			setEta(toInt(name, value));
+		} else if (name.equals("minFraction")) {
+			setMinFraction(toDouble(name, value));
+		} else {
+			super.setOption(name, value);
+		}
+	}
+
+	/**
+	 * A list option, or a single value standing for a list of one
+	 */
+	private static Collection<?> toList(String name, Object value) {
+		if (value instanceof Collection) {
+			if (((Collection<?>) value).isEmpty())
+				throw new IllegalArgumentException("Option " + name + " must not be empty");
+			return (Collection<?>) value;
+		}
+		return Arrays.asList(value);
+	}
+
+	/**
+	 * @return List every configuration of the search space, in the order algorithm,
+	 * maximum depth, pruning, minimum leaf size
+	 */
+	public List<TreeConfiguration> grid() {
+		ArrayList<TreeConfiguration> configurations = new ArrayList<TreeConfiguration>();
+		for (String algorithm : algorithms) {
+			for (int maxDepth : maxDepths) {
+				for (boolean pruned : pruning) {
+					for (int minLeafSize : minLeafSizes) {
+						configurations.add(new TreeConfiguration(algorithm, maxDepth, pruned, minLeafSize));
+					}
+				}
+			}
+		}
+		return configurations;
+	}
+
+
+	public List<String> getAlgorithms() {
+		return algorithms;
+	}
+
+	/**
+	 * @param algorithms "IG" for information gain, "GI" for gini index, "GR" for gain ratio
+	 */
+	public void setAlgorithms(List<String> algorithms) {
+		for (String algorithm : algorithms) {
+			if (!algorithm.equals("IG") && !algorithm.equals("GI") && !algorithm.equals("GR"))
+				throw new IllegalArgumentException("algorithms must be IG, GI or GR: " + algorithm);
+		}
+		this.algorithms = algorithms;
+	}
+
+	public List<Integer> getMaxDepths() {
+		return maxDepths;
+	}
+
+	/**
+	 * @param maxDepths maximum depths, 0 for no limit
+	 */
+	public void setMaxDepths(List<Integer> maxDepths) {
+		for (int maxDepth : maxDepths) {
+			if (maxDepth < 0)
+				throw new IllegalArgumentException("maxDepth must be at least 0: " + maxDepth);
+		}
+		this.maxDepths = maxDepths;
+	}
+
+	public List<Boolean> getPruning() {
+		return pruning;
+	}
+
+	/**
+	 * @param pruning false to use the trees as built, true to prune them with
+	 * cost-complexity pruning on a third of the training rows
+	 */
+	public void setPruning(List<Boolean> pruning) {
+		this.pruning = pruning;
+	}
+
+	public List<Integer> getMinLeafSizes() {
+		return minLeafSizes;
+	}
+
+	/**
+	 * @param minLeafSizes minimum leaf sizes, at least 1
+	 */
+	public void setMinLeafSizes(List<Integer> minLeafSizes) {
+		for (int minLeafSize : minLeafSizes) {
+			if (minLeafSize < 1)
+				throw new IllegalArgumentException("minLeafSize must be at least 1: " + minLeafSize);
+		}
+		this.minLeafSizes = minLeafSizes;
+	}
+
+	public int getFolds() {
+		return folds;
+	}
+
+	/**
+	 * @param folds number of cross validation folds, at least 2
+	 */
+	public void setFolds(int folds) {
+		if (folds < 2)
+			throw new IllegalArgumentException("folds must be at least 2: " + folds);
+		this.folds = folds;
+	}
+
+	public String getSearch() {
+		return search;
+	}
+
+	/**
+	 * @param search "grid" to try every configuration, "random" to try trials of them
+	 * drawn at random, "halving" to try every configuration on growing shares of the rows,
+	 * keeping the best 1/eta of them after every round
+	 */
+	public void setSearch(String search) {
+		if (!search.equals("grid") && !search.equals("random") && !search.equals("halving"))
+			throw new IllegalArgumentException("search must be grid, random or halving: " + search);
+		this.search = search;
+	}
+
+	public boolean isRandomSearch() {
+		return search.equals("random");
+	}
+
+	public boolean isHalving() {
+		return search.equals("halving");
+	}
+
+	public int getTrials() {
+		return trials;
+	}
+
+	/**
+	 * @param trials number of configurations of a random search, at least 1
+	 */
+	public void setTrials(int trials) {
+		if (trials < 1)
+			throw new IllegalArgumentException("trials must be at least 1: " + trials);
+		this.trials = trials;
+	}
+
+	public int getEta() {
+		return eta;
+	}
+
+	/**
+	 * @param eta successive halving keeps the best 1/eta of the configurations after every
+	 * round and evaluates the next round on eta times more rows, at least 2
+	 */
+	public void setEta(int eta) {
+		if (eta < 2)
+			throw new IllegalArgumentException("eta must be at least 2: " + eta);
+		this.eta = eta;
+	}
+
+	public double getMinFraction() {
+		return minFraction;
+	}
+
+	/**
+	 * @param minFraction smallest share of the rows a round of successive halving is
+	 * evaluated on, above 0 and at most 1
+	 */
+	public void setMinFraction(double minFraction) {
+		if (!(minFraction > 0 && minFraction <= 1))
+			throw new IllegalArgumentException("minFraction must be above 0 and at most 1: " + minFraction);
+		this.minFraction = minFraction;
+	}
+
+	public String toString() {
+		return super.toString() + "; algorithms: " + algorithms + "; maxDepth: " + maxDepths
+				+ "; pruning: " + pruning + "; minLeafSize: " + minLeafSizes + "; folds: " + folds
+				+ "; search: " + search + "; trials: " + trials + "; eta: " + eta + "; minFraction: " + minFraction;
+	}
+}